@@ -0,0 +1,83 @@
+/*
+ *  This file is part of OpenTSDB.
+ *  Copyright (C) 2021 Yahoo.
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+
+package net.opentsdb.horizon.alerting.corona.processor.emitter.email;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Single metric email chart, JFreeChart against the sparkline plotter.
+ * Run with the gc profiler to also compare the allocation per chart:
+ *
+ * ./gradlew :notification:jmh -Pjmh.includes=PlotterBenchmark
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = "-Djava.awt.headless=true")
+public class PlotterBenchmark {
+
+    private static final double THRESHOLD = 15.;
+
+    @Param({"60", "1440"})
+    private int points;
+
+    private final Plotter plotter = new Plotter();
+
+    private final SparklinePlotter sparklinePlotter = new SparklinePlotter();
+
+    private long[] timestampsSec;
+
+    private double[] values;
+
+    @Setup
+    public void setUp()
+    {
+        timestampsSec = new long[points];
+        values = new double[points];
+        for (int i = 0; i < points; i++) {
+            timestampsSec[i] = 1600000000L + 60L * i;
+            values[i] = 10. * Math.sin(i / 50.);
+        }
+    }
+
+    @Benchmark
+    public byte[] jfreechart()
+    {
+        return plotter.plotPNG(timestampsSec, values, THRESHOLD, 600);
+    }
+
+    @Benchmark
+    public byte[] sparkline()
+    {
+        return sparklinePlotter.plotPNG(timestampsSec, values, THRESHOLD, 600);
+    }
+}
@@ -17,12 +17,15 @@
 
 package net.opentsdb.horizon.alerting.corona.app;
 
+import java.util.ArrayList;
+import java.util.List;
 import java.util.Objects;
 import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Executors;
 import java.util.concurrent.Future;
 
 import net.opentsdb.horizon.alerting.corona.Utils;
+import net.opentsdb.horizon.alerting.corona.model.AbstractSerializer;
 import net.opentsdb.horizon.alerting.corona.model.alert.Alert;
 import net.opentsdb.horizon.alerting.corona.model.alert.impl.GenericAlertSerializer;
 import net.opentsdb.horizon.alerting.corona.model.alertgroup.AlertGroup;
@@ -32,12 +35,14 @@ import net.opentsdb.horizon.alerting.corona.model.contact.impl.ContactsParser;
 import net.opentsdb.horizon.alerting.corona.model.metadata.Metadata;
 import net.opentsdb.horizon.alerting.corona.model.namespace.NamespaceListParser;
 import org.apache.http.impl.client.CloseableHttpClient;
+import org.apache.kafka.clients.producer.Producer;
 
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import net.opentsdb.horizon.alerting.corona.component.Triple;
 import net.opentsdb.horizon.alerting.corona.component.http.CloseableHttpClientBuilder;
+import net.opentsdb.horizon.alerting.corona.component.kafka.KafkaClientProducerBuilder;
 import net.opentsdb.horizon.alerting.corona.component.kafka.KafkaProducerBuilder;
 import net.opentsdb.horizon.alerting.corona.component.kafka.KafkaStream;
 import net.opentsdb.horizon.alerting.corona.config.MetadataProvider;
@@ -57,22 +62,29 @@ import net.opentsdb.horizon.alerting.corona.processor.filter.PeriodOverPeriodAle
 import net.opentsdb.horizon.alerting.corona.processor.filter.SnoozedFilter;
 import net.opentsdb.horizon.alerting.corona.processor.groupby.GroupByProcessor;
 import net.opentsdb.horizon.alerting.corona.processor.groupby.GroupKeyGenerator;
+import net.opentsdb.horizon.alerting.corona.processor.kafka.KafkaStreamReaders;
 import net.opentsdb.horizon.alerting.corona.processor.kafka.impl.KafkaAlertReader;
 import net.opentsdb.horizon.alerting.corona.processor.sender.KafkaTopicWriter;
 import net.opentsdb.horizon.alerting.corona.processor.serializer.PreDispatchSerializer;
 import net.opentsdb.horizon.alerting.corona.processor.serializer.PreSendSerializer;
+import net.opentsdb.horizon.alerting.corona.processor.stage.BoundedStage;
+import net.opentsdb.horizon.alerting.corona.processor.stage.OverflowPolicy;
 
 public class AlertProcessor {
 
     private static final Logger LOG =
             LoggerFactory.getLogger(AlertProcessor.class);
 
+    private static final long STAGE_STOP_TIMEOUT_SEC = 30L;
+
     private final AlertProcessorConfig config;
 
     private final ExecutorService executor;
 
     private final Runnable pipeline;
 
+    private Producer<byte[], byte[]> clientProducer;
+
     public AlertProcessor(AlertProcessorConfig config) {
         Objects.requireNonNull(config, "config cannot be null");
 
@@ -122,6 +134,12 @@ public class AlertProcessor {
         if (topic == null || topic.isEmpty()) {
             throw new RuntimeException("topic cannot be null or empty");
         }
+        if (!config.isLegacyKafkaClient()) {
+            return KafkaTopicWriter.builder()
+                    .setTopic(topic)
+                    .setClientProducer(clientProducer())
+                    .build();
+        }
         return KafkaTopicWriter.builder()
                 .setTopic(topic)
                 .setKafkaProducer(KafkaProducerBuilder.create()
@@ -139,6 +157,95 @@ public class AlertProcessor {
                 .build();
     }
 
+    /**
+     * The client producer is thread safe and batches per partition, so a
+     * single instance is shared by all topic writers.
+     */
+    private synchronized Producer<byte[], byte[]> clientProducer() {
+        if (clientProducer == null) {
+            clientProducer = KafkaClientProducerBuilder.create()
+                    .setBootstrapServers(config.getKafkaBrokerListAsString())
+                    .setEnableIdempotence(config.isKafkaProducerEnableIdempotence())
+                    .setCompressionType(config.getKafkaProducerCompressionType())
+                    .setLingerMs(config.getKafkaProducerLingerMs())
+                    .setBatchSizeBytes(config.getKafkaProducerBatchSizeBytes())
+                    .setRequestTimeoutMs("500")
+                    .setRetryBackoffMs("500")
+                    .build();
+        }
+        return clientProducer;
+    }
+
+    /**
+     * Streams of the alert topic, each read by its own
+     * {@link KafkaAlertReader} thread.
+     */
+    private List<KafkaStream<byte[], byte[]>> alertStreams() {
+        final int numStreams = config.getAlertProcessorKafkaNumStreams();
+        if (!config.isLegacyKafkaClient()) {
+            return KafkaStream.clientBuilder()
+                    .setBootstrapServers(config.getKafkaBrokerListAsString())
+                    .setEnableAutoCommit(
+                            config.getAlertProcessorKafkaAutoCommitEnable())
+                    .setAutoOffsetReset(
+                            config.getAlertProcessorKafkaAutoOffsetReset())
+                    .setMaxPollRecords(
+                            config.getAlertProcessorKafkaMaxPollRecords())
+                    .setFetchMinBytes(
+                            config.getAlertProcessorKafkaFetchMinBytes())
+                    .setFetchMaxWaitMs(
+                            config.getAlertProcessorKafkaFetchMaxWaitMs())
+                    .setMaxPartitionFetchBytes(
+                            config.getAlertProcessorKafkaMaxPartitionFetchBytes())
+                    .setCooperativeRebalancing(
+                            config.isAlertProcessorKafkaCooperativeRebalancing())
+                    .setGroupId(config.getAlertProcessorKafkaGroupId())
+                    .setTopic(config.getAlertProcessorKafkaTopic())
+                    .setClientId(Utils.getConsumerIdWithRandomPrefix())
+                    .build(numStreams);
+        }
+        return KafkaStream.builder()
+                .setAutoCommitEnable(
+                        config.getAlertProcessorKafkaAutoCommitEnable())
+                .setAutoOffsetReset(
+                        config.getAlertProcessorKafkaAutoOffsetReset())
+                .setRebalanceBackoffMs(
+                        config.getAlertProcessorKafkaRebalanceBackoffMs())
+                .setRebalanceRetriesMax(
+                        config.getAlertProcessorKafkaRebalanceRetriesMax())
+                .setZookeeperConnectionTimeoutMs(
+                        config.getAlertProcessorKafkaZookeeperConnectionTimeoutMs())
+                .setZookeeperSessionTimeoutMs(
+                        config.getAlertProcessorKafkaZookeeperSessionTimeoutMs())
+                .setZookeeperConnect(
+                        config.getKafkaZookeeperConnectAsString())
+                .setGroupId(config.getAlertProcessorKafkaGroupId())
+                .setTopic(config.getAlertProcessorKafkaTopic())
+                .setConsumerId(Utils.getConsumerIdWithRandomPrefix())
+                .build(numStreams);
+    }
+
+    /**
+     * @param name       stage name
+     * @param next       processor to run on the stage thread
+     * @param serializer serializer of spilled items
+     * @return a bounded stage in front of {@code next}.
+     */
+    private <T> BoundedStage<T> stage(final String name,
+                                      final Processor<T> next,
+                                      final AbstractSerializer<T> serializer) {
+        return BoundedStage.<T>builder()
+                .setName(name)
+                .setNext(next)
+                .setCapacity(config.getAlertProcessorStageCapacity())
+                .setOverflowPolicy(OverflowPolicy.fromString(
+                        config.getAlertProcessorStageOverflowPolicy()))
+                .setSerializer(serializer)
+                .setSpillDirectory(config.getAlertProcessorStageSpillDirectory())
+                .setMaxSpillBytes(config.getAlertProcessorStageSpillMaxMb() * 1024L * 1024L)
+                .build();
+    }
+
     private Runnable createPipeline() {
         final DbMetadataProvider dbMetadataProvider = metadataProvider();
         LOG.debug("Created DbMetadataProvider");
@@ -213,11 +320,19 @@ public class AlertProcessor {
                         .build();
         LOG.debug("Created MetadataAppender");
 
+        final BoundedStage<AlertGroup> alertGroupStage =
+                stage("alert-groups", metadataAppender, new AlertGroupSerializer());
+        LOG.debug("Created alert group stage");
+
         final GroupByProcessor groupByProcessor =
                 GroupByProcessor.builder()
-                        .setNext(metadataAppender)
+                        .setNext(alertGroupStage)
                         .setNumWorkers(4)
                         .setFlushFrequencyMs(60_000L)
+                        .setMaxStateSize(config.getAlertProcessorGroupByMaxStateSize())
+                        .setStormThreshold(config.getAlertProcessorGroupByStormThreshold())
+                        .setStormSampleSize(config.getAlertProcessorGroupByStormSampleSize())
+                        .setStormTopK(config.getAlertProcessorGroupByStormTopK())
                         .build();
         LOG.debug("Created GroupByProcessor");
 
@@ -234,56 +349,80 @@ public class AlertProcessor {
                 .addProcessor(new Printer<>())
                 .build();
 
-        final KafkaAlertReader kafkaAlertReader = KafkaAlertReader.builder()
-                .setNext(alertFork)
-                .setComponentId("alert-reader")
-                .setSerializer(new GenericAlertSerializer())
-                .setKafkaStream(KafkaStream.builder()
-                        .setAutoCommitEnable(
-                                config.getAlertProcessorKafkaAutoCommitEnable())
-                        .setAutoOffsetReset(
-                                config.getAlertProcessorKafkaAutoOffsetReset())
-                        .setRebalanceBackoffMs(
-                                config.getAlertProcessorKafkaRebalanceBackoffMs())
-                        .setRebalanceRetriesMax(
-                                config.getAlertProcessorKafkaRebalanceRetriesMax())
-                        .setZookeeperConnectionTimeoutMs(
-                                config.getAlertProcessorKafkaZookeeperConnectionTimeoutMs())
-                        .setZookeeperSessionTimeoutMs(
-                                config.getAlertProcessorKafkaZookeeperSessionTimeoutMs())
-                        .setZookeeperConnect(
-                                config.getKafkaZookeeperConnectAsString())
-                        .setGroupId(config.getAlertProcessorKafkaGroupId())
-                        .setTopic(config.getAlertProcessorKafkaTopic())
-                        .setConsumerId(Utils.getConsumerIdWithRandomPrefix())
-                        .build())
-                .build();
-        LOG.debug("Created KafkaAlertReader");
+        // One alert stage per stream, so group keys are generated and
+        // grouped on as many threads as there are readers. A stream owns
+        // its partitions and the daemon partitions by alert hash, so the
+        // alerts of a series keep their order. The group-by state is
+        // shared and thread safe. The stage capacity is per stream.
+        final List<KafkaStream<byte[], byte[]>> alertStreams = alertStreams();
+        final int numStreams = alertStreams.size();
+        final List<BoundedStage<Alert>> alertStages = new ArrayList<>(numStreams);
+        final List<KafkaAlertReader> kafkaAlertReaders =
+                new ArrayList<>(numStreams);
+        for (int i = 0; i < numStreams; i++) {
+            final BoundedStage<Alert> alertStage = stage(
+                    numStreams == 1 ? "alerts" : "alerts-" + i,
+                    alertFork,
+                    new GenericAlertSerializer());
+            alertStages.add(alertStage);
+            kafkaAlertReaders.add(KafkaAlertReader.builder()
+                    .setNext(alertStage)
+                    .setComponentId(numStreams == 1 ?
+                            "alert-reader" : "alert-reader-" + i)
+                    .setSerializer(new GenericAlertSerializer())
+                    .setKafkaStream(alertStreams.get(i))
+                    .build());
+        }
+        LOG.debug("Created {} alert stage(s) and KafkaAlertReader(s)", numStreams);
 
         LOG.info("Created the AlertProcessor pipeline");
         return () -> {
             LOG.debug("Starting DbMetadataProvider");
             dbMetadataProvider.start();
 
+            LOG.debug("Starting stages");
+            alertGroupStage.start();
+            alertStages.forEach(BoundedStage::start);
+
             LOG.debug("Starting GroupByProcessor");
             groupByProcessor.start();
 
             try {
-                LOG.debug("Starting KafkaAlertReader");
-                kafkaAlertReader.run();
+                LOG.debug("Starting KafkaAlertReader(s)");
+                KafkaStreamReaders.run(kafkaAlertReaders);
             } finally {
-                kafkaAlertReader.close();
-                LOG.debug("Closed KafkaAlertReader");
+                kafkaAlertReaders.forEach(KafkaAlertReader::close);
+                LOG.debug("Closed KafkaAlertReader(s)");
+
+                alertStages.forEach(AlertProcessor::stopStage);
+                LOG.debug("Stopped alert stage(s)");
 
                 groupByProcessor.stop();
                 LOG.debug("Stopped GroupByProcessor");
 
+                stopStage(alertGroupStage);
+                LOG.debug("Stopped alert group stage");
+
                 dbMetadataProvider.stop();
                 LOG.debug("Stopped DbMetadataProvider");
+
+                if (clientProducer != null) {
+                    clientProducer.close();
+                    LOG.debug("Closed Kafka client producer");
+                }
             }
         };
     }
 
+    private static void stopStage(final BoundedStage<?> stage) {
+        try {
+            stage.stop(STAGE_STOP_TIMEOUT_SEC);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            LOG.warn("Interrupted while stopping stage", e);
+        }
+    }
+
     private Processor<Triple<AlertGroup, Metadata, Contacts>> createFilters(
             Processor<Triple<AlertGroup, Metadata, Contacts>> next) {
 
@@ -66,6 +66,9 @@ public class AlertProcessorApp {
                 .addStaticTag(
                         "container-name", config.getMonitoringContainerName()
                 )
+                .setReportIntervalSecs(config.getMonitoringReportIntervalSecs())
+                .addOpenTsdbSink(config.getMonitoringOpenTsdbEndpoint())
+                .addFileSink(config.getMonitoringFilePath())
         );
 
         try {
@@ -37,6 +37,8 @@ public class AlertProcessorConfig extends AbstractConfig {
 
     private static final String TRUE = "true";
 
+    static final String KAFKA_CLIENT_LEGACY = "legacy";
+
     private enum C implements ConfigItem {
 
         CONFIG_API_URL,
@@ -60,9 +62,55 @@ public class AlertProcessorConfig extends AbstractConfig {
         ALERT_PROCESSOR_KAFKA_TOPIC,
         ALERT_PROCESSOR_KAFKA_GROUP_ID,
 
+        /**
+         * Number of streams, each read on its own thread and processed up
+         * to the group-by on its own stage. Partitions of the topic are
+         * spread among them.
+         */
+        ALERT_PROCESSOR_KAFKA_NUM_STREAMS(1),
+
         KAFKA_ZOOKEEPER_CONNECT,
         KAFKA_BROKER_LIST,
 
+        /**
+         * Kafka client to use: {@code legacy} for the 0.8 Scala client or
+         * {@code client} for {@code org.apache.kafka.clients}.
+         */
+        KAFKA_CLIENT(KAFKA_CLIENT_LEGACY),
+        ALERT_PROCESSOR_KAFKA_MAX_POLL_RECORDS("500"),
+        ALERT_PROCESSOR_KAFKA_FETCH_MIN_BYTES("1"),
+        ALERT_PROCESSOR_KAFKA_FETCH_MAX_WAIT_MS("500"),
+        ALERT_PROCESSOR_KAFKA_MAX_PARTITION_FETCH_BYTES("1048576"),
+        ALERT_PROCESSOR_KAFKA_COOPERATIVE_REBALANCING(TRUE),
+        KAFKA_PRODUCER_COMPRESSION_TYPE("lz4"),
+        KAFKA_PRODUCER_LINGER_MS("50"),
+        KAFKA_PRODUCER_BATCH_SIZE_BYTES("262144"),
+        KAFKA_PRODUCER_ENABLE_IDEMPOTENCE(TRUE),
+
+        ALERT_PROCESSOR_STAGE_CAPACITY(10_000),
+
+        /**
+         * What a pipeline stage does when its queue is full: {@code block},
+         * {@code drop_oldest} or {@code spill}.
+         */
+        ALERT_PROCESSOR_STAGE_OVERFLOW_POLICY("block"),
+        ALERT_PROCESSOR_STAGE_SPILL_DIRECTORY(System.getProperty("java.io.tmpdir")),
+        ALERT_PROCESSOR_STAGE_SPILL_MAX_MB(1024),
+
+        /**
+         * Number of alerts in the group-by state which triggers a flush
+         * ahead of schedule, unbounded if not positive.
+         */
+        ALERT_PROCESSOR_GROUPBY_MAX_STATE_SIZE(1_000_000),
+
+        /**
+         * Number of alerts above which a group is notified as a summary
+         * with a sample of its alerts, disabled if not positive.
+         */
+        ALERT_PROCESSOR_GROUPBY_STORM_THRESHOLD(1_000),
+        ALERT_PROCESSOR_GROUPBY_STORM_SAMPLE_SIZE(100),
+        ALERT_PROCESSOR_GROUPBY_STORM_TOP_K(10),
+
         MONITORING_NAMESPACE,
         MONITORING_APPLICATION("alert.processor"),
 
@@ -74,6 +122,9 @@ public class AlertProcessorConfig extends AbstractConfig {
          */
         MONITORING_HOST,
         MONITORING_CONTAINER_NAME,
+        MONITORING_REPORT_INTERVAL_SECS(60),
+        MONITORING_OPENTSDB_ENDPOINT,
+        MONITORING_FILE_PATH,
 
         EMAIL_KAFKA_TOPIC("test_corona_email"),
         OPSGENIE_KAFKA_TOPIC("test_corona_opsgenie"),
@@ -233,6 +284,11 @@ public class AlertProcessorConfig extends AbstractConfig {
         return get(C.ALERT_PROCESSOR_KAFKA_GROUP_ID);
     }
 
+    int getAlertProcessorKafkaNumStreams()
+    {
+        return getInt(C.ALERT_PROCESSOR_KAFKA_NUM_STREAMS);
+    }
+
     // ------ Kafka ------ //
 
     List<String> getKafkaZookeeperConnect()
@@ -255,6 +311,62 @@ public class AlertProcessorConfig extends AbstractConfig {
         return String.join(",", getKafkaBrokerList());
     }
 
+    String getKafkaClient()
+    {
+        return get(C.KAFKA_CLIENT);
+    }
+
+    boolean isLegacyKafkaClient()
+    {
+        return KAFKA_CLIENT_LEGACY.equalsIgnoreCase(getKafkaClient());
+    }
+
+    String getAlertProcessorKafkaMaxPollRecords()
+    {
+        return get(C.ALERT_PROCESSOR_KAFKA_MAX_POLL_RECORDS);
+    }
+
+    String getAlertProcessorKafkaFetchMinBytes()
+    {
+        return get(C.ALERT_PROCESSOR_KAFKA_FETCH_MIN_BYTES);
+    }
+
+    String getAlertProcessorKafkaFetchMaxWaitMs()
+    {
+        return get(C.ALERT_PROCESSOR_KAFKA_FETCH_MAX_WAIT_MS);
+    }
+
+    String getAlertProcessorKafkaMaxPartitionFetchBytes()
+    {
+        return get(C.ALERT_PROCESSOR_KAFKA_MAX_PARTITION_FETCH_BYTES);
+    }
+
+    boolean isAlertProcessorKafkaCooperativeRebalancing()
+    {
+        return TRUE.equalsIgnoreCase(
+                get(C.ALERT_PROCESSOR_KAFKA_COOPERATIVE_REBALANCING));
+    }
+
+    String getKafkaProducerCompressionType()
+    {
+        return get(C.KAFKA_PRODUCER_COMPRESSION_TYPE);
+    }
+
+    String getKafkaProducerLingerMs()
+    {
+        return get(C.KAFKA_PRODUCER_LINGER_MS);
+    }
+
+    String getKafkaProducerBatchSizeBytes()
+    {
+        return get(C.KAFKA_PRODUCER_BATCH_SIZE_BYTES);
+    }
+
+    boolean isKafkaProducerEnableIdempotence()
+    {
+        return TRUE.equalsIgnoreCase(get(C.KAFKA_PRODUCER_ENABLE_IDEMPOTENCE));
+    }
+
     // ------ Kafka Producers ------ //
 
     String getEmailKafkaTopic()
@@ -286,6 +398,48 @@ public class AlertProcessorConfig extends AbstractConfig {
         return get(C.PAGERDUTY_KAFKA_TOPIC);
     }
 
+    // ------ Pipeline ------ //
+
+    int getAlertProcessorStageCapacity()
+    {
+        return getInt(C.ALERT_PROCESSOR_STAGE_CAPACITY);
+    }
+
+    String getAlertProcessorStageOverflowPolicy()
+    {
+        return get(C.ALERT_PROCESSOR_STAGE_OVERFLOW_POLICY);
+    }
+
+    String getAlertProcessorStageSpillDirectory()
+    {
+        return get(C.ALERT_PROCESSOR_STAGE_SPILL_DIRECTORY);
+    }
+
+    int getAlertProcessorStageSpillMaxMb()
+    {
+        return getInt(C.ALERT_PROCESSOR_STAGE_SPILL_MAX_MB);
+    }
+
+    int getAlertProcessorGroupByMaxStateSize()
+    {
+        return getInt(C.ALERT_PROCESSOR_GROUPBY_MAX_STATE_SIZE);
+    }
+
+    int getAlertProcessorGroupByStormThreshold()
+    {
+        return getInt(C.ALERT_PROCESSOR_GROUPBY_STORM_THRESHOLD);
+    }
+
+    int getAlertProcessorGroupByStormSampleSize()
+    {
+        return getInt(C.ALERT_PROCESSOR_GROUPBY_STORM_SAMPLE_SIZE);
+    }
+
+    int getAlertProcessorGroupByStormTopK()
+    {
+        return getInt(C.ALERT_PROCESSOR_GROUPBY_STORM_TOP_K);
+    }
+
     // ------ Monitoring ------ //
 
     String getMonitoringNamespace()
@@ -308,6 +462,21 @@ public class AlertProcessorConfig extends AbstractConfig {
         return get(C.MONITORING_CONTAINER_NAME);
     }
 
+    int getMonitoringReportIntervalSecs()
+    {
+        return getInt(C.MONITORING_REPORT_INTERVAL_SECS);
+    }
+
+    String getMonitoringOpenTsdbEndpoint()
+    {
+        return get(C.MONITORING_OPENTSDB_ENDPOINT);
+    }
+
+    String getMonitoringFilePath()
+    {
+        return get(C.MONITORING_FILE_PATH);
+    }
+
     List<String> getSyntheticAlertIds()
     {
         return getList(C.SYNTHETIC_ALERT_IDS);
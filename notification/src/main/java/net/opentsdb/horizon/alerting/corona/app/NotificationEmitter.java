@@ -17,7 +17,9 @@
 
 package net.opentsdb.horizon.alerting.corona.app;
 
+import java.util.ArrayList;
 import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
 import java.util.Objects;
 import java.util.concurrent.ExecutorService;
@@ -47,12 +49,15 @@ import net.opentsdb.horizon.alerting.corona.processor.Processor;
 import net.opentsdb.horizon.alerting.corona.processor.debug.ContactOverrider;
 import net.opentsdb.horizon.alerting.corona.processor.debug.SyntheticMessageKitCounter;
 import net.opentsdb.horizon.alerting.corona.processor.denoiser.Denoiser;
+import net.opentsdb.horizon.alerting.corona.processor.emitter.email.ChartRenderer;
+import net.opentsdb.horizon.alerting.corona.processor.emitter.email.ChartType;
 import net.opentsdb.horizon.alerting.corona.processor.emitter.email.EmailClient;
 import net.opentsdb.horizon.alerting.corona.processor.emitter.email.EmailEmitter;
 import net.opentsdb.horizon.alerting.corona.processor.emitter.email.EmailFormatter;
 import net.opentsdb.horizon.alerting.corona.processor.emitter.oc.OcClient;
 import net.opentsdb.horizon.alerting.corona.processor.emitter.oc.OcEmitter;
 import net.opentsdb.horizon.alerting.corona.processor.emitter.oc.OcFormatter;
+import net.opentsdb.horizon.alerting.corona.processor.emitter.oc.PooledOcClient;
 import net.opentsdb.horizon.alerting.corona.processor.emitter.ocrest.OcRestEmitter;
 import net.opentsdb.horizon.alerting.corona.processor.emitter.ocrest.impl.DefaultOcRestClient;
 import net.opentsdb.horizon.alerting.corona.processor.emitter.ocrest.impl.DefaultOcRestFormatter;
@@ -71,6 +76,7 @@ import net.opentsdb.horizon.alerting.corona.processor.emitter.slack.client.impl.
 import net.opentsdb.horizon.alerting.corona.processor.emitter.webhook.WebhookEmitter;
 import net.opentsdb.horizon.alerting.corona.processor.emitter.webhook.impl.DefaultWebhookClient;
 import net.opentsdb.horizon.alerting.corona.processor.emitter.webhook.impl.DefaultWebhookFormatter;
+import net.opentsdb.horizon.alerting.corona.processor.kafka.KafkaStreamReaders;
 import net.opentsdb.horizon.alerting.corona.processor.kafka.impl.KafkaMessageKitReader;
 
 public class NotificationEmitter {
@@ -109,6 +115,16 @@ public class NotificationEmitter {
 
     private final Runnable pipeline;
 
+    /**
+     * Shared by the emitters of all streams, the renderer is thread safe.
+     */
+    private ChartRenderer chartRenderer;
+
+    /**
+     * Shared by the emitters of all streams, the client is thread safe.
+     */
+    private OcClient ocClient;
+
     /* ------------ Constructor ------------ */
 
     public NotificationEmitter(final NotificationEmitterConfig config)
@@ -129,12 +145,31 @@ public class NotificationEmitter {
                         config.getEmailClientConnectionTimeoutMs()
                 ))
                 .setFormatter(new EmailFormatter(
-                        config.getDebugEmailPrefix()
+                        config.getDebugEmailPrefix(),
+                        getChartRenderer(),
+                        ChartType.valueOf(
+                                config.getEmailSingleMetricChartType().toUpperCase()),
+                        ChartType.valueOf(
+                                config.getEmailPeriodOverPeriodChartType().toUpperCase())
                 ))
                 .setMaxSendAttempts(3)
                 .build();
     }
 
+    private ChartRenderer getChartRenderer()
+    {
+        if (chartRenderer == null) {
+            chartRenderer = ChartRenderer.builder()
+                    .setThreads(config.getEmailChartRenderThreads())
+                    .setQueueSize(config.getEmailChartRenderQueueSize())
+                    .setCacheSizeMb(config.getEmailChartCacheSizeMb())
+                    .setBudgetMs(config.getEmailChartBudgetMs())
+                    .setMaxPoints(config.getEmailChartMaxPoints())
+                    .build();
+        }
+        return chartRenderer;
+    }
+
     private Processor<MessageKit> createOpsGenieEmitter()
     {
         Function<String, String> apikeyEncryptor;
@@ -182,10 +217,30 @@ public class NotificationEmitter {
                 .build();
     }
 
+    private OcClient getOcClient()
+    {
+        if (ocClient != null) {
+            return ocClient;
+        }
+        final List<String> helperCommand = config.getOcHelperCommand();
+        if (helperCommand == null || helperCommand.isEmpty()) {
+            ocClient = new OcClient();
+        } else {
+            ocClient = PooledOcClient.builder()
+                    .setHelperCommand(helperCommand)
+                    .setPoolSize(config.getOcHelperPoolSize())
+                    .setBatchSize(config.getOcHelperBatchSize())
+                    .setQueueCapacity(config.getOcHelperQueueCapacity())
+                    .setTimeoutMs(config.getOcHelperTimeoutMs())
+                    .build();
+        }
+        return ocClient;
+    }
+
     private Processor<MessageKit> createOcEmitter()
     {
         return OcEmitter.builder()
-                .setClient(new OcClient())
+                .setClient(getOcClient())
                 .setFormatter(new OcFormatter(config.getOcColo(), config.getOcHost()))
                 .setDeniedNamespaces(config.getOcDeniedNamespaces())
                 .build();
@@ -381,52 +436,102 @@ public class NotificationEmitter {
         }
     }
 
-    private Runnable createPipeline()
+    private List<KafkaStream<byte[], byte[]>> messageKitStreams()
+    {
+        final int numStreams = config.getKafkaNumStreams();
+        if (!config.isLegacyKafkaClient()) {
+            return KafkaStream.clientBuilder()
+                    .setBootstrapServers(config.getKafkaBrokerListAsString())
+                    .setEnableAutoCommit(config.getKafkaAutoCommitEnable())
+                    .setAutoOffsetReset(config.getKafkaAutoOffsetReset())
+                    .setMaxPollRecords(config.getKafkaMaxPollRecords())
+                    .setFetchMinBytes(config.getKafkaFetchMinBytes())
+                    .setFetchMaxWaitMs(config.getKafkaFetchMaxWaitMs())
+                    .setMaxPartitionFetchBytes(
+                            config.getKafkaMaxPartitionFetchBytes())
+                    .setCooperativeRebalancing(
+                            config.isKafkaCooperativeRebalancing())
+                    .setGroupId(config.getKafkaGroupId())
+                    .setTopic(config.getKafkaTopic())
+                    .setClientId(Utils.getConsumerIdWithRandomPrefix())
+                    .build(numStreams);
+        }
+        return KafkaStream.builder()
+                .setAutoCommitEnable(
+                        config.getKafkaAutoCommitEnable())
+                .setAutoOffsetReset(
+                        config.getKafkaAutoOffsetReset())
+                .setRebalanceBackoffMs(
+                        config.getKafkaRebalanceBackoffMs())
+                .setRebalanceRetriesMax(
+                        config.getKafkaRebalanceRetriesMax())
+                .setZookeeperConnectionTimeoutMs(
+                        config.getKafkaZookeeperConnectionTimeoutMs())
+                .setZookeeperSessionTimeoutMs(
+                        config.getKafkaZookeeperSessionTimeoutMs())
+                .setZookeeperConnect(
+                        config.getKafkaZookeeperConnectAsString())
+                .setGroupId(config.getKafkaGroupId())
+                .setTopic(config.getKafkaTopic())
+                .setConsumerId(Utils.getConsumerIdWithRandomPrefix())
+                .build(numStreams);
+    }
+
+    /**
+     * @return emitter chain for one stream.
+     */
+    private Processor<MessageKit> createChain()
     {
         final Processor<MessageKit> emitter = getEmitter();
         final Processor<MessageKit> emitterProxy = proxy(emitter);
-        final Processor<MessageKit> syntheticAlertCounter =
-                SyntheticMessageKitCounter.create(
-                        emitterProxy,
-                        config.getSyntheticAlertIds()
-                );
-        final KafkaMessageKitReader kafkaReader = KafkaMessageKitReader
-                .builder()
-                .setNext(syntheticAlertCounter)
-                .setComponentId(MESSAGE_KIT_READER_COMPONENT_ID)
-                .setSerializer(MessageKitSerializer.instance())
-                .setKafkaStream(KafkaStream.builder()
-                        .setAutoCommitEnable(
-                                config.getKafkaAutoCommitEnable())
-                        .setAutoOffsetReset(
-                                config.getKafkaAutoOffsetReset())
-                        .setRebalanceBackoffMs(
-                                config.getKafkaRebalanceBackoffMs())
-                        .setRebalanceRetriesMax(
-                                config.getKafkaRebalanceRetriesMax())
-                        .setZookeeperConnectionTimeoutMs(
-                                config.getKafkaZookeeperConnectionTimeoutMs())
-                        .setZookeeperSessionTimeoutMs(
-                                config.getKafkaZookeeperSessionTimeoutMs())
-                        .setZookeeperConnect(
-                                config.getKafkaZookeeperConnectAsString())
-                        .setGroupId(config.getKafkaGroupId())
-                        .setTopic(config.getKafkaTopic())
-                        .setConsumerId(Utils.getConsumerIdWithRandomPrefix())
-                        .build())
-                .build();
+        return SyntheticMessageKitCounter.create(
+                emitterProxy,
+                config.getSyntheticAlertIds()
+        );
+    }
+
+    private Runnable createPipeline()
+    {
+        final List<KafkaStream<byte[], byte[]>> streams = messageKitStreams();
+
+        // Emitters are not thread safe, each reader gets its own chain.
+        final List<KafkaMessageKitReader> kafkaReaders =
+                new ArrayList<>(streams.size());
+        for (int i = 0; i < streams.size(); i++) {
+            kafkaReaders.add(KafkaMessageKitReader
+                    .builder()
+                    .setNext(createChain())
+                    .setComponentId(streams.size() == 1 ?
+                            MESSAGE_KIT_READER_COMPONENT_ID :
+                            MESSAGE_KIT_READER_COMPONENT_ID + '-' + i)
+                    .setSerializer(MessageKitSerializer.instance())
+                    .setKafkaStream(streams.get(i))
+                    .build());
+        }
 
         return () -> {
             try {
-                LOG.debug("Starting KafkaMessageKitReader.");
-                kafkaReader.run();
+                LOG.debug("Starting KafkaMessageKitReader(s).");
+                KafkaStreamReaders.run(kafkaReaders);
             } finally {
-                kafkaReader.close();
-                LOG.debug("Closed KafkaMessageKitReader.");
+                kafkaReaders.forEach(KafkaMessageKitReader::close);
+                LOG.debug("Closed KafkaMessageKitReader(s).");
+                closeOcClient();
             }
         };
     }
 
+    /**
+     * Stops the OC helpers, once the readers no longer emit.
+     */
+    private void closeOcClient()
+    {
+        if (ocClient instanceof PooledOcClient) {
+            ((PooledOcClient) ocClient).close();
+            LOG.debug("Closed PooledOcClient.");
+        }
+    }
+
     public void start()
     {
         LOG.debug("Submitting NotificationEmitter pipeline to executor.");
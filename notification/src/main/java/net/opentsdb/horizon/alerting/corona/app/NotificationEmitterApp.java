@@ -68,6 +68,9 @@ public class NotificationEmitterApp {
                         "container-name",
                         config.getMonitoringContainerName()
                 )
+                .setReportIntervalSecs(config.getMonitoringReportIntervalSecs())
+                .addOpenTsdbSink(config.getMonitoringOpenTsdbEndpoint())
+                .addFileSink(config.getMonitoringFilePath())
         );
 
         Views.initialize(Views.config()
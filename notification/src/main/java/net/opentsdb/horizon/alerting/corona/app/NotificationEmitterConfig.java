@@ -47,10 +47,31 @@ public class NotificationEmitterConfig extends AbstractConfig {
         KAFKA_GROUP_ID,
         KAFKA_ZOOKEEPER_CONNECT,
 
+        /**
+         * Number of streams, each read on its own thread and emitted
+         * through its own emitter chain.
+         */
+        KAFKA_NUM_STREAMS(1),
+
+        /**
+         * Kafka client to use: {@code legacy} for the 0.8 Scala client or
+         * {@code client} for {@code org.apache.kafka.clients}.
+         */
+        KAFKA_CLIENT("legacy"),
+        KAFKA_BROKER_LIST(Collections.emptyList()),
+        KAFKA_MAX_POLL_RECORDS("100"),
+        KAFKA_FETCH_MIN_BYTES("1"),
+        KAFKA_FETCH_MAX_WAIT_MS("500"),
+        KAFKA_MAX_PARTITION_FETCH_BYTES("1048576"),
+        KAFKA_COOPERATIVE_REBALANCING("true"),
+
         MONITORING_NAMESPACE,
         MONITORING_APPLICATION("emitter"),
         MONITORING_HOST,
         MONITORING_CONTAINER_NAME,
+        MONITORING_REPORT_INTERVAL_SECS(60),
+        MONITORING_OPENTSDB_ENDPOINT,
+        MONITORING_FILE_PATH,
 
         SYNTHETIC_ALERT_IDS(Collections.singletonList("3214")),
 
@@ -74,6 +95,13 @@ public class NotificationEmitterConfig extends AbstractConfig {
 
         EMAIL_CLIENT_SMTP_HOST("mta.opentsdb.net"),
         EMAIL_CLIENT_CONNECTION_TIMEOUT_MS(300),
+        EMAIL_CHART_RENDER_THREADS(4),
+        EMAIL_CHART_RENDER_QUEUE_SIZE(1024),
+        EMAIL_CHART_CACHE_SIZE_MB(64),
+        EMAIL_CHART_BUDGET_MS(2000),
+        EMAIL_CHART_MAX_POINTS(600),
+        EMAIL_SINGLE_METRIC_CHART_TYPE("jfreechart"),
+        EMAIL_PERIOD_OVER_PERIOD_CHART_TYPE("jfreechart"),
 
         // OpsGenie Emitter.
 
@@ -91,6 +119,11 @@ public class NotificationEmitterConfig extends AbstractConfig {
         OC_WHITELIST_NAMESPACES,
         OC_WHITELIST_IDS,
         OC_DENIED_NAMESPACES(Collections.emptyList()),
+        OC_HELPER_COMMAND(Collections.emptyList()),
+        OC_HELPER_POOL_SIZE(4),
+        OC_HELPER_BATCH_SIZE(32),
+        OC_HELPER_QUEUE_CAPACITY(1_000),
+        OC_HELPER_TIMEOUT_MS(30_000),
 
         // Prism Emitter
 
@@ -180,6 +213,47 @@ public class NotificationEmitterConfig extends AbstractConfig {
         return getInt(C.EMAIL_CLIENT_CONNECTION_TIMEOUT_MS);
     }
 
+    int getEmailChartRenderThreads()
+    {
+        return getInt(C.EMAIL_CHART_RENDER_THREADS);
+    }
+
+    int getEmailChartRenderQueueSize()
+    {
+        return getInt(C.EMAIL_CHART_RENDER_QUEUE_SIZE);
+    }
+
+    int getEmailChartCacheSizeMb()
+    {
+        return getInt(C.EMAIL_CHART_CACHE_SIZE_MB);
+    }
+
+    int getEmailChartBudgetMs()
+    {
+        return getInt(C.EMAIL_CHART_BUDGET_MS);
+    }
+
+    int getEmailChartMaxPoints()
+    {
+        return getInt(C.EMAIL_CHART_MAX_POINTS);
+    }
+
+    /**
+     * @return "jfreechart" or "sparkline".
+     */
+    String getEmailSingleMetricChartType()
+    {
+        return get(C.EMAIL_SINGLE_METRIC_CHART_TYPE);
+    }
+
+    /**
+     * @return "jfreechart" or "sparkline".
+     */
+    String getEmailPeriodOverPeriodChartType()
+    {
+        return get(C.EMAIL_PERIOD_OVER_PERIOD_CHART_TYPE);
+    }
+
     // ------ OpsGenie Emitter ------ //
 
     String getOpsgenieUser()
@@ -239,6 +313,35 @@ public class NotificationEmitterConfig extends AbstractConfig {
         return getList(C.OC_DENIED_NAMESPACES);
     }
 
+    /**
+     * @return command starting a long-lived OC helper, empty to run a
+     * {@code ywmsg} process per command.
+     */
+    List<String> getOcHelperCommand()
+    {
+        return getList(C.OC_HELPER_COMMAND);
+    }
+
+    int getOcHelperPoolSize()
+    {
+        return getInt(C.OC_HELPER_POOL_SIZE);
+    }
+
+    int getOcHelperBatchSize()
+    {
+        return getInt(C.OC_HELPER_BATCH_SIZE);
+    }
+
+    int getOcHelperQueueCapacity()
+    {
+        return getInt(C.OC_HELPER_QUEUE_CAPACITY);
+    }
+
+    int getOcHelperTimeoutMs()
+    {
+        return getInt(C.OC_HELPER_TIMEOUT_MS);
+    }
+
     // ------ Prism Emitter ------ //
 
     String getPrismHost()
@@ -319,6 +422,11 @@ public class NotificationEmitterConfig extends AbstractConfig {
         return get(C.KAFKA_GROUP_ID);
     }
 
+    int getKafkaNumStreams()
+    {
+        return getInt(C.KAFKA_NUM_STREAMS);
+    }
+
     // ------ Kafka ------ //
 
     List<String> getKafkaZookeeperConnect()
@@ -331,6 +439,41 @@ public class NotificationEmitterConfig extends AbstractConfig {
         return String.join(",", getKafkaZookeeperConnect());
     }
 
+    boolean isLegacyKafkaClient()
+    {
+        return "legacy".equalsIgnoreCase(get(C.KAFKA_CLIENT));
+    }
+
+    String getKafkaBrokerListAsString()
+    {
+        return String.join(",", getList(C.KAFKA_BROKER_LIST));
+    }
+
+    String getKafkaMaxPollRecords()
+    {
+        return get(C.KAFKA_MAX_POLL_RECORDS);
+    }
+
+    String getKafkaFetchMinBytes()
+    {
+        return get(C.KAFKA_FETCH_MIN_BYTES);
+    }
+
+    String getKafkaFetchMaxWaitMs()
+    {
+        return get(C.KAFKA_FETCH_MAX_WAIT_MS);
+    }
+
+    String getKafkaMaxPartitionFetchBytes()
+    {
+        return get(C.KAFKA_MAX_PARTITION_FETCH_BYTES);
+    }
+
+    boolean isKafkaCooperativeRebalancing()
+    {
+        return "true".equalsIgnoreCase(get(C.KAFKA_COOPERATIVE_REBALANCING));
+    }
+
     // ------ Monitoring ------ //
 
     String getMonitoringNamespace()
@@ -353,6 +496,21 @@ public class NotificationEmitterConfig extends AbstractConfig {
         return get(C.MONITORING_CONTAINER_NAME);
     }
 
+    int getMonitoringReportIntervalSecs()
+    {
+        return getInt(C.MONITORING_REPORT_INTERVAL_SECS);
+    }
+
+    String getMonitoringOpenTsdbEndpoint()
+    {
+        return get(C.MONITORING_OPENTSDB_ENDPOINT);
+    }
+
+    String getMonitoringFilePath()
+    {
+        return get(C.MONITORING_FILE_PATH);
+    }
+
     List<String> getSyntheticAlertIds()
     {
         return getList(C.SYNTHETIC_ALERT_IDS);
@@ -0,0 +1,422 @@
+/*
+ *  This file is part of OpenTSDB.
+ *  Copyright (C) 2021 Yahoo.
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+
+package net.opentsdb.horizon.alerting.corona.component.kafka;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.Objects;
+import java.util.Properties;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import javax.annotation.Nonnull;
+
+import org.apache.kafka.clients.consumer.Consumer;
+import org.apache.kafka.clients.consumer.ConsumerConfig;
+import org.apache.kafka.clients.consumer.ConsumerRecord;
+import org.apache.kafka.clients.consumer.ConsumerRecords;
+import org.apache.kafka.clients.consumer.CooperativeStickyAssignor;
+import org.apache.kafka.clients.consumer.KafkaConsumer;
+import org.apache.kafka.common.Metric;
+import org.apache.kafka.common.MetricName;
+import org.apache.kafka.common.errors.WakeupException;
+import org.apache.kafka.common.serialization.ByteArrayDeserializer;
+
+/**
+ * {@link KafkaStream} on top of the {@code org.apache.kafka.clients}
+ * consumer.
+ * <p>
+ * The iterator blocks in {@link Consumer#poll(Duration)} until records
+ * arrive, and is meant to be drained by a single thread, as is the case
+ * for the legacy stream. {@link #close()} may be called from any thread.
+ * The consumer is not thread safe: once a thread iterated, close only
+ * wakes it up and that thread closes the consumer. If no thread ever
+ * iterated, close closes it, guarded against a thread starting to.
+ *
+ * @param <K> key type
+ * @param <V> value type
+ */
+public class ClientKafkaStream<K, V> extends KafkaStream<K, V> {
+
+    /* ------------ Constants ------------ */
+
+    private static final String FETCH_METRICS_GROUP =
+            "consumer-fetch-manager-metrics";
+
+    private static final String RECORDS_LAG_MAX = "records-lag-max";
+
+    /* ------------ Fields ------------ */
+
+    private final Consumer<K, V> consumer;
+
+    private final Duration pollTimeout;
+
+    /**
+     * Records fetched by the last poll but not yet handed out.
+     */
+    private final AtomicInteger buffered = new AtomicInteger();
+
+    private volatile boolean closed;
+
+    /**
+     * Guards the hand over of the consumer between {@link #close()} and
+     * the first iteration.
+     */
+    private final Object consumerLock = new Object();
+
+    private volatile boolean iterated;
+
+    private boolean consumerClosed;
+
+    /**
+     * Consumer wide maximum lag, looked up by the polling thread since
+     * the consumer cannot be accessed concurrently. The metric itself can
+     * be read from any thread.
+     */
+    private volatile Metric lagMetric;
+
+    /* ------------ Constructor ------------ */
+
+    ClientKafkaStream(final Consumer<K, V> consumer,
+                      final String topic,
+                      final Duration pollTimeout)
+    {
+        Objects.requireNonNull(consumer, "consumer cannot be null");
+        Objects.requireNonNull(topic, "topic cannot be null");
+        Objects.requireNonNull(pollTimeout, "pollTimeout cannot be null");
+        this.consumer = consumer;
+        this.pollTimeout = pollTimeout;
+        consumer.subscribe(Collections.singletonList(topic));
+    }
+
+    /* ------------ Methods ------------ */
+
+    @Override
+    public int size()
+    {
+        return buffered.get();
+    }
+
+    /**
+     * @return maximum lag across the partitions assigned to the consumer
+     * over the last metrics window, negative until known.
+     */
+    @Override
+    public long lag()
+    {
+        final Metric metric = lagMetric;
+        if (metric == null) {
+            return -1;
+        }
+        final Object value = metric.metricValue();
+        if (!(value instanceof Number)) {
+            return -1;
+        }
+        final double lag = ((Number) value).doubleValue();
+        return Double.isNaN(lag) ? -1 : (long) lag;
+    }
+
+    private void findLagMetric()
+    {
+        for (Map.Entry<MetricName, ? extends Metric> entry :
+                consumer.metrics().entrySet()) {
+            final MetricName name = entry.getKey();
+            if (RECORDS_LAG_MAX.equals(name.name())
+                    && FETCH_METRICS_GROUP.equals(name.group())
+                    && !name.tags().containsKey("topic")
+                    && !name.tags().containsKey("partition")) {
+                lagMetric = entry.getValue();
+                return;
+            }
+        }
+    }
+
+    @Override
+    @Nonnull
+    public Iterator<KafkaMessage<K, V>> iterator()
+    {
+        return new Iterator<KafkaMessage<K, V>>() {
+
+            private Iterator<ConsumerRecord<K, V>> batch =
+                    Collections.emptyIterator();
+
+            @Override
+            public boolean hasNext()
+            {
+                if (!iterated) {
+                    synchronized (consumerLock) {
+                        if (consumerClosed) {
+                            return false;
+                        }
+                        iterated = true;
+                    }
+                }
+                try {
+                    while (!batch.hasNext()) {
+                        if (closed) {
+                            closeConsumer();
+                            return false;
+                        }
+                        final ConsumerRecords<K, V> records =
+                                consumer.poll(pollTimeout);
+                        buffered.set(records.count());
+                        batch = records.iterator();
+                        if (lagMetric == null) {
+                            findLagMetric();
+                        }
+                    }
+                    return true;
+                } catch (WakeupException e) {
+                    if (!closed) {
+                        throw e;
+                    }
+                    closeConsumer();
+                    return false;
+                }
+            }
+
+            @Override
+            public KafkaMessage<K, V> next()
+            {
+                if (!hasNext()) {
+                    throw new NoSuchElementException();
+                }
+                final ConsumerRecord<K, V> record = batch.next();
+                buffered.decrementAndGet();
+                return new KafkaMessage<>(
+                        record.topic(),
+                        record.partition(),
+                        record.offset(),
+                        record.key(),
+                        record.value()
+                );
+            }
+        };
+    }
+
+    /**
+     * Called by the iterating thread, or under the lock before any
+     * thread iterated.
+     */
+    private void closeConsumer()
+    {
+        if (consumerClosed) {
+            return;
+        }
+        consumerClosed = true;
+        consumer.close();
+    }
+
+    @Override
+    public void close()
+    {
+        if (closed) {
+            return;
+        }
+        closed = true;
+        synchronized (consumerLock) {
+            if (!iterated) {
+                closeConsumer();
+                return;
+            }
+        }
+        consumer.wakeup();
+    }
+
+    /* ------------ Builder ------------ */
+
+    public static class Builder {
+
+        private static final long DEFAULT_POLL_TIMEOUT_MS = 1_000L;
+
+        private final Properties properties;
+
+        private String topic;
+
+        private long pollTimeoutMs = DEFAULT_POLL_TIMEOUT_MS;
+
+        Builder()
+        {
+            this.properties = new Properties();
+            properties.setProperty(ConsumerConfig.KEY_DESERIALIZER_CLASS_CONFIG,
+                    ByteArrayDeserializer.class.getName());
+            properties.setProperty(ConsumerConfig.VALUE_DESERIALIZER_CLASS_CONFIG,
+                    ByteArrayDeserializer.class.getName());
+        }
+
+        public Builder setTopic(String topic)
+        {
+            this.topic = topic;
+            return this;
+        }
+
+        public Builder setBootstrapServers(String bootstrapServers)
+        {
+            properties.setProperty(ConsumerConfig.BOOTSTRAP_SERVERS_CONFIG,
+                    bootstrapServers);
+            return this;
+        }
+
+        public Builder setGroupId(String groupId)
+        {
+            properties.setProperty(ConsumerConfig.GROUP_ID_CONFIG, groupId);
+            return this;
+        }
+
+        public Builder setClientId(String clientId)
+        {
+            properties.setProperty(ConsumerConfig.CLIENT_ID_CONFIG, clientId);
+            return this;
+        }
+
+        public Builder setEnableAutoCommit(String enableAutoCommit)
+        {
+            properties.setProperty(ConsumerConfig.ENABLE_AUTO_COMMIT_CONFIG,
+                    enableAutoCommit);
+            return this;
+        }
+
+        /**
+         * Accepts both the new ({@code earliest}, {@code latest}) and the
+         * 0.8 ({@code smallest}, {@code largest}) values, so existing
+         * configuration keeps working.
+         */
+        public Builder setAutoOffsetReset(String autoOffsetReset)
+        {
+            final String value;
+            if ("smallest".equalsIgnoreCase(autoOffsetReset)) {
+                value = "earliest";
+            } else if ("largest".equalsIgnoreCase(autoOffsetReset)) {
+                value = "latest";
+            } else {
+                value = autoOffsetReset;
+            }
+            properties.setProperty(ConsumerConfig.AUTO_OFFSET_RESET_CONFIG,
+                    value);
+            return this;
+        }
+
+        public Builder setMaxPollRecords(String maxPollRecords)
+        {
+            properties.setProperty(ConsumerConfig.MAX_POLL_RECORDS_CONFIG,
+                    maxPollRecords);
+            return this;
+        }
+
+        public Builder setFetchMinBytes(String fetchMinBytes)
+        {
+            properties.setProperty(ConsumerConfig.FETCH_MIN_BYTES_CONFIG,
+                    fetchMinBytes);
+            return this;
+        }
+
+        public Builder setFetchMaxWaitMs(String fetchMaxWaitMs)
+        {
+            properties.setProperty(ConsumerConfig.FETCH_MAX_WAIT_MS_CONFIG,
+                    fetchMaxWaitMs);
+            return this;
+        }
+
+        public Builder setMaxPartitionFetchBytes(String maxPartitionFetchBytes)
+        {
+            properties.setProperty(
+                    ConsumerConfig.MAX_PARTITION_FETCH_BYTES_CONFIG,
+                    maxPartitionFetchBytes);
+            return this;
+        }
+
+        /**
+         * Use incremental cooperative rebalancing, so a rebalance only
+         * revokes the partitions which actually move.
+         */
+        public Builder setCooperativeRebalancing(boolean cooperative)
+        {
+            if (cooperative) {
+                properties.setProperty(
+                        ConsumerConfig.PARTITION_ASSIGNMENT_STRATEGY_CONFIG,
+                        CooperativeStickyAssignor.class.getName());
+            } else {
+                properties.remove(
+                        ConsumerConfig.PARTITION_ASSIGNMENT_STRATEGY_CONFIG);
+            }
+            return this;
+        }
+
+        public Builder setPollTimeoutMs(long pollTimeoutMs)
+        {
+            this.pollTimeoutMs = pollTimeoutMs;
+            return this;
+        }
+
+        /**
+         * Escape hatch for consumer settings without a dedicated setter.
+         */
+        public Builder setProperty(String key, String value)
+        {
+            properties.setProperty(key, value);
+            return this;
+        }
+
+        public ClientKafkaStream<byte[], byte[]> build()
+        {
+            return new ClientKafkaStream<>(
+                    new KafkaConsumer<>(properties),
+                    topic,
+                    Duration.ofMillis(pollTimeoutMs)
+            );
+        }
+
+        /**
+         * Builds consumers of the same group, each of which is assigned
+         * its own share of the partitions. The client id, if set, is
+         * suffixed with the stream index.
+         *
+         * @param numStreams number of streams
+         * @return the streams.
+         */
+        public List<KafkaStream<byte[], byte[]>> build(final int numStreams)
+        {
+            if (numStreams <= 0) {
+                throw new IllegalArgumentException(
+                        "numStreams cannot be <= 0, given " + numStreams);
+            }
+            final String clientId =
+                    properties.getProperty(ConsumerConfig.CLIENT_ID_CONFIG);
+            final List<KafkaStream<byte[], byte[]>> streams =
+                    new ArrayList<>(numStreams);
+            for (int i = 0; i < numStreams; i++) {
+                final Properties props = new Properties();
+                props.putAll(properties);
+                if (clientId != null && numStreams > 1) {
+                    props.setProperty(ConsumerConfig.CLIENT_ID_CONFIG,
+                            clientId + '-' + i);
+                }
+                streams.add(new ClientKafkaStream<>(
+                        new KafkaConsumer<byte[], byte[]>(props),
+                        topic,
+                        Duration.ofMillis(pollTimeoutMs)
+                ));
+            }
+            return streams;
+        }
+    }
+}
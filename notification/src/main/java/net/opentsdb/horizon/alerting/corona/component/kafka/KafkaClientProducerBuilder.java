@@ -0,0 +1,138 @@
+/*
+ *  This file is part of OpenTSDB.
+ *  Copyright (C) 2021 Yahoo.
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+
+package net.opentsdb.horizon.alerting.corona.component.kafka;
+
+import java.util.Properties;
+
+import org.apache.kafka.clients.producer.KafkaProducer;
+import org.apache.kafka.clients.producer.Producer;
+import org.apache.kafka.clients.producer.ProducerConfig;
+import org.apache.kafka.common.serialization.ByteArraySerializer;
+
+/**
+ * Builds an {@code org.apache.kafka.clients} producer with explicit
+ * batching and compression settings. Counterpart of
+ * {@link KafkaProducerBuilder} for the 0.8 client.
+ */
+public class KafkaClientProducerBuilder {
+
+    public static KafkaClientProducerBuilder create()
+    {
+        return new KafkaClientProducerBuilder();
+    }
+
+    private final Properties properties;
+
+    private KafkaClientProducerBuilder()
+    {
+        this.properties = new Properties();
+        properties.setProperty(ProducerConfig.KEY_SERIALIZER_CLASS_CONFIG,
+                ByteArraySerializer.class.getName());
+        properties.setProperty(ProducerConfig.VALUE_SERIALIZER_CLASS_CONFIG,
+                ByteArraySerializer.class.getName());
+    }
+
+    public KafkaClientProducerBuilder setBootstrapServers(String brokers)
+    {
+        properties.setProperty(ProducerConfig.BOOTSTRAP_SERVERS_CONFIG, brokers);
+        return this;
+    }
+
+    public KafkaClientProducerBuilder setAcks(String acks)
+    {
+        properties.setProperty(ProducerConfig.ACKS_CONFIG, acks);
+        return this;
+    }
+
+    /**
+     * Idempotence requires {@code acks=all}, which is set here as well.
+     */
+    public KafkaClientProducerBuilder setEnableIdempotence(boolean enable)
+    {
+        properties.setProperty(ProducerConfig.ENABLE_IDEMPOTENCE_CONFIG,
+                String.valueOf(enable));
+        if (enable) {
+            properties.setProperty(ProducerConfig.ACKS_CONFIG, "all");
+        }
+        return this;
+    }
+
+    /**
+     * @param compressionType none, gzip, snappy, lz4 or zstd
+     */
+    public KafkaClientProducerBuilder setCompressionType(String compressionType)
+    {
+        properties.setProperty(ProducerConfig.COMPRESSION_TYPE_CONFIG,
+                compressionType);
+        return this;
+    }
+
+    public KafkaClientProducerBuilder setLingerMs(String lingerMs)
+    {
+        properties.setProperty(ProducerConfig.LINGER_MS_CONFIG, lingerMs);
+        return this;
+    }
+
+    public KafkaClientProducerBuilder setBatchSizeBytes(String batchSize)
+    {
+        properties.setProperty(ProducerConfig.BATCH_SIZE_CONFIG, batchSize);
+        return this;
+    }
+
+    public KafkaClientProducerBuilder setBufferMemoryBytes(String bufferMemory)
+    {
+        properties.setProperty(ProducerConfig.BUFFER_MEMORY_CONFIG,
+                bufferMemory);
+        return this;
+    }
+
+    public KafkaClientProducerBuilder setDeliveryTimeoutMs(String timeoutMs)
+    {
+        properties.setProperty(ProducerConfig.DELIVERY_TIMEOUT_MS_CONFIG,
+                timeoutMs);
+        return this;
+    }
+
+    public KafkaClientProducerBuilder setRequestTimeoutMs(String timeoutMs)
+    {
+        properties.setProperty(ProducerConfig.REQUEST_TIMEOUT_MS_CONFIG,
+                timeoutMs);
+        return this;
+    }
+
+    public KafkaClientProducerBuilder setRetryBackoffMs(String backoffMs)
+    {
+        properties.setProperty(ProducerConfig.RETRY_BACKOFF_MS_CONFIG,
+                backoffMs);
+        return this;
+    }
+
+    /**
+     * Escape hatch for producer settings without a dedicated setter.
+     */
+    public KafkaClientProducerBuilder setProperty(String key, String value)
+    {
+        properties.setProperty(key, value);
+        return this;
+    }
+
+    public Producer<byte[], byte[]> build()
+    {
+        return new KafkaProducer<>(properties);
+    }
+}
@@ -0,0 +1,88 @@
+/*
+ *  This file is part of OpenTSDB.
+ *  Copyright (C) 2021 Yahoo.
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+
+package net.opentsdb.horizon.alerting.corona.component.kafka;
+
+/**
+ * Client independent view of a consumed Kafka message.
+ * <p>
+ * Accessor names follow {@code kafka.message.MessageAndMetadata}, so the
+ * readers look the same regardless of which client produced the message.
+ *
+ * @param <K> key type
+ * @param <V> value type
+ */
+public final class KafkaMessage<K, V> {
+
+    private final String topic;
+
+    private final int partition;
+
+    private final long offset;
+
+    private final K key;
+
+    private final V message;
+
+    public KafkaMessage(final String topic,
+                        final int partition,
+                        final long offset,
+                        final K key,
+                        final V message)
+    {
+        this.topic = topic;
+        this.partition = partition;
+        this.offset = offset;
+        this.key = key;
+        this.message = message;
+    }
+
+    public String topic()
+    {
+        return topic;
+    }
+
+    public int partition()
+    {
+        return partition;
+    }
+
+    public long offset()
+    {
+        return offset;
+    }
+
+    public K key()
+    {
+        return key;
+    }
+
+    public V message()
+    {
+        return message;
+    }
+
+    @Override
+    public String toString()
+    {
+        return "KafkaMessage{" +
+                "topic='" + topic + '\'' +
+                ", partition=" + partition +
+                ", offset=" + offset +
+                '}';
+    }
+}
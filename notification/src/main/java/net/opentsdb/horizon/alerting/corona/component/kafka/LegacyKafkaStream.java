@@ -0,0 +1,270 @@
+/*
+ *  This file is part of OpenTSDB.
+ *  Copyright (C) 2021 Yahoo.
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+
+package net.opentsdb.horizon.alerting.corona.component.kafka;
+
+import java.lang.reflect.Field;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Objects;
+import java.util.Properties;
+import java.util.concurrent.BlockingQueue;
+
+import javax.annotation.Nonnull;
+
+import kafka.consumer.ConsumerConfig;
+import kafka.javaapi.consumer.ConsumerConnector;
+import kafka.message.MessageAndMetadata;
+import kafka.serializer.Decoder;
+import kafka.serializer.DefaultDecoder;
+
+/**
+ * {@link KafkaStream} on top of the 0.8 high level (ZooKeeper based)
+ * consumer.
+ * <p>
+ * Streams built together share one connector, so closing one of them
+ * ends the others.
+ */
+public class LegacyKafkaStream<K, V> extends KafkaStream<K, V> {
+
+    private final ConsumerConnector consumerConnector;
+
+    private final kafka.consumer.KafkaStream<K, V> kafkaStream;
+
+    /**
+     * Stream's internal queue. Use only to get size, as in {@link #size()}.
+     * <p>
+     * Release the reference in {@link #close()}.
+     */
+    private BlockingQueue streamQueue;
+
+    private LegacyKafkaStream(final ConsumerConnector consumerConnector,
+                              final kafka.consumer.KafkaStream<K, V> kafkaStream)
+    {
+        Objects.requireNonNull(consumerConnector,
+                "consumerConnector cannot be null");
+        Objects.requireNonNull(kafkaStream, "kafkaStream cannot be null");
+        final String streamClassName = kafkaStream.getClass().getName();
+        if (!streamClassName.equals("kafka.consumer.KafkaStream")) {
+            throw new IllegalArgumentException(
+                    "expected kafka.consumer.KafkaStream. Given: "
+                            + streamClassName);
+        }
+
+        this.consumerConnector = consumerConnector;
+        this.kafkaStream = kafkaStream;
+
+        try {
+            final Field queueField =
+                    kafkaStream.getClass().getDeclaredField("queue");
+            queueField.setAccessible(true);
+            this.streamQueue = (BlockingQueue) queueField.get(kafkaStream);
+        } catch (IllegalAccessException | NoSuchFieldException e) {
+            throw new IllegalArgumentException(
+                    "expected `queue` field on the kafkaStream", e);
+        }
+    }
+
+    @Override
+    public int size()
+    {
+        // Feels like kafkaStream.size() does something very funky,
+        // e.g consuming alert messages. Anyway the implementation
+        // is not efficient.
+        return streamQueue.size();
+    }
+
+    @Override
+    @Nonnull
+    public Iterator<KafkaMessage<K, V>> iterator()
+    {
+        final Iterator<MessageAndMetadata<K, V>> it = kafkaStream.iterator();
+        return new Iterator<KafkaMessage<K, V>>() {
+            @Override
+            public boolean hasNext()
+            {
+                return it.hasNext();
+            }
+
+            @Override
+            public KafkaMessage<K, V> next()
+            {
+                final MessageAndMetadata<K, V> mm = it.next();
+                return new KafkaMessage<>(
+                        mm.topic(),
+                        mm.partition(),
+                        mm.offset(),
+                        mm.key(),
+                        mm.message()
+                );
+            }
+        };
+    }
+
+    @Override
+    public void close()
+    {
+        streamQueue = null;
+        consumerConnector.shutdown();
+    }
+
+    public static class Builder<K, V> {
+
+        private static final Decoder DEFAULT_DECODER = new DefaultDecoder(null);
+
+        private final Properties properties;
+
+        private Decoder<K> keyDecoder;
+
+        private Decoder<V> valueDecoder;
+
+        private String topic;
+
+        /**
+         * Unchecked assignments are fine, since {@link KafkaStream#builder()}
+         * creates a {@code Builder<byte[], byte[]>}.
+         */
+        @SuppressWarnings("unchecked")
+        Builder()
+        {
+            this.properties = new Properties();
+            // Unchecked assignments:
+            this.keyDecoder = DEFAULT_DECODER;
+            this.valueDecoder = DEFAULT_DECODER;
+        }
+
+        public Builder<K, V> setTopic(String topic)
+        {
+            this.topic = topic;
+            return this;
+        }
+
+        public Builder<K, V> setZookeeperConnect(String zookeeperConnect)
+        {
+            properties.setProperty("zookeeper.connect", zookeeperConnect);
+            return this;
+        }
+
+        public Builder<K, V> setGroupId(String groupId)
+        {
+            properties.setProperty("group.id", groupId);
+            return this;
+        }
+
+        public Builder<K, V> setZookeeperSessionTimeoutMs(String timeoutMs)
+        {
+            properties.setProperty("zookeeper.session.timeout.ms", timeoutMs);
+            return this;
+        }
+
+        public Builder<K, V> setZookeeperConnectionTimeoutMs(String timeoutMs)
+        {
+            properties.setProperty("zookeeper.connection.timeout.ms",
+                    timeoutMs);
+            return this;
+        }
+
+        public Builder<K, V> setRebalanceBackoffMs(String backoffMs)
+        {
+            properties.setProperty("rebalance.backoff.ms", backoffMs);
+            return this;
+        }
+
+        public Builder<K, V> setRebalanceRetriesMax(String retriesMax)
+        {
+            properties.setProperty("rebalance.retries.max", retriesMax);
+            return this;
+        }
+
+        public Builder<K, V> setAutoCommitEnable(String autoCommitEnable)
+        {
+            properties.setProperty("auto.commit.enable", autoCommitEnable);
+            return this;
+        }
+
+        public Builder<K, V> setAutoOffsetReset(String autoOffsetReset)
+        {
+            properties.setProperty("auto.offset.reset", autoOffsetReset);
+            return this;
+        }
+
+        public Builder<K, V> setConsumerId(String consumerId)
+        {
+            properties.setProperty("consumer.id", consumerId);
+            return this;
+        }
+
+        public <O> Builder<O, V> setKeyDecoder(Decoder<O> keyDecoder)
+        {
+            @SuppressWarnings("unchecked")
+            final Builder<O, V> other = (Builder<O, V>) this;
+            other.keyDecoder = keyDecoder;
+            return other;
+        }
+
+        public <O> Builder<K, O> setValueDecoder(Decoder<O> valueDecoder)
+        {
+            @SuppressWarnings("unchecked")
+            final Builder<K, O> other = (Builder<K, O>) this;
+            other.valueDecoder = valueDecoder;
+            return other;
+        }
+
+        public KafkaStream<K, V> build()
+        {
+            return build(1).get(0);
+        }
+
+        /**
+         * Builds streams on a single connector, which spreads the
+         * partitions of the topic among them.
+         *
+         * @param numStreams number of streams
+         * @return the streams.
+         */
+        public List<KafkaStream<K, V>> build(final int numStreams)
+        {
+            if (numStreams <= 0) {
+                throw new IllegalArgumentException(
+                        "numStreams cannot be <= 0, given " + numStreams);
+            }
+            final ConsumerConfig config = new ConsumerConfig(properties);
+            final ConsumerConnector connector =
+                    kafka.consumer.Consumer.createJavaConsumerConnector(config);
+
+            final List<kafka.consumer.KafkaStream<K, V>> kafkaStreams =
+                    connector
+                            .createMessageStreams(
+                                    new HashMap<String, Integer>() {{
+                                        put(topic, numStreams);
+                                    }},
+                                    keyDecoder,
+                                    valueDecoder
+                            )
+                            .get(topic);
+
+            final List<KafkaStream<K, V>> streams =
+                    new ArrayList<>(kafkaStreams.size());
+            for (kafka.consumer.KafkaStream<K, V> stream : kafkaStreams) {
+                streams.add(new LegacyKafkaStream<>(connector, stream));
+            }
+            return streams;
+        }
+    }
+}
@@ -27,6 +27,20 @@ public interface MetadataProvider  {
 
     Optional<List<String>> getGroupingRules(long alertId);
 
+    /**
+     * Grouping rules in the order a {@code GroupKey} keeps them.
+     * Implementations should precompute them, since they are needed for
+     * every alert, this default sorts them on each call.
+     *
+     * @param alertId alert id
+     * @return optional with sorted grouping keys, not to be modified.
+     */
+    default Optional<String[]> getGroupingKeys(long alertId)
+    {
+        return getGroupingRules(alertId)
+                .map(rules -> rules.stream().sorted().toArray(String[]::new));
+    }
+
     Optional<Contacts> getContacts(long alertId);
 
     Optional<Metadata> getMetadata(long alertId);
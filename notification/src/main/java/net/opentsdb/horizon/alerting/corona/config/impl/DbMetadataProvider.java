@@ -17,6 +17,7 @@
 
 package net.opentsdb.horizon.alerting.corona.config.impl;
 
+import java.util.Arrays;
 import java.util.Collections;
 import java.util.HashMap;
 import java.util.List;
@@ -80,17 +81,22 @@ public class DbMetadataProvider implements MetadataProvider {
 
     private final Map<Long, List<String>> alertToRules;
 
+    /**
+     * {@link #alertToRules} sorted, so keys are not sorted per alert.
+     */
+    private final Map<Long, String[]> alertToKeys;
+
     private final Map<Long, Contacts> alertToContacts;
 
     private final Map<Long, Metadata> alertToMetadata;
 
     /**
-     * Protect access to {@link #alertToRules}, {@link #alertToContacts},
-     * {@link #alertToMetadata}.
+     * Protect access to {@link #alertToRules}, {@link #alertToKeys},
+     * {@link #alertToContacts}, {@link #alertToMetadata}.
      * <p>
      * Synchronizes {@link #updateAlertEntry(long, List, Contacts, Metadata)},
-     * {@link #getGroupingRules(long)}, {@link #getContacts(long)},
-     * {@link #getMetadata(long)}.
+     * {@link #getGroupingRules(long)}, {@link #getGroupingKeys(long)},
+     * {@link #getContacts(long)}, {@link #getMetadata(long)}.
      */
     private final ReentrantReadWriteLock rwLock;
 
@@ -114,6 +120,7 @@ public class DbMetadataProvider implements MetadataProvider {
         this.updateFrequencySec = updateFrequencySec;
         this.namespacesRef = new AtomicReference<>(Collections.emptyList());
         this.alertToRules = new ConcurrentHashMap<>();
+        this.alertToKeys = new ConcurrentHashMap<>();
         this.alertToContacts = new ConcurrentHashMap<>();
         this.alertToMetadata = new ConcurrentHashMap<>();
         this.rwLock = new ReentrantReadWriteLock();
@@ -225,8 +232,9 @@ public class DbMetadataProvider implements MetadataProvider {
     }
 
     /**
-     * Update {@link #alertToRules}, {@link #alertToContacts},
-     * {@link #alertToMetadata} entries for the given alert id.
+     * Update {@link #alertToRules}, {@link #alertToKeys},
+     * {@link #alertToContacts}, {@link #alertToMetadata} entries for the
+     * given alert id.
      * <p>
      * Synchronized with {@link #getGroupingRules(long)},
      * {@link #getContacts(long)}, {@link #getMetadata(long)}.
@@ -241,10 +249,13 @@ public class DbMetadataProvider implements MetadataProvider {
                                   final Contacts contacts,
                                   final Metadata metadata)
     {
+        final String[] groupingKeys = sortedKeys(groupingRules);
+
         final Lock lock = rwLock.writeLock();
         lock.lock();
         try {
             alertToRules.put(alertId, groupingRules);
+            alertToKeys.put(alertId, groupingKeys);
             alertToContacts.put(alertId, contacts);
             alertToMetadata.put(alertId, metadata);
         } finally {
@@ -252,6 +263,26 @@ public class DbMetadataProvider implements MetadataProvider {
         }
     }
 
+    /**
+     * Sorted and interned, so keys of the same alert are compared by
+     * reference from one update to the next.
+     *
+     * @param groupingRules grouping rules
+     * @return sorted grouping keys.
+     */
+    private static String[] sortedKeys(final List<String> groupingRules)
+    {
+        if (groupingRules.isEmpty()) {
+            return EMPTY_STRING_ARRAY;
+        }
+        final String[] keys = new String[groupingRules.size()];
+        for (int i = 0; i < keys.length; i++) {
+            keys[i] = groupingRules.get(i).intern();
+        }
+        Arrays.sort(keys);
+        return keys;
+    }
+
     private boolean updateMetadata(final String namespace)
     {
         final Optional<List<NAlertConfig>> maybeConfigs =
@@ -391,6 +422,26 @@ public class DbMetadataProvider implements MetadataProvider {
         }
     }
 
+    /**
+     * Returns grouping rules sorted once per metadata update.
+     * <p>
+     * Synchronized with {@link #updateAlertEntry(long, List, Contacts, Metadata)}.
+     *
+     * @param alertId alert id
+     * @return optional with sorted grouping keys.
+     */
+    @Override
+    public Optional<String[]> getGroupingKeys(final long alertId)
+    {
+        final Lock lock = rwLock.readLock();
+        lock.lock();
+        try {
+            return Optional.ofNullable(alertToKeys.get(alertId));
+        } finally {
+            lock.unlock();
+        }
+    }
+
     /**
      * Returns contacts for the given alert id.
      * <p>
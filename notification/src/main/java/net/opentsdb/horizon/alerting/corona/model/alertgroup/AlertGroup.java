@@ -37,18 +37,37 @@ public class AlertGroup {
      */
     private List<Alert> alerts;
 
+    /**
+     * @return summary of all the alerts of the group when the group was
+     * too large and {@link #getAlerts()} is only a sample, null otherwise.
+     */
+    private AlertGroupSummary summary;
+
     /* ------------ Constructor ------------ */
 
     public AlertGroup(final GroupKey groupKey, final List<Alert> alerts)
+    {
+        this(groupKey, alerts, null);
+    }
+
+    public AlertGroup(final GroupKey groupKey,
+                      final List<Alert> alerts,
+                      final AlertGroupSummary summary)
     {
         Objects.requireNonNull(groupKey, "groupKey cannot be null");
         Objects.requireNonNull(alerts, "alerts cannot be null");
         this.groupKey = groupKey;
         this.alerts = alerts;
+        this.summary = summary;
     }
 
     /* ------------ Methods ------------ */
 
+    public boolean isSummarized()
+    {
+        return summary != null;
+    }
+
     @Override
     public boolean equals(Object o)
     {
@@ -60,13 +79,14 @@ public class AlertGroup {
         }
         AlertGroup that = (AlertGroup) o;
         return Objects.equals(groupKey, that.groupKey) &&
-                Objects.equals(alerts, that.alerts);
+                Objects.equals(alerts, that.alerts) &&
+                Objects.equals(summary, that.summary);
     }
 
     @Override
     public int hashCode()
     {
-        return Objects.hash(groupKey, alerts);
+        return Objects.hash(groupKey, alerts, summary);
     }
 
     @Override
@@ -75,6 +95,7 @@ public class AlertGroup {
         return "AlertGroup{" +
                 "groupKey=" + groupKey +
                 ", alerts=" + alerts +
+                ", summary=" + summary +
                 '}';
     }
 
@@ -86,6 +107,8 @@ public class AlertGroup {
 
         private List<Alert> alerts;
 
+        private AlertGroupSummary summary;
+
         public Builder setGroupKey(GroupKey key)
         {
             this.key = key;
@@ -104,9 +127,15 @@ public class AlertGroup {
             return this;
         }
 
+        public Builder setSummary(AlertGroupSummary summary)
+        {
+            this.summary = summary;
+            return this;
+        }
+
         public AlertGroup build()
         {
-            return new AlertGroup(key, alerts);
+            return new AlertGroup(key, alerts, summary);
         }
     }
 
@@ -17,7 +17,10 @@
 
 package net.opentsdb.horizon.alerting.corona.model.alertgroup;
 
+import java.util.ArrayList;
+import java.util.EnumMap;
 import java.util.List;
+import java.util.Map;
 
 import com.esotericsoftware.kryo.Kryo;
 import com.esotericsoftware.kryo.io.Input;
@@ -25,10 +28,20 @@ import com.esotericsoftware.kryo.io.Output;
 
 import net.opentsdb.horizon.alerting.corona.model.AbstractSerializer;
 import net.opentsdb.horizon.alerting.corona.model.alert.Alert;
+import net.opentsdb.horizon.alerting.corona.model.alert.State;
 import net.opentsdb.horizon.alerting.corona.model.alert.impl.GenericAlertSerializer;
 
+/**
+ * The summary of a summarized group follows the alerts, after a marker
+ * byte. Groups without a summary are written as before summaries were
+ * added, and a group ending after its alerts is read without one. That
+ * holds as long as an alert group is the last thing written to its
+ * output, as it is in message kits.
+ */
 public class AlertGroupSerializer extends AbstractSerializer<AlertGroup> {
 
+    private static final byte SUMMARY_MARKER = (byte) 1;
+
     private static final GroupKeySerializer groupKeySerializer =
             new GroupKeySerializer();
 
@@ -49,6 +62,55 @@ public class AlertGroupSerializer extends AbstractSerializer<AlertGroup> {
         groupKeySerializer.write(kryo, output, alertGroup.getGroupKey());
         writeCollection(kryo, output, alertGroup.getAlerts(),
                 alertSerializer::write);
+        if (alertGroup.isSummarized()) {
+            output.writeByte(SUMMARY_MARKER);
+            writeSummary(output, alertGroup.getSummary());
+        }
+    }
+
+    private static void writeSummary(final Output output,
+                                     final AlertGroupSummary summary)
+    {
+        output.writeLong(summary.getTotal());
+
+        final Map<State, Long> stateCounts = summary.getStateCounts();
+        output.writeInt(stateCounts.size());
+        for (Map.Entry<State, Long> entry : stateCounts.entrySet()) {
+            output.writeByte(entry.getKey().getId());
+            output.writeLong(entry.getValue());
+        }
+
+        final List<AlertGroupSummary.TagValueCount> topTagValues =
+                summary.getTopTagValues();
+        output.writeInt(topTagValues.size());
+        for (AlertGroupSummary.TagValueCount tagValue : topTagValues) {
+            output.writeString(tagValue.getKey());
+            output.writeString(tagValue.getValue());
+            output.writeLong(tagValue.getCount());
+        }
+    }
+
+    private static AlertGroupSummary readSummary(final Input input)
+    {
+        final long total = input.readLong();
+
+        final int numStates = input.readInt();
+        final Map<State, Long> stateCounts = new EnumMap<>(State.class);
+        for (int i = 0; i < numStates; i++) {
+            stateCounts.put(State.valueFrom(input.readByte()), input.readLong());
+        }
+
+        final int numTagValues = input.readInt();
+        final List<AlertGroupSummary.TagValueCount> topTagValues =
+                new ArrayList<>(numTagValues);
+        for (int i = 0; i < numTagValues; i++) {
+            topTagValues.add(new AlertGroupSummary.TagValueCount(
+                    input.readString(),
+                    input.readString(),
+                    input.readLong()
+            ));
+        }
+        return new AlertGroupSummary(total, stateCounts, topTagValues);
     }
 
     @Override
@@ -60,6 +122,12 @@ public class AlertGroupSerializer extends AbstractSerializer<AlertGroup> {
                 groupKeySerializer.read(kryo, input, GroupKey.class);
         final List<Alert> alerts =
                 readList(kryo, input, Alert.class, alertSerializer::read);
-        return new AlertGroup(groupKey, alerts);
+        final AlertGroupSummary summary;
+        if (!input.eof() && input.readByte() == SUMMARY_MARKER) {
+            summary = readSummary(input);
+        } else {
+            summary = null;
+        }
+        return new AlertGroup(groupKey, alerts, summary);
     }
 }
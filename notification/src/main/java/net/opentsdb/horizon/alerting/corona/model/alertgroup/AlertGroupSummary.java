@@ -0,0 +1,205 @@
+/*
+ *  This file is part of OpenTSDB.
+ *  Copyright (C) 2021 Yahoo.
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+
+package net.opentsdb.horizon.alerting.corona.model.alertgroup;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+
+import lombok.Getter;
+
+import net.opentsdb.horizon.alerting.corona.model.alert.Alert;
+import net.opentsdb.horizon.alerting.corona.model.alert.State;
+
+/**
+ * Summary of an alert group too large to notify alert by alert. The
+ * group then only carries a sample of its alerts.
+ */
+@Getter
+public class AlertGroupSummary {
+
+    /* ------------ Static Classes ------------ */
+
+    @Getter
+    public static class TagValueCount {
+
+        private final String key;
+
+        private final String value;
+
+        /**
+         * Number of alerts with the tag value. May be overestimated, by
+         * at most the count of the least frequent tracked value.
+         */
+        private final long count;
+
+        public TagValueCount(final String key,
+                             final String value,
+                             final long count)
+        {
+            Objects.requireNonNull(key, "key cannot be null");
+            Objects.requireNonNull(value, "value cannot be null");
+            this.key = key;
+            this.value = value;
+            this.count = count;
+        }
+
+        @Override
+        public boolean equals(Object o)
+        {
+            if (this == o) {
+                return true;
+            }
+            if (o == null || getClass() != o.getClass()) {
+                return false;
+            }
+            TagValueCount that = (TagValueCount) o;
+            return count == that.count &&
+                    key.equals(that.key) &&
+                    value.equals(that.value);
+        }
+
+        @Override
+        public int hashCode()
+        {
+            return Objects.hash(key, value, count);
+        }
+
+        @Override
+        public String toString()
+        {
+            return key + "=" + value + ":" + count;
+        }
+    }
+
+    /* ------------ Fields ------------ */
+
+    /**
+     * @return total number of alerts in the group.
+     */
+    private final long total;
+
+    /**
+     * @return number of alerts by state, states without alerts are
+     * missing.
+     */
+    private final Map<State, Long> stateCounts;
+
+    /**
+     * @return most frequent tag values, most frequent first.
+     */
+    private final List<TagValueCount> topTagValues;
+
+    /* ------------ Constructor ------------ */
+
+    public AlertGroupSummary(final long total,
+                             final Map<State, Long> stateCounts,
+                             final List<TagValueCount> topTagValues)
+    {
+        Objects.requireNonNull(stateCounts, "stateCounts cannot be null");
+        Objects.requireNonNull(topTagValues, "topTagValues cannot be null");
+        this.total = total;
+        this.stateCounts = stateCounts.isEmpty() ?
+                Collections.emptyMap() :
+                Collections.unmodifiableMap(new EnumMap<>(stateCounts));
+        this.topTagValues = Collections.unmodifiableList(topTagValues);
+    }
+
+    /* ------------ Methods ------------ */
+
+    public long getCount(final State state)
+    {
+        return stateCounts.getOrDefault(state, 0L);
+    }
+
+    /**
+     * For filters dropping alerts from a summarized group: the dropped
+     * alerts were counted, so the counts shown must not include them.
+     *
+     * @param dropped alerts removed from the group
+     * @return summary without the dropped alerts.
+     */
+    public AlertGroupSummary without(final Collection<? extends Alert> dropped)
+    {
+        if (dropped.isEmpty()) {
+            return this;
+        }
+        final Map<State, Long> newStateCounts = new EnumMap<>(State.class);
+        newStateCounts.putAll(stateCounts);
+        final List<TagValueCount> newTopTagValues = new ArrayList<>();
+        for (TagValueCount tagValue : topTagValues) {
+            long count = tagValue.count;
+            for (Alert alert : dropped) {
+                final Map<String, String> tags = alert.getTags();
+                if (tags != null &&
+                        tagValue.value.equals(tags.get(tagValue.key))) {
+                    count--;
+                }
+            }
+            if (count > 0) {
+                newTopTagValues.add(
+                        new TagValueCount(tagValue.key, tagValue.value, count));
+            }
+        }
+        newTopTagValues.sort((a, b) -> Long.compare(b.count, a.count));
+        for (Alert alert : dropped) {
+            newStateCounts.computeIfPresent(alert.getState(),
+                    (state, count) -> count > 1 ? count - 1 : null);
+        }
+        return new AlertGroupSummary(
+                Math.max(total - dropped.size(), 0),
+                newStateCounts,
+                newTopTagValues
+        );
+    }
+
+    @Override
+    public boolean equals(Object o)
+    {
+        if (this == o) {
+            return true;
+        }
+        if (o == null || getClass() != o.getClass()) {
+            return false;
+        }
+        AlertGroupSummary that = (AlertGroupSummary) o;
+        return total == that.total &&
+                Objects.equals(stateCounts, that.stateCounts) &&
+                Objects.equals(topTagValues, that.topTagValues);
+    }
+
+    @Override
+    public int hashCode()
+    {
+        return Objects.hash(total, stateCounts, topTagValues);
+    }
+
+    @Override
+    public String toString()
+    {
+        return "AlertGroupSummary{" +
+                "total=" + total +
+                ", stateCounts=" + stateCounts +
+                ", topTagValues=" + topTagValues +
+                '}';
+    }
+}
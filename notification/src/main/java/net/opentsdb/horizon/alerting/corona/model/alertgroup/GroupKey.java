@@ -21,11 +21,22 @@ import java.util.Arrays;
 import java.util.Objects;
 
 import lombok.Getter;
+import net.openhft.hashing.LongHashFunction;
 
 import net.opentsdb.horizon.alerting.corona.model.alert.AlertType;
 
 public class GroupKey {
 
+    /* ------------ Constants ------------ */
+
+    private static final LongHashFunction HASH = LongHashFunction.xx(0L);
+
+    private static final long MULTIPLIER = 0x9E3779B97F4A7C15L;
+
+    private static final long NULL_HASH = 0x5DEECE66DL;
+
+    /* ------------ Fields ------------ */
+
     @Getter
     private final String namespace;
 
@@ -41,6 +52,19 @@ public class GroupKey {
     @Getter
     private final String[] values;
 
+    /**
+     * 64-bit hash of the fields compared in {@link #equals(Object)}.
+     * Equal keys have equal fingerprints, different keys collide rarely
+     * enough for the fingerprint to index the group-by state, which
+     * still compares the keys on a match.
+     */
+    @Getter
+    private final long fingerprint;
+
+    private final int hash;
+
+    /* ------------ Constructor ------------ */
+
     GroupKey(final Builder builder)
     {
         Objects.requireNonNull(builder.namespace, "namespace cannot be null");
@@ -52,6 +76,38 @@ public class GroupKey {
                 builder.keys : new String[]{};
         this.values = builder.values != null ?
                 builder.values : new String[]{};
+        this.fingerprint = fingerprint(namespace, alertId, keys, values);
+        this.hash = (int) (fingerprint ^ (fingerprint >>> 32));
+    }
+
+    /* ------------ Methods ------------ */
+
+    private static long mix(final long h, final long value)
+    {
+        final long x = (h ^ value) * MULTIPLIER;
+        return x ^ (x >>> 29);
+    }
+
+    private static long mix(final long h, final String value)
+    {
+        return mix(h, value == null ? NULL_HASH : HASH.hashChars(value));
+    }
+
+    private static long fingerprint(final String namespace,
+                                    final long alertId,
+                                    final String[] keys,
+                                    final String[] values)
+    {
+        long h = mix(HASH.hashLong(alertId), namespace);
+        h = mix(h, keys.length);
+        for (String key : keys) {
+            h = mix(h, key);
+        }
+        h = mix(h, values.length);
+        for (String value : values) {
+            h = mix(h, value);
+        }
+        return h;
     }
 
     @Override
@@ -64,7 +120,8 @@ public class GroupKey {
             return false;
         }
         GroupKey groupKey = (GroupKey) o;
-        return alertId == groupKey.alertId &&
+        return fingerprint == groupKey.fingerprint &&
+                alertId == groupKey.alertId &&
                 Objects.equals(namespace, groupKey.namespace) &&
                 Arrays.equals(keys, groupKey.keys) &&
                 Arrays.equals(values, groupKey.values);
@@ -73,10 +130,7 @@ public class GroupKey {
     @Override
     public int hashCode()
     {
-        int result = Objects.hash(namespace, alertId);
-        result = 31 * result + Arrays.hashCode(keys);
-        result = 31 * result + Arrays.hashCode(values);
-        return result;
+        return hash;
     }
 
     @Override
@@ -17,9 +17,16 @@
 
 package net.opentsdb.horizon.alerting.corona.monitoring;
 
+import java.io.File;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.ArrayList;
 import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
 import java.util.Objects;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
 
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -40,7 +47,8 @@ import io.ultrabrew.metrics.MetricRegistry;
  *                  .setNamespace("OpenTSDB")
  *                  .setApplication("AlertProcessor")
  *                  .setHost("localhost")
- *                  .addStaticTag("containerId", "alert-processor-0");
+ *                  .addStaticTag("containerId", "alert-processor-0")
+ *                  .addOpenTsdbSink("http://localhost:4242");
  *      AppMonitor.initialize(cfg);
  * }
  * </pre>
@@ -78,6 +86,15 @@ public class AppMonitor {
 
     private final MetricRegistry registry;
 
+    private final MetricsReporter reporter;
+
+    /**
+     * Tag arrays by component, passed as is to the metrics recorded for
+     * every Kafka message.
+     */
+    private final ConcurrentMap<String, String[]> componentTags =
+            new ConcurrentHashMap<>();
+
     /* ------------ Constructor ------------ */
 
     private AppMonitor(final Config config)
@@ -95,14 +112,38 @@ public class AppMonitor {
         }
         config.staticTags.put("host", config.host);
 
-        // TODO - setup reporters.
-        //registry.addReporter(reporter);
+        final MetricsReporter.Builder reporterBuilder = MetricsReporter.builder()
+                .setPrefix(config.application + ".")
+                .setStaticTags(config.staticTags)
+                .setIntervalSecs(config.reportIntervalSecs);
+        config.sinks.forEach(reporterBuilder::addSink);
+        this.reporter = reporterBuilder.build();
+        registry.addReporter(reporter);
+        reporter.start();
     }
 
     /* ------------ Methods ------------ */
 
+    /**
+     * @return the reporter of the registry, for pull endpoints.
+     */
+    public MetricsReporter getReporter()
+    {
+        return reporter;
+    }
+
     // ------------ Utility methods ------------ //
 
+    private String[] componentTags(final String component)
+    {
+        String[] tags = componentTags.get(component);
+        if (tags == null) {
+            tags = componentTags.computeIfAbsent(component,
+                    c -> new String[]{"component", c});
+        }
+        return tags;
+    }
+
     private void time(final String metricName,
                       final long duration,
                       final String... tags)
@@ -152,12 +193,17 @@ public class AppMonitor {
 
     public void gaugeKafkaQueueSize(final long size, final String component)
     {
-        gauge("kafka.queue.size", size, "component", component);
+        gauge("kafka.queue.size", size, componentTags(component));
+    }
+
+    public void gaugeKafkaConsumerLag(final long lag, final String component)
+    {
+        gauge("kafka.consumer.lag", lag, componentTags(component));
     }
 
     public void countKafkaMessageRead(final String component)
     {
-        count("kafka.message.read", "component", component);
+        count("kafka.message.read", componentTags(component));
     }
 
     public void gaugeKafkaReadMesssageSize(final long size, final String topic) {
@@ -174,7 +220,7 @@ public class AppMonitor {
 
     public void countKafkaDeserializationFailed(final String component)
     {
-        count("kafka.deserialization.failed", "component", component);
+        count("kafka.deserialization.failed", componentTags(component));
     }
 
     public void countKafkaMessageWrite(final String topic)
@@ -182,6 +228,11 @@ public class AppMonitor {
         count("kafka.message.write", "topic", topic);
     }
 
+    public void countKafkaMessageWriteFailed(final String topic)
+    {
+        count("kafka.message.write.failed", "topic", topic);
+    }
+
     public void countDispatchFailed(final String type) {
         count("dispatch.failed", "type", type);
     }
@@ -201,6 +252,30 @@ public class AppMonitor {
         count("alert.send.success", "namespace", namespace);
     }
 
+    /**
+     * Times an OC command from the moment it is queued until its helper
+     * answers.
+     */
+    public void timeOcCommandLatencyMs(final long latency)
+    {
+        time("oc.command.latency.ms", latency);
+    }
+
+    public void gaugeOcQueueSize(final long size)
+    {
+        gauge("oc.queue.size", size);
+    }
+
+    public void countOcCommandRejected()
+    {
+        count("oc.command.rejected");
+    }
+
+    public void countOcHelperRestart()
+    {
+        count("oc.helper.restart");
+    }
+
     public void gaugeAlertSentEventsSize(final long size, final String namespace)
     {
         gauge("alert.sent.events.size", size, "namespace", namespace);
@@ -226,6 +301,20 @@ public class AppMonitor {
         count("alert.format.failed", "namespace", namespace);
     }
 
+    /**
+     * @param outcome one of {@code cached}, {@code rendered},
+     *                {@code timeout}, {@code rejected} or {@code failed}.
+     */
+    public void countEmailChart(final String outcome)
+    {
+        count("email.chart", "outcome", outcome);
+    }
+
+    public void timeEmailChartRenderLatencyMs(final long latency)
+    {
+        time("email.chart.render.latency.ms", latency);
+    }
+
     public void countAlertEventTooBig(final String namespace, final long alert_id)
     {
         count("alert.event.too.big", "namespace", namespace, "alert_id", String.valueOf(alert_id));
@@ -245,11 +334,60 @@ public class AppMonitor {
         count("alert.snoozed", count, "namespace", namespace);
     }
 
+    public void gaugeStageQueueSize(final long size, final String stage)
+    {
+        gauge("stage.queue.size", size, componentTags(stage));
+    }
+
+    public void gaugeStageSpillBytes(final long bytes, final String stage)
+    {
+        gauge("stage.spill.bytes", bytes, componentTags(stage));
+    }
+
+    /**
+     * Times how long an upstream processor waited for room in the queue.
+     */
+    public void timeStageBlockedMs(final long latency, final String stage)
+    {
+        time("stage.blocked.ms", latency, componentTags(stage));
+    }
+
+    public void countStageDropped(final String stage)
+    {
+        count("stage.dropped", componentTags(stage));
+    }
+
+    public void countStageDropped(final int count, final String stage)
+    {
+        count("stage.dropped", count, componentTags(stage));
+    }
+
+    public void countStageSpilled(final String stage)
+    {
+        count("stage.spilled", componentTags(stage));
+    }
+
+    public void countStageProcessFailed(final String stage)
+    {
+        count("stage.process.failed", componentTags(stage));
+    }
+
     public void gaugeGroupByStateSize(final long size)
     {
         gauge("groupby.state.size", size);
     }
 
+    /**
+     * Gauges number of group keys which shared a fingerprint with another
+     * key since the group-by state was created.
+     *
+     * @param collisions cumulative number of fingerprint collisions
+     */
+    public void gaugeGroupByCollisions(final long collisions)
+    {
+        gauge("groupby.collisions", collisions);
+    }
+
     public void timeGroupByFlushTotalLatencyMs(final long latency)
     {
         time("groupby.flush.total.latency.ms", latency);
@@ -269,6 +407,26 @@ public class AppMonitor {
         count("groupby.submit.failed");
     }
 
+    /**
+     * Counts state flushes started ahead of schedule because the state
+     * reached its maximum size.
+     */
+    public void countGroupByEarlyFlush()
+    {
+        count("groupby.early.flush");
+    }
+
+    /**
+     * Counts alert groups flushed as a summary with a sample of alerts.
+     *
+     * @param namespace namespace
+     * @param alertId   alert id
+     */
+    public void countGroupByStorm(final String namespace, final long alertId)
+    {
+        count("groupby.storm", "namespace", namespace, "alert_id", Long.toString(alertId));
+    }
+
     /**
      * Gauges sizes of resulting alert groups.
      *
@@ -373,6 +531,10 @@ public class AppMonitor {
 
         private Map<String, String> staticTags;
 
+        private int reportIntervalSecs = 60;
+
+        private final List<MetricSink> sinks = new ArrayList<>();
+
         private Config() { }
 
         public Config setNamespace(final String namespace)
@@ -410,6 +572,45 @@ public class AppMonitor {
             staticTags.put(key, value);
             return this;
         }
+
+        public Config setReportIntervalSecs(final int reportIntervalSecs)
+        {
+            this.reportIntervalSecs = reportIntervalSecs;
+            return this;
+        }
+
+        public Config addSink(final MetricSink sink)
+        {
+            sinks.add(sink);
+            return this;
+        }
+
+        /**
+         * Pushes to an OpenTSDB compatible endpoint. Does nothing if the
+         * endpoint is null or empty.
+         */
+        public Config addOpenTsdbSink(final String endpoint)
+        {
+            if (endpoint == null || endpoint.trim().isEmpty()) {
+                return this;
+            }
+            return addSink(OpenTsdbHttpSink.create(endpoint.trim()));
+        }
+
+        /**
+         * Appends to a file. Does nothing if the path is null or empty.
+         */
+        public Config addFileSink(final String path)
+        {
+            if (path == null || path.trim().isEmpty()) {
+                return this;
+            }
+            try {
+                return addSink(new FileMetricSink(new File(path.trim())));
+            } catch (IOException e) {
+                throw new UncheckedIOException("Cannot open " + path, e);
+            }
+        }
     }
 
     public static Config config()
@@ -0,0 +1,79 @@
+/*
+ *  This file is part of OpenTSDB.
+ *  Copyright (C) 2021 Yahoo.
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+
+package net.opentsdb.horizon.alerting.corona.monitoring;
+
+import java.io.BufferedWriter;
+import java.io.Closeable;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+
+/**
+ * Appends points to a file, one OpenTSDB telnet style line per point:
+ * <pre>
+ * put &lt;metric&gt; &lt;timestamp ms&gt; &lt;value&gt; &lt;tagk=tagv&gt;...
+ * </pre>
+ * Meant for tests and local runs.
+ */
+public class FileMetricSink implements MetricSink, Closeable {
+
+    /* ------------ Fields ------------ */
+
+    private final Writer writer;
+
+    /* ------------ Constructor ------------ */
+
+    public FileMetricSink(final File file) throws IOException
+    {
+        this.writer = new BufferedWriter(new OutputStreamWriter(
+                new FileOutputStream(file, true), StandardCharsets.UTF_8));
+    }
+
+    /* ------------ Methods ------------ */
+
+    @Override
+    public void write(final List<MetricPoint> points) throws IOException
+    {
+        final StringBuilder sb = new StringBuilder(96);
+        for (MetricPoint point : points) {
+            sb.setLength(0);
+            sb.append("put ")
+                    .append(point.getMetric()).append(' ')
+                    .append(point.getTimestampMs()).append(' ')
+                    .append(point.getValue());
+            for (int i = 0; i < point.getTagCount(); i++) {
+                sb.append(' ')
+                        .append(point.getTagKey(i)).append('=')
+                        .append(point.getTagValue(i));
+            }
+            sb.append('\n');
+            writer.write(sb.toString());
+        }
+        writer.flush();
+    }
+
+    @Override
+    public void close() throws IOException
+    {
+        writer.close();
+    }
+}
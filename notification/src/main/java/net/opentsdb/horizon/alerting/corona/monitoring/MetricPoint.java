@@ -0,0 +1,125 @@
+/*
+ *  This file is part of OpenTSDB.
+ *  Copyright (C) 2021 Yahoo.
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+
+package net.opentsdb.horizon.alerting.corona.monitoring;
+
+import java.util.Arrays;
+import java.util.Objects;
+
+/**
+ * One aggregated value of a metric over a reporting window.
+ */
+public final class MetricPoint {
+
+    /* ------------ Fields ------------ */
+
+    private final String metric;
+
+    private final long timestampMs;
+
+    private final double value;
+
+    /**
+     * Alternating tag keys and values, static tags included.
+     */
+    private final String[] tags;
+
+    /* ------------ Constructor ------------ */
+
+    public MetricPoint(final String metric,
+                       final long timestampMs,
+                       final double value,
+                       final String... tags)
+    {
+        Objects.requireNonNull(metric, "metric cannot be null");
+        Objects.requireNonNull(tags, "tags cannot be null");
+        if (tags.length % 2 != 0) {
+            throw new IllegalArgumentException(
+                    "tags must be key/value pairs: " + Arrays.toString(tags));
+        }
+        this.metric = metric;
+        this.timestampMs = timestampMs;
+        this.value = value;
+        this.tags = tags;
+    }
+
+    /* ------------ Methods ------------ */
+
+    public String getMetric()
+    {
+        return metric;
+    }
+
+    public long getTimestampMs()
+    {
+        return timestampMs;
+    }
+
+    public double getValue()
+    {
+        return value;
+    }
+
+    public int getTagCount()
+    {
+        return tags.length / 2;
+    }
+
+    public String getTagKey(final int i)
+    {
+        return tags[2 * i];
+    }
+
+    public String getTagValue(final int i)
+    {
+        return tags[2 * i + 1];
+    }
+
+    @Override
+    public boolean equals(Object o)
+    {
+        if (this == o) {
+            return true;
+        }
+        if (o == null || getClass() != o.getClass()) {
+            return false;
+        }
+        final MetricPoint that = (MetricPoint) o;
+        return timestampMs == that.timestampMs
+                && Double.compare(that.value, value) == 0
+                && metric.equals(that.metric)
+                && Arrays.equals(tags, that.tags);
+    }
+
+    @Override
+    public int hashCode()
+    {
+        return 31 * Objects.hash(metric, timestampMs, value)
+                + Arrays.hashCode(tags);
+    }
+
+    @Override
+    public String toString()
+    {
+        return "MetricPoint{" +
+                "metric='" + metric + '\'' +
+                ", timestampMs=" + timestampMs +
+                ", value=" + value +
+                ", tags=" + Arrays.toString(tags) +
+                '}';
+    }
+}
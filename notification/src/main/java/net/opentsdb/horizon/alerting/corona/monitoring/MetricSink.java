@@ -0,0 +1,33 @@
+/*
+ *  This file is part of OpenTSDB.
+ *  Copyright (C) 2021 Yahoo.
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+
+package net.opentsdb.horizon.alerting.corona.monitoring;
+
+import java.io.IOException;
+import java.util.List;
+
+/**
+ * Destination of the points flushed by {@link MetricsReporter} at the end
+ * of every reporting window.
+ * <p>
+ * Called from the reporter thread only, one window at a time.
+ */
+public interface MetricSink {
+
+    void write(List<MetricPoint> points) throws IOException;
+
+}
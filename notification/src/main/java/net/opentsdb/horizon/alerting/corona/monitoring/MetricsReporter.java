@@ -0,0 +1,367 @@
+/*
+ *  This file is part of OpenTSDB.
+ *  Copyright (C) 2021 Yahoo.
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+
+package net.opentsdb.horizon.alerting.corona.monitoring;
+
+import java.io.Closeable;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Function;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import io.ultrabrew.metrics.Counter;
+import io.ultrabrew.metrics.Gauge;
+import io.ultrabrew.metrics.GaugeDouble;
+import io.ultrabrew.metrics.Metric;
+import io.ultrabrew.metrics.Reporter;
+import io.ultrabrew.metrics.Timer;
+import io.ultrabrew.metrics.data.Aggregator;
+import io.ultrabrew.metrics.data.BasicCounterAggregator;
+import io.ultrabrew.metrics.data.BasicGaugeAggregator;
+import io.ultrabrew.metrics.data.BasicGaugeDoubleAggregator;
+import io.ultrabrew.metrics.data.BasicTimerAggregator;
+import io.ultrabrew.metrics.data.Cursor;
+import io.ultrabrew.metrics.data.Type;
+
+/**
+ * Aggregates the measurements of a {@code MetricRegistry} over fixed
+ * windows and hands every completed window to the configured sinks.
+ * <p>
+ * The last completed window is also kept for {@link #scrape()}, so a
+ * pull endpoint serves the same values the sinks were given. Metrics not
+ * updated during a window are left out of it.
+ */
+public class MetricsReporter implements Reporter, AutoCloseable {
+
+    /* ------------ Constants ------------ */
+
+    private static final Logger LOG =
+            LoggerFactory.getLogger(MetricsReporter.class);
+
+    private static final int HASH_TABLE_CAPACITY = 4096;
+
+    public static final Map<Class<? extends Metric>, Function<Metric, ? extends Aggregator>>
+            DEFAULT_AGGREGATORS;
+
+    static {
+        final Map<Class<? extends Metric>, Function<Metric, ? extends Aggregator>> map =
+                new HashMap<>();
+        map.put(Counter.class, metric ->
+                new BasicCounterAggregator(metric.id, HASH_TABLE_CAPACITY));
+        map.put(Gauge.class, metric ->
+                new BasicGaugeAggregator(metric.id, HASH_TABLE_CAPACITY));
+        map.put(GaugeDouble.class, metric ->
+                new BasicGaugeDoubleAggregator(metric.id, HASH_TABLE_CAPACITY));
+        map.put(Timer.class, metric ->
+                new BasicTimerAggregator(metric.id, HASH_TABLE_CAPACITY));
+        DEFAULT_AGGREGATORS = Collections.unmodifiableMap(map);
+    }
+
+    /* ------------ Fields ------------ */
+
+    private final ConcurrentMap<String, Aggregator> aggregators =
+            new ConcurrentHashMap<>();
+
+    private final Map<Class<? extends Metric>, Function<Metric, ? extends Aggregator>>
+            aggregatorFactories;
+
+    private final String prefix;
+
+    private final String[] staticTags;
+
+    private final List<MetricSink> sinks;
+
+    private final int intervalSecs;
+
+    private ScheduledExecutorService scheduler;
+
+    private long windowStartMs = System.currentTimeMillis();
+
+    private volatile List<MetricPoint> lastWindow = Collections.emptyList();
+
+    /* ------------ Constructor ------------ */
+
+    protected MetricsReporter(final Builder builder)
+    {
+        this.aggregatorFactories = builder.aggregators;
+        this.prefix = builder.prefix == null ? "" : builder.prefix;
+        this.staticTags = new String[2 * builder.staticTags.size()];
+        int i = 0;
+        for (Map.Entry<String, String> tag : builder.staticTags.entrySet()) {
+            staticTags[i++] = tag.getKey();
+            staticTags[i++] = tag.getValue();
+        }
+        this.sinks = Collections.unmodifiableList(new ArrayList<>(builder.sinks));
+        this.intervalSecs = builder.intervalSecs;
+    }
+
+    /* ------------ Methods ------------ */
+
+    @Override
+    public void emit(final Metric metric,
+                     final long timestamp,
+                     final long value,
+                     final String[] tags)
+    {
+        Aggregator aggregator = aggregators.get(metric.id);
+        if (aggregator == null) {
+            aggregator = aggregators.computeIfAbsent(metric.id,
+                    id -> newAggregator(metric));
+        }
+        aggregator.apply(tags, value, timestamp);
+    }
+
+    private Aggregator newAggregator(final Metric metric)
+    {
+        final Function<Metric, ? extends Aggregator> factory =
+                aggregatorFactories.get(metric.getClass());
+        if (factory == null) {
+            throw new IllegalArgumentException(
+                    "No aggregator for " + metric.getClass().getName());
+        }
+        return factory.apply(metric);
+    }
+
+    /**
+     * Starts flushing a window every {@code intervalSecs}, on interval
+     * boundaries. Does nothing if the interval is not positive, the
+     * windows are then flushed by calling {@link #flush()}.
+     */
+    public synchronized void start()
+    {
+        if (intervalSecs <= 0 || scheduler != null) {
+            return;
+        }
+        scheduler = Executors.newSingleThreadScheduledExecutor(r -> {
+            final Thread thread = new Thread(r, "metrics-reporter");
+            thread.setDaemon(true);
+            return thread;
+        });
+        final long intervalMs = TimeUnit.SECONDS.toMillis(intervalSecs);
+        final long delayMs = intervalMs - System.currentTimeMillis() % intervalMs;
+        scheduler.scheduleAtFixedRate(this::flushQuietly,
+                delayMs, intervalMs, TimeUnit.MILLISECONDS);
+    }
+
+    private void flushQuietly()
+    {
+        try {
+            flush();
+        } catch (Exception e) {
+            LOG.error("Failed to flush metrics window", e);
+        }
+    }
+
+    /**
+     * Closes the current window: reads and resets the aggregated values,
+     * keeps them for {@link #scrape()} and writes them to every sink.
+     *
+     * @return the points of the window.
+     */
+    public synchronized List<MetricPoint> flush()
+    {
+        final long nowMs = System.currentTimeMillis();
+        final List<MetricPoint> points = new ArrayList<>();
+        for (Map.Entry<String, Aggregator> entry : aggregators.entrySet()) {
+            collect(entry.getKey(), entry.getValue().cursor(), nowMs, points);
+        }
+        windowStartMs = nowMs;
+
+        final List<MetricPoint> window = Collections.unmodifiableList(points);
+        lastWindow = window;
+        for (MetricSink sink : sinks) {
+            try {
+                sink.write(window);
+            } catch (Exception e) {
+                LOG.warn("Failed to write {} points to {}",
+                        window.size(), sink.getClass().getSimpleName(), e);
+            }
+        }
+        return window;
+    }
+
+    private void collect(final String metricId,
+                         final Cursor cursor,
+                         final long nowMs,
+                         final List<MetricPoint> points)
+    {
+        final String[] fields = cursor.getFields();
+        final Type[] types = cursor.getTypes();
+        final String[] names = new String[fields.length];
+        for (int i = 0; i < fields.length; i++) {
+            names[i] = fields.length == 1
+                    ? prefix + metricId
+                    : prefix + metricId + '.' + fields[i];
+        }
+
+        while (cursor.next()) {
+            if (cursor.lastUpdated() < windowStartMs) {
+                continue;
+            }
+            final String[] tags = withStaticTags(cursor.getTags());
+            for (int i = 0; i < fields.length; i++) {
+                final double value = types[i] == Type.DOUBLE
+                        ? cursor.readAndResetDouble(i)
+                        : cursor.readAndResetLong(i);
+                points.add(new MetricPoint(names[i], nowMs, value, tags));
+            }
+        }
+    }
+
+    private String[] withStaticTags(final String[] tags)
+    {
+        if (staticTags.length == 0) {
+            return tags == null ? staticTags : tags;
+        }
+        if (tags == null || tags.length == 0) {
+            return staticTags;
+        }
+        final String[] merged = new String[tags.length + staticTags.length];
+        System.arraycopy(tags, 0, merged, 0, tags.length);
+        System.arraycopy(staticTags, 0, merged, tags.length, staticTags.length);
+        return merged;
+    }
+
+    /**
+     * @return the last completed window, empty before the first flush.
+     */
+    public List<MetricPoint> getLastWindow()
+    {
+        return lastWindow;
+    }
+
+    /**
+     * @return the last completed window in the Prometheus text format.
+     */
+    public String scrape()
+    {
+        final StringBuilder sb = new StringBuilder();
+        PrometheusFormat.write(lastWindow, sb);
+        return sb.toString();
+    }
+
+    /**
+     * Stops the flushing thread, flushes the current window and closes
+     * the sinks.
+     */
+    @Override
+    public synchronized void close()
+    {
+        if (scheduler != null) {
+            scheduler.shutdown();
+            scheduler = null;
+        }
+        flushQuietly();
+        for (MetricSink sink : sinks) {
+            if (sink instanceof Closeable) {
+                try {
+                    ((Closeable) sink).close();
+                } catch (Exception e) {
+                    LOG.warn("Failed to close {}",
+                            sink.getClass().getSimpleName(), e);
+                }
+            }
+        }
+    }
+
+    /* ------------ Static Methods ------------ */
+
+    public static Builder builder()
+    {
+        return new Builder();
+    }
+
+    /* ------------ Builder ------------ */
+
+    public static final class Builder {
+
+        private Map<Class<? extends Metric>, Function<Metric, ? extends Aggregator>>
+                aggregators = DEFAULT_AGGREGATORS;
+
+        private String prefix;
+
+        private final Map<String, String> staticTags = new HashMap<>();
+
+        private final List<MetricSink> sinks = new ArrayList<>();
+
+        private int intervalSecs = 60;
+
+        private Builder() { }
+
+        public Builder setAggregators(
+                final Map<Class<? extends Metric>, Function<Metric, ? extends Aggregator>> aggregators)
+        {
+            this.aggregators = aggregators;
+            return this;
+        }
+
+        /**
+         * @param prefix prepended to every metric name, e.g.
+         *               {@code "alertengine."}.
+         */
+        public Builder setPrefix(final String prefix)
+        {
+            this.prefix = prefix;
+            return this;
+        }
+
+        public Builder setStaticTags(final Map<String, String> staticTags)
+        {
+            if (staticTags != null) {
+                staticTags.forEach(this::addStaticTag);
+            }
+            return this;
+        }
+
+        public Builder addStaticTag(final String key, final String value)
+        {
+            if (key != null && value != null && !value.isEmpty()) {
+                staticTags.put(key, value);
+            }
+            return this;
+        }
+
+        public Builder addSink(final MetricSink sink)
+        {
+            if (sink != null) {
+                sinks.add(sink);
+            }
+            return this;
+        }
+
+        public Builder setIntervalSecs(final int intervalSecs)
+        {
+            this.intervalSecs = intervalSecs;
+            return this;
+        }
+
+        public MetricsReporter build()
+        {
+            return new MetricsReporter(this);
+        }
+    }
+}
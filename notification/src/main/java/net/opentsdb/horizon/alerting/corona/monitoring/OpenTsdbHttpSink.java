@@ -0,0 +1,159 @@
+/*
+ *  This file is part of OpenTSDB.
+ *  Copyright (C) 2021 Yahoo.
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+
+package net.opentsdb.horizon.alerting.corona.monitoring;
+
+import java.io.ByteArrayOutputStream;
+import java.io.Closeable;
+import java.io.IOException;
+import java.util.List;
+import java.util.Objects;
+
+import org.apache.http.client.methods.CloseableHttpResponse;
+import org.apache.http.client.methods.HttpPost;
+import org.apache.http.entity.ByteArrayEntity;
+import org.apache.http.entity.ContentType;
+import org.apache.http.impl.client.CloseableHttpClient;
+import org.apache.http.util.EntityUtils;
+
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonGenerator;
+
+import net.opentsdb.horizon.alerting.corona.component.http.CloseableHttpClientBuilder;
+
+/**
+ * Pushes points to the {@code /api/put} endpoint of an OpenTSDB
+ * compatible server, usually a collector running next to the process.
+ */
+public class OpenTsdbHttpSink implements MetricSink, Closeable {
+
+    /* ------------ Constants ------------ */
+
+    public static final String PUT_PATH = "/api/put";
+
+    private static final JsonFactory JSON_FACTORY = new JsonFactory();
+
+    private static final int DEFAULT_BATCH_SIZE = 500;
+
+    /* ------------ Fields ------------ */
+
+    private final CloseableHttpClient client;
+
+    private final String url;
+
+    private final int batchSize;
+
+    /* ------------ Constructor ------------ */
+
+    /**
+     * @param client    http client, closed with the sink.
+     * @param endpoint  server base url, e.g. {@code http://localhost:4242}.
+     * @param batchSize maximum number of points per request.
+     */
+    public OpenTsdbHttpSink(final CloseableHttpClient client,
+                            final String endpoint,
+                            final int batchSize)
+    {
+        Objects.requireNonNull(client, "client cannot be null");
+        Objects.requireNonNull(endpoint, "endpoint cannot be null");
+        if (batchSize <= 0) {
+            throw new IllegalArgumentException(
+                    "batchSize has to be > 0. Given: " + batchSize);
+        }
+        this.client = client;
+        this.url = endpoint.endsWith("/")
+                ? endpoint.substring(0, endpoint.length() - 1) + PUT_PATH
+                : endpoint + PUT_PATH;
+        this.batchSize = batchSize;
+    }
+
+    /* ------------ Static Methods ------------ */
+
+    /**
+     * @param endpoint server base url, usually a local collector, hence
+     *                 plain http with a single connection.
+     */
+    public static OpenTsdbHttpSink create(final String endpoint)
+    {
+        final CloseableHttpClient client = CloseableHttpClientBuilder.create()
+                .setTLSEnabled(false)
+                .setRetryMax(1)
+                .setMaxConnTotal(1)
+                .setMaxConnPerRoute(1)
+                .setSocketTimeoutMs(5_000)
+                .build();
+        return new OpenTsdbHttpSink(client, endpoint, DEFAULT_BATCH_SIZE);
+    }
+
+    /* ------------ Methods ------------ */
+
+    @Override
+    public void write(final List<MetricPoint> points) throws IOException
+    {
+        for (int from = 0; from < points.size(); from += batchSize) {
+            final int to = Math.min(points.size(), from + batchSize);
+            post(toJson(points, from, to));
+        }
+    }
+
+    private void post(final byte[] body) throws IOException
+    {
+        final HttpPost post = new HttpPost(url);
+        post.setEntity(new ByteArrayEntity(body, ContentType.APPLICATION_JSON));
+        try (CloseableHttpResponse response = client.execute(post)) {
+            final int status = response.getStatusLine().getStatusCode();
+            final String content = response.getEntity() == null
+                    ? ""
+                    : EntityUtils.toString(response.getEntity());
+            if (status / 100 != 2) {
+                throw new IOException("Put to " + url + " failed: "
+                        + response.getStatusLine() + ' ' + content);
+            }
+        }
+    }
+
+    static byte[] toJson(final List<MetricPoint> points,
+                         final int from,
+                         final int to) throws IOException
+    {
+        final ByteArrayOutputStream out = new ByteArrayOutputStream(128 * (to - from));
+        try (JsonGenerator gen = JSON_FACTORY.createGenerator(out)) {
+            gen.writeStartArray();
+            for (int i = from; i < to; i++) {
+                final MetricPoint point = points.get(i);
+                gen.writeStartObject();
+                gen.writeStringField("metric", point.getMetric());
+                gen.writeNumberField("timestamp", point.getTimestampMs());
+                gen.writeNumberField("value", point.getValue());
+                gen.writeObjectFieldStart("tags");
+                for (int t = 0; t < point.getTagCount(); t++) {
+                    gen.writeStringField(point.getTagKey(t), point.getTagValue(t));
+                }
+                gen.writeEndObject();
+                gen.writeEndObject();
+            }
+            gen.writeEndArray();
+        }
+        return out.toByteArray();
+    }
+
+    @Override
+    public void close() throws IOException
+    {
+        client.close();
+    }
+}
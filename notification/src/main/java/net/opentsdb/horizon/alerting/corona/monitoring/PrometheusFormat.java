@@ -0,0 +1,131 @@
+/*
+ *  This file is part of OpenTSDB.
+ *  Copyright (C) 2021 Yahoo.
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+
+package net.opentsdb.horizon.alerting.corona.monitoring;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+
+/**
+ * Writes points in the Prometheus text exposition format.
+ * <p>
+ * Every point is exposed as a gauge holding its value over the last
+ * window, counters included, so rates are read as they are pushed to
+ * OpenTSDB rather than derived by the scraper.
+ */
+public final class PrometheusFormat {
+
+    /* ------------ Constants ------------ */
+
+    public static final String CONTENT_TYPE = "text/plain; version=0.0.4; charset=utf-8";
+
+    /* ------------ Constructor ------------ */
+
+    private PrometheusFormat() { }
+
+    /* ------------ Static Methods ------------ */
+
+    public static void write(final List<MetricPoint> points, final StringBuilder out)
+    {
+        final List<MetricPoint> sorted = new ArrayList<>(points);
+        // Stable, keeps the series of a metric in aggregation order.
+        sorted.sort(Comparator.comparing(MetricPoint::getMetric));
+
+        String family = null;
+        for (MetricPoint point : sorted) {
+            final String name = sanitize(point.getMetric(), true);
+            if (!name.equals(family)) {
+                family = name;
+                out.append("# TYPE ").append(name).append(" gauge\n");
+            }
+            out.append(name);
+            final int tagCount = point.getTagCount();
+            if (tagCount > 0) {
+                out.append('{');
+                for (int i = 0; i < tagCount; i++) {
+                    if (i > 0) {
+                        out.append(',');
+                    }
+                    out.append(sanitize(point.getTagKey(i), false)).append("=\"");
+                    escape(point.getTagValue(i), out);
+                    out.append('"');
+                }
+                out.append('}');
+            }
+            out.append(' ');
+            writeValue(point.getValue(), out);
+            out.append('\n');
+        }
+    }
+
+    /**
+     * Metric names allow {@code [a-zA-Z0-9_:]}, label names the same
+     * without {@code :}, neither may start with a digit.
+     */
+    static String sanitize(final String name, final boolean metric)
+    {
+        final StringBuilder sb = new StringBuilder(name.length() + 1);
+        for (int i = 0; i < name.length(); i++) {
+            final char c = name.charAt(i);
+            final boolean valid = (c >= 'a' && c <= 'z')
+                    || (c >= 'A' && c <= 'Z')
+                    || c == '_'
+                    || (metric && c == ':')
+                    || (i > 0 && c >= '0' && c <= '9');
+            if (!valid && i == 0 && c >= '0' && c <= '9') {
+                sb.append('_').append(c);
+            } else {
+                sb.append(valid ? c : '_');
+            }
+        }
+        return sb.toString();
+    }
+
+    private static void escape(final String value, final StringBuilder out)
+    {
+        for (int i = 0; i < value.length(); i++) {
+            final char c = value.charAt(i);
+            switch (c) {
+                case '\\':
+                    out.append("\\\\");
+                    break;
+                case '"':
+                    out.append("\\\"");
+                    break;
+                case '\n':
+                    out.append("\\n");
+                    break;
+                default:
+                    out.append(c);
+            }
+        }
+    }
+
+    private static void writeValue(final double value, final StringBuilder out)
+    {
+        if (Double.isNaN(value)) {
+            out.append("NaN");
+        } else if (Double.isInfinite(value)) {
+            out.append(value > 0 ? "+Inf" : "-Inf");
+        } else if (value == Math.rint(value) && Math.abs(value) < 1e15) {
+            out.append((long) value);
+        } else {
+            out.append(value);
+        }
+    }
+}
@@ -61,6 +61,16 @@ public class MetadataOverrider implements MetadataProvider {
         return original.getGroupingRules(alertId);
     }
 
+    @Override
+    public Optional<String[]> getGroupingKeys(final long alertId)
+    {
+        if (alertId == 963L) {
+            LOG.debug("Overriding grouping keys.");
+            return Optional.of(new String[0]);
+        }
+        return original.getGroupingKeys(alertId);
+    }
+
     @Override
     public Optional<Contacts> getContacts(final long alertId)
     {
@@ -104,6 +104,9 @@ public class Denoiser extends ChainableProcessor<MessageKit, MessageKit> {
                     .setAlertGroup(AlertGroup.builder()
                             .setGroupKey(alertGroup.getGroupKey())
                             .setAlerts(kept)
+                            .setSummary(alertGroup.isSummarized() ?
+                                    alertGroup.getSummary().without(discarded) :
+                                    null)
                             .build())
                     .setContacts(messageKit.getContacts())
                     .setMeta(messageKit.getMeta())
@@ -0,0 +1,268 @@
+/*
+ *  This file is part of OpenTSDB.
+ *  Copyright (C) 2021 Yahoo.
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+
+package net.opentsdb.horizon.alerting.corona.processor.emitter.email;
+
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.function.Function;
+
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import com.google.common.cache.Weigher;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import net.opentsdb.horizon.alerting.corona.component.DaemonThreadFactory;
+import net.opentsdb.horizon.alerting.corona.monitoring.AppMonitor;
+
+/**
+ * Renders email charts off the emitter thread.
+ * <p>
+ * Charts are rendered on a bounded pool, at most once per
+ * {@link ContentKey}: identical series and thresholds share one image,
+ * from the cache or from a rendering already in flight. A message waits for its
+ * charts up to the time budget, charts not done by then are left out and
+ * finish into the cache.
+ */
+public class ChartRenderer {
+
+    /* ------------ Constants ------------ */
+
+    private static final Logger LOG =
+            LoggerFactory.getLogger(ChartRenderer.class);
+
+    /* ------------ Fields ------------ */
+
+    private final ThreadPoolExecutor pool;
+
+    private final Cache<ContentKey, byte[]> cache;
+
+    private final ConcurrentMap<ContentKey, Future<byte[]>> inFlight =
+            new ConcurrentHashMap<>();
+
+    private final long budgetNanos;
+
+    private final int maxPoints;
+
+    /* ------------ Constructor ------------ */
+
+    protected ChartRenderer(final Builder builder)
+    {
+        if (builder.threads <= 0 || builder.queueSize <= 0) {
+            throw new IllegalArgumentException(
+                    "threads and queueSize have to be > 0. Given: " +
+                            builder.threads + ", " + builder.queueSize);
+        }
+        this.pool = new ThreadPoolExecutor(
+                builder.threads,
+                builder.threads,
+                0L,
+                TimeUnit.MILLISECONDS,
+                new ArrayBlockingQueue<>(builder.queueSize),
+                DaemonThreadFactory.INSTANCE
+        );
+        this.cache = CacheBuilder.newBuilder()
+                .maximumWeight(builder.cacheSizeMb * 1024L * 1024L)
+                .weigher((Weigher<ContentKey, byte[]>) (key, png) -> png.length)
+                .expireAfterAccess(1, TimeUnit.HOURS)
+                .build();
+        this.budgetNanos = TimeUnit.MILLISECONDS.toNanos(builder.budgetMs);
+        this.maxPoints = builder.maxPoints;
+    }
+
+    /* ------------ Methods ------------ */
+
+    /**
+     * @return points to downsample a series to before plotting it.
+     */
+    public int getMaxPoints()
+    {
+        return maxPoints;
+    }
+
+    /**
+     * Renders the charts of one message.
+     *
+     * @param items  to plot
+     * @param keyOf  content key of the chart of an item
+     * @param plotter plots an item, called on the render pool
+     * @param <T>    item type
+     * @return PNG by item index, null where the chart failed or did not
+     * make the time budget.
+     */
+    public <T> byte[][] render(final List<T> items,
+                               final Function<T, ContentKey> keyOf,
+                               final Function<T, byte[]> plotter)
+    {
+        final long deadline = System.nanoTime() + budgetNanos;
+        final byte[][] charts = new byte[items.size()][];
+        @SuppressWarnings("unchecked")
+        final Future<byte[]>[] pending = new Future[items.size()];
+
+        for (int i = 0; i < items.size(); i++) {
+            final T item = items.get(i);
+            try {
+                final ContentKey key = keyOf.apply(item);
+                final byte[] cached = cache.getIfPresent(key);
+                if (cached != null) {
+                    AppMonitor.get().countEmailChart("cached");
+                    charts[i] = cached;
+                } else {
+                    pending[i] = submit(key, item, plotter);
+                }
+            } catch (Exception e) {
+                AppMonitor.get().countEmailChart("failed");
+                LOG.error("Failed to key a chart: reason={}", e.getMessage());
+            }
+        }
+
+        for (int i = 0; i < pending.length; i++) {
+            if (pending[i] == null) {
+                continue;
+            }
+            try {
+                charts[i] = pending[i].get(
+                        Math.max(0L, deadline - System.nanoTime()),
+                        TimeUnit.NANOSECONDS
+                );
+            } catch (TimeoutException e) {
+                AppMonitor.get().countEmailChart("timeout");
+            } catch (ExecutionException e) {
+                AppMonitor.get().countEmailChart("failed");
+                LOG.error("Failed to plot an image {}", e.getCause().getMessage());
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                break;
+            }
+        }
+        return charts;
+    }
+
+    private <T> Future<byte[]> submit(final ContentKey key,
+                                      final T item,
+                                      final Function<T, byte[]> plotter)
+    {
+        final Future<byte[]> inFlightChart = inFlight.get(key);
+        if (inFlightChart != null) {
+            return inFlightChart;
+        }
+
+        final FutureTask<byte[]> task = new FutureTask<>(() -> {
+            try {
+                final long start = System.currentTimeMillis();
+                final byte[] png = plotter.apply(item);
+                cache.put(key, png);
+                AppMonitor.get().timeEmailChartRenderLatencyMs(
+                        System.currentTimeMillis() - start);
+                AppMonitor.get().countEmailChart("rendered");
+                return png;
+            } finally {
+                inFlight.remove(key);
+            }
+        });
+        final Future<byte[]> raced = inFlight.putIfAbsent(key, task);
+        if (raced != null) {
+            return raced;
+        }
+        try {
+            pool.execute(task);
+        } catch (RejectedExecutionException e) {
+            inFlight.remove(key, task);
+            AppMonitor.get().countEmailChart("rejected");
+            return null;
+        }
+        return task;
+    }
+
+    /* ------------ Static Methods ------------ */
+
+    public static ChartRenderer getDefault()
+    {
+        return DefaultHolder.DEFAULT;
+    }
+
+    public static Builder builder()
+    {
+        return new Builder();
+    }
+
+    private static class DefaultHolder {
+        private static final ChartRenderer DEFAULT = builder().build();
+    }
+
+    /* ------------ Builder ------------ */
+
+    public static final class Builder {
+
+        private int threads = 4;
+
+        private int queueSize = 1024;
+
+        private int cacheSizeMb = 64;
+
+        private long budgetMs = 2000L;
+
+        private int maxPoints = 600;
+
+        private Builder() { }
+
+        public Builder setThreads(final int threads)
+        {
+            this.threads = threads;
+            return this;
+        }
+
+        public Builder setQueueSize(final int queueSize)
+        {
+            this.queueSize = queueSize;
+            return this;
+        }
+
+        public Builder setCacheSizeMb(final int cacheSizeMb)
+        {
+            this.cacheSizeMb = cacheSizeMb;
+            return this;
+        }
+
+        public Builder setBudgetMs(final long budgetMs)
+        {
+            this.budgetMs = budgetMs;
+            return this;
+        }
+
+        public Builder setMaxPoints(final int maxPoints)
+        {
+            this.maxPoints = maxPoints;
+            return this;
+        }
+
+        public ChartRenderer build()
+        {
+            return new ChartRenderer(this);
+        }
+    }
+}
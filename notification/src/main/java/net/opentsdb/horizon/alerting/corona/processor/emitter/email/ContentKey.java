@@ -0,0 +1,203 @@
+/*
+ *  This file is part of OpenTSDB.
+ *  Copyright (C) 2021 Yahoo.
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+
+package net.opentsdb.horizon.alerting.corona.processor.emitter.email;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.Map;
+
+import net.openhft.hashing.LongHashFunction;
+
+/**
+ * 128-bit hash of everything a rendered chart or fragment is made of,
+ * used to share renderings across messages.
+ */
+public final class ContentKey {
+
+    /* ------------ Constants ------------ */
+
+    private static final LongHashFunction HASH_LOW = LongHashFunction.xx(0L);
+
+    private static final LongHashFunction HASH_HIGH = LongHashFunction.xx(0x9E3779B97F4A7C15L);
+
+    /* ------------ Fields ------------ */
+
+    private final long low;
+
+    private final long high;
+
+    /* ------------ Constructor ------------ */
+
+    private ContentKey(final long low, final long high)
+    {
+        this.low = low;
+        this.high = high;
+    }
+
+    /* ------------ Methods ------------ */
+
+    @Override
+    public boolean equals(final Object o)
+    {
+        if (this == o) {
+            return true;
+        }
+        if (!(o instanceof ContentKey)) {
+            return false;
+        }
+        final ContentKey key = (ContentKey) o;
+        return low == key.low && high == key.high;
+    }
+
+    @Override
+    public int hashCode()
+    {
+        return (int) (low ^ (low >>> 32));
+    }
+
+    @Override
+    public String toString()
+    {
+        return Long.toHexString(high) + Long.toHexString(low);
+    }
+
+    /* ------------ Builder ------------ */
+
+    /**
+     * Every value is written with its length or a fixed size, so
+     * different sequences of values do not hash alike.
+     */
+    public static final class Builder {
+
+        private ByteBuffer buffer = ByteBuffer.allocate(1024);
+
+        private Builder() { }
+
+        private ByteBuffer ensure(final int bytes)
+        {
+            if (buffer.remaining() < bytes) {
+                final ByteBuffer grown = ByteBuffer.allocate(
+                        Math.max(buffer.capacity() * 2, buffer.position() + bytes));
+                buffer.flip();
+                grown.put(buffer);
+                buffer = grown;
+            }
+            return buffer;
+        }
+
+        /**
+         * @param value may be null, keyed apart from an empty string.
+         */
+        public Builder put(final String value)
+        {
+            if (value == null) {
+                ensure(4).putInt(-1);
+                return this;
+            }
+            final byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+            ensure(4 + bytes.length).putInt(bytes.length).put(bytes);
+            return this;
+        }
+
+        public Builder put(final double value)
+        {
+            ensure(8).putDouble(value);
+            return this;
+        }
+
+        public Builder put(final long value)
+        {
+            ensure(8).putLong(value);
+            return this;
+        }
+
+        public Builder put(final boolean value)
+        {
+            ensure(1).put(value ? (byte) 1 : (byte) 0);
+            return this;
+        }
+
+        /**
+         * @param values may be null, keyed apart from an empty array.
+         */
+        public Builder put(final long[] values)
+        {
+            if (values == null) {
+                ensure(4).putInt(-1);
+                return this;
+            }
+            ensure(4 + 8 * values.length).putInt(values.length);
+            for (long value : values) {
+                buffer.putLong(value);
+            }
+            return this;
+        }
+
+        /**
+         * @param values may be null, keyed apart from an empty array.
+         */
+        public Builder put(final double[] values)
+        {
+            if (values == null) {
+                ensure(4).putInt(-1);
+                return this;
+            }
+            ensure(4 + 8 * values.length).putInt(values.length);
+            for (double value : values) {
+                buffer.putDouble(value);
+            }
+            return this;
+        }
+
+        /**
+         * Entries are keyed in iteration order.
+         *
+         * @param values may be null, keyed apart from an empty map.
+         */
+        public Builder put(final Map<String, String> values)
+        {
+            if (values == null) {
+                ensure(4).putInt(-1);
+                return this;
+            }
+            ensure(4).putInt(values.size());
+            for (Map.Entry<String, String> entry : values.entrySet()) {
+                put(entry.getKey());
+                put(entry.getValue());
+            }
+            return this;
+        }
+
+        public ContentKey build()
+        {
+            final int length = buffer.position();
+            return new ContentKey(
+                    HASH_LOW.hashBytes(buffer, 0, length),
+                    HASH_HIGH.hashBytes(buffer, 0, length)
+            );
+        }
+    }
+
+    /**
+     * @param kind of the content, keyed first.
+     */
+    public static Builder builder(final String kind)
+    {
+        return new Builder().put(kind);
+    }
+}
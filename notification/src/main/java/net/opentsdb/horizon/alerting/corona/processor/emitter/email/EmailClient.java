@@ -34,8 +34,6 @@ import javax.mail.util.ByteArrayDataSource;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
-import org.jsoup.Jsoup;
-
 import org.apache.commons.mail.EmailException;
 import org.apache.commons.mail.MultiPartEmail;
 
@@ -96,7 +94,9 @@ public class EmailClient {
                 .addTo(to);
 
         final String htmlBody = message.getBody();
-        final String textBody = Jsoup.parse(htmlBody).text();
+        final String textBody = message.getTextBody() != null
+                ? message.getTextBody()
+                : HtmlTextWriter.toText(htmlBody);
 
         final MimeMultipart mainPart = new MimeMultipart("related");
         try {
@@ -36,15 +36,28 @@ public class EmailFormatter implements Formatter<MessageKit, EmailMessage> {
     private final PeriodOverPeriodAlertEmailFormatter periodOverPeriodAlertFormatter;
 
     public EmailFormatter(final String debugPrefix)
+    {
+        this(debugPrefix,
+                ChartRenderer.getDefault(),
+                ChartType.JFREECHART,
+                ChartType.JFREECHART);
+    }
+
+    public EmailFormatter(final String debugPrefix,
+                          final ChartRenderer chartRenderer,
+                          final ChartType singleMetricChartType,
+                          final ChartType periodOverPeriodChartType)
     {
         this.singleMetricAlertFormatter =
-                new SingleMetricAlertEmailFormatter(debugPrefix);
+                new SingleMetricAlertEmailFormatter(
+                        debugPrefix, chartRenderer, singleMetricChartType);
         this.healthCheckAlertFormatter =
                 new HealthCheckAlertEmailFormatter(debugPrefix);
         this.eventAlertEmailFormatter =
                 new EventAlertEmailFormatter(debugPrefix);
         this.periodOverPeriodAlertFormatter =
-                new PeriodOverPeriodAlertEmailFormatter(debugPrefix);
+                new PeriodOverPeriodAlertEmailFormatter(
+                        debugPrefix, chartRenderer, periodOverPeriodChartType);
     }
 
     @Override
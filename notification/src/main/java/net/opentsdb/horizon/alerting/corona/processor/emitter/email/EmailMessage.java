@@ -39,6 +39,13 @@ public class EmailMessage {
     @Getter
     private final String body;
 
+    /**
+     * Plain text alternative of the body, derived from it by
+     * {@link EmailClient} if not set.
+     */
+    @Getter
+    private final String textBody;
+
     @Getter
     private final Map<String, byte[]> images;
 
@@ -50,6 +57,7 @@ public class EmailMessage {
         this.from = builder.from;
         this.fromAlias = builder.fromAlias;
         this.body = builder.body;
+        this.textBody = builder.textBody;
         this.images = builder.images == null ?
                 Collections.emptyMap() : builder.images;
 
@@ -102,6 +110,8 @@ public class EmailMessage {
 
         private String body;
 
+        private String textBody;
+
         private Map<String, byte[]> images;
 
         private Builder() { }
@@ -130,6 +140,12 @@ public class EmailMessage {
             return this;
         }
 
+        public Builder setTextBody(final String textBody)
+        {
+            this.textBody = textBody;
+            return this;
+        }
+
         public Builder setImages(final Map<String, byte[]> images)
         {
             this.images = images;
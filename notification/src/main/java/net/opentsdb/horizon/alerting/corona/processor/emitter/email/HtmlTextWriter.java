@@ -0,0 +1,340 @@
+/*
+ *  This file is part of OpenTSDB.
+ *  Copyright (C) 2021 Yahoo.
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+
+package net.opentsdb.horizon.alerting.corona.processor.emitter.email;
+
+import java.io.Writer;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.Locale;
+import java.util.Set;
+
+/**
+ * Collects rendered HTML and derives its plain text on the fly, so the
+ * text alternative of an email needs neither a second rendering nor a
+ * parsed DOM.
+ * <p>
+ * Tags and comments are dropped, as is everything inside head, style
+ * and script. Whitespace is collapsed, block elements start a new line
+ * and the usual entities are decoded. Meant to be reused through
+ * {@link #reset()}, not thread safe.
+ */
+public class HtmlTextWriter extends Writer {
+
+    /* ------------ Constants ------------ */
+
+    private static final int MAX_RETAINED_CAPACITY = 1024 * 1024;
+
+    private static final int MAX_ENTITY_LENGTH = 10;
+
+    private static final Set<String> SKIPPED = new HashSet<>(
+            Arrays.asList("head", "style", "script")
+    );
+
+    private static final Set<String> BLOCKS = new HashSet<>(Arrays.asList(
+            "br", "div", "h1", "h2", "h3", "h4", "h5", "h6", "hr", "li",
+            "ol", "p", "table", "tr", "ul"
+    ));
+
+    private static final Set<String> CELLS = new HashSet<>(
+            Arrays.asList("td", "th")
+    );
+
+    private enum State {
+        TEXT,
+        /**
+         * After a '<', which starts a tag only if followed by a letter,
+         * '/' or '!'.
+         */
+        TAG_OPEN,
+        TAG,
+        COMMENT,
+        ENTITY
+    }
+
+    /* ------------ Fields ------------ */
+
+    private StringBuilder html = new StringBuilder();
+
+    private StringBuilder text = new StringBuilder();
+
+    private final StringBuilder tag = new StringBuilder();
+
+    private final StringBuilder entity = new StringBuilder();
+
+    private State state;
+
+    /**
+     * Closing tag name which ends a skipped element, null if not in one.
+     */
+    private String skipUntil;
+
+    private boolean pendingSpace;
+
+    private int pendingNewlines;
+
+    /* ------------ Constructor ------------ */
+
+    public HtmlTextWriter()
+    {
+        reset();
+    }
+
+    /* ------------ Methods ------------ */
+
+    public void reset()
+    {
+        if (html.capacity() > MAX_RETAINED_CAPACITY) {
+            html = new StringBuilder();
+            text = new StringBuilder();
+        }
+        html.setLength(0);
+        text.setLength(0);
+        tag.setLength(0);
+        entity.setLength(0);
+        state = State.TEXT;
+        skipUntil = null;
+        pendingSpace = false;
+        pendingNewlines = 0;
+    }
+
+    public String getHtml()
+    {
+        return html.toString();
+    }
+
+    public String getText()
+    {
+        return text.toString();
+    }
+
+    @Override
+    public void write(final int c)
+    {
+        html.append((char) c);
+        accept((char) c);
+    }
+
+    @Override
+    public void write(final char[] cbuf, final int off, final int len)
+    {
+        html.append(cbuf, off, len);
+        for (int i = off; i < off + len; i++) {
+            accept(cbuf[i]);
+        }
+    }
+
+    @Override
+    public void write(final String str)
+    {
+        write(str, 0, str.length());
+    }
+
+    @Override
+    public void write(final String str, final int off, final int len)
+    {
+        html.append(str, off, off + len);
+        for (int i = off; i < off + len; i++) {
+            accept(str.charAt(i));
+        }
+    }
+
+    @Override
+    public void flush() { }
+
+    @Override
+    public void close() { }
+
+    private void accept(final char c)
+    {
+        switch (state) {
+            case TEXT:
+                if (c == '<') {
+                    state = State.TAG_OPEN;
+                } else if (c == '&') {
+                    entity.setLength(0);
+                    state = State.ENTITY;
+                } else if (Character.isWhitespace(c)) {
+                    pendingSpace = true;
+                } else {
+                    emit(c);
+                }
+                break;
+            case TAG_OPEN:
+                if (Character.isLetter(c) || c == '/' || c == '!') {
+                    tag.setLength(0);
+                    state = State.TAG;
+                    accept(c);
+                } else {
+                    // A comparison in text, like "cpu < 5".
+                    emit('<');
+                    state = State.TEXT;
+                    accept(c);
+                }
+                break;
+            case TAG:
+                if (c == '>') {
+                    endTag();
+                    state = State.TEXT;
+                } else {
+                    tag.append(c);
+                    if (tag.length() == 3 && "!--".contentEquals(tag)) {
+                        tag.setLength(0);
+                        state = State.COMMENT;
+                    }
+                }
+                break;
+            case COMMENT:
+                // Only the last two characters matter to find "-->".
+                if (c == '>' && tag.length() == 2) {
+                    state = State.TEXT;
+                } else if (c == '-') {
+                    if (tag.length() < 2) {
+                        tag.append(c);
+                    }
+                } else {
+                    tag.setLength(0);
+                }
+                break;
+            case ENTITY:
+                if (c == ';') {
+                    endEntity();
+                    state = State.TEXT;
+                } else if (entity.length() < MAX_ENTITY_LENGTH
+                        && (Character.isLetterOrDigit(c) || c == '#')) {
+                    entity.append(c);
+                } else {
+                    emit('&');
+                    emitAll(entity);
+                    state = State.TEXT;
+                    accept(c);
+                }
+                break;
+        }
+    }
+
+    private void endTag()
+    {
+        final boolean closing = tag.length() > 0 && tag.charAt(0) == '/';
+        int end = closing ? 1 : 0;
+        while (end < tag.length()
+                && !Character.isWhitespace(tag.charAt(end))
+                && tag.charAt(end) != '/') {
+            end++;
+        }
+        final String name =
+                tag.substring(closing ? 1 : 0, end).toLowerCase(Locale.ROOT);
+
+        if (skipUntil != null) {
+            if (closing && name.equals(skipUntil)) {
+                skipUntil = null;
+            }
+            return;
+        }
+        if (!closing && SKIPPED.contains(name)) {
+            skipUntil = name;
+        } else if (BLOCKS.contains(name)) {
+            pendingNewlines = 1;
+        } else if (CELLS.contains(name)) {
+            pendingSpace = true;
+        }
+    }
+
+    private void endEntity()
+    {
+        final String name = entity.toString();
+        switch (name) {
+            case "amp":
+                emit('&');
+                return;
+            case "lt":
+                emit('<');
+                return;
+            case "gt":
+                emit('>');
+                return;
+            case "quot":
+                emit('"');
+                return;
+            case "apos":
+                emit('\'');
+                return;
+            case "nbsp":
+                pendingSpace = true;
+                return;
+            case "rarr":
+                emit('\u2192');
+                return;
+        }
+        if (name.length() > 1 && name.charAt(0) == '#') {
+            try {
+                final int codePoint = name.charAt(1) == 'x' || name.charAt(1) == 'X'
+                        ? Integer.parseInt(name.substring(2), 16)
+                        : Integer.parseInt(name.substring(1));
+                if (Character.isValidCodePoint(codePoint)) {
+                    final char[] chars = Character.toChars(codePoint);
+                    for (char c : chars) {
+                        emit(c);
+                    }
+                    return;
+                }
+            } catch (NumberFormatException ignored) {
+                // Not a number, kept as is.
+            }
+        }
+        emit('&');
+        emitAll(entity);
+        emit(';');
+    }
+
+    private void emitAll(final CharSequence chars)
+    {
+        for (int i = 0; i < chars.length(); i++) {
+            emit(chars.charAt(i));
+        }
+    }
+
+    private void emit(final char c)
+    {
+        if (skipUntil != null) {
+            return;
+        }
+        if (text.length() > 0) {
+            if (pendingNewlines > 0) {
+                text.append('\n');
+            } else if (pendingSpace) {
+                text.append(' ');
+            }
+        }
+        pendingSpace = false;
+        pendingNewlines = 0;
+        text.append(c);
+    }
+
+    /* ------------ Static Methods ------------ */
+
+    /**
+     * @param html rendered HTML
+     * @return its plain text.
+     */
+    public static String toText(final String html)
+    {
+        final HtmlTextWriter writer = new HtmlTextWriter();
+        writer.write(html);
+        return writer.getText();
+    }
+}
@@ -0,0 +1,137 @@
+/*
+ *  This file is part of OpenTSDB.
+ *  Copyright (C) 2021 Yahoo.
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+
+package net.opentsdb.horizon.alerting.corona.processor.emitter.email;
+
+/**
+ * Largest-Triangle-Three-Buckets downsampling: keeps the points which
+ * preserve the visual shape of a series, so a chart of a long series
+ * looks the same with about as many points as it has pixels.
+ */
+public final class Lttb {
+
+    private Lttb() { }
+
+    /**
+     * @param x         point abscissas, ascending
+     * @param y         point values, NaN for gaps
+     * @param maxPoints number of points to keep, at least 3
+     * @return indices of the points to keep, ascending. All points if
+     * there are no more than {@code maxPoints}.
+     */
+    public static int[] select(final long[] x,
+                               final double[] y,
+                               final int maxPoints)
+    {
+        final int n = Math.min(x.length, y.length);
+        if (maxPoints < 3 || n <= maxPoints) {
+            final int[] all = new int[n];
+            for (int i = 0; i < n; i++) {
+                all[i] = i;
+            }
+            return all;
+        }
+
+        final int[] selected = new int[maxPoints];
+        final double bucketSize = (double) (n - 2) / (maxPoints - 2);
+        int a = 0;
+        selected[0] = 0;
+
+        for (int bucket = 0; bucket < maxPoints - 2; bucket++) {
+            // Average of the next bucket, the third triangle vertex.
+            final int nextStart = (int) ((bucket + 1) * bucketSize) + 1;
+            final int nextEnd = Math.min((int) ((bucket + 2) * bucketSize) + 1, n);
+            double avgX = 0;
+            double avgY = 0;
+            int count = 0;
+            for (int i = nextStart; i < nextEnd; i++) {
+                if (!Double.isNaN(y[i])) {
+                    avgX += x[i];
+                    avgY += y[i];
+                    count++;
+                }
+            }
+            if (count > 0) {
+                avgX /= count;
+                avgY /= count;
+            } else {
+                avgX = x[n - 1];
+                avgY = y[n - 1];
+            }
+
+            final int start = (int) (bucket * bucketSize) + 1;
+            final int end = (int) ((bucket + 1) * bucketSize) + 1;
+            final double ax = x[a];
+            final double ay = y[a];
+            double maxArea = -1;
+            int chosen = start;
+            for (int i = start; i < end; i++) {
+                // A bucket of gaps only keeps its first, so it still shows.
+                if (Double.isNaN(y[i])) {
+                    continue;
+                }
+                double area = Math.abs(
+                        (ax - avgX) * (y[i] - ay) - (ax - x[i]) * (avgY - ay));
+                if (Double.isNaN(area)) {
+                    area = 0;
+                }
+                if (area > maxArea) {
+                    maxArea = area;
+                    chosen = i;
+                }
+            }
+            selected[bucket + 1] = chosen;
+            a = chosen;
+        }
+        selected[maxPoints - 1] = n - 1;
+        return selected;
+    }
+
+    /**
+     * Indices are ascending and distinct, so they are all of them if the
+     * last is.
+     */
+    private static boolean isAll(final int[] indices, final int length)
+    {
+        return indices.length == length
+                && (length == 0 || indices[length - 1] == length - 1);
+    }
+
+    public static long[] pick(final long[] values, final int[] indices)
+    {
+        if (isAll(indices, values.length)) {
+            return values;
+        }
+        final long[] picked = new long[indices.length];
+        for (int i = 0; i < indices.length; i++) {
+            picked[i] = values[indices[i]];
+        }
+        return picked;
+    }
+
+    public static double[] pick(final double[] values, final int[] indices)
+    {
+        if (isAll(indices, values.length)) {
+            return values;
+        }
+        final double[] picked = new double[indices.length];
+        for (int i = 0; i < indices.length; i++) {
+            picked[i] = values[indices[i]];
+        }
+        return picked;
+    }
+}
@@ -170,6 +170,23 @@ public class Plotter {
         return g2.getSVGElement();
     }
 
+    /**
+     * Plots at most {@code maxPoints} points of the values, picked by
+     * {@link Lttb}.
+     */
+    public byte[] plotPNG(long[] timestampsSec,
+                          double[] values,
+                          double threshold,
+                          int maxPoints)
+    {
+        final int[] indices = Lttb.select(timestampsSec, values, maxPoints);
+        return plotPNG(
+                Lttb.pick(timestampsSec, indices),
+                Lttb.pick(values, indices),
+                threshold
+        );
+    }
+
     public byte[] plotPNG(long[] timestampsSec,
                           double[] values,
                           double threshold)
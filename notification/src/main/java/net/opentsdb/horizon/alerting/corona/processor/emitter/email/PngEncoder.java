@@ -0,0 +1,137 @@
+/*
+ *  This file is part of OpenTSDB.
+ *  Copyright (C) 2021 Yahoo.
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+
+package net.opentsdb.horizon.alerting.corona.processor.emitter.email;
+
+import java.io.ByteArrayOutputStream;
+import java.util.zip.CRC32;
+import java.util.zip.Deflater;
+
+/**
+ * Writes 8-bit palette PNGs. Rows are stored unfiltered, which is what
+ * the PNG spec recommends for palette images, and deflated at the
+ * fastest level.
+ * <p>
+ * Keeps its deflater and buffers between images, so it is not thread
+ * safe: use one per thread.
+ */
+final class PngEncoder {
+
+    /* ------------ Constants ------------ */
+
+    private static final byte[] SIGNATURE =
+            {(byte) 0x89, 'P', 'N', 'G', '\r', '\n', 0x1a, '\n'};
+
+    private static final byte[] IHDR = {'I', 'H', 'D', 'R'};
+
+    private static final byte[] PLTE = {'P', 'L', 'T', 'E'};
+
+    private static final byte[] IDAT = {'I', 'D', 'A', 'T'};
+
+    private static final byte[] IEND = {'I', 'E', 'N', 'D'};
+
+    private static final byte BIT_DEPTH = 8;
+
+    private static final byte COLOR_TYPE_PALETTE = 3;
+
+    private static final byte FILTER_NONE = 0;
+
+    /* ------------ Fields ------------ */
+
+    private final Deflater deflater = new Deflater(Deflater.BEST_SPEED);
+
+    private final CRC32 crc = new CRC32();
+
+    private final ByteArrayOutputStream out = new ByteArrayOutputStream(16 * 1024);
+
+    private final ByteArrayOutputStream idat = new ByteArrayOutputStream(16 * 1024);
+
+    private final byte[] chunk = new byte[8 * 1024];
+
+    private byte[] row = new byte[0];
+
+    /* ------------ Methods ------------ */
+
+    /**
+     * @param pixels  palette indices, row by row
+     * @param width   image width
+     * @param height  image height
+     * @param palette RGB triplets, at most 256
+     * @return the PNG.
+     */
+    byte[] encode(final byte[] pixels,
+                  final int width,
+                  final int height,
+                  final byte[] palette)
+    {
+        out.reset();
+        out.write(SIGNATURE, 0, SIGNATURE.length);
+
+        final byte[] header = new byte[13];
+        putInt(header, 0, width);
+        putInt(header, 4, height);
+        header[8] = BIT_DEPTH;
+        header[9] = COLOR_TYPE_PALETTE;
+        // Compression, filter and interlace methods are all 0.
+        writeChunk(IHDR, header, header.length);
+        writeChunk(PLTE, palette, palette.length);
+
+        if (row.length != width + 1) {
+            row = new byte[width + 1];
+        }
+        row[0] = FILTER_NONE;
+        idat.reset();
+        deflater.reset();
+        for (int y = 0; y < height; y++) {
+            System.arraycopy(pixels, y * width, row, 1, width);
+            deflater.setInput(row);
+            while (!deflater.needsInput()) {
+                idat.write(chunk, 0, deflater.deflate(chunk));
+            }
+        }
+        deflater.finish();
+        while (!deflater.finished()) {
+            idat.write(chunk, 0, deflater.deflate(chunk));
+        }
+        writeChunk(IDAT, idat.toByteArray(), idat.size());
+        writeChunk(IEND, chunk, 0);
+        return out.toByteArray();
+    }
+
+    private void writeChunk(final byte[] type, final byte[] data, final int length)
+    {
+        final byte[] word = new byte[4];
+        putInt(word, 0, length);
+        out.write(word, 0, 4);
+        out.write(type, 0, 4);
+        out.write(data, 0, length);
+
+        crc.reset();
+        crc.update(type, 0, 4);
+        crc.update(data, 0, length);
+        putInt(word, 0, (int) crc.getValue());
+        out.write(word, 0, 4);
+    }
+
+    private static void putInt(final byte[] bytes, final int offset, final int value)
+    {
+        bytes[offset] = (byte) (value >>> 24);
+        bytes[offset + 1] = (byte) (value >>> 16);
+        bytes[offset + 2] = (byte) (value >>> 8);
+        bytes[offset + 3] = (byte) value;
+    }
+}
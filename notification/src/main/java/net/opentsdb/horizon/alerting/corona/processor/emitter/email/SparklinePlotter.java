@@ -0,0 +1,320 @@
+/*
+ *  This file is part of OpenTSDB.
+ *  Copyright (C) 2021 Yahoo.
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+
+package net.opentsdb.horizon.alerting.corona.processor.emitter.email;
+
+import java.awt.image.BufferedImage;
+import java.awt.image.DataBufferByte;
+import java.awt.image.IndexColorModel;
+import java.util.Arrays;
+
+/**
+ * Draws line charts straight into the pixels of a palette image and
+ * encodes them with {@link PngEncoder}: no axes, labels or legend, so
+ * neither JFreeChart nor AWT fonts are involved.
+ * <p>
+ * The image, encoder and buffers are kept per thread and reused.
+ */
+public class SparklinePlotter {
+
+    /* ------------ Constants ------------ */
+
+    public static final int WIDTH = 598;
+
+    public static final int HEIGHT = 200;
+
+    private static final int PADDING = 8;
+
+    private static final int GRID_LINES = 5;
+
+    private static final byte WHITE = 0;
+
+    private static final byte LIGHT_GRAY = 1;
+
+    private static final byte BLUE = 2;
+
+    private static final byte BLACK = 3;
+
+    private static final byte RED = 4;
+
+    private static final byte ORANGE = 5;
+
+    private static final byte[] PALETTE = {
+            (byte) 255, (byte) 255, (byte) 255,
+            (byte) 192, (byte) 192, (byte) 192,
+            0, 0, (byte) 255,
+            0, 0, 0,
+            (byte) 255, 0, 0,
+            (byte) 255, (byte) 200, 0,
+    };
+
+    private static final ThreadLocal<Canvas> CANVAS =
+            ThreadLocal.withInitial(Canvas::new);
+
+    /**
+     * How a series is drawn, matching the colors of the JFreeChart plots.
+     */
+    public enum Style {
+
+        OBSERVED(BLUE, 2, 0, 0),
+        PREDICTED(BLACK, 1, 0, 0),
+        THRESHOLD(RED, 1, 3, 3),
+        LOWER_BAD(RED, 1, 4, 2),
+        LOWER_WARN(ORANGE, 1, 4, 2),
+        UPPER_BAD(RED, 1, 2, 2),
+        UPPER_WARN(ORANGE, 1, 2, 2);
+
+        private final byte color;
+
+        private final int thickness;
+
+        private final int dashOn;
+
+        private final int dashOff;
+
+        Style(final byte color,
+              final int thickness,
+              final int dashOn,
+              final int dashOff)
+        {
+            this.color = color;
+            this.thickness = thickness;
+            this.dashOn = dashOn;
+            this.dashOff = dashOff;
+        }
+    }
+
+    /* ------------ Methods ------------ */
+
+    /**
+     * Plots at most {@code maxPoints} points of the values, picked by
+     * {@link Lttb}, and the threshold.
+     */
+    public byte[] plotPNG(final long[] timestampsSec,
+                          final double[] values,
+                          final double threshold,
+                          final int maxPoints)
+    {
+        final int[] indices = Lttb.select(timestampsSec, values, maxPoints);
+        return plotPNG(
+                Lttb.pick(timestampsSec, indices),
+                new double[][]{Lttb.pick(values, indices)},
+                new Style[]{Style.OBSERVED},
+                threshold
+        );
+    }
+
+    /**
+     * @param timestampsSec shared by all series, ascending
+     * @param series        values, NaN for gaps
+     * @param styles        style by series
+     * @param threshold     drawn across the chart, NaN for none
+     * @return the PNG.
+     */
+    public byte[] plotPNG(final long[] timestampsSec,
+                          final double[][] series,
+                          final Style[] styles,
+                          final double threshold)
+    {
+        final Canvas canvas = CANVAS.get();
+        canvas.clear();
+
+        double min = Double.POSITIVE_INFINITY;
+        double max = Double.NEGATIVE_INFINITY;
+        for (double[] values : series) {
+            for (double value : values) {
+                if (Double.isFinite(value)) {
+                    min = Math.min(min, value);
+                    max = Math.max(max, value);
+                }
+            }
+        }
+        if (Double.isFinite(threshold)) {
+            min = Math.min(min, threshold);
+            max = Math.max(max, threshold);
+        }
+        if (min > max) {
+            min = 0;
+            max = 1;
+        } else if (min == max) {
+            min -= 1;
+            max += 1;
+        } else {
+            final double margin = (max - min) * 0.05;
+            min -= margin;
+            max += margin;
+        }
+
+        final int left = PADDING;
+        final int right = WIDTH - 1 - PADDING;
+        final int top = PADDING;
+        final int bottom = HEIGHT - 1 - PADDING;
+
+        for (int i = 0; i < GRID_LINES; i++) {
+            final int y = top + (bottom - top) * i / (GRID_LINES - 1);
+            canvas.line(left, y, right, y, LIGHT_GRAY, 1, 1, 2);
+        }
+
+        if (Double.isFinite(threshold)) {
+            final int y = scaleY(threshold, min, max, top, bottom);
+            final Style style = Style.THRESHOLD;
+            canvas.line(left, y, right, y,
+                    style.color, style.thickness, style.dashOn, style.dashOff);
+        }
+
+        final int n = timestampsSec.length;
+        if (n == 0) {
+            return canvas.encode();
+        }
+        final long t0 = timestampsSec[0];
+        final long span = Math.max(1L, timestampsSec[n - 1] - t0);
+
+        for (int s = 0; s < series.length; s++) {
+            final double[] values = series[s];
+            final Style style = styles[s];
+            final int length = Math.min(n, values.length);
+            int prevX = 0;
+            int prevY = 0;
+            boolean hasPrev = false;
+            for (int i = 0; i < length; i++) {
+                if (!Double.isFinite(values[i])) {
+                    hasPrev = false;
+                    continue;
+                }
+                final int x = n == 1
+                        ? (left + right) / 2
+                        : left + (int) ((timestampsSec[i] - t0) * (right - left) / span);
+                final int y = scaleY(values[i], min, max, top, bottom);
+                if (hasPrev) {
+                    canvas.line(prevX, prevY, x, y,
+                            style.color, style.thickness, style.dashOn, style.dashOff);
+                } else {
+                    // Starts a run, so a point between gaps still shows.
+                    canvas.dot(x, y, style.color);
+                }
+                prevX = x;
+                prevY = y;
+                hasPrev = true;
+            }
+        }
+        return canvas.encode();
+    }
+
+    private static int scaleY(final double value,
+                              final double min,
+                              final double max,
+                              final int top,
+                              final int bottom)
+    {
+        return bottom - (int) Math.round((value - min) * (bottom - top) / (max - min));
+    }
+
+    /* ------------ Canvas ------------ */
+
+    private static final class Canvas {
+
+        private final BufferedImage image = new BufferedImage(
+                WIDTH,
+                HEIGHT,
+                BufferedImage.TYPE_BYTE_INDEXED,
+                new IndexColorModel(8, PALETTE.length / 3, rgb(0), rgb(1), rgb(2))
+        );
+
+        private final byte[] pixels =
+                ((DataBufferByte) image.getRaster().getDataBuffer()).getData();
+
+        private final PngEncoder encoder = new PngEncoder();
+
+        private static byte[] rgb(final int channel)
+        {
+            final byte[] values = new byte[PALETTE.length / 3];
+            for (int i = 0; i < values.length; i++) {
+                values[i] = PALETTE[3 * i + channel];
+            }
+            return values;
+        }
+
+        void clear()
+        {
+            Arrays.fill(pixels, WHITE);
+        }
+
+        byte[] encode()
+        {
+            return encoder.encode(pixels, WIDTH, HEIGHT, PALETTE);
+        }
+
+        void set(final int x, final int y, final byte color)
+        {
+            if (x >= 0 && x < WIDTH && y >= 0 && y < HEIGHT) {
+                pixels[y * WIDTH + x] = color;
+            }
+        }
+
+        void dot(final int x, final int y, final byte color)
+        {
+            set(x, y, color);
+            set(x + 1, y, color);
+            set(x, y + 1, color);
+            set(x + 1, y + 1, color);
+        }
+
+        /**
+         * Bresenham, dashed when {@code dashOff > 0}. Thick lines are
+         * widened by whole pixels, down or right depending on the slope.
+         */
+        void line(int x0, int y0,
+                  final int x1, final int y1,
+                  final byte color,
+                  final int thickness,
+                  final int dashOn,
+                  final int dashOff)
+        {
+            final int dx = Math.abs(x1 - x0);
+            final int dy = -Math.abs(y1 - y0);
+            final int sx = x0 < x1 ? 1 : -1;
+            final int sy = y0 < y1 ? 1 : -1;
+            final boolean steep = -dy > dx;
+            int err = dx + dy;
+            int step = 0;
+            while (true) {
+                if (dashOff == 0 || step % (dashOn + dashOff) < dashOn) {
+                    for (int t = 0; t < thickness; t++) {
+                        if (steep) {
+                            set(x0 + t, y0, color);
+                        } else {
+                            set(x0, y0 + t, color);
+                        }
+                    }
+                }
+                if (x0 == x1 && y0 == y1) {
+                    break;
+                }
+                final int e2 = 2 * err;
+                if (e2 >= dy) {
+                    err += dy;
+                    x0 += sx;
+                }
+                if (e2 <= dx) {
+                    err += dx;
+                    y0 += sy;
+                }
+                step++;
+            }
+        }
+    }
+}
@@ -20,12 +20,17 @@ package net.opentsdb.horizon.alerting.corona.processor.emitter.email.formatter;
 import java.io.IOException;
 import java.io.InputStream;
 import java.io.StringWriter;
-import java.util.Arrays;
+import java.util.Collections;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.TimeUnit;
 import java.util.stream.Collectors;
 
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import com.google.common.cache.Weigher;
+
 import lombok.Getter;
 
 import net.opentsdb.horizon.alerting.corona.model.alert.Alert;
@@ -40,7 +45,9 @@ import com.mitchellbosecke.pebble.template.PebbleTemplate;
 import org.apache.commons.io.IOUtils;
 
 import net.opentsdb.horizon.alerting.corona.processor.emitter.Formatter;
+import net.opentsdb.horizon.alerting.corona.processor.emitter.email.ContentKey;
 import net.opentsdb.horizon.alerting.corona.processor.emitter.email.EmailMessage;
+import net.opentsdb.horizon.alerting.corona.processor.emitter.email.HtmlTextWriter;
 import net.opentsdb.horizon.alerting.corona.processor.emitter.view.Views;
 import net.opentsdb.horizon.alerting.corona.processor.emitter.view.AlertView;
 import net.opentsdb.horizon.alerting.corona.processor.emitter.view.MessageKitView;
@@ -141,12 +148,13 @@ public abstract class AbstractEmailFormatter<
     private static final Logger LOG =
             LoggerFactory.getLogger(AbstractEmailFormatter.class);
 
-    private static final String P_FROM_ALIAS = "%s%s-Alert";
+    private static final String FROM_ALIAS_SUFFIX = "-Alert";
+
+    private static final String FROM_SUFFIX = "-alert-do-not-reply@opentsdb.net";
 
-    private static final String P_FROM =
-            "%s-alert-do-not-reply@opentsdb.net";
+    private static final String FRAGMENT = "fragment";
 
-    private static final String P_SUBJECT = "%s[%s] %s %s";
+    private static final long FRAGMENT_CACHE_MAX_CHARS = 8L * 1024L * 1024L;
 
     protected static final String EMPTY_STRING = "";
 
@@ -172,24 +180,51 @@ public abstract class AbstractEmailFormatter<
 
     private final String debugPrefix;
 
-    private final ThreadLocal<StringWriter> localWriter;
+    private final ThreadLocal<HtmlTextWriter> localWriter;
+
+    private final ThreadLocal<StringWriter> localFragmentWriter;
 
     private final PebbleTemplate template;
 
+    private final String fragmentTemplatePath;
+
+    private final PebbleTemplate fragmentTemplate;
+
+    /**
+     * Rendered view blocks by content, shared by the messages of a group
+     * and by groups which report the same alerts.
+     */
+    private final Cache<ContentKey, String> fragments;
+
     private final byte[] logoBytes;
 
     /* ------------ Constructor ------------ */
 
+    /**
+     * @param debugPrefix          prefix of the subject and sender alias
+     * @param templatePath         message template, which includes the
+     *                             view blocks as {@code view.properties.fragment}
+     * @param fragmentTemplatePath view block template
+     */
     public AbstractEmailFormatter(final String debugPrefix,
-                                  final String templatePath)
+                                  final String templatePath,
+                                  final String fragmentTemplatePath)
     {
         this.debugPrefix = debugPrefix == null ? EMPTY_STRING : debugPrefix;
-        this.localWriter = ThreadLocal.withInitial(StringWriter::new);
+        this.localWriter = ThreadLocal.withInitial(HtmlTextWriter::new);
+        this.localFragmentWriter = ThreadLocal.withInitial(StringWriter::new);
         final ClasspathLoader loader = new ClasspathLoader();
         final PebbleEngine engine = new PebbleEngine.Builder()
                 .loader(loader)
                 .build();
         this.template = engine.getTemplate(templatePath);
+        this.fragmentTemplatePath = fragmentTemplatePath;
+        this.fragmentTemplate = engine.getTemplate(fragmentTemplatePath);
+        this.fragments = CacheBuilder.newBuilder()
+                .maximumWeight(FRAGMENT_CACHE_MAX_CHARS)
+                .weigher((Weigher<ContentKey, String>) (key, fragment) -> fragment.length())
+                .expireAfterAccess(1, TimeUnit.HOURS)
+                .build();
         this.logoBytes = getLogo();
     }
 
@@ -197,6 +232,16 @@ public abstract class AbstractEmailFormatter<
 
     protected abstract Map<String, byte[]> generateImages(final M messageKit);
 
+    /**
+     * Puts everything the view block template reads from the view, the
+     * block is rendered again only when the key changes.
+     *
+     * @param view to key
+     * @param key  to put the values in
+     */
+    protected abstract void putFragmentKey(final V view,
+                                           final ContentKey.Builder key);
+
     /* ------------ Methods ------------ */
 
     private Map<String, byte[]> getImages(final M messageKit)
@@ -212,26 +257,62 @@ public abstract class AbstractEmailFormatter<
                                 final String alertSubject,
                                 final String[] groupValues)
     {
-        final String valuesStr =
-                groupValues != null && groupValues.length > 0
-                        ? Arrays.toString(groupValues)
-                        : EMPTY_STRING;
-        return String.format(
-                P_SUBJECT,
-                debugPrefix,
-                numAlerts,
-                alertSubject,
-                valuesStr
-        );
+        final StringBuilder subject = new StringBuilder(128)
+                .append(debugPrefix)
+                .append('[').append(numAlerts).append("] ")
+                .append(alertSubject)
+                .append(' ');
+        if (groupValues != null && groupValues.length > 0) {
+            subject.append('[');
+            for (int i = 0; i < groupValues.length; i++) {
+                if (i > 0) {
+                    subject.append(", ");
+                }
+                subject.append(groupValues[i]);
+            }
+            subject.append(']');
+        }
+        return subject.toString();
+    }
+
+    /**
+     * Sets the rendered view block of each view as its
+     * {@code fragment} property.
+     */
+    private void renderFragments(final List<V> views) throws IOException
+    {
+        final StringWriter writer = localFragmentWriter.get();
+        for (V view : views) {
+            final ContentKey.Builder keyBuilder =
+                    ContentKey.builder(fragmentTemplatePath);
+            putFragmentKey(view, keyBuilder);
+            final ContentKey key = keyBuilder.build();
+
+            String fragment = fragments.getIfPresent(key);
+            if (fragment == null) {
+                writer.getBuffer().setLength(0);
+                fragmentTemplate.evaluate(
+                        writer,
+                        Collections.<String, Object>singletonMap("view", view)
+                );
+                fragment = writer.toString();
+                fragments.put(key, fragment);
+            }
+            view.addProperty(FRAGMENT, fragment);
+        }
     }
 
-    private String render(final Parameters params) throws IOException
+    /**
+     * @return the writer of this thread, holding the HTML and text of the
+     * message until the next render.
+     */
+    private HtmlTextWriter render(final Parameters params) throws IOException
     {
-        final StringWriter writer = localWriter.get();
-        writer.getBuffer().setLength(0);
+        final HtmlTextWriter writer = localWriter.get();
+        writer.reset();
 
         template.evaluate(writer, params.toMap());
-        return writer.toString();
+        return writer;
     }
 
     @Override
@@ -279,15 +360,14 @@ public abstract class AbstractEmailFormatter<
         }
 
         try {
+            renderFragments(view.getAllViews());
+            final HtmlTextWriter body = render(params);
             return EmailMessage.builder()
                     .setSubject(subject)
-                    .setFrom(
-                            String.format(P_FROM, namespace)
-                    )
-                    .setFromAlias(
-                            String.format(P_FROM_ALIAS, debugPrefix, namespace)
-                    )
-                    .setBody(render(params))
+                    .setFrom(namespace + FROM_SUFFIX)
+                    .setFromAlias(debugPrefix + namespace + FROM_ALIAS_SUFFIX)
+                    .setBody(body.getHtml())
+                    .setTextBody(body.getText())
                     .setImages(images)
                     .build();
         } catch (IOException e) {
@@ -19,7 +19,9 @@ package net.opentsdb.horizon.alerting.corona.processor.emitter.email.formatter;
 
 import java.util.Map;
 
+import net.opentsdb.horizon.alerting.corona.model.alert.Event;
 import net.opentsdb.horizon.alerting.corona.model.alert.impl.EventAlert;
+import net.opentsdb.horizon.alerting.corona.processor.emitter.email.ContentKey;
 import net.opentsdb.horizon.alerting.corona.processor.emitter.view.impl.EventAlertView;
 import net.opentsdb.horizon.alerting.corona.processor.emitter.view.impl.EventMessageKitView;
 
@@ -34,11 +36,35 @@ public class EventAlertEmailFormatter
 
     public EventAlertEmailFormatter(final String debugPrefix)
     {
-        super(debugPrefix, "templates/email-event-alert.html");
+        super(debugPrefix,
+                "templates/email-event-alert.html",
+                "templates/email-event-alert-view.html");
     }
 
     /* ------------ Methods ------------ */
 
+    @Override
+    protected void putFragmentKey(final EventAlertView view,
+                                  final ContentKey.Builder key)
+    {
+        key.put(view.getDescription("<strong>", "</strong>"))
+                .put(view.getCount())
+                .put(view.getHumanTimestamp())
+                .put(view.getStateFrom())
+                .put(view.getStateTo())
+                .put(view.isRecovery())
+                .put(view.getSortedTags());
+
+        final Event event = view.getEvent();
+        key.put(event != null);
+        if (event != null) {
+            key.put(event.getSource())
+                    .put(event.getTitle())
+                    .put(event.getMessage())
+                    .put(event.getTags());
+        }
+    }
+
     @Override
     protected Map<String, byte[]> generateImages(
             final EventMessageKitView messageKit)
@@ -20,7 +20,9 @@ package net.opentsdb.horizon.alerting.corona.processor.emitter.email.formatter;
 import java.util.HashMap;
 import java.util.Map;
 
+import net.opentsdb.horizon.alerting.corona.model.alert.State;
 import net.opentsdb.horizon.alerting.corona.model.alert.impl.HealthCheckAlert;
+import net.opentsdb.horizon.alerting.corona.processor.emitter.email.ContentKey;
 import net.opentsdb.horizon.alerting.corona.processor.emitter.view.impl.HealthCheckAlertView;
 import net.opentsdb.horizon.alerting.corona.processor.emitter.view.impl.HealthCheckMessageKitView;
 
@@ -34,7 +36,31 @@ public class HealthCheckAlertEmailFormatter
 
     public HealthCheckAlertEmailFormatter(final String debugPrefix)
     {
-        super(debugPrefix, "templates/email-health-check-alert.html");
+        super(debugPrefix,
+                "templates/email-health-check-alert.html",
+                "templates/email-health-check-alert-view.html");
+    }
+
+    @Override
+    protected void putFragmentKey(final HealthCheckAlertView view,
+                                  final ContentKey.Builder key)
+    {
+        key.put(view.getDescription("<strong>", "</strong>"))
+                .put(view.getStatusMessage())
+                .put(view.getHumanTimestamp())
+                .put(view.getStateFrom())
+                .put(view.getStateTo())
+                .put(view.showGraph())
+                .put(view.getTimestampsSec());
+
+        final State[] states = view.getStates();
+        key.put(states == null ? -1 : states.length);
+        if (states != null) {
+            for (State state : states) {
+                key.put(String.valueOf(state));
+            }
+        }
+        key.put(view.getSortedTags());
     }
 
     @Override
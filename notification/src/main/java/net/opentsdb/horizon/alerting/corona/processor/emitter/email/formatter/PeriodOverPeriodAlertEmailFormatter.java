@@ -19,12 +19,13 @@ package net.opentsdb.horizon.alerting.corona.processor.emitter.email.formatter;
 
 import java.util.Arrays;
 import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
 
 import net.opentsdb.horizon.alerting.corona.model.alert.impl.PeriodOverPeriodAlert;
-import org.slf4j.Logger;
-import org.slf4j.LoggerFactory;
-
+import net.opentsdb.horizon.alerting.corona.processor.emitter.email.ChartRenderer;
+import net.opentsdb.horizon.alerting.corona.processor.emitter.email.ChartType;
+import net.opentsdb.horizon.alerting.corona.processor.emitter.email.ContentKey;
 import net.opentsdb.horizon.alerting.corona.processor.emitter.view.impl.PeriodOverPeriodAlertView;
 import net.opentsdb.horizon.alerting.corona.processor.emitter.view.impl.PeriodOverPeriodMessageKitView;
 
@@ -34,39 +35,81 @@ public class PeriodOverPeriodAlertEmailFormatter
         PeriodOverPeriodAlertView,
         PeriodOverPeriodMessageKitView> {
 
-    private static final Logger LOG =
-            LoggerFactory.getLogger(PeriodOverPeriodAlertEmailFormatter.class);
-
     private static final PeriodOverPeriodGraphPlotter PLOTTER =
             new PeriodOverPeriodGraphPlotter();
 
+    private final ChartRenderer chartRenderer;
+
+    private final ChartType chartType;
+
     public PeriodOverPeriodAlertEmailFormatter(String debugPrefix) {
-        super(debugPrefix, "templates/email-period-over-period-alert.html");
+        this(debugPrefix, ChartRenderer.getDefault(), ChartType.JFREECHART);
+    }
+
+    public PeriodOverPeriodAlertEmailFormatter(String debugPrefix,
+                                               ChartRenderer chartRenderer,
+                                               ChartType chartType) {
+        super(debugPrefix,
+                "templates/email-period-over-period-alert.html",
+                "templates/email-period-over-period-alert-view.html");
+        this.chartRenderer = chartRenderer;
+        this.chartType = chartType;
+    }
+
+    @Override
+    protected void putFragmentKey(final PeriodOverPeriodAlertView view,
+                                  final ContentKey.Builder key) {
+        key.put(view.getDescription("<strong>", "</strong>"))
+                .put(view.getHumanTimestamp())
+                .put(view.getStateFrom())
+                .put(view.getStateTo())
+                .put(view.showGraph())
+                .put(String.valueOf(view.getProperties().get("cid")))
+                .put(view.getSortedTags());
     }
 
     @Override
     protected Map<String, byte[]> generateImages(
             final PeriodOverPeriodMessageKitView messageKit) {
+        final List<PeriodOverPeriodAlertView> views = messageKit.getAllViews();
+        final byte[][] imgs = chartRenderer.render(
+                views,
+                this::chartKey,
+                this::plot
+        );
+
         final Map<String, byte[]> images = new HashMap<>();
-        messageKit.getAllViews().forEach(view -> {
+        for (int i = 0; i < imgs.length; i++) {
             String cid = EMPTY_STRING;
-            final byte[] img = generateImage(view);
+            final byte[] img = imgs[i];
             if (img != null) {
                 cid = String.valueOf(Arrays.hashCode(img));
                 images.put(cid, img);
             }
-            view.addProperty("cid", cid);
-        });
+            views.get(i).addProperty("cid", cid);
+        }
 
         return images;
     }
 
-    private byte[] generateImage(final PeriodOverPeriodAlertView view) {
-        try {
-            return PLOTTER.plotPNG(view);
-        } catch (Exception e) {
-            LOG.error("Failed to plot image {}", e.getMessage());
+    private byte[] plot(final PeriodOverPeriodAlertView view) {
+        if (chartType == ChartType.SPARKLINE) {
+            return PLOTTER.plotSparklinePNG(view, chartRenderer.getMaxPoints());
         }
-        return null;
+        return PLOTTER.plotPNG(view, chartRenderer.getMaxPoints());
+    }
+
+    private ContentKey chartKey(final PeriodOverPeriodAlertView view) {
+        final PeriodOverPeriodAlert alert = view.getAlert();
+        return ContentKey.builder("period-over-period")
+                .put(chartType.name())
+                .put(view.getTimestampsSec())
+                .put(alert.getObservedValues())
+                .put(alert.getPredictedValues())
+                .put(alert.getLowerBadValues().orElse(null))
+                .put(alert.getLowerWarnValues().orElse(null))
+                .put(alert.getUpperBadValues().orElse(null))
+                .put(alert.getUpperWarnValues().orElse(null))
+                .build();
     }
 }
@@ -22,11 +22,15 @@ import java.awt.geom.Ellipse2D;
 import java.awt.image.BufferedImage;
 import java.io.ByteArrayOutputStream;
 import java.io.IOException;
+import java.util.ArrayList;
 import java.util.Date;
+import java.util.List;
 import java.util.concurrent.atomic.AtomicInteger;
 import javax.imageio.ImageIO;
 
 import net.opentsdb.horizon.alerting.corona.model.alert.impl.PeriodOverPeriodAlert;
+import net.opentsdb.horizon.alerting.corona.processor.emitter.email.Lttb;
+import net.opentsdb.horizon.alerting.corona.processor.emitter.email.SparklinePlotter;
 import net.opentsdb.horizon.alerting.corona.processor.emitter.view.impl.PeriodOverPeriodAlertView;
 import org.jfree.chart.ChartFactory;
 import org.jfree.chart.JFreeChart;
@@ -100,6 +104,8 @@ public class PeriodOverPeriodGraphPlotter {
                     BasicStroke.JOIN_ROUND
             );
 
+    private static final SparklinePlotter SPARKLINE_PLOTTER = new SparklinePlotter();
+
     public String plotSVG(PeriodOverPeriodAlertView view) {
         final JFreeChart chart = createChart(view.getAlert(), createDataset(view));
         SVGGraphics2D g2 = new SVGGraphics2D(300, 200);
@@ -109,7 +115,17 @@ public class PeriodOverPeriodGraphPlotter {
     }
 
     public byte[] plotPNG(PeriodOverPeriodAlertView view) {
-        final JFreeChart chart = createChart(view.getAlert(), createDataset(view));
+        return plotPNG(view, Integer.MAX_VALUE);
+    }
+
+    /**
+     * Plots at most {@code maxPoints} points of each series, picked by
+     * {@link Lttb} on the observed values.
+     */
+    public byte[] plotPNG(PeriodOverPeriodAlertView view, int maxPoints) {
+        final int[] indices = Lttb.select(view.getTimestampsSec(),
+                view.getAlert().getObservedValues(), maxPoints);
+        final JFreeChart chart = createChart(view.getAlert(), createDataset(view, indices));
         try (ByteArrayOutputStream os = new ByteArrayOutputStream()) {
             final BufferedImage bufferedImage = chart.createBufferedImage(598, 200);
             ImageIO.write(bufferedImage, "png", os);
@@ -120,9 +136,54 @@ public class PeriodOverPeriodGraphPlotter {
         }
     }
 
+    /**
+     * Same series as {@link #plotPNG(PeriodOverPeriodAlertView, int)},
+     * drawn by the {@link SparklinePlotter}.
+     */
+    public byte[] plotSparklinePNG(PeriodOverPeriodAlertView view, int maxPoints) {
+        final PeriodOverPeriodAlert alert = view.getAlert();
+        final int[] indices = Lttb.select(view.getTimestampsSec(),
+                alert.getObservedValues(), maxPoints);
+
+        final List<double[]> series = new ArrayList<>(6);
+        final List<SparklinePlotter.Style> styles = new ArrayList<>(6);
+        series.add(Lttb.pick(alert.getObservedValues(), indices));
+        styles.add(SparklinePlotter.Style.OBSERVED);
+        series.add(Lttb.pick(alert.getPredictedValues(), indices));
+        styles.add(SparklinePlotter.Style.PREDICTED);
+        alert.getLowerBadValues().ifPresent(doubles -> {
+            series.add(Lttb.pick(doubles, indices));
+            styles.add(SparklinePlotter.Style.LOWER_BAD);
+        });
+        alert.getLowerWarnValues().ifPresent(doubles -> {
+            series.add(Lttb.pick(doubles, indices));
+            styles.add(SparklinePlotter.Style.LOWER_WARN);
+        });
+        alert.getUpperBadValues().ifPresent(doubles -> {
+            series.add(Lttb.pick(doubles, indices));
+            styles.add(SparklinePlotter.Style.UPPER_BAD);
+        });
+        alert.getUpperWarnValues().ifPresent(doubles -> {
+            series.add(Lttb.pick(doubles, indices));
+            styles.add(SparklinePlotter.Style.UPPER_WARN);
+        });
+
+        return SPARKLINE_PLOTTER.plotPNG(
+                Lttb.pick(view.getTimestampsSec(), indices),
+                series.toArray(new double[0][]),
+                styles.toArray(new SparklinePlotter.Style[0]),
+                Double.NaN
+        );
+    }
+
     private XYDataset createDataset(PeriodOverPeriodAlertView view) {
+        return createDataset(view, Lttb.select(view.getTimestampsSec(),
+                view.getAlert().getObservedValues(), Integer.MAX_VALUE));
+    }
+
+    private XYDataset createDataset(PeriodOverPeriodAlertView view, int[] indices) {
         // Timestamps.
-        final long[] timestampsSec = view.getTimestampsSec();
+        final long[] timestampsSec = Lttb.pick(view.getTimestampsSec(), indices);
         final Second[] ts = new Second[timestampsSec.length];
         for (int i = 0; i < timestampsSec.length; i++) {
             ts[i] = new Second(new Date(1000L * timestampsSec[i]));
@@ -132,23 +193,23 @@ public class PeriodOverPeriodGraphPlotter {
         final TimeSeriesCollection dataset = new TimeSeriesCollection();
 
         dataset.addSeries(
-                generateTimeseries("observed", ts, alert.getObservedValues())
+                generateTimeseries("observed", ts, Lttb.pick(alert.getObservedValues(), indices))
         );
         dataset.addSeries(
-                generateTimeseries("predicted", ts, alert.getPredictedValues())
+                generateTimeseries("predicted", ts, Lttb.pick(alert.getPredictedValues(), indices))
         );
 
         alert.getLowerBadValues().ifPresent(doubles -> dataset.addSeries(
-                generateTimeseries("lower bad", ts, doubles)
+                generateTimeseries("lower bad", ts, Lttb.pick(doubles, indices))
         ));
         alert.getLowerWarnValues().ifPresent(doubles -> dataset.addSeries(
-                generateTimeseries("lower warn", ts, doubles)
+                generateTimeseries("lower warn", ts, Lttb.pick(doubles, indices))
         ));
         alert.getUpperBadValues().ifPresent(doubles -> dataset.addSeries(
-                generateTimeseries("upper bad", ts, doubles)
+                generateTimeseries("upper bad", ts, Lttb.pick(doubles, indices))
         ));
         alert.getUpperWarnValues().ifPresent(doubles -> dataset.addSeries(
-                generateTimeseries("uppper warn", ts, doubles)
+                generateTimeseries("uppper warn", ts, Lttb.pick(doubles, indices))
         ));
 
         return dataset;
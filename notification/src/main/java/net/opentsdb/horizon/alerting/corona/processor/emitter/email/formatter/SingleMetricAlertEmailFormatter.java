@@ -21,14 +21,13 @@ import java.util.Arrays;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
-import java.util.Optional;
 
 import net.opentsdb.horizon.alerting.corona.model.alert.impl.SingleMetricAlert;
-import org.slf4j.Logger;
-import org.slf4j.LoggerFactory;
-
+import net.opentsdb.horizon.alerting.corona.processor.emitter.email.ChartRenderer;
+import net.opentsdb.horizon.alerting.corona.processor.emitter.email.ChartType;
+import net.opentsdb.horizon.alerting.corona.processor.emitter.email.ContentKey;
 import net.opentsdb.horizon.alerting.corona.processor.emitter.email.Plotter;
-import net.opentsdb.horizon.alerting.corona.processor.emitter.view.ViewType;
+import net.opentsdb.horizon.alerting.corona.processor.emitter.email.SparklinePlotter;
 import net.opentsdb.horizon.alerting.corona.processor.emitter.view.impl.SingleMetricAlertView;
 import net.opentsdb.horizon.alerting.corona.processor.emitter.view.impl.SingleMetricMessageKitView;
 
@@ -41,66 +40,104 @@ public class SingleMetricAlertEmailFormatter
 {
 
     /* ------------ Constants ------------ */
-    private static final Logger LOG =
-            LoggerFactory.getLogger(SingleMetricAlertEmailFormatter.class);
 
     private static final Plotter PLOTTER = new Plotter();
 
+    private static final SparklinePlotter SPARKLINE_PLOTTER = new SparklinePlotter();
+
+    /* ------------ Fields ------------ */
+
+    private final ChartRenderer chartRenderer;
+
+    private final ChartType chartType;
+
     /* ------------ Constructor ------------ */
 
     public SingleMetricAlertEmailFormatter(final String debugPrefix)
     {
-        super(debugPrefix, "templates/email-single-metric-alert.html");
+        this(debugPrefix, ChartRenderer.getDefault(), ChartType.JFREECHART);
+    }
+
+    public SingleMetricAlertEmailFormatter(final String debugPrefix,
+                                           final ChartRenderer chartRenderer,
+                                           final ChartType chartType)
+    {
+        super(debugPrefix,
+                "templates/email-single-metric-alert.html",
+                "templates/email-single-metric-alert-view.html");
+        this.chartRenderer = chartRenderer;
+        this.chartType = chartType;
     }
 
     /* ------------ Methods ------------ */
 
-    private byte[] getImgBytes(final long[] timestampsSec,
-                               final double[] values,
-                               final double threshold)
+    private ContentKey chartKey(final SingleMetricAlertView view)
     {
-        return PLOTTER.plotPNG(timestampsSec, values, threshold);
+        return ContentKey.builder("single-metric")
+                .put(chartType.name())
+                .put(view.getTimestampsSec())
+                .put(view.getDisplayValues())
+                .put(view.getThreshold())
+                .build();
     }
 
-    private Optional<byte[]> generateImage(final SingleMetricAlertView view)
+    private byte[] plot(final SingleMetricAlertView view)
     {
-        try {
-            final byte[] img =
-                    getImgBytes(
-                            view.getTimestampsSec(),
-                            view.getDisplayValues(),
-                            view.getThreshold()
-                    );
-            return Optional.of(img);
-        } catch (Exception e) {
-            LOG.error("Failed to plot an image {}", e.getMessage());
+        if (chartType == ChartType.SPARKLINE) {
+            return SPARKLINE_PLOTTER.plotPNG(
+                    view.getTimestampsSec(),
+                    view.getDisplayValues(),
+                    view.getThreshold(),
+                    chartRenderer.getMaxPoints()
+            );
         }
-        return Optional.empty();
+        return PLOTTER.plotPNG(
+                view.getTimestampsSec(),
+                view.getDisplayValues(),
+                view.getThreshold(),
+                chartRenderer.getMaxPoints()
+        );
+    }
+
+    @Override
+    protected void putFragmentKey(final SingleMetricAlertView view,
+                                  final ContentKey.Builder key)
+    {
+        key.put(view.getDescription("<strong>", "</strong>"))
+                .put(view.getMetricValue())
+                .put(view.getHumanTimestamp())
+                .put(view.getStateFrom())
+                .put(view.getStateTo())
+                .put(view.showGraph())
+                .put(String.valueOf(view.getProperties().get("cid")))
+                .put(view.getSortedTags());
     }
 
     @Override
     protected Map<String, byte[]> generateImages(
             final SingleMetricMessageKitView messageKit)
     {
-        final Map<ViewType, List<SingleMetricAlertView>> viewsByState =
-                messageKit.getViewsByType();
-        final Map<String, byte[]> images = new HashMap<>();
+        final List<SingleMetricAlertView> views = messageKit.getAllViews();
+
+        final byte[][] imgs = chartRenderer.render(
+                views,
+                this::chartKey,
+                this::plot
+        );
 
-        viewsByState.forEach((unused, views) -> {
-            views.forEach(view -> {
-                final Optional<byte[]> optional = generateImage(view);
-                final String cid;
-                if (optional.isPresent()) {
-                    final byte[] img = optional.get();
-                    cid = String.valueOf(Arrays.hashCode(img));
-                    images.put(cid, img);
-                } else {
-                    cid = EMPTY_STRING;
-                }
-
-                view.addProperty("cid", cid);
-            });
-        });
+        final Map<String, byte[]> images = new HashMap<>();
+        for (int i = 0; i < imgs.length; i++) {
+            final byte[] img = imgs[i];
+            final String cid;
+            if (img != null) {
+                cid = String.valueOf(Arrays.hashCode(img));
+                images.put(cid, img);
+            } else {
+                cid = EMPTY_STRING;
+            }
+
+            views.get(i).addProperty("cid", cid);
+        }
 
         return images;
     }
@@ -19,9 +19,15 @@ package net.opentsdb.horizon.alerting.corona.processor.emitter.oc;
 
 import java.io.IOException;
 import java.util.List;
+import java.util.concurrent.CompletableFuture;
 
 import net.opentsdb.horizon.alerting.corona.model.contact.impl.OcContact;
 
+/**
+ * Runs a {@code ywmsg} process per command.
+ *
+ * @see PooledOcClient
+ */
 public class OcClient {
 
     /* ------------ Methods ------------ */
@@ -44,4 +50,23 @@ public class OcClient {
             throw new RuntimeException("Execution error: command=" + cmd, e);
         }
     }
+
+    /**
+     * Sends the command without waiting for it to complete, when the
+     * client supports it. This one sends it in the calling thread.
+     *
+     * @return future completed when the command has been executed.
+     */
+    public CompletableFuture<Void> sendAsync(final OcCommand command,
+                                             final OcContact contact)
+    {
+        final CompletableFuture<Void> future = new CompletableFuture<>();
+        try {
+            send(command, contact);
+            future.complete(null);
+        } catch (Exception e) {
+            future.completeExceptionally(e);
+        }
+        return future;
+    }
 }
@@ -17,10 +17,12 @@
 
 package net.opentsdb.horizon.alerting.corona.processor.emitter.oc;
 
+import java.util.ArrayList;
 import java.util.Collections;
 import java.util.List;
 import java.util.Objects;
 import java.util.Set;
+import java.util.concurrent.CompletableFuture;
 import java.util.stream.Collectors;
 
 import net.opentsdb.horizon.alerting.corona.model.contact.Contact;
@@ -72,26 +74,18 @@ public class OcEmitter implements Processor<MessageKit> {
 
     /* ------------ Methods ------------ */
 
-    private void sendOne(final String namespace,
-                         final OcCommand command,
-                         final List<OcContact> contacts)
-    {
-        for (OcContact contact : contacts) {
-            sendWithRetry(namespace, command, contact);
-        }
-    }
-
     private void sendWithRetry(final String namespace,
                                final OcCommand command,
-                               final OcContact contact)
+                               final OcContact contact,
+                               final int tryTimes)
     {
-        for (int i = 1; i <= TRY_TIMES; i++) {
+        for (int i = 1; i <= tryTimes; i++) {
             try {
                 client.send(command, contact);
                 AppMonitor.get().countAlertSendSuccess(namespace);
                 break;
             } catch (Exception e) {
-                if (i < TRY_TIMES) {
+                if (i < tryTimes) {
                     // Try again.
                     continue;
                 }
@@ -102,11 +96,31 @@ public class OcEmitter implements Processor<MessageKit> {
         }
     }
 
+    /**
+     * The first attempts are all submitted before waiting for any, so a
+     * pooled client can batch them. Failed ones are retried one by one.
+     */
     private void send(final String namespace,
                       final List<OcCommand> commands,
                       final List<OcContact> contacts) {
+        final List<CompletableFuture<Void>> attempts =
+                new ArrayList<>(commands.size() * contacts.size());
+        for (OcCommand command : commands) {
+            for (OcContact contact : contacts) {
+                attempts.add(client.sendAsync(command, contact));
+            }
+        }
+
+        int i = 0;
         for (OcCommand command : commands) {
-            sendOne(namespace, command, contacts);
+            for (OcContact contact : contacts) {
+                try {
+                    attempts.get(i++).join();
+                    AppMonitor.get().countAlertSendSuccess(namespace);
+                } catch (Exception e) {
+                    sendWithRetry(namespace, command, contact, TRY_TIMES - 1);
+                }
+            }
         }
     }
 
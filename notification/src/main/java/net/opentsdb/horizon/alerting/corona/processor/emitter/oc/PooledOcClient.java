@@ -0,0 +1,450 @@
+/*
+ *  This file is part of OpenTSDB.
+ *  Copyright (C) 2021 Yahoo.
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+
+package net.opentsdb.horizon.alerting.corona.processor.emitter.oc;
+
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStreamWriter;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Objects;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import javax.annotation.concurrent.ThreadSafe;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import net.opentsdb.horizon.alerting.corona.model.contact.impl.OcContact;
+import net.opentsdb.horizon.alerting.corona.monitoring.AppMonitor;
+
+/**
+ * Sends the commands through a pool of long-lived helper processes
+ * instead of starting a {@code ywmsg} process from the daemon per command.
+ * At most as many commands run at once as the pool has helpers.
+ * <p>
+ * Commands are queued and each helper takes them in batches. A command
+ * is written as one line with its arguments separated by tabs, tabs and
+ * line breaks inside an argument are replaced by spaces. The helper
+ * answers each command, in order, with one line holding the exit value,
+ * optionally followed by a space and an error message.
+ * <p>
+ * A helper which exits, breaks the protocol or does not answer a batch
+ * within the timeout is killed, its pending commands fail and it is
+ * restarted for the next batch. Helpers exit when their standard input
+ * is closed.
+ * <p>
+ * {@code src/main/scripts/ywmsg-helper.py} is the reference helper, the
+ * protocol is documented next to it. It still runs a {@code ywmsg}
+ * process per command, one at a time.
+ */
+@ThreadSafe
+public class PooledOcClient extends OcClient {
+
+    private static final Logger LOG =
+            LoggerFactory.getLogger(PooledOcClient.class);
+
+    private static final long POLL_TIMEOUT_MS = 1_000L;
+
+    private static final long RESTART_BACKOFF_MS = 1_000L;
+
+    /* ------------ Fields ------------ */
+
+    private final List<String> helperCommand;
+
+    private final int batchSize;
+
+    private final long timeoutMs;
+
+    private final BlockingQueue<Task> queue;
+
+    private final List<Helper> helpers;
+
+    private final Thread watchdog;
+
+    private volatile boolean running;
+
+    /* ------------ Constructor ------------ */
+
+    private PooledOcClient(final Builder builder)
+    {
+        Objects.requireNonNull(builder.helperCommand,
+                "helperCommand cannot be null");
+        if (builder.helperCommand.isEmpty()) {
+            throw new IllegalArgumentException("helperCommand cannot be empty");
+        }
+        if (builder.poolSize <= 0) {
+            throw new IllegalArgumentException("poolSize has to be positive");
+        }
+        if (builder.batchSize <= 0) {
+            throw new IllegalArgumentException("batchSize has to be positive");
+        }
+        if (builder.queueCapacity <= 0) {
+            throw new IllegalArgumentException("queueCapacity has to be positive");
+        }
+        if (builder.timeoutMs <= 0) {
+            throw new IllegalArgumentException("timeoutMs has to be positive");
+        }
+        this.helperCommand = new ArrayList<>(builder.helperCommand);
+        this.batchSize = builder.batchSize;
+        this.timeoutMs = builder.timeoutMs;
+        this.queue = new ArrayBlockingQueue<>(builder.queueCapacity);
+        this.helpers = new ArrayList<>(builder.poolSize);
+        this.running = true;
+
+        for (int i = 0; i < builder.poolSize; i++) {
+            final Helper helper = new Helper();
+            helpers.add(helper);
+            final Thread worker =
+                    new Thread(() -> work(helper), "oc-helper-" + i);
+            worker.setDaemon(true);
+            worker.start();
+        }
+        this.watchdog = new Thread(this::watch, "oc-helper-watchdog");
+        watchdog.setDaemon(true);
+        watchdog.start();
+    }
+
+    /* ------------ Methods ------------ */
+
+    @Override
+    public void send(final OcCommand command, final OcContact contact)
+    {
+        try {
+            sendAsync(command, contact).get();
+        } catch (ExecutionException e) {
+            final Throwable cause = e.getCause();
+            throw cause instanceof RuntimeException ?
+                    (RuntimeException) cause : new RuntimeException(cause);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new RuntimeException("Interrupted: command=" + command, e);
+        }
+    }
+
+    /**
+     * Fails right away when the queue is full, so a stuck pool does not
+     * hold up the emitter.
+     */
+    @Override
+    public CompletableFuture<Void> sendAsync(final OcCommand command,
+                                             final OcContact contact)
+    {
+        return submit(command.build(contact));
+    }
+
+    CompletableFuture<Void> submit(final List<String> command)
+    {
+        final Task task = new Task(command);
+        if (!running) {
+            task.completeExceptionally(
+                    new IllegalStateException("Client is closed"));
+        } else if (!queue.offer(task)) {
+            AppMonitor.get().countOcCommandRejected();
+            task.completeExceptionally(new RuntimeException(
+                    "Helper queue is full: command=" + command));
+        }
+        return task;
+    }
+
+    /**
+     * Stops the workers and the helpers. Queued commands fail.
+     */
+    public void close()
+    {
+        running = false;
+        watchdog.interrupt();
+        for (Helper helper : helpers) {
+            helper.kill();
+        }
+        final List<Task> tasks = new ArrayList<>();
+        queue.drainTo(tasks);
+        final Exception e = new IllegalStateException("Client is closed");
+        tasks.forEach(task -> task.completeExceptionally(e));
+    }
+
+    private void work(final Helper helper)
+    {
+        final List<Task> batch = new ArrayList<>(batchSize);
+        while (running) {
+            try {
+                final Task first =
+                        queue.poll(POLL_TIMEOUT_MS, TimeUnit.MILLISECONDS);
+                if (first == null) {
+                    continue;
+                }
+                batch.add(first);
+                queue.drainTo(batch, batchSize - 1);
+                AppMonitor.get().gaugeOcQueueSize(queue.size());
+                if (!running) {
+                    fail(batch, new IllegalStateException("Client is closed"));
+                    return;
+                }
+                if (helper.isStarted() || start(helper, batch)) {
+                    execute(helper, batch);
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return;
+            } finally {
+                batch.clear();
+            }
+        }
+    }
+
+    private boolean start(final Helper helper, final List<Task> batch)
+            throws InterruptedException
+    {
+        try {
+            helper.start();
+            return true;
+        } catch (IOException e) {
+            LOG.error("Unable to start OC helper: command={}", helperCommand, e);
+            fail(batch, e);
+            Thread.sleep(RESTART_BACKOFF_MS);
+            return false;
+        }
+    }
+
+    private void execute(final Helper helper, final List<Task> batch)
+    {
+        try {
+            helper.execute(batch);
+        } catch (Exception e) {
+            helper.kill();
+            if (running) {
+                LOG.error("OC helper failed, restarting: command={}",
+                        helperCommand, e);
+                AppMonitor.get().countOcHelperRestart();
+            }
+            fail(batch, e);
+        }
+    }
+
+    private static void fail(final List<Task> batch, final Exception e)
+    {
+        final Exception error =
+                new RuntimeException("Helper failed: " + e.getMessage(), e);
+        batch.forEach(task -> task.completeExceptionally(error));
+    }
+
+    private void watch()
+    {
+        final long checkIntervalMs = Math.min(timeoutMs, POLL_TIMEOUT_MS);
+        while (running && sleep(checkIntervalMs)) {
+            final long now = System.nanoTime();
+            for (Helper helper : helpers) {
+                final long busySince = helper.busySinceNanos;
+                if (busySince != 0L &&
+                        now - busySince > TimeUnit.MILLISECONDS.toNanos(timeoutMs)) {
+                    LOG.warn("OC helper timed out after {} ms", timeoutMs);
+                    helper.kill();
+                }
+            }
+        }
+    }
+
+    private static boolean sleep(final long ms)
+    {
+        try {
+            Thread.sleep(ms);
+            return true;
+        } catch (InterruptedException e) {
+            return false;
+        }
+    }
+
+    private static String toLine(final List<String> command)
+    {
+        final StringBuilder sb = new StringBuilder();
+        for (int i = 0; i < command.size(); i++) {
+            if (i > 0) {
+                sb.append('\t');
+            }
+            final String arg = command.get(i);
+            for (int j = 0; j < arg.length(); j++) {
+                final char c = arg.charAt(j);
+                sb.append(c == '\t' || c == '\n' || c == '\r' ? ' ' : c);
+            }
+        }
+        return sb.append('\n').toString();
+    }
+
+    /* ------------ Static Classes ------------ */
+
+    private static final class Task extends CompletableFuture<Void> {
+
+        private final List<String> command;
+
+        private final long enqueuedNanos = System.nanoTime();
+
+        private Task(final List<String> command)
+        {
+            this.command = command;
+        }
+
+        private void onReply(final String reply)
+        {
+            final int separator = reply.indexOf(' ');
+            final String status = separator < 0 ?
+                    reply : reply.substring(0, separator);
+            final int exitValue;
+            try {
+                exitValue = Integer.parseInt(status.trim());
+            } catch (NumberFormatException e) {
+                throw new IllegalStateException("Unexpected reply: " + reply);
+            }
+
+            AppMonitor.get().timeOcCommandLatencyMs(TimeUnit.NANOSECONDS
+                    .toMillis(System.nanoTime() - enqueuedNanos));
+            if (exitValue == 0) {
+                complete(null);
+            } else {
+                completeExceptionally(new RuntimeException("Unable to execute:" +
+                        " command=" + command +
+                        ", exit_value= " + exitValue +
+                        (separator < 0 ? "" : ", error=" + reply.substring(separator + 1))));
+            }
+        }
+    }
+
+    /**
+     * Only used by its worker, except for {@link #kill()}.
+     */
+    private final class Helper {
+
+        private volatile Process process;
+
+        private BufferedWriter writer;
+
+        private BufferedReader reader;
+
+        private volatile long busySinceNanos;
+
+        private boolean isStarted()
+        {
+            return process != null;
+        }
+
+        private void start() throws IOException
+        {
+            final Process started = new ProcessBuilder()
+                    .command(helperCommand)
+                    .redirectError(ProcessBuilder.Redirect.INHERIT)
+                    .start();
+            writer = new BufferedWriter(new OutputStreamWriter(
+                    started.getOutputStream(), StandardCharsets.UTF_8));
+            reader = new BufferedReader(new InputStreamReader(
+                    started.getInputStream(), StandardCharsets.UTF_8));
+            process = started;
+        }
+
+        private void execute(final List<Task> batch) throws IOException
+        {
+            if (process == null) {
+                start();
+            }
+            for (Task task : batch) {
+                writer.write(toLine(task.command));
+            }
+            busySinceNanos = System.nanoTime();
+            try {
+                writer.flush();
+                for (Task task : batch) {
+                    final String reply = reader.readLine();
+                    if (reply == null) {
+                        throw new IOException("Helper exited");
+                    }
+                    task.onReply(reply);
+                }
+            } finally {
+                busySinceNanos = 0L;
+            }
+        }
+
+        private void kill()
+        {
+            final Process current = process;
+            process = null;
+            if (current != null) {
+                current.destroyForcibly();
+            }
+        }
+    }
+
+    /* ------------ Builder ------------ */
+
+    public static class Builder {
+
+        private List<String> helperCommand;
+
+        private int poolSize = 4;
+
+        private int batchSize = 32;
+
+        private int queueCapacity = 1_000;
+
+        private long timeoutMs = 30_000L;
+
+        public Builder setHelperCommand(final List<String> helperCommand)
+        {
+            this.helperCommand = helperCommand;
+            return this;
+        }
+
+        public Builder setPoolSize(final int poolSize)
+        {
+            this.poolSize = poolSize;
+            return this;
+        }
+
+        public Builder setBatchSize(final int batchSize)
+        {
+            this.batchSize = batchSize;
+            return this;
+        }
+
+        public Builder setQueueCapacity(final int queueCapacity)
+        {
+            this.queueCapacity = queueCapacity;
+            return this;
+        }
+
+        public Builder setTimeoutMs(final long timeoutMs)
+        {
+            this.timeoutMs = timeoutMs;
+            return this;
+        }
+
+        public PooledOcClient build()
+        {
+            return new PooledOcClient(this);
+        }
+    }
+
+    public static Builder builder()
+    {
+        return new Builder();
+    }
+}
@@ -22,6 +22,7 @@ import java.util.List;
 import java.util.stream.Collectors;
 
 import net.opentsdb.horizon.alerting.corona.model.alert.Alert;
+import net.opentsdb.horizon.alerting.corona.model.alertgroup.AlertGroupSummary;
 import net.opentsdb.horizon.alerting.corona.model.messagekit.MessageKit;
 import net.opentsdb.horizon.alerting.corona.processor.emitter.Formatter;
 import net.opentsdb.horizon.alerting.corona.processor.emitter.slack.client.api.SlackBuilders;
@@ -188,6 +189,14 @@ public abstract class AbstractSlackFormatter<
      * <pre>{@code
      *  1 Bad, 5 Recovery // Do not show 0 counts.
      * }</pre>
+     * <p>
+     * For a sampled group, the sample size and the most frequent tag
+     * values follow.
+     *
+     * <pre>{@code
+     *  9500 Bad, 500 Recovery
+     *  Showing 100 of 10000 alerts. Top tags: host: h1 (800), ...
+     * }</pre>
      *
      * @param messageKitView message kit view instance
      * @return formatted state count line.
@@ -215,7 +224,28 @@ public abstract class AbstractSlackFormatter<
             countTerms.add("*" + recovery + "* Recovery");
         }
 
-        return String.join(", ", countTerms);
+        final String countLine = String.join(", ", countTerms);
+        if (!messageKitView.isSampled()) {
+            return countLine;
+        }
+
+        final AlertGroupSummary summary = messageKitView.getSummary();
+        final StringBuilder sb = new StringBuilder(countLine)
+                .append("\nShowing ")
+                .append(messageKitView.getAllViews().size())
+                .append(" of ")
+                .append(summary.getTotal())
+                .append(" alerts.");
+        final List<AlertGroupSummary.TagValueCount> topTagValues =
+                summary.getTopTagValues();
+        if (!topTagValues.isEmpty()) {
+            sb.append(" Top tags: ")
+                    .append(topTagValues.stream()
+                            .map(tv -> tv.getKey() + ": *" + tv.getValue() +
+                                    "* (" + tv.getCount() + ")")
+                            .collect(Collectors.joining(", ")));
+        }
+        return sb.toString();
     }
 
     /**
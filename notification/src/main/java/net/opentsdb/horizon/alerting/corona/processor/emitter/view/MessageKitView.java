@@ -29,6 +29,7 @@ import lombok.Getter;
 import net.opentsdb.horizon.alerting.corona.model.alert.Alert;
 import net.opentsdb.horizon.alerting.corona.model.alert.State;
 import net.opentsdb.horizon.alerting.corona.model.alertgroup.AlertGroup;
+import net.opentsdb.horizon.alerting.corona.model.alertgroup.AlertGroupSummary;
 import net.opentsdb.horizon.alerting.corona.model.alertgroup.GroupKey;
 import net.opentsdb.horizon.alerting.corona.model.messagekit.MessageKit;
 import net.opentsdb.horizon.alerting.corona.processor.emitter.Interpolator;
@@ -67,6 +68,13 @@ public abstract class MessageKitView<A extends Alert, V extends AlertView> {
     @Getter
     private int alertsTotal;
 
+    /**
+     * @return summary of all the alerts when the views are only built
+     * for a sample of them, null otherwise.
+     */
+    @Getter
+    private final AlertGroupSummary summary;
+
     @Getter
     private final String groupInterpolatedSubject;
 
@@ -92,7 +100,9 @@ public abstract class MessageKitView<A extends Alert, V extends AlertView> {
         this.groupKeys = groupKey.getKeys();
         this.groupValues = groupKey.getValues();
         this.viewsByType = viewsPerType(alerts);
-        this.alertsTotal = alerts.size();
+        this.summary = alertGroup.getSummary();
+        this.alertsTotal = summary == null ?
+                alerts.size() : (int) summary.getTotal();
         this.groupInterpolatedSubject = Interpolator.tryInterpolate(subject, groupKeys, groupValues);
         this.groupInterpolatedBody = Interpolator.tryInterpolate(body, groupKeys, groupValues);
     }
@@ -129,6 +139,16 @@ public abstract class MessageKitView<A extends Alert, V extends AlertView> {
     private int getSize(final ViewType viewType,
                         final Map<ViewType, List<V>> viewsByType)
     {
+        if (summary != null) {
+            long count = 0;
+            for (Map.Entry<State, Long> entry : summary.getStateCounts().entrySet()) {
+                if (stateToViewType(entry.getKey()) == viewType) {
+                    count += entry.getValue();
+                }
+            }
+            return (int) count;
+        }
+
         final List<V> list = viewsByType.get(viewType);
         if (list == null) {
             return 0;
@@ -136,6 +156,14 @@ public abstract class MessageKitView<A extends Alert, V extends AlertView> {
         return list.size();
     }
 
+    /**
+     * @return true if the views are only built for a sample of the alerts.
+     */
+    public boolean isSampled()
+    {
+        return summary != null;
+    }
+
     public List<V> getAllViews()
     {
         return viewsByType.values()
@@ -254,7 +282,8 @@ public abstract class MessageKitView<A extends Alert, V extends AlertView> {
                 Objects.equals(body, that.body) &&
                 Arrays.equals(groupKeys, that.groupKeys) &&
                 Arrays.equals(groupValues, that.groupValues) &&
-                Objects.equals(viewsByType, that.viewsByType);
+                Objects.equals(viewsByType, that.viewsByType) &&
+                Objects.equals(summary, that.summary);
     }
 
     @Override
@@ -267,7 +296,8 @@ public abstract class MessageKitView<A extends Alert, V extends AlertView> {
                         subject,
                         body,
                         viewsByType,
-                        alertsTotal
+                        alertsTotal,
+                        summary
                 );
         result = 31 * result + Arrays.hashCode(groupKeys);
         result = 31 * result + Arrays.hashCode(groupValues);
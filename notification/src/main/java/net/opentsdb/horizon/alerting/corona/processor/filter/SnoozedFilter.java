@@ -51,6 +51,13 @@ public class SnoozedFilter extends ChainableProcessor<
         AppMonitor.get().countAlertSnoozed(count, namespace);
     }
 
+    private List<Alert> getSnoozedAlerts(final List<Alert> allAlerts)
+    {
+        return allAlerts.stream()
+                .filter(Alert::isSnoozed)
+                .collect(Collectors.toList());
+    }
+
     private List<Alert> getActiveAlerts(final List<Alert> allAlerts)
     {
         return allAlerts.stream()
@@ -78,6 +85,9 @@ public class SnoozedFilter extends ChainableProcessor<
         final AlertGroup newAlertGroup = AlertGroup.builder()
                 .setGroupKey(alertGroup.getGroupKey())
                 .setAlerts(activeAlerts)
+                .setSummary(alertGroup.isSummarized() ?
+                        alertGroup.getSummary().without(getSnoozedAlerts(allAlerts)) :
+                        null)
                 .build();
 
         return Optional.of(new Triple<>(newAlertGroup, metadata, contacts));
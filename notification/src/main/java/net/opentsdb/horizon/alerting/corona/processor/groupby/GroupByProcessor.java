@@ -18,6 +18,7 @@
 package net.opentsdb.horizon.alerting.corona.processor.groupby;
 
 import java.util.ArrayList;
+import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Queue;
@@ -25,10 +26,12 @@ import java.util.concurrent.ScheduledExecutorService;
 import java.util.concurrent.ScheduledFuture;
 import java.util.concurrent.ScheduledThreadPoolExecutor;
 import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
 import java.util.stream.Collectors;
 
 import net.opentsdb.horizon.alerting.corona.model.alert.Alert;
 import net.opentsdb.horizon.alerting.corona.model.alertgroup.AlertGroup;
+import net.opentsdb.horizon.alerting.corona.model.alertgroup.AlertGroupSummary;
 import net.opentsdb.horizon.alerting.corona.model.alertgroup.GroupKey;
 import net.opentsdb.horizon.alerting.corona.monitoring.AppMonitor;
 import org.slf4j.Logger;
@@ -51,6 +54,10 @@ public class GroupByProcessor
 
     private final long flushFrequencyMs;
 
+    private final long maxStateSize;
+
+    private final AtomicBoolean earlyFlushPending;
+
     private final ScheduledExecutorService executor;
 
     private final GroupByState<GroupKey, Alert> groupbyState;
@@ -69,14 +76,33 @@ public class GroupByProcessor
             throw new IllegalArgumentException(
                     "numWorkers cannot be <= 0, given " + builder.numWorkers);
         }
+        if (builder.stormThreshold > 0 && builder.stormSampleSize <= 0) {
+            throw new IllegalArgumentException(
+                    "stormSampleSize cannot be <= 0, given "
+                            + builder.stormSampleSize);
+        }
 
         this.flushFrequencyMs = builder.flushFrequencyMs;
+        this.maxStateSize = builder.maxStateSize;
+        this.earlyFlushPending = new AtomicBoolean();
         this.executor =
                 new ScheduledThreadPoolExecutor(
                         builder.numWorkers,
                         DaemonThreadFactory.INSTANCE
                 );
-        this.groupbyState = new GroupByState<>();
+        final int stormSampleSize = builder.stormSampleSize;
+        final int stormTopK = builder.stormTopK;
+        this.groupbyState = new GroupByState<>(
+                GroupKey::getFingerprint,
+                builder.stormThreshold,
+                () -> new GroupStorm<>(
+                        stormSampleSize,
+                        stormTopK,
+                        Alert::getState,
+                        Alert::getTags,
+                        Alert::isSnoozed
+                )
+        );
     }
 
     private List<AlertGroup> toAlertGroups(
@@ -89,7 +115,34 @@ public class GroupByProcessor
                                 new ArrayList<>(e.getValue())
                         )
                 )
-                .collect(Collectors.toList());
+                .collect(Collectors.toCollection(ArrayList::new));
+    }
+
+    /**
+     * The group carries a sample of the alerts and the summary of all.
+     * Snoozed alerts never reach the {@code SnoozedFilter} from a storm,
+     * so they are reported here.
+     *
+     * @return the group, null if all its alerts are snoozed.
+     */
+    private AlertGroup toAlertGroup(final GroupKey groupKey,
+                                    final GroupStorm<Alert> storm)
+    {
+        final long snoozed = storm.getExcludedTotal();
+        if (snoozed > 0) {
+            AppMonitor.get().countAlertSnoozed(
+                    (int) Math.min(snoozed, Integer.MAX_VALUE),
+                    groupKey.getNamespace());
+        }
+        if (storm.getTotal() == 0) {
+            return null;
+        }
+        final AlertGroupSummary summary = storm.summarize();
+        AppMonitor.get().countGroupByStorm(
+                groupKey.getNamespace(), groupKey.getAlertId());
+        LOG.info("Summarized alert storm: alert_id={}, group_key={}, summary={}",
+                groupKey.getAlertId(), groupKey, summary);
+        return new AlertGroup(groupKey, storm.getSample(), summary);
     }
 
     private void timedSubmit(final AlertGroup group)
@@ -111,15 +164,24 @@ public class GroupByProcessor
     {
         final long start = System.currentTimeMillis();
 
+        final Map<GroupKey, GroupStorm<Alert>> storms = new HashMap<>();
         final Map<GroupKey, Queue<Alert>> groupedAlerts =
-                groupbyState.flush();
+                groupbyState.flush(storms::put);
         final List<AlertGroup> alertGroups =
                 toAlertGroups(groupedAlerts);
+        storms.forEach((groupKey, storm) -> {
+            final AlertGroup group = toAlertGroup(groupKey, storm);
+            if (group != null) {
+                alertGroups.add(group);
+            }
+        });
         for (final AlertGroup group : alertGroups) {
             try {
                 timedSubmit(group);
                 AppMonitor.get().gaugeGroupByAlertGroupSize(
-                        group.getAlerts().size(),
+                        group.isSummarized() ?
+                                group.getSummary().getTotal() :
+                                group.getAlerts().size(),
                         group.getGroupKey().getNamespace(),
                         group.getGroupKey().getAlertId()
                 );
@@ -130,10 +192,36 @@ public class GroupByProcessor
             }
         }
 
+        AppMonitor.get().gaugeGroupByCollisions(groupbyState.getCollisions());
+
         final long end = System.currentTimeMillis();
         AppMonitor.get().timeGroupByFlushTotalLatencyMs(end - start);
     }
 
+    /**
+     * Flushes the state ahead of schedule, unless an early flush is
+     * already pending.
+     */
+    private void flushEarly()
+    {
+        if (!earlyFlushPending.compareAndSet(false, true)) {
+            return;
+        }
+        AppMonitor.get().countGroupByEarlyFlush();
+        try {
+            executor.execute(() -> {
+                try {
+                    flushState();
+                } finally {
+                    earlyFlushPending.set(false);
+                }
+            });
+        } catch (Exception e) {
+            earlyFlushPending.set(false);
+            LOG.error("Failed to schedule early flush", e);
+        }
+    }
+
     /**
      * Schedules state flushing tasks at the given interval with initial
      * delay calculated by the formula below.
@@ -188,6 +276,9 @@ public class GroupByProcessor
     }
 
     /**
+     * Once the state holds the maximum number of alerts, it is flushed
+     * ahead of schedule, which may split a group across two flushes.
+     *
      * @param pair pair of {@link GroupKey} and {@link Alert} added to the
      *             GroupBy state.
      */
@@ -196,6 +287,9 @@ public class GroupByProcessor
     {
         final long size = groupbyState.add(pair.getKey(), pair.getValue());
         AppMonitor.get().gaugeGroupByStateSize(size);
+        if (maxStateSize > 0 && size >= maxStateSize) {
+            flushEarly();
+        }
     }
 
     /* ------------ Builder ------------ */
@@ -208,6 +302,14 @@ public class GroupByProcessor
 
         private int numWorkers;
 
+        private long maxStateSize;
+
+        private int stormThreshold;
+
+        private int stormSampleSize = 100;
+
+        private int stormTopK = 10;
+
         /**
          * Sets frequency of state flushes. Initial delay is computed as
          * <code>
@@ -235,6 +337,59 @@ public class GroupByProcessor
             return self();
         }
 
+        /**
+         * Sets the number of alerts in the state which triggers a flush
+         * ahead of schedule. Unbounded if not positive, the default.
+         *
+         * @param maxStateSize maximum number of alerts in the state
+         * @return builder
+         */
+        public B setMaxStateSize(final long maxStateSize)
+        {
+            this.maxStateSize = maxStateSize;
+            return self();
+        }
+
+        /**
+         * Sets the group size above which a group is summarized: only a
+         * sample of its alerts is kept and notified, along with counts by
+         * state and the most frequent tag values. Disabled if not
+         * positive, the default.
+         *
+         * @param stormThreshold number of alerts kept in a group
+         * @return builder
+         */
+        public B setStormThreshold(final int stormThreshold)
+        {
+            this.stormThreshold = stormThreshold;
+            return self();
+        }
+
+        /**
+         * Sets the number of alerts sampled from a summarized group.
+         *
+         * @param stormSampleSize sample size, 100 by default
+         * @return builder
+         */
+        public B setStormSampleSize(final int stormSampleSize)
+        {
+            this.stormSampleSize = stormSampleSize;
+            return self();
+        }
+
+        /**
+         * Sets the number of most frequent tag values reported for a
+         * summarized group.
+         *
+         * @param stormTopK number of tag values, 10 by default
+         * @return builder
+         */
+        public B setStormTopK(final int stormTopK)
+        {
+            this.stormTopK = stormTopK;
+            return self();
+        }
+
         /**
          * Build the {@link GroupByProcessor}.
          *
@@ -22,29 +22,76 @@ import java.util.Map;
 import java.util.Queue;
 import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicInteger;
 import java.util.concurrent.atomic.AtomicLong;
 import java.util.concurrent.locks.Lock;
 import java.util.concurrent.locks.ReadWriteLock;
 import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.function.BiConsumer;
+import java.util.function.Supplier;
+import java.util.function.ToLongFunction;
 
 import javax.annotation.concurrent.ThreadSafe;
 
 import com.google.common.annotations.VisibleForTesting;
 
+/**
+ * Groups values by key, indexing the groups by a 64-bit fingerprint of
+ * the key. Keys with the same fingerprint are chained in the group, so
+ * a collision never merges two groups.
+ * <p>
+ * With a storm threshold, a group stops keeping its values once it has
+ * that many. Further values only feed a {@link GroupStorm}, which the
+ * kept values join on flush.
+ */
 @ThreadSafe
 class GroupByState<K, V> {
 
     private final ReadWriteLock lock;
 
-    private Map<K, Queue<V>> groups;
+    private final ToLongFunction<K> fingerprint;
+
+    private final int stormThreshold;
+
+    private final Supplier<GroupStorm<V>> storms;
+
+    private Map<Long, Group<K, V>> groups;
 
     private final AtomicLong size;
 
+    private final AtomicLong collisions;
+
     GroupByState()
     {
+        this(Object::hashCode);
+    }
+
+    GroupByState(final ToLongFunction<K> fingerprint)
+    {
+        this(fingerprint, 0, null);
+    }
+
+    /**
+     * @param stormThreshold number of values a group keeps, all if not
+     *                       positive
+     * @param storms         creates the summary of a group past the
+     *                       threshold
+     */
+    GroupByState(final ToLongFunction<K> fingerprint,
+                 final int stormThreshold,
+                 final Supplier<GroupStorm<V>> storms)
+    {
+        if (stormThreshold > 0 && storms == null) {
+            throw new IllegalArgumentException(
+                    "storms cannot be null with a storm threshold");
+        }
         this.lock = new ReentrantReadWriteLock();
+        this.fingerprint = fingerprint;
+        this.stormThreshold = stormThreshold;
+        this.storms = storms;
         this.groups = new ConcurrentHashMap<>();
         this.size = new AtomicLong();
+        this.collisions = new AtomicLong();
     }
 
     /**
@@ -60,15 +107,24 @@ class GroupByState<K, V> {
         readLock.lock();
         try {
             groups.computeIfAbsent(
-                    key,
-                    newKey -> new ConcurrentLinkedQueue<>()
-            ).add(value);
+                    fingerprint.applyAsLong(key),
+                    newKey -> new Group<>(key)
+            ).find(key, collisions).add(value, stormThreshold, storms);
             return size.incrementAndGet();
         } finally {
             readLock.unlock();
         }
     }
 
+    /**
+     * @return number of keys which shared a fingerprint with another key
+     * since the state was created.
+     */
+    long getCollisions()
+    {
+        return collisions.get();
+    }
+
     @VisibleForTesting
     protected void reset()
     {
@@ -82,14 +138,36 @@ class GroupByState<K, V> {
         }
     }
 
+    /**
+     * Only for a state without storm threshold, storms would be lost.
+     */
     Map<K, Queue<V>> flush()
+    {
+        return flush((key, storm) -> {});
+    }
+
+    /**
+     * @param stormSink receives the groups past the storm threshold,
+     *                  which are not in the returned map
+     * @return values by key of the other groups.
+     */
+    Map<K, Queue<V>> flush(final BiConsumer<K, GroupStorm<V>> stormSink)
     {
         final Lock writeLock = lock.writeLock();
         writeLock.lock();
 
         try {
-            // TODO: Maybe create a new ConcurrentHashMap instead of copying.
-            final Map<K, Queue<V>> toReturn = new HashMap<>(groups);
+            final Map<K, Queue<V>> toReturn = new HashMap<>(groups.size());
+            for (Group<K, V> group : groups.values()) {
+                for (Group<K, V> g = group; g != null; g = g.next) {
+                    if (g.storm == null) {
+                        toReturn.put(g.key, g.values);
+                    } else {
+                        g.values.forEach(g.storm::add);
+                        stormSink.accept(g.key, g.storm);
+                    }
+                }
+            }
             reset();
             size.set(0);
             return toReturn;
@@ -97,5 +175,86 @@ class GroupByState<K, V> {
             writeLock.unlock();
         }
     }
-}
 
+    /* ------------ Group ------------ */
+
+    private static final class Group<K, V> {
+
+        private final K key;
+
+        private final Queue<V> values;
+
+        private final AtomicInteger numValues;
+
+        private volatile GroupStorm<V> storm;
+
+        /**
+         * Next group with the same fingerprint, appended under the lock
+         * of the first group in the chain.
+         */
+        private volatile Group<K, V> next;
+
+        Group(final K key)
+        {
+            this.key = key;
+            this.values = new ConcurrentLinkedQueue<>();
+            this.numValues = new AtomicInteger();
+        }
+
+        /**
+         * A value counted below the threshold may be queued after the
+         * storm started, it still joins the storm on flush.
+         */
+        void add(final V value,
+                 final int stormThreshold,
+                 final Supplier<GroupStorm<V>> storms)
+        {
+            GroupStorm<V> current = storm;
+            if (current == null) {
+                if (stormThreshold <= 0 ||
+                        numValues.incrementAndGet() <= stormThreshold) {
+                    values.add(value);
+                    return;
+                }
+                current = startStorm(storms);
+            }
+            current.add(value);
+        }
+
+        private synchronized GroupStorm<V> startStorm(
+                final Supplier<GroupStorm<V>> storms)
+        {
+            if (storm == null) {
+                storm = storms.get();
+            }
+            return storm;
+        }
+
+        /**
+         * @return the group of the key in the chain starting at this
+         * group, appended if missing.
+         */
+        Group<K, V> find(final K key, final AtomicLong collisions)
+        {
+            Group<K, V> group = this;
+            while (true) {
+                if (group.key == key || group.key.equals(key)) {
+                    return group;
+                }
+                Group<K, V> next = group.next;
+                if (next == null) {
+                    synchronized (this) {
+                        next = group.next;
+                        if (next == null) {
+                            next = new Group<>(key);
+                            group.next = next;
+                            collisions.incrementAndGet();
+                            return next;
+                        }
+                    }
+                }
+                group = next;
+            }
+        }
+    }
+}
@@ -17,12 +17,13 @@
 
 package net.opentsdb.horizon.alerting.corona.processor.groupby;
 
-import java.util.Collections;
-import java.util.List;
 import java.util.Map;
 import java.util.Objects;
 import java.util.Optional;
 
+import com.google.common.collect.Interner;
+import com.google.common.collect.Interners;
+
 import net.opentsdb.horizon.alerting.corona.model.alert.Alert;
 import net.opentsdb.horizon.alerting.corona.model.alertgroup.GroupKey;
 import net.opentsdb.horizon.alerting.corona.monitoring.AppMonitor;
@@ -55,6 +56,16 @@ public class GroupKeyGenerator
     private static final Logger LOG =
             LoggerFactory.getLogger(GroupKeyGenerator.class);
 
+    private static final String[] NO_KEYS = new String[0];
+
+    /**
+     * Tag values repeat across the alerts of a group, interning them
+     * keeps one copy per value in the group-by state and lets
+     * {@link GroupKey#equals(Object)} match them by reference.
+     */
+    private static final Interner<String> TAG_VALUES =
+            Interners.newWeakInterner();
+
     /* ------------ Fields ------------ */
 
     private final MetadataProvider metadataProvider;
@@ -91,7 +102,8 @@ public class GroupKeyGenerator
 
         for (int i = 0; i < keys.length; i++) {
             // TODO: Maybe use tags.getOrDefault(keys[i], "_null_");
-            values[i] = tags.get(keys[i]);
+            final String value = tags.get(keys[i]);
+            values[i] = value == null ? null : TAG_VALUES.intern(value);
         }
 
         return values;
@@ -100,18 +112,16 @@ public class GroupKeyGenerator
     /**
      * Generates a pair of {@link GroupKey} and {@link Alert}.
      * <p>
-     * In the resulting {@code GroupKey} the keys are sorted.
+     * The keys come sorted from the {@link MetadataProvider} and are shared
+     * by every {@code GroupKey} of the alert.
      *
      * @param alert alert for which group is generated
-     * @param rules list of group tag keys
+     * @param keys  sorted group tag keys
      * @return a pair of {@code GroupKey} and {@code Alert}
      */
     private Pair<GroupKey, Alert> generatePair(final Alert alert,
-                                               final List<String> rules)
+                                               final String[] keys)
     {
-        final String[] keys = rules.stream()
-                .sorted()
-                .toArray(String[]::new);
         final String[] values = getValues(keys, alert.getTags());
 
         return new Pair<>(
@@ -144,7 +154,7 @@ public class GroupKeyGenerator
         LOG.error("Missing grouping rules for alert: alert_id={}, alert={}",
                 alert.getId(), alert);
 
-        final Pair<GroupKey, Alert> pair = generatePair(alert, Collections.emptyList());
+        final Pair<GroupKey, Alert> pair = generatePair(alert, NO_KEYS);
         return Optional.of(pair);
     }
 
@@ -162,12 +172,12 @@ public class GroupKeyGenerator
     {
         LOG.trace("Got alert: alert_id={}, alert={}", alert.getId(), alert);
 
-        final Optional<List<String>> rules =
-                metadataProvider.getGroupingRules(alert.getId());
+        final Optional<String[]> keys =
+                metadataProvider.getGroupingKeys(alert.getId());
 
         final Pair<GroupKey, Alert> pair;
-        if (rules.isPresent()) {
-            pair = generatePair(alert, rules.get());
+        if (keys.isPresent()) {
+            pair = generatePair(alert, keys.get());
         } else {
             final Optional<Pair<GroupKey, Alert>> optional =
                     handleStranded(alert);
@@ -0,0 +1,200 @@
+/*
+ *  This file is part of OpenTSDB.
+ *  Copyright (C) 2021 Yahoo.
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+
+package net.opentsdb.horizon.alerting.corona.processor.groupby;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.EnumMap;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.function.Function;
+import java.util.function.Predicate;
+
+import javax.annotation.concurrent.ThreadSafe;
+
+import net.opentsdb.horizon.alerting.corona.model.alert.State;
+import net.opentsdb.horizon.alerting.corona.model.alertgroup.AlertGroupSummary;
+import net.opentsdb.horizon.alerting.corona.model.alertgroup.AlertGroupSummary.TagValueCount;
+
+/**
+ * Streaming summary of a group grown past the storm threshold: counts
+ * by state, the most frequent tag values and a uniform sample of the
+ * values, in memory bounded by the sample size and the number of tags.
+ * <p>
+ * Tag values are counted with the Space-Saving algorithm, a fixed number
+ * of counters per tag where a new value replaces the least frequent one.
+ * <p>
+ * Excluded values, like snoozed alerts, are neither sampled nor counted:
+ * they would be filtered out of the sample downstream, and the summary
+ * must only count what is notified.
+ */
+@ThreadSafe
+final class GroupStorm<V> {
+
+    /**
+     * Counters per tag, for each of the reported top values.
+     */
+    private static final int COUNTERS_PER_TOP_VALUE = 8;
+
+    /* ------------ Fields ------------ */
+
+    private final int sampleSize;
+
+    private final int topK;
+
+    private final Function<? super V, State> stateOf;
+
+    private final Function<? super V, Map<String, String>> tagsOf;
+
+    private final Predicate<? super V> excluded;
+
+    private final List<V> sample;
+
+    private final Map<State, Long> stateCounts;
+
+    private final Map<String, Map<String, long[]>> tagValueCounts;
+
+    private long total;
+
+    private long excludedTotal;
+
+    /* ------------ Constructor ------------ */
+
+    GroupStorm(final int sampleSize,
+               final int topK,
+               final Function<? super V, State> stateOf,
+               final Function<? super V, Map<String, String>> tagsOf,
+               final Predicate<? super V> excluded)
+    {
+        if (sampleSize <= 0) {
+            throw new IllegalArgumentException(
+                    "sampleSize cannot be <= 0, given " + sampleSize);
+        }
+        this.sampleSize = sampleSize;
+        this.topK = Math.max(topK, 0);
+        this.stateOf = stateOf;
+        this.tagsOf = tagsOf;
+        this.excluded = excluded;
+        this.sample = new ArrayList<>(sampleSize);
+        this.stateCounts = new EnumMap<>(State.class);
+        this.tagValueCounts = new HashMap<>();
+    }
+
+    /* ------------ Methods ------------ */
+
+    synchronized void add(final V value)
+    {
+        if (excluded.test(value)) {
+            excludedTotal++;
+            return;
+        }
+        total++;
+
+        // Reservoir sampling: every value has the same chance to be kept.
+        if (sample.size() < sampleSize) {
+            sample.add(value);
+        } else {
+            final long i = ThreadLocalRandom.current().nextLong(total);
+            if (i < sampleSize) {
+                sample.set((int) i, value);
+            }
+        }
+
+        final State state = stateOf.apply(value);
+        if (state != null) {
+            stateCounts.merge(state, 1L, Long::sum);
+        }
+
+        if (topK == 0) {
+            return;
+        }
+        final Map<String, String> tags = tagsOf.apply(value);
+        if (tags != null) {
+            tags.forEach(this::countTagValue);
+        }
+    }
+
+    private void countTagValue(final String key, final String value)
+    {
+        if (key == null || value == null) {
+            return;
+        }
+        final Map<String, long[]> counters =
+                tagValueCounts.computeIfAbsent(key, k -> new HashMap<>());
+        final long[] counter = counters.get(value);
+        if (counter != null) {
+            counter[0]++;
+        } else if (counters.size() < topK * COUNTERS_PER_TOP_VALUE) {
+            counters.put(value, new long[]{1L});
+        } else {
+            final Map.Entry<String, long[]> min = Collections.min(
+                    counters.entrySet(),
+                    (a, b) -> Long.compare(a.getValue()[0], b.getValue()[0])
+            );
+            counters.remove(min.getKey());
+            min.getValue()[0]++;
+            counters.put(value, min.getValue());
+        }
+    }
+
+    synchronized long getTotal()
+    {
+        return total;
+    }
+
+    /**
+     * @return number of excluded values, not part of the total.
+     */
+    synchronized long getExcludedTotal()
+    {
+        return excludedTotal;
+    }
+
+    synchronized List<V> getSample()
+    {
+        return new ArrayList<>(sample);
+    }
+
+    /**
+     * Tags with the same value on every alert, like the group-by tags,
+     * tell nothing about the storm and are left out.
+     *
+     * @return summary of the values added so far.
+     */
+    synchronized AlertGroupSummary summarize()
+    {
+        final List<TagValueCount> tagValues = new ArrayList<>();
+        for (Map.Entry<String, Map<String, long[]>> tag : tagValueCounts.entrySet()) {
+            final Map<String, long[]> counters = tag.getValue();
+            if (counters.size() == 1 &&
+                    counters.values().iterator().next()[0] == total) {
+                continue;
+            }
+            for (Map.Entry<String, long[]> counter : counters.entrySet()) {
+                tagValues.add(new TagValueCount(
+                        tag.getKey(), counter.getKey(), counter.getValue()[0]));
+            }
+        }
+        tagValues.sort((a, b) -> Long.compare(b.getCount(), a.getCount()));
+
+        return new AlertGroupSummary(total, stateCounts, new ArrayList<>(
+                tagValues.subList(0, Math.min(topK, tagValues.size()))));
+    }
+}
@@ -19,14 +19,14 @@ package net.opentsdb.horizon.alerting.corona.processor.kafka;
 
 import java.util.Objects;
 
-import kafka.message.MessageAndMetadata;
+import net.opentsdb.horizon.alerting.corona.component.kafka.KafkaMessage;
 
 import net.opentsdb.horizon.alerting.corona.model.AbstractSerializer;
 import net.opentsdb.horizon.alerting.corona.monitoring.AppMonitor;
 import net.opentsdb.horizon.alerting.corona.processor.Processor;
 
 /**
- * Reads {@code MessageAndMetadata<byte[], byte[]>} from KafkaStream,
+ * Reads {@code KafkaMessage<byte[], byte[]>} from KafkaStream,
  * deserializes messages to the output type objects, and submits them
  * to the next {@link Processor}.
  *
@@ -52,13 +52,13 @@ public abstract class AbstractReader<T>
     /* ------------ Methods ------------ */
 
     /**
-     * Deserializes given MessageAndMetadata object and passes the result to
+     * Deserializes given KafkaMessage object and passes the result to
      * the next processor.
      *
-     * @param mm MessageAndMetadata object with byte[] key and value
+     * @param mm KafkaMessage object with byte[] key and value
      */
     @Override
-    public void process(final MessageAndMetadata<byte[], byte[]> mm)
+    public void process(final KafkaMessage<byte[], byte[]> mm)
     {
         final byte[] bytes = mm.message();
         if (Objects.isNull(bytes)) {
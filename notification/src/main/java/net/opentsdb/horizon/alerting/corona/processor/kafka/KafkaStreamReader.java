@@ -26,9 +26,8 @@ import net.opentsdb.horizon.alerting.corona.monitoring.AppMonitor;
 import net.opentsdb.horizon.alerting.corona.processor.Processor;
 import org.slf4j.Logger;
 
-import kafka.message.MessageAndMetadata;
-
 import net.opentsdb.horizon.alerting.corona.component.DaemonThreadFactory;
+import net.opentsdb.horizon.alerting.corona.component.kafka.KafkaMessage;
 import net.opentsdb.horizon.alerting.corona.component.kafka.KafkaStream;
 import net.opentsdb.horizon.alerting.corona.processor.ChainableProcessor;
 
@@ -36,12 +35,12 @@ import net.opentsdb.horizon.alerting.corona.processor.ChainableProcessor;
  * Reads messages from a KafkaStream and submits them to the next
  * {@link Processor}.
  *
- * @param <K> MessageAndMetadata key type
- * @param <V> MessageAndMetadata value type
+ * @param <K> KafkaMessage key type
+ * @param <V> KafkaMessage value type
  * @param <O> type of objects passed to the next processor
  */
 public abstract class KafkaStreamReader<K, V, O>
-        extends ChainableProcessor<MessageAndMetadata<K, V>, O>
+        extends ChainableProcessor<KafkaMessage<K, V>, O>
         implements AutoCloseable, Runnable
 {
 
@@ -86,6 +85,18 @@ public abstract class KafkaStreamReader<K, V, O>
     private void reportKafkaQueueSize()
     {
         AppMonitor.get().gaugeKafkaQueueSize(kafkaStream.size(), componentId);
+        final long lag = kafkaStream.lag();
+        if (lag >= 0) {
+            AppMonitor.get().gaugeKafkaConsumerLag(lag, componentId);
+        }
+    }
+
+    /**
+     * @return component id, which tells the reader apart in metrics.
+     */
+    public String getComponentId()
+    {
+        return componentId;
     }
 
     /**
@@ -109,7 +120,7 @@ public abstract class KafkaStreamReader<K, V, O>
 
         logger.debug("Running KafkaStreamReader.");
         try {
-            for (final MessageAndMetadata<K, V> mm : kafkaStream) {
+            for (final KafkaMessage<K, V> mm : kafkaStream) {
                 process(mm);
                 AppMonitor.get().countKafkaMessageRead(componentId);
             }
@@ -0,0 +1,121 @@
+/*
+ *  This file is part of OpenTSDB.
+ *  Copyright (C) 2021 Yahoo.
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+
+package net.opentsdb.horizon.alerting.corona.processor.kafka;
+
+import java.util.List;
+import java.util.concurrent.CompletionService;
+import java.util.concurrent.ExecutorCompletionService;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Runs readers of the streams of one consumer group side by side.
+ * <p>
+ * Kafka assigns each partition to a single stream, and producers key
+ * messages of an alert to a single partition, so messages of an alert
+ * are read in order by one reader. The processors after the readers are
+ * shared and have to be thread safe.
+ */
+public final class KafkaStreamReaders {
+
+    /* ------------ Constants ------------ */
+
+    private static final Logger LOG =
+            LoggerFactory.getLogger(KafkaStreamReaders.class);
+
+    private static final long CLOSE_TIMEOUT_SEC = 30L;
+
+    /* ------------ Constructor ------------ */
+
+    private KafkaStreamReaders() { }
+
+    /* ------------ Static Methods ------------ */
+
+    private static void closeAll(final List<? extends KafkaStreamReader<?, ?, ?>> readers)
+    {
+        for (KafkaStreamReader<?, ?, ?> reader : readers) {
+            try {
+                reader.close();
+            } catch (Exception e) {
+                LOG.error("Failed to close reader: component_id={}",
+                        reader.getComponentId(), e);
+            }
+        }
+    }
+
+    /**
+     * Waits for the closed readers to hand over the message in flight,
+     * so the processors after them can be stopped.
+     */
+    private static void awaitReaders(final ExecutorService executor)
+    {
+        try {
+            if (!executor.awaitTermination(CLOSE_TIMEOUT_SEC, TimeUnit.SECONDS)) {
+                LOG.warn("Readers still running after {}s", CLOSE_TIMEOUT_SEC);
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    /**
+     * Runs each reader on its own thread, named after its component id,
+     * until one of them exits. The others are then closed, so the
+     * pipeline stops as a whole, as it does with a single reader.
+     * <p>
+     * A single reader is run on the calling thread.
+     *
+     * @param readers readers to run
+     */
+    public static void run(final List<? extends KafkaStreamReader<?, ?, ?>> readers)
+    {
+        if (readers.size() == 1) {
+            readers.get(0).run();
+            return;
+        }
+
+        final ExecutorService executor =
+                Executors.newFixedThreadPool(readers.size());
+        final CompletionService<Void> completion =
+                new ExecutorCompletionService<>(executor);
+        for (KafkaStreamReader<?, ?, ?> reader : readers) {
+            completion.submit(() -> {
+                Thread.currentThread().setName(reader.getComponentId());
+                reader.run();
+                return null;
+            });
+        }
+        LOG.info("Started {} readers", readers.size());
+
+        try {
+            completion.take();
+            LOG.info("A reader exited, closing the others");
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            LOG.warn("Interrupted, closing readers");
+        } finally {
+            closeAll(readers);
+            executor.shutdown();
+            awaitReaders(executor);
+        }
+    }
+}
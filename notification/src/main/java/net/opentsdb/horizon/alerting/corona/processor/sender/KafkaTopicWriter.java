@@ -21,6 +21,7 @@ import java.util.Objects;
 
 import kafka.javaapi.producer.Producer;
 import kafka.producer.KeyedMessage;
+import org.apache.kafka.clients.producer.ProducerRecord;
 
 import net.opentsdb.horizon.alerting.corona.monitoring.AppMonitor;
 import net.opentsdb.horizon.alerting.corona.processor.Processor;
@@ -33,15 +34,20 @@ public class KafkaTopicWriter implements Processor<byte[]> {
 
     private final Producer<String, byte[]> kafkaProducer;
 
+    private final org.apache.kafka.clients.producer.Producer<byte[], byte[]>
+            clientProducer;
+
     /* ------------ Constructor ------------ */
 
     private KafkaTopicWriter(final Builder builder)
     {
         Objects.requireNonNull(builder.topic, "topic cannot be null");
-        Objects.requireNonNull(builder.kafkaProducer,
-                "kafkaProducer cannot be null");
+        if (builder.kafkaProducer == null && builder.clientProducer == null) {
+            throw new NullPointerException("kafkaProducer cannot be null");
+        }
         this.topic = builder.topic;
         this.kafkaProducer = builder.kafkaProducer;
+        this.clientProducer = builder.clientProducer;
     }
 
     /* ------------ Methods ------------ */
@@ -49,7 +55,16 @@ public class KafkaTopicWriter implements Processor<byte[]> {
     @Override
     public void process(byte[] item)
     {
-        kafkaProducer.send(new KeyedMessage<>(topic, item));
+        if (clientProducer != null) {
+            clientProducer.send(new ProducerRecord<>(topic, item),
+                    (metadata, e) -> {
+                        if (e != null) {
+                            AppMonitor.get().countKafkaMessageWriteFailed(topic);
+                        }
+                    });
+        } else {
+            kafkaProducer.send(new KeyedMessage<>(topic, item));
+        }
         AppMonitor.get().countKafkaMessageWrite(topic);
     }
 
@@ -61,6 +76,9 @@ public class KafkaTopicWriter implements Processor<byte[]> {
 
         private Producer<String, byte[]> kafkaProducer;
 
+        private org.apache.kafka.clients.producer.Producer<byte[], byte[]>
+                clientProducer;
+
         private Builder() {}
 
         public Builder setTopic(final String topic)
@@ -76,6 +94,17 @@ public class KafkaTopicWriter implements Processor<byte[]> {
             return this;
         }
 
+        /**
+         * Use the {@code org.apache.kafka.clients} producer instead of the
+         * 0.8 one. Takes precedence over {@link #setKafkaProducer}.
+         */
+        public Builder setClientProducer(
+                final org.apache.kafka.clients.producer.Producer<byte[], byte[]> clientProducer)
+        {
+            this.clientProducer = clientProducer;
+            return this;
+        }
+
         public KafkaTopicWriter build()
         {
             return new KafkaTopicWriter(this);
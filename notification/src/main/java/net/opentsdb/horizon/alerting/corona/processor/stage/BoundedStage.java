@@ -0,0 +1,363 @@
+/*
+ *  This file is part of OpenTSDB.
+ *  Copyright (C) 2021 Yahoo.
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+
+package net.opentsdb.horizon.alerting.corona.processor.stage;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.Objects;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import net.opentsdb.horizon.alerting.corona.component.DaemonThreadFactory;
+import net.opentsdb.horizon.alerting.corona.model.AbstractSerializer;
+import net.opentsdb.horizon.alerting.corona.monitoring.AppMonitor;
+import net.opentsdb.horizon.alerting.corona.processor.ChainableProcessor;
+
+/**
+ * Decouples the upstream processors from the downstream ones with a
+ * bounded queue drained by a dedicated thread.
+ * <p>
+ * When the downstream processors fall behind, the queue fills up and the
+ * {@link OverflowPolicy} decides what happens to new items, so a stall
+ * shows up as blocked time, dropped or spilled items in the stage
+ * metrics rather than as heap growth.
+ * <p>
+ * Items are passed downstream in the order they were accepted, spilled
+ * items included.
+ */
+public class BoundedStage<T> extends ChainableProcessor<T, T> {
+
+    /* ------------ Constants ------------ */
+
+    private static final Logger LOG =
+            LoggerFactory.getLogger(BoundedStage.class);
+
+    private static final long POLL_TIMEOUT_MS = 100L;
+
+    /* ------------ Fields ------------ */
+
+    private final String name;
+
+    private final BlockingQueue<T> queue;
+
+    private final OverflowPolicy overflowPolicy;
+
+    private final SpillFile<T> spill;
+
+    private final Thread worker;
+
+    private volatile boolean running;
+
+    /* ------------ Constructor ------------ */
+
+    BoundedStage(final Builder<T> builder)
+    {
+        super(builder);
+        Objects.requireNonNull(builder.name, "name cannot be null");
+        Objects.requireNonNull(builder.overflowPolicy,
+                "overflowPolicy cannot be null");
+        if (builder.capacity <= 0) {
+            throw new IllegalArgumentException(
+                    "capacity cannot be <= 0, given " + builder.capacity);
+        }
+
+        this.name = builder.name;
+        this.queue = new LinkedBlockingQueue<>(builder.capacity);
+        this.overflowPolicy = builder.overflowPolicy;
+        if (overflowPolicy == OverflowPolicy.SPILL) {
+            Objects.requireNonNull(builder.serializer,
+                    "serializer cannot be null when spilling");
+            Objects.requireNonNull(builder.spillDirectory,
+                    "spillDirectory cannot be null when spilling");
+            try {
+                this.spill = new SpillFile<>(
+                        new File(builder.spillDirectory, name + ".spill"),
+                        builder.serializer,
+                        builder.maxSpillBytes
+                );
+            } catch (IOException e) {
+                throw new RuntimeException(
+                        "Failed to create spill for stage " + name, e);
+            }
+        } else {
+            this.spill = null;
+        }
+        this.worker = DaemonThreadFactory.INSTANCE.newThread(this::drain);
+        this.worker.setName("stage-" + name);
+    }
+
+    /* ------------ Methods ------------ */
+
+    private void put(final T item)
+    {
+        if (queue.offer(item)) {
+            return;
+        }
+        final long start = System.nanoTime();
+        try {
+            queue.put(item);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            AppMonitor.get().countStageDropped(name);
+            return;
+        }
+        AppMonitor.get().timeStageBlockedMs(
+                TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start),
+                name
+        );
+    }
+
+    private void offerDroppingOldest(final T item)
+    {
+        while (!queue.offer(item)) {
+            if (queue.poll() != null) {
+                AppMonitor.get().countStageDropped(name);
+            }
+        }
+    }
+
+    /**
+     * Once an item is spilled, later items follow it to the spill until
+     * it is read back, so the queue never overtakes the spill.
+     */
+    private void offerOrSpill(final T item)
+    {
+        if (spill.isEmpty() && queue.offer(item)) {
+            return;
+        }
+        try {
+            if (spill.add(item)) {
+                AppMonitor.get().countStageSpilled(name);
+                AppMonitor.get().gaugeStageSpillBytes(spill.bytes(), name);
+                return;
+            }
+        } catch (Exception e) {
+            LOG.error("Failed to spill: stage={}", name, e);
+        }
+        AppMonitor.get().countStageDropped(name);
+    }
+
+    private T pollSpill()
+    {
+        try {
+            return spill.poll();
+        } catch (Exception e) {
+            LOG.error("Failed to read spill, dropping it: stage={}", name, e);
+            try {
+                AppMonitor.get().countStageDropped((int) spill.clear() + 1, name);
+            } catch (IOException ioe) {
+                LOG.error("Failed to clear spill: stage={}", name, ioe);
+            }
+            return null;
+        }
+    }
+
+    private T next() throws InterruptedException
+    {
+        final T item = queue.poll();
+        if (item != null) {
+            return item;
+        }
+        if (spill != null && !spill.isEmpty()) {
+            return pollSpill();
+        }
+        return queue.poll(POLL_TIMEOUT_MS, TimeUnit.MILLISECONDS);
+    }
+
+    private boolean isDrained()
+    {
+        return queue.isEmpty() && (spill == null || spill.isEmpty());
+    }
+
+    private void drain()
+    {
+        while (running || !isDrained()) {
+            final T item;
+            try {
+                item = next();
+            } catch (InterruptedException e) {
+                LOG.warn("Interrupted, leaving {} items: stage={}",
+                        queue.size(), name);
+                return;
+            }
+            if (item == null) {
+                continue;
+            }
+            try {
+                submit(item);
+            } catch (Exception e) {
+                AppMonitor.get().countStageProcessFailed(name);
+                LOG.error("Failed to process: stage={}, item={}",
+                        name, item, e);
+            }
+        }
+    }
+
+    /**
+     * Accepts the item according to the {@link OverflowPolicy}.
+     *
+     * @param item item to pass downstream
+     */
+    @Override
+    public void process(final T item)
+    {
+        switch (overflowPolicy) {
+            case DROP_OLDEST:
+                offerDroppingOldest(item);
+                break;
+            case SPILL:
+                offerOrSpill(item);
+                break;
+            default:
+                put(item);
+        }
+        AppMonitor.get().gaugeStageQueueSize(queue.size(), name);
+    }
+
+    /**
+     * Starts the thread passing items downstream.
+     */
+    public void start()
+    {
+        running = true;
+        worker.start();
+        LOG.info("Started: stage={}, capacity={}, overflowPolicy={}",
+                name, queue.remainingCapacity(), overflowPolicy);
+    }
+
+    /**
+     * Lets the worker pass the queued and spilled items downstream, and
+     * waits up to the given time for it. The worker is interrupted if it
+     * is still draining when the time is up, the remaining items are lost.
+     *
+     * @param timeoutSec maximum wait timeout in seconds.
+     * @throws InterruptedException if interrupted while waiting.
+     */
+    public void stop(final long timeoutSec) throws InterruptedException
+    {
+        running = false;
+        worker.join(TimeUnit.SECONDS.toMillis(timeoutSec));
+        if (worker.isAlive()) {
+            worker.interrupt();
+        }
+        if (spill != null) {
+            try {
+                spill.clear();
+            } catch (IOException e) {
+                LOG.error("Failed to clear spill: stage={}", name, e);
+            }
+        }
+    }
+
+    /* ------------ Builder ------------ */
+
+    public static final class Builder<T>
+            extends ChainableProcessor.Builder<T, Builder<T>>
+    {
+
+        private String name;
+
+        private int capacity;
+
+        private OverflowPolicy overflowPolicy = OverflowPolicy.BLOCK;
+
+        private AbstractSerializer<T> serializer;
+
+        private String spillDirectory;
+
+        private long maxSpillBytes = Long.MAX_VALUE;
+
+        private Builder() { }
+
+        @Override
+        protected Builder<T> self()
+        {
+            return this;
+        }
+
+        /**
+         * @param name stage name, used in the thread name, the metric tags
+         *             and the spill file name.
+         * @return builder
+         */
+        public Builder<T> setName(final String name)
+        {
+            this.name = name;
+            return this;
+        }
+
+        public Builder<T> setCapacity(final int capacity)
+        {
+            this.capacity = capacity;
+            return this;
+        }
+
+        public Builder<T> setOverflowPolicy(final OverflowPolicy overflowPolicy)
+        {
+            this.overflowPolicy = overflowPolicy;
+            return this;
+        }
+
+        /**
+         * @param serializer serializer of spilled items, required by
+         *                   {@link OverflowPolicy#SPILL}.
+         * @return builder
+         */
+        public Builder<T> setSerializer(final AbstractSerializer<T> serializer)
+        {
+            this.serializer = serializer;
+            return this;
+        }
+
+        /**
+         * @param spillDirectory directory of the spill file, required by
+         *                       {@link OverflowPolicy#SPILL}.
+         * @return builder
+         */
+        public Builder<T> setSpillDirectory(final String spillDirectory)
+        {
+            this.spillDirectory = spillDirectory;
+            return this;
+        }
+
+        /**
+         * @param maxSpillBytes size of the spill file past which items are
+         *                      dropped.
+         * @return builder
+         */
+        public Builder<T> setMaxSpillBytes(final long maxSpillBytes)
+        {
+            this.maxSpillBytes = maxSpillBytes;
+            return this;
+        }
+
+        public BoundedStage<T> build()
+        {
+            return new BoundedStage<>(this);
+        }
+    }
+
+    public static <T> Builder<T> builder()
+    {
+        return new Builder<>();
+    }
+}
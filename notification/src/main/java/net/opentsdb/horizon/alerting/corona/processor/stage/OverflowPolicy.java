@@ -0,0 +1,58 @@
+/*
+ *  This file is part of OpenTSDB.
+ *  Copyright (C) 2021 Yahoo.
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+
+package net.opentsdb.horizon.alerting.corona.processor.stage;
+
+/**
+ * What a {@link BoundedStage} does with an item when its queue is full.
+ */
+public enum OverflowPolicy {
+
+    /**
+     * Wait for room in the queue, stalling the upstream stage.
+     */
+    BLOCK,
+
+    /**
+     * Evict the oldest queued item to make room.
+     */
+    DROP_OLDEST,
+
+    /**
+     * Append the item, and every later one until the spill is read back,
+     * to a file on disk.
+     */
+    SPILL;
+
+    /* ------------ Static Methods ------------ */
+
+    /**
+     * @param value policy name, case insensitive
+     * @return the policy.
+     * @throws IllegalArgumentException if no policy has the name.
+     */
+    public static OverflowPolicy fromString(final String value)
+    {
+        for (OverflowPolicy policy : values()) {
+            if (policy.name().equalsIgnoreCase(value)) {
+                return policy;
+            }
+        }
+        throw new IllegalArgumentException(
+                "Unknown overflow policy: " + value);
+    }
+}
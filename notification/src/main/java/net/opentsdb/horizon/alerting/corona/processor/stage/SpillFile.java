@@ -0,0 +1,166 @@
+/*
+ *  This file is part of OpenTSDB.
+ *  Copyright (C) 2021 Yahoo.
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+
+package net.opentsdb.horizon.alerting.corona.processor.stage;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.nio.file.Files;
+
+import javax.annotation.concurrent.ThreadSafe;
+
+import net.opentsdb.horizon.alerting.corona.model.AbstractSerializer;
+
+/**
+ * FIFO of serialized items in a file, appended to by the producers and
+ * read back by the stage worker. The file is deleted once fully read,
+ * so its size only bounds the items spilled since it was last empty.
+ * <p>
+ * Spilled items do not survive a restart: a leftover file is deleted
+ * when the spill is created.
+ */
+@ThreadSafe
+final class SpillFile<T> {
+
+    /* ------------ Fields ------------ */
+
+    private final File file;
+
+    private final AbstractSerializer<T> serializer;
+
+    private final long maxBytes;
+
+    private DataOutputStream out;
+
+    private DataInputStream in;
+
+    private long writtenBytes;
+
+    private long size;
+
+    /* ------------ Constructor ------------ */
+
+    SpillFile(final File file,
+              final AbstractSerializer<T> serializer,
+              final long maxBytes) throws IOException
+    {
+        this.file = file;
+        this.serializer = serializer;
+        this.maxBytes = maxBytes;
+        Files.deleteIfExists(file.toPath());
+    }
+
+    /* ------------ Methods ------------ */
+
+    synchronized boolean isEmpty()
+    {
+        return size == 0;
+    }
+
+    /**
+     * @return number of items not read back yet.
+     */
+    synchronized long size()
+    {
+        return size;
+    }
+
+    /**
+     * @return size of the file in bytes.
+     */
+    synchronized long bytes()
+    {
+        return writtenBytes;
+    }
+
+    /**
+     * @param item item to append
+     * @return false if the item would grow the file over the limit.
+     * @throws IOException if the file cannot be written.
+     */
+    synchronized boolean add(final T item) throws IOException
+    {
+        final byte[] bytes = serializer.toBytes(item);
+        if (writtenBytes + Integer.BYTES + bytes.length > maxBytes) {
+            return false;
+        }
+        if (out == null) {
+            out = new DataOutputStream(new BufferedOutputStream(
+                    new FileOutputStream(file, true)));
+        }
+        out.writeInt(bytes.length);
+        out.write(bytes);
+        writtenBytes += Integer.BYTES + bytes.length;
+        size++;
+        return true;
+    }
+
+    /**
+     * @return the oldest item, null if the spill is empty.
+     * @throws IOException if the file cannot be read, the spill should
+     *                     then be {@link #clear() cleared}.
+     */
+    synchronized T poll() throws IOException
+    {
+        if (size == 0) {
+            return null;
+        }
+        out.flush();
+        if (in == null) {
+            in = new DataInputStream(new BufferedInputStream(
+                    new FileInputStream(file)));
+        }
+        final byte[] bytes = new byte[in.readInt()];
+        in.readFully(bytes);
+        if (--size == 0) {
+            clear();
+        }
+        return serializer.fromBytes(bytes);
+    }
+
+    /**
+     * Drops the spilled items and deletes the file.
+     *
+     * @return number of items dropped.
+     * @throws IOException if the file cannot be deleted.
+     */
+    synchronized long clear() throws IOException
+    {
+        final long dropped = size;
+        try {
+            if (out != null) {
+                out.close();
+            }
+            if (in != null) {
+                in.close();
+            }
+        } finally {
+            out = null;
+            in = null;
+            writtenBytes = 0;
+            size = 0;
+            Files.deleteIfExists(file.toPath());
+        }
+        return dropped;
+    }
+}
@@ -0,0 +1,66 @@
+#!/usr/bin/env python3
+#
+#  This file is part of OpenTSDB.
+#  Copyright (C) 2021 Yahoo.
+#
+#  Licensed under the Apache License, Version 2.0 (the "License");
+#  you may not use this file except in compliance with the License.
+#  You may obtain a copy of the License at
+#
+#    http://www.apache.org/licenses/LICENSE-2.0
+#
+#  Unless required by applicable law or agreed to in writing, software
+#  distributed under the License is distributed on an "AS IS" BASIS,
+#  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+#  See the License for the specific language governing permissions and
+#  limitations under the License.
+
+"""Reference OC helper for PooledOcClient.
+
+Configure it with:
+
+    oc.helper.command = /usr/bin/python3,/path/to/ywmsg-helper.py
+
+Protocol, see README.md next to this script:
+
+- stdin: one command per line, arguments separated by tabs. The first
+  argument is the executable, e.g. /opt/bin/ywmsg.
+- stdout: one reply per command, in order. A reply is the exit value,
+  optionally followed by a space and an error message.
+- The helper exits when stdin is closed.
+
+Output of the commands goes to stderr, so it never mixes with replies.
+
+Each command still runs in its own process, one at a time, so a pool of
+N helpers runs at most N commands at once.
+"""
+
+import subprocess
+import sys
+
+# Exit value reported when the command could not be started, as a shell does.
+NOT_STARTED = 127
+
+
+def run(line):
+    args = line.rstrip("\r\n").split("\t")
+    if not args[0]:
+        return "%d empty command" % NOT_STARTED
+    try:
+        exit_value = subprocess.call(
+            args, stdin=subprocess.DEVNULL, stdout=sys.stderr)
+    except OSError as e:
+        return "%d %s" % (NOT_STARTED, e)
+    if exit_value == 0:
+        return "0"
+    return "%d %s exited with %d" % (exit_value, args[0], exit_value)
+
+
+def main():
+    for line in iter(sys.stdin.readline, ""):
+        sys.stdout.write(run(line) + "\n")
+        sys.stdout.flush()
+
+
+if __name__ == "__main__":
+    main()
@@ -65,6 +65,7 @@ class AlertProcessorConfigTest {
         assertEquals("120000", cfg.getAlertProcessorKafkaZookeeperSessionTimeoutMs());
         assertEquals("alerts_topic", cfg.getAlertProcessorKafkaTopic());
         assertEquals("alerts_group", cfg.getAlertProcessorKafkaGroupId());
+        assertEquals(1, cfg.getAlertProcessorKafkaNumStreams());
 
         assertEquals(Collections.singletonList("zookeeper"), cfg.getKafkaZookeeperConnect());
         assertEquals("zookeeper", cfg.getKafkaZookeeperConnectAsString());
@@ -82,6 +83,14 @@ class AlertProcessorConfigTest {
         assertEquals("test_corona_oc", cfg.getOcKafkaTopic());
         assertEquals("test_corona_pagerduty", cfg.getPagerDutyKafkaTopic());
 
+        assertEquals(10_000, cfg.getAlertProcessorStageCapacity());
+        assertEquals("block", cfg.getAlertProcessorStageOverflowPolicy());
+        assertEquals(1024, cfg.getAlertProcessorStageSpillMaxMb());
+        assertEquals(1_000_000, cfg.getAlertProcessorGroupByMaxStateSize());
+        assertEquals(1_000, cfg.getAlertProcessorGroupByStormThreshold());
+        assertEquals(100, cfg.getAlertProcessorGroupByStormSampleSize());
+        assertEquals(10, cfg.getAlertProcessorGroupByStormTopK());
+
         assertTrue(cfg.isEnablePeriodOverPeriodAlertFilter());
         assertTrue(cfg.isDebug());
     }
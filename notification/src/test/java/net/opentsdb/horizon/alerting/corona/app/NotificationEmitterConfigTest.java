@@ -70,4 +70,20 @@ public class NotificationEmitterConfigTest {
         }});
         assertEquals(Arrays.asList("OpenTSDB", "Test2"), config.getOcDeniedNamespaces());
     }
+
+    @Test
+    void getOcHelperCommand() {
+        NotificationEmitterConfig config;
+        config = new NotificationEmitterConfig(new PropertiesConfiguration());
+        assertEquals(Collections.emptyList(), config.getOcHelperCommand());
+        assertEquals(4, config.getOcHelperPoolSize());
+
+        config = new NotificationEmitterConfig(new PropertiesConfiguration() {{
+            addProperty("oc.helper.command", "/usr/bin/python3,src/main/scripts/ywmsg-helper.py");
+            addProperty("oc.helper.pool.size", "8");
+        }});
+        assertEquals(Arrays.asList("/usr/bin/python3", "src/main/scripts/ywmsg-helper.py"),
+                config.getOcHelperCommand());
+        assertEquals(8, config.getOcHelperPoolSize());
+    }
 }
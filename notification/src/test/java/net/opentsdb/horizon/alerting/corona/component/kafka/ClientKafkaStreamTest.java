@@ -0,0 +1,146 @@
+/*
+ *  This file is part of OpenTSDB.
+ *  Copyright (C) 2021 Yahoo.
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+
+package net.opentsdb.horizon.alerting.corona.component.kafka;
+
+import java.time.Duration;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.Map;
+
+import org.apache.kafka.clients.consumer.ConsumerRecord;
+import org.apache.kafka.clients.consumer.MockConsumer;
+import org.apache.kafka.clients.consumer.OffsetResetStrategy;
+import org.apache.kafka.common.TopicPartition;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class ClientKafkaStreamTest {
+
+    private static final String TOPIC = "alerts";
+
+    private final TopicPartition partition = new TopicPartition(TOPIC, 0);
+
+    private MockConsumer<byte[], byte[]> newConsumer()
+    {
+        final MockConsumer<byte[], byte[]> consumer =
+                new MockConsumer<>(OffsetResetStrategy.EARLIEST);
+        final Map<TopicPartition, Long> offsets = new HashMap<>();
+        offsets.put(partition, 0L);
+        consumer.updateBeginningOffsets(offsets);
+        return consumer;
+    }
+
+    @Test
+    public void testIterateInOrder()
+    {
+        final MockConsumer<byte[], byte[]> consumer = newConsumer();
+        final ClientKafkaStream<byte[], byte[]> stream =
+                new ClientKafkaStream<>(consumer, TOPIC, Duration.ofMillis(10));
+        consumer.rebalance(Collections.singletonList(partition));
+        consumer.addRecord(new ConsumerRecord<>(TOPIC, 0, 0L,
+                new byte[]{1}, new byte[]{10}));
+        consumer.addRecord(new ConsumerRecord<>(TOPIC, 0, 1L,
+                new byte[]{2}, new byte[]{20}));
+
+        final Iterator<KafkaMessage<byte[], byte[]>> it = stream.iterator();
+
+        assertTrue(it.hasNext());
+        assertEquals(2, stream.size());
+        assertEquals(-1, stream.lag());
+
+        final KafkaMessage<byte[], byte[]> first = it.next();
+        assertEquals(TOPIC, first.topic());
+        assertEquals(0, first.partition());
+        assertEquals(0L, first.offset());
+        assertArrayEquals(new byte[]{1}, first.key());
+        assertArrayEquals(new byte[]{10}, first.message());
+        assertEquals(1, stream.size());
+
+        final KafkaMessage<byte[], byte[]> second = it.next();
+        assertEquals(1L, second.offset());
+        assertArrayEquals(new byte[]{20}, second.message());
+        assertEquals(0, stream.size());
+
+        stream.close();
+        assertFalse(it.hasNext());
+        assertTrue(consumer.closed());
+    }
+
+    @Test
+    public void testCloseWakesUpPollingThread() throws Exception
+    {
+        final MockConsumer<byte[], byte[]> consumer = newConsumer();
+        final ClientKafkaStream<byte[], byte[]> stream =
+                new ClientKafkaStream<>(consumer, TOPIC, Duration.ofMillis(10));
+        consumer.rebalance(Collections.singletonList(partition));
+
+        final boolean[] result = {true};
+        final Thread poller = new Thread(() ->
+                result[0] = stream.iterator().hasNext());
+        poller.start();
+
+        Thread.sleep(50);
+        stream.close();
+        poller.join(5_000);
+
+        assertFalse(poller.isAlive());
+        assertFalse(result[0]);
+        assertTrue(consumer.closed());
+    }
+
+    @Test
+    public void testCloseBeforeIterationClosesConsumer()
+    {
+        final MockConsumer<byte[], byte[]> consumer = newConsumer();
+        final ClientKafkaStream<byte[], byte[]> stream =
+                new ClientKafkaStream<>(consumer, TOPIC, Duration.ofMillis(10));
+
+        stream.close();
+        assertTrue(consumer.closed());
+        assertFalse(stream.iterator().hasNext());
+    }
+
+    @Test
+    public void testIteratingThreadClosesConsumer() throws Exception
+    {
+        final MockConsumer<byte[], byte[]> consumer = newConsumer();
+        final ClientKafkaStream<byte[], byte[]> stream =
+                new ClientKafkaStream<>(consumer, TOPIC, Duration.ofMillis(10));
+        consumer.rebalance(Collections.singletonList(partition));
+        consumer.addRecord(new ConsumerRecord<>(TOPIC, 0, 0L,
+                new byte[]{1}, new byte[]{10}));
+
+        final Iterator<KafkaMessage<byte[], byte[]>> it = stream.iterator();
+        assertTrue(it.hasNext());
+        it.next();
+
+        final Thread closer = new Thread(stream::close);
+        closer.start();
+        closer.join(5_000);
+
+        // Only woken up, the consumer is left to the iterating thread.
+        assertFalse(consumer.closed());
+        assertFalse(it.hasNext());
+        assertTrue(consumer.closed());
+    }
+}
@@ -27,12 +27,17 @@ import net.opentsdb.horizon.alerting.corona.model.alert.State;
 import net.opentsdb.horizon.alerting.corona.model.alert.WindowSampler;
 import net.opentsdb.horizon.alerting.corona.model.alert.impl.SingleMetricSimpleAlert;
 import net.opentsdb.horizon.alerting.corona.model.alertgroup.AlertGroup;
+import net.opentsdb.horizon.alerting.corona.model.alertgroup.AlertGroupSummary;
 import net.opentsdb.horizon.alerting.corona.model.alertgroup.GroupKey;
 import net.opentsdb.horizon.alerting.corona.model.contact.Contact;
 import net.opentsdb.horizon.alerting.corona.model.contact.impl.EmailContact;
 import net.opentsdb.horizon.alerting.corona.model.messagekit.meta.EmailMeta;
 import org.junit.jupiter.api.Test;
 
+import java.util.Arrays;
+import java.util.EnumMap;
+import java.util.Map;
+
 import static org.junit.jupiter.api.Assertions.assertEquals;
 
 public class MessageKitSerializerTest {
@@ -50,10 +55,9 @@ public class MessageKitSerializerTest {
                 MessageKit.class);
     }
 
-    @Test
-    public void testWriteRead()
+    private static MessageKit messageKit(final AlertGroupSummary summary)
     {
-        final MessageKit messageKit = MessageKit.builder()
+        return MessageKit.builder()
                 .setType(Contact.Type.EMAIL)
                 .setContacts(
                         EmailContact.builder()
@@ -92,23 +96,50 @@ public class MessageKitSerializerTest {
                                         .setIsSnoozed(true)
                                         .build()
                         )
+                        .setSummary(summary)
                         .build())
                 .setMeta(EmailMeta.builder()
                         .setSubject("Very important alert")
                         .setBody("Nope, not really")
                         .build())
                 .build();
+    }
 
+    private MessageKit writeRead(final MessageKit messageKit)
+    {
         // Serialize
         final Output output = new Output(1024, -1);
         SERIALIZER_UNDER_TEST.write(kryo, output, messageKit);
 
         // Deserialize
         final Input input = new Input(output.toBytes());
-        final MessageKit deserialized =
-                SERIALIZER_UNDER_TEST.read(kryo, input, MessageKit.class);
+        return SERIALIZER_UNDER_TEST.read(kryo, input, MessageKit.class);
+    }
+
+    @Test
+    public void testWriteRead()
+    {
+        final MessageKit messageKit = messageKit(null);
+        assertEquals(writeRead(messageKit), messageKit);
+    }
+
+    @Test
+    public void testWriteReadSummarized()
+    {
+        final Map<State, Long> stateCounts = new EnumMap<>(State.class);
+        stateCounts.put(State.BAD, 9_000L);
+        stateCounts.put(State.GOOD, 1_000L);
+        final MessageKit messageKit = messageKit(new AlertGroupSummary(
+                10_000L,
+                stateCounts,
+                Arrays.asList(
+                        new AlertGroupSummary.TagValueCount("host", "h1", 800L),
+                        new AlertGroupSummary.TagValueCount("colo", "bf1", 700L)
+                )
+        ));
 
-        // Compare
+        final MessageKit deserialized = writeRead(messageKit);
         assertEquals(deserialized, messageKit);
+        assertEquals(9_000L, deserialized.getAlertGroup().getSummary().getCount(State.BAD));
     }
 }
@@ -0,0 +1,151 @@
+/*
+ *  This file is part of OpenTSDB.
+ *  Copyright (C) 2021 Yahoo.
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+
+package net.opentsdb.horizon.alerting.corona.monitoring;
+
+import java.io.File;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.ultrabrew.metrics.MetricRegistry;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class MetricsReporterTest {
+
+    private static final String[] TAGS = {"alertId", "1"};
+
+    @Test
+    void flushWritesWindowToSinks() throws Exception
+    {
+        final List<List<MetricPoint>> written = new ArrayList<>();
+        final MetricsReporter reporter = MetricsReporter.builder()
+                .setPrefix("app.")
+                .addStaticTag("host", "localhost")
+                .setIntervalSecs(0)
+                .addSink(written::add)
+                .build();
+        final MetricRegistry registry = new MetricRegistry();
+        registry.addReporter(reporter);
+
+        registry.counter("requests").inc(2, TAGS);
+        registry.counter("requests").inc(3, TAGS);
+        Thread.sleep(2);
+
+        final List<MetricPoint> window = reporter.flush();
+
+        assertEquals(1, window.size());
+        final MetricPoint point = window.get(0);
+        assertEquals("app.requests", point.getMetric());
+        assertEquals(5., point.getValue());
+        assertEquals(2, point.getTagCount());
+        assertEquals("alertId", point.getTagKey(0));
+        assertEquals("1", point.getTagValue(0));
+        assertEquals("host", point.getTagKey(1));
+        assertEquals("localhost", point.getTagValue(1));
+        assertEquals(Arrays.asList(window), written);
+        assertEquals(window, reporter.getLastWindow());
+
+        Thread.sleep(2);
+        assertTrue(reporter.flush().isEmpty());
+    }
+
+    @Test
+    void flushNamesFieldsOfMultiFieldMetrics() throws Exception
+    {
+        final MetricsReporter reporter = MetricsReporter.builder()
+                .setIntervalSecs(0)
+                .build();
+        final MetricRegistry registry = new MetricRegistry();
+        registry.addReporter(reporter);
+
+        registry.timer("latency").update(7, TAGS);
+        registry.timer("latency").update(3, TAGS);
+        Thread.sleep(2);
+
+        final List<MetricPoint> window = reporter.flush();
+
+        assertTrue(window.size() > 1);
+        for (MetricPoint point : window) {
+            assertTrue(point.getMetric().startsWith("latency."));
+            if (point.getMetric().equals("latency.max")) {
+                assertEquals(7., point.getValue());
+            }
+        }
+    }
+
+    @Test
+    void scrapeServesLastWindow() throws Exception
+    {
+        final MetricsReporter reporter = MetricsReporter.builder()
+                .setPrefix("app.")
+                .setIntervalSecs(0)
+                .build();
+        final MetricRegistry registry = new MetricRegistry();
+        registry.addReporter(reporter);
+
+        registry.counter("requests").inc(4, TAGS);
+        assertEquals("", reporter.scrape());
+
+        Thread.sleep(2);
+        reporter.flush();
+
+        assertEquals("# TYPE app_requests gauge\n"
+                + "app_requests{alertId=\"1\"} 4\n", reporter.scrape());
+    }
+
+    @Test
+    void fileSinkAppendsPutLines(@TempDir final File dir) throws Exception
+    {
+        final File file = new File(dir, "metrics.log");
+        try (FileMetricSink sink = new FileMetricSink(file)) {
+            sink.write(Arrays.asList(
+                    new MetricPoint("a.b", 1000L, 1.5, "host", "h1"),
+                    new MetricPoint("c", 2000L, 2)));
+        }
+
+        assertEquals(Arrays.asList(
+                "put a.b 1000 1.5 host=h1",
+                "put c 2000 2.0"),
+                Files.readAllLines(file.toPath(), StandardCharsets.UTF_8));
+    }
+
+    @Test
+    void openTsdbSinkWritesPutBody() throws Exception
+    {
+        final List<MetricPoint> points = Arrays.asList(
+                new MetricPoint("a.b", 1000L, 1.5, "host", "h1"),
+                new MetricPoint("c", 2000L, 2, "host", "h2"));
+
+        final JsonNode body = new ObjectMapper()
+                .readTree(OpenTsdbHttpSink.toJson(points, 1, 2));
+
+        assertEquals(1, body.size());
+        assertEquals("c", body.get(0).get("metric").asText());
+        assertEquals(2000L, body.get(0).get("timestamp").asLong());
+        assertEquals(2., body.get(0).get("value").asDouble());
+        assertEquals("h2", body.get(0).get("tags").get("host").asText());
+    }
+}
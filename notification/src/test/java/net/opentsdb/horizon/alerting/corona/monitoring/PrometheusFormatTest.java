@@ -0,0 +1,68 @@
+/*
+ *  This file is part of OpenTSDB.
+ *  Copyright (C) 2021 Yahoo.
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+
+package net.opentsdb.horizon.alerting.corona.monitoring;
+
+import java.util.Arrays;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+class PrometheusFormatTest {
+
+    @Test
+    void writeGroupsSeriesByMetric()
+    {
+        final StringBuilder sb = new StringBuilder();
+
+        PrometheusFormat.write(Arrays.asList(
+                new MetricPoint("b.latency.max", 0L, 2.5, "ns", "NS"),
+                new MetricPoint("a.count", 0L, 1, "ns", "NS"),
+                new MetricPoint("b.latency.max", 0L, 3, "ns", "Other")),
+                sb);
+
+        assertEquals("# TYPE a_count gauge\n"
+                + "a_count{ns=\"NS\"} 1\n"
+                + "# TYPE b_latency_max gauge\n"
+                + "b_latency_max{ns=\"NS\"} 2.5\n"
+                + "b_latency_max{ns=\"Other\"} 3\n", sb.toString());
+    }
+
+    @Test
+    void writeEscapesLabelValues()
+    {
+        final StringBuilder sb = new StringBuilder();
+
+        PrometheusFormat.write(Arrays.asList(
+                new MetricPoint("m", 0L, Double.NaN, "container-name", "a\"b\\c\nd")),
+                sb);
+
+        assertEquals("# TYPE m gauge\n"
+                + "m{container_name=\"a\\\"b\\\\c\\nd\"} NaN\n", sb.toString());
+    }
+
+    @Test
+    void sanitizeReplacesInvalidCharacters()
+    {
+        assertEquals("alertengine_tsdQueryLatency_p99",
+                PrometheusFormat.sanitize("alertengine.tsdQueryLatency.p99", true));
+        assertEquals("_9lives", PrometheusFormat.sanitize("9lives", true));
+        assertEquals("a:b", PrometheusFormat.sanitize("a:b", true));
+        assertEquals("a_b", PrometheusFormat.sanitize("a:b", false));
+    }
+}
@@ -0,0 +1,128 @@
+/*
+ *  This file is part of OpenTSDB.
+ *  Copyright (C) 2021 Yahoo.
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+
+
+package net.opentsdb.horizon.alerting.corona.processor.emitter.email;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Function;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+
+class ChartRendererTest {
+
+    private static ContentKey key(final String item)
+    {
+        return ContentKey.builder("chart").put(item).build();
+    }
+
+    /**
+     * Plots the item name, after the latch is released.
+     */
+    private static Function<String, byte[]> plotter(final CountDownLatch latch,
+                                                    final AtomicInteger plots)
+    {
+        return item -> {
+            plots.incrementAndGet();
+            try {
+                latch.await(10, TimeUnit.SECONDS);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            return item.getBytes();
+        };
+    }
+
+    @Test
+    void slowChartIsLeftOutThenCached() throws InterruptedException
+    {
+        final ChartRenderer renderer = ChartRenderer.builder()
+                .setBudgetMs(200L)
+                .build();
+        final CountDownLatch latch = new CountDownLatch(1);
+        final AtomicInteger plots = new AtomicInteger();
+
+        final byte[][] first = renderer.render(
+                Collections.singletonList("a"), ChartRendererTest::key, plotter(latch, plots));
+        assertNull(first[0]);
+
+        latch.countDown();
+        final byte[][] second = renderer.render(
+                Collections.singletonList("a"), ChartRendererTest::key, plotter(latch, plots));
+        assertArrayEquals("a".getBytes(), second[0]);
+        assertEquals(1, plots.get());
+    }
+
+    @Test
+    void identicalChartsAreRenderedOnce()
+    {
+        final ChartRenderer renderer = ChartRenderer.builder().build();
+        final CountDownLatch latch = new CountDownLatch(0);
+        final AtomicInteger plots = new AtomicInteger();
+
+        final byte[][] charts = renderer.render(
+                Arrays.asList("a", "a"), ChartRendererTest::key, plotter(latch, plots));
+        assertArrayEquals("a".getBytes(), charts[0]);
+        assertSame(charts[0], charts[1]);
+        assertEquals(1, plots.get());
+
+        final byte[][] cached = renderer.render(
+                Collections.singletonList("a"), ChartRendererTest::key, plotter(latch, plots));
+        assertSame(charts[0], cached[0]);
+        assertEquals(1, plots.get());
+    }
+
+    @Test
+    void chartsOverTheQueueAreRejected()
+    {
+        final ChartRenderer renderer = ChartRenderer.builder()
+                .setThreads(1)
+                .setQueueSize(1)
+                .setBudgetMs(200L)
+                .build();
+        final CountDownLatch latch = new CountDownLatch(1);
+        final AtomicInteger plots = new AtomicInteger();
+
+        // a runs, b is queued, c does not fit.
+        final byte[][] charts = renderer.render(
+                Arrays.asList("a", "b", "c"), ChartRendererTest::key, plotter(latch, plots));
+        assertNull(charts[0]);
+        assertNull(charts[1]);
+        assertNull(charts[2]);
+
+        latch.countDown();
+        final byte[][] finished = renderer.render(
+                Arrays.asList("a", "b"), ChartRendererTest::key, plotter(latch, plots));
+        assertArrayEquals("a".getBytes(), finished[0]);
+        assertArrayEquals("b".getBytes(), finished[1]);
+        assertEquals(2, plots.get());
+
+        final byte[][] retried = renderer.render(
+                Collections.singletonList("c"), ChartRendererTest::key, plotter(latch, plots));
+        assertArrayEquals("c".getBytes(), retried[0]);
+        assertEquals(3, plots.get());
+    }
+}
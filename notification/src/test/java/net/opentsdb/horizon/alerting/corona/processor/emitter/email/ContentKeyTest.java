@@ -0,0 +1,66 @@
+/*
+ *  This file is part of OpenTSDB.
+ *  Copyright (C) 2021 Yahoo.
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+
+package net.opentsdb.horizon.alerting.corona.processor.emitter.email;
+
+import java.util.Collections;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+
+class ContentKeyTest {
+
+    private static ContentKey key(final String kind, final double threshold)
+    {
+        return ContentKey.builder(kind)
+                .put(new long[]{1L, 2L})
+                .put(new double[]{1., 2.})
+                .put(threshold)
+                .build();
+    }
+
+    @Test
+    void keyDependsOnContent()
+    {
+        assertEquals(key("single-metric", 3.), key("single-metric", 3.));
+        assertNotEquals(key("single-metric", 3.), key("single-metric", 4.));
+        assertNotEquals(key("single-metric", 3.), key("period-over-period", 3.));
+    }
+
+    @Test
+    void keyTellsNullFromEmpty()
+    {
+        assertNotEquals(
+                ContentKey.builder("k").put((String) null).build(),
+                ContentKey.builder("k").put("").build()
+        );
+        assertNotEquals(
+                ContentKey.builder("k").put((double[]) null).build(),
+                ContentKey.builder("k").put(new double[0]).build()
+        );
+        assertNotEquals(
+                ContentKey.builder("k").put("ab").put("c").build(),
+                ContentKey.builder("k").put("a").put("bc").build()
+        );
+        assertEquals(
+                ContentKey.builder("k").put(Collections.singletonMap("a", "b")).build(),
+                ContentKey.builder("k").put(Collections.singletonMap("a", "b")).build()
+        );
+    }
+}
@@ -0,0 +1,86 @@
+/*
+ *  This file is part of OpenTSDB.
+ *  Copyright (C) 2021 Yahoo.
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+
+package net.opentsdb.horizon.alerting.corona.processor.emitter.email;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+class HtmlTextWriterTest {
+
+    @Test
+    void textOfHtml()
+    {
+        final String html = "<!doctype html>\n" +
+                "<html lang=\"en\">\n" +
+                "<!-- comment with <, >= and -> -->\n" +
+                "<head>\n" +
+                "    <title>OpenTSDB Alert</title>\n" +
+                "    <style>.bad { color: red; }</style>\n" +
+                "</head>\n" +
+                "<body>\n" +
+                "<div class=\"visual\">\n" +
+                "    <div class=\"description\">\n" +
+                "        <span><strong>cpu</strong> &gt;= 90 &amp; rising.</span>\n" +
+                "        <span>Value: 95.0.</span>\n" +
+                "    </div>\n" +
+                "    <span class=\"indicator\">Good</span>&rarr;<span>Bad</span>\n" +
+                "    <br><span><i>No pic &#40;&#x29;</i></span>\n" +
+                "    <span>AT&T &unknown;</span>\n" +
+                "</div>\n" +
+                "<table><tr><td>a</td><td>b</td></tr></table>\n" +
+                "</body>\n" +
+                "</html>\n";
+
+        final HtmlTextWriter writer = new HtmlTextWriter();
+        // Split writes, as a template engine does.
+        writer.write(html, 0, 100);
+        writer.write(html.toCharArray(), 100, html.length() - 100);
+
+        assertEquals(html, writer.getHtml());
+        assertEquals("cpu >= 90 & rising. Value: 95.0.\n" +
+                        "Good\u2192Bad\n" +
+                        "No pic () AT&T &unknown;\n" +
+                        "a b",
+                writer.getText());
+    }
+
+    @Test
+    void rawComparatorInText()
+    {
+        // Descriptions print the comparator raw.
+        final String html = "<span><strong>cpu < 5.000000 at least once</strong></span>" +
+                "<p>mem <= 2 <b>and</b> disk<1</p>";
+
+        assertEquals("cpu < 5.000000 at least once\nmem <= 2 and disk<1",
+                HtmlTextWriter.toText(html));
+    }
+
+    @Test
+    void reset()
+    {
+        final HtmlTextWriter writer = new HtmlTextWriter();
+        writer.write("<head><title>x</title>");
+        writer.reset();
+        writer.write("<p>one</p><p>two</p>");
+
+        assertEquals("<p>one</p><p>two</p>", writer.getHtml());
+        assertEquals("one\ntwo", writer.getText());
+        assertEquals("one\ntwo", HtmlTextWriter.toText("<p>one</p><p>two</p>"));
+    }
+}
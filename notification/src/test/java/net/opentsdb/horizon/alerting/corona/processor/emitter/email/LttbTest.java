@@ -0,0 +1,83 @@
+/*
+ *  This file is part of OpenTSDB.
+ *  Copyright (C) 2021 Yahoo.
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+
+package net.opentsdb.horizon.alerting.corona.processor.emitter.email;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class LttbTest {
+
+    @Test
+    void selectKeepsShortSeries()
+    {
+        final long[] x = {1L, 2L, 3L};
+        final double[] y = {1., 2., 3.};
+
+        assertArrayEquals(new int[]{0, 1, 2}, Lttb.select(x, y, 10));
+        assertSame(x, Lttb.pick(x, Lttb.select(x, y, 10)));
+    }
+
+    @Test
+    void selectKeepsEndsAndSpike()
+    {
+        final int n = 1000;
+        final long[] x = new long[n];
+        final double[] y = new double[n];
+        for (int i = 0; i < n; i++) {
+            x[i] = 60L * i;
+            y[i] = i == 517 ? 100. : 1.;
+        }
+
+        final int[] indices = Lttb.select(x, y, 50);
+
+        assertEquals(50, indices.length);
+        assertEquals(0, indices[0]);
+        assertEquals(n - 1, indices[49]);
+        for (int i = 1; i < indices.length; i++) {
+            assertTrue(indices[i] > indices[i - 1]);
+        }
+        boolean hasSpike = false;
+        for (int index : indices) {
+            hasSpike |= index == 517;
+        }
+        assertTrue(hasSpike);
+    }
+
+    @Test
+    void selectSkipsGaps()
+    {
+        final int n = 100;
+        final long[] x = new long[n];
+        final double[] y = new double[n];
+        for (int i = 0; i < n; i++) {
+            x[i] = i;
+            y[i] = i % 2 == 0 ? Double.NaN : i;
+        }
+
+        final double[] picked = Lttb.pick(y, Lttb.select(x, y, 20));
+
+        assertEquals(20, picked.length);
+        for (int i = 1; i < picked.length - 1; i++) {
+            assertTrue(!Double.isNaN(picked[i]));
+        }
+    }
+}
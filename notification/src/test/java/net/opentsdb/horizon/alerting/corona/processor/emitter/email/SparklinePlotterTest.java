@@ -0,0 +1,105 @@
+/*
+ *  This file is part of OpenTSDB.
+ *  Copyright (C) 2021 Yahoo.
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+
+package net.opentsdb.horizon.alerting.corona.processor.emitter.email;
+
+import java.awt.image.BufferedImage;
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import javax.imageio.ImageIO;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class SparklinePlotterTest {
+
+    private static final int BLUE = 0x0000ff;
+
+    private static final int RED = 0xff0000;
+
+    private final SparklinePlotter plotter = new SparklinePlotter();
+
+    private static BufferedImage decode(final byte[] png) throws IOException
+    {
+        return ImageIO.read(new ByteArrayInputStream(png));
+    }
+
+    private static boolean hasColor(final BufferedImage image, final int rgb)
+    {
+        for (int y = 0; y < image.getHeight(); y++) {
+            for (int x = 0; x < image.getWidth(); x++) {
+                if ((image.getRGB(x, y) & 0xffffff) == rgb) {
+                    return true;
+                }
+            }
+        }
+        return false;
+    }
+
+    @Test
+    void plotPNG() throws IOException
+    {
+        final int n = 1440;
+        final long[] timestampsSec = new long[n];
+        final double[] values = new double[n];
+        for (int i = 0; i < n; i++) {
+            timestampsSec[i] = 1600000000L + 60L * i;
+            values[i] = i % 97 == 0 ? Double.NaN : 10. * Math.sin(i / 50.);
+        }
+
+        final byte[] png = plotter.plotPNG(timestampsSec, values, 15., 600);
+        final BufferedImage image = decode(png);
+
+        assertEquals(SparklinePlotter.WIDTH, image.getWidth());
+        assertEquals(SparklinePlotter.HEIGHT, image.getHeight());
+        assertTrue(hasColor(image, BLUE));
+        assertTrue(hasColor(image, RED));
+
+        // Buffers are reused, the same input has to give the same image.
+        assertArrayEquals(png, plotter.plotPNG(timestampsSec, values, 15., 600));
+    }
+
+    @Test
+    void plotPNGWithoutThreshold() throws IOException
+    {
+        final BufferedImage image = decode(plotter.plotPNG(
+                new long[]{1L, 2L, 3L},
+                new double[]{1., 2., 1.},
+                Double.NaN,
+                600
+        ));
+
+        assertTrue(hasColor(image, BLUE));
+        assertFalse(hasColor(image, RED));
+    }
+
+    @Test
+    void plotPNGWithoutValues() throws IOException
+    {
+        final BufferedImage empty = decode(plotter.plotPNG(
+                new long[0], new double[0], Double.NaN, 600));
+        final BufferedImage gaps = decode(plotter.plotPNG(
+                new long[]{1L, 2L}, new double[]{Double.NaN, Double.NaN}, Double.NaN, 600));
+
+        assertFalse(hasColor(empty, BLUE));
+        assertFalse(hasColor(gaps, BLUE));
+    }
+}
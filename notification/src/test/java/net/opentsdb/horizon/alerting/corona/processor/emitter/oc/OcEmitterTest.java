@@ -131,7 +131,7 @@ public class OcEmitterTest {
         emitter.process(mk);
 
         new Verifications() {{
-            ocClient.send((OcCommand) any, (OcContact) any);
+            ocClient.sendAsync((OcCommand) any, (OcContact) any);
             times = 0;
         }};
     }
@@ -160,7 +160,7 @@ public class OcEmitterTest {
 
         new Verifications() {{
             final List<OcCommand> commands = new ArrayList<>();
-            ocClient.send(withCapture(commands), (OcContact) any);
+            ocClient.sendAsync(withCapture(commands), (OcContact) any);
             assertEquals(9, commands.size());
         }};
     }
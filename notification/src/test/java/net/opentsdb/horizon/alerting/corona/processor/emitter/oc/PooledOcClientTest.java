@@ -0,0 +1,159 @@
+/*
+ *  This file is part of OpenTSDB.
+ *  Copyright (C) 2021 Yahoo.
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+
+package net.opentsdb.horizon.alerting.corona.processor.emitter.oc;
+
+import net.opentsdb.horizon.alerting.corona.monitoring.AppMonitor;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.junit.jupiter.api.Assumptions.assumeTrue;
+
+public class PooledOcClientTest {
+
+    /**
+     * Fails the commands with a "fail" argument, succeeds otherwise.
+     */
+    private static final String ECHO_HELPER =
+            "while IFS= read -r line; do" +
+            "  case \"$line\" in" +
+            "    *fail*) echo '1 no such check' ;;" +
+            "    *) echo 0 ;;" +
+            "  esac;" +
+            "done";
+
+    @BeforeAll
+    static void stubMonitoring()
+    {
+        AppMonitor.initialize(
+                AppMonitor.config()
+                        .setApplication("corona.test")
+                        .setNamespace("Skhegay")
+                        .setHost("localhost")
+        );
+    }
+
+    private static PooledOcClient client(final String script,
+                                         final int queueCapacity,
+                                         final long timeoutMs)
+    {
+        return PooledOcClient.builder()
+                .setHelperCommand(Arrays.asList("/bin/sh", "-c", script))
+                .setPoolSize(1)
+                .setBatchSize(2)
+                .setQueueCapacity(queueCapacity)
+                .setTimeoutMs(timeoutMs)
+                .build();
+    }
+
+    @Test
+    void repliesCompleteCommandsInOrder()
+    {
+        final PooledOcClient client = client(ECHO_HELPER, 10, 10_000L);
+        try {
+            final CompletableFuture<Void> first = client.submit(Arrays.asList("ywmsg", "-m", "ok"));
+            final CompletableFuture<Void> second = client.submit(Arrays.asList("ywmsg", "-m", "fail"));
+            final CompletableFuture<Void> third = client.submit(Arrays.asList("ywmsg", "-m", "a\tb\nc"));
+
+            first.join();
+            final CompletionException e = assertThrows(CompletionException.class, second::join);
+            assertTrue(e.getCause().getMessage().contains("exit_value= 1"));
+            assertTrue(e.getCause().getMessage().contains("no such check"));
+            third.join();
+        } finally {
+            client.close();
+        }
+    }
+
+    @Test
+    void referenceHelperRunsCommands()
+    {
+        final File python = new File("/usr/bin/python3");
+        assumeTrue(python.canExecute());
+        final File script = new File("src/main/scripts/ywmsg-helper.py");
+        assertTrue(script.isFile());
+
+        final PooledOcClient client = PooledOcClient.builder()
+                .setHelperCommand(Arrays.asList(python.getPath(), script.getPath()))
+                .setPoolSize(1)
+                .build();
+        try {
+            client.submit(Arrays.asList("/bin/sh", "-c", "exit 0")).join();
+            final CompletionException e = assertThrows(CompletionException.class,
+                    client.submit(Arrays.asList("/bin/sh", "-c", "exit 3"))::join);
+            assertTrue(e.getCause().getMessage().contains("exit_value= 3"));
+            assertThrows(CompletionException.class,
+                    client.submit(Arrays.asList("/no/such/ywmsg", "-m", "x"))::join);
+            client.submit(Arrays.asList("/bin/sh", "-c", "echo ignored")).join();
+        } finally {
+            client.close();
+        }
+    }
+
+    @Test
+    void exitedHelperIsRestarted()
+    {
+        final PooledOcClient client = client("read -r line; echo 0", 10, 10_000L);
+        try {
+            client.submit(Arrays.asList("ywmsg", "-m", "first")).join();
+            assertThrows(CompletionException.class,
+                    client.submit(Arrays.asList("ywmsg", "-m", "second"))::join);
+            client.submit(Arrays.asList("ywmsg", "-m", "third")).join();
+        } finally {
+            client.close();
+        }
+    }
+
+    @Test
+    void hungHelperTimesOut()
+    {
+        final PooledOcClient client = client("read -r line; exec sleep 30", 10, 200L);
+        try {
+            final long start = System.currentTimeMillis();
+            assertThrows(CompletionException.class,
+                    client.submit(Arrays.asList("ywmsg", "-m", "hung"))::join);
+            assertTrue(System.currentTimeMillis() - start < 10_000L);
+        } finally {
+            client.close();
+        }
+    }
+
+    @Test
+    void fullQueueRejectsAndCloseFailsPending()
+    {
+        final PooledOcClient client = client("read -r line; exec sleep 30", 1, 60_000L);
+        final List<CompletableFuture<Void>> futures = new ArrayList<>();
+        for (int i = 0; i < 5; i++) {
+            futures.add(client.submit(Arrays.asList("ywmsg", "-m", "msg-" + i)));
+        }
+        assertTrue(futures.stream().anyMatch(CompletableFuture::isCompletedExceptionally));
+
+        client.close();
+        for (CompletableFuture<Void> future : futures) {
+            assertThrows(CompletionException.class, future::join);
+        }
+    }
+}
@@ -24,8 +24,11 @@ import mockit.Mocked;
 import mockit.Verifications;
 import net.opentsdb.horizon.alerting.corona.TestData;
 import net.opentsdb.horizon.alerting.corona.component.Triple;
+import net.opentsdb.horizon.alerting.corona.model.alert.Alert;
 import net.opentsdb.horizon.alerting.corona.model.alert.AlertType;
+import net.opentsdb.horizon.alerting.corona.model.alert.State;
 import net.opentsdb.horizon.alerting.corona.model.alertgroup.AlertGroup;
+import net.opentsdb.horizon.alerting.corona.model.alertgroup.AlertGroupSummary;
 import net.opentsdb.horizon.alerting.corona.model.contact.Contacts;
 import net.opentsdb.horizon.alerting.corona.model.metadata.Metadata;
 import net.opentsdb.horizon.alerting.corona.monitoring.AppMonitor;
@@ -33,6 +36,12 @@ import net.opentsdb.horizon.alerting.corona.processor.Processor;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 
+import java.util.Collections;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
 import static org.junit.jupiter.api.Assertions.assertFalse;
 import static org.junit.jupiter.api.Assertions.assertNotNull;
 
@@ -96,4 +105,56 @@ class SnoozedFilterTest {
                     .forEach(alert -> assertFalse(alert.isSnoozed()));
         }};
     }
-}
\ No newline at end of file
+
+    private static Map<State, Long> countStates(final List<Alert> alerts,
+                                                final boolean snoozed)
+    {
+        final Map<State, Long> counts = new EnumMap<>(State.class);
+        alerts.stream()
+                .filter(alert -> alert.isSnoozed() == snoozed)
+                .forEach(alert -> counts.merge(alert.getState(), 1L, Long::sum));
+        return counts;
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    void processShouldNotCountSnoozedAlertsInSummary()
+    {
+        final AlertGroup sampled =
+                TestData.getAlertGroup(AlertType.SINGLE_METRIC);
+        final List<Alert> alerts = sampled.getAlerts();
+        final Map<State, Long> all = countStates(alerts, false);
+        countStates(alerts, true).forEach((state, count) ->
+                all.merge(state, count, Long::sum));
+
+        // The sample is the whole group, with 100 more active alerts.
+        final Map<State, Long> stateCounts = new EnumMap<>(all);
+        stateCounts.merge(State.BAD, 100L, Long::sum);
+        final AlertGroup group = AlertGroup.builder()
+                .setGroupKey(sampled.getGroupKey())
+                .setAlerts(alerts)
+                .setSummary(new AlertGroupSummary(
+                        alerts.size() + 100,
+                        stateCounts,
+                        Collections.emptyList()))
+                .build();
+
+        final Map<State, Long> expected = countStates(alerts, false);
+        expected.merge(State.BAD, 100L, Long::sum);
+
+        getTested().process(
+                new Triple<>(group, TestData.getMetadata(), TestData.getContacts()));
+
+        new Verifications() {{
+            final Triple<AlertGroup, Metadata, Contacts> result;
+            nextProcessor.process(result = withCapture());
+
+            final AlertGroupSummary summary = result.getFirst().getSummary();
+            assertEquals(alerts.size() - 6 + 100, summary.getTotal());
+            for (State state : State.values()) {
+                assertEquals(expected.getOrDefault(state, 0L),
+                        summary.getCount(state), state.name());
+            }
+        }};
+    }
+}
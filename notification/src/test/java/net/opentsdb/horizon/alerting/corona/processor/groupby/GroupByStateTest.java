@@ -0,0 +1,182 @@
+/*
+ *  This file is part of OpenTSDB.
+ *  Copyright (C) 2021 Yahoo.
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+
+package net.opentsdb.horizon.alerting.corona.processor.groupby;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Queue;
+
+import org.junit.jupiter.api.Test;
+
+import net.opentsdb.horizon.alerting.corona.model.alert.AlertType;
+import net.opentsdb.horizon.alerting.corona.model.alert.State;
+import net.opentsdb.horizon.alerting.corona.model.alertgroup.AlertGroupSummary;
+import net.opentsdb.horizon.alerting.corona.model.alertgroup.GroupKey;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class GroupByStateTest {
+
+    private static GroupKey key(final String... values)
+    {
+        return GroupKey.builder()
+                .setNamespace("OpenTSDB")
+                .setAlertId(1L)
+                .setAlertType(AlertType.SINGLE_METRIC)
+                .setKeys("colo", "host")
+                .setValues(values)
+                .build();
+    }
+
+    @Test
+    public void testFingerprint()
+    {
+        assertEquals(key("bf1", "h1").getFingerprint(),
+                key("bf1", "h1").getFingerprint());
+        assertEquals(key("bf1", "h1").hashCode(), key("bf1", "h1").hashCode());
+        assertNotEquals(key("bf1", "h1").getFingerprint(),
+                key("h1", "bf1").getFingerprint());
+        assertNotEquals(key("bf1", null).getFingerprint(),
+                key("bf1", "").getFingerprint());
+    }
+
+    @Test
+    public void testGroupsByKey()
+    {
+        final GroupByState<GroupKey, String> state =
+                new GroupByState<>(GroupKey::getFingerprint);
+
+        assertEquals(1, state.add(key("bf1", "h1"), "a"));
+        assertEquals(2, state.add(key("bf1", "h2"), "b"));
+        assertEquals(3, state.add(key("bf1", "h1"), "c"));
+
+        final Map<GroupKey, Queue<String>> groups = state.flush();
+        assertEquals(2, groups.size());
+        assertEquals(Arrays.asList("a", "c"),
+                Arrays.asList(groups.get(key("bf1", "h1")).toArray()));
+        assertEquals(Arrays.asList("b"),
+                Arrays.asList(groups.get(key("bf1", "h2")).toArray()));
+        assertEquals(0, state.getCollisions());
+
+        assertEquals(0, state.flush().size());
+        assertEquals(1, state.add(key("bf1", "h1"), "d"));
+    }
+
+    @Test
+    public void testCollidingKeysKeptApart()
+    {
+        final GroupByState<GroupKey, String> state =
+                new GroupByState<>(key -> 42L);
+
+        state.add(key("bf1", "h1"), "a");
+        state.add(key("bf1", "h2"), "b");
+        state.add(key("bf1", "h3"), "c");
+        state.add(key("bf1", "h2"), "d");
+
+        final Map<GroupKey, Queue<String>> groups = state.flush();
+        assertEquals(3, groups.size());
+        assertEquals(Arrays.asList("b", "d"),
+                Arrays.asList(groups.get(key("bf1", "h2")).toArray()));
+        assertEquals(2, state.getCollisions());
+    }
+
+    /**
+     * Values look like "bad-h3": the state, then the host. Values of the
+     * "snoozed" state are excluded.
+     */
+    private static GroupStorm<String> storm()
+    {
+        return new GroupStorm<>(
+                5,
+                2,
+                v -> v.startsWith("bad") ? State.BAD : State.GOOD,
+                v -> {
+                    final Map<String, String> tags = new HashMap<>();
+                    tags.put("colo", "bf1");
+                    tags.put("host", v.substring(v.indexOf('-') + 1));
+                    return tags;
+                },
+                v -> v.startsWith("snoozed")
+        );
+    }
+
+    @Test
+    public void testStormSummarizesLargeGroups()
+    {
+        final GroupByState<GroupKey, String> state =
+                new GroupByState<>(GroupKey::getFingerprint, 10, GroupByStateTest::storm);
+
+        for (int i = 0; i < 1_000; i++) {
+            state.add(key("bf1", "h1"), (i % 4 == 0 ? "good-h" : "bad-h") + (i % 3 == 0 ? 0 : i % 50));
+        }
+        state.add(key("bf1", "h2"), "bad-h1");
+
+        final Map<GroupKey, GroupStorm<String>> storms = new HashMap<>();
+        final Map<GroupKey, Queue<String>> groups = state.flush(storms::put);
+
+        assertEquals(1, groups.size());
+        assertEquals(1, groups.get(key("bf1", "h2")).size());
+        assertEquals(1, storms.size());
+
+        final GroupStorm<String> storm = storms.get(key("bf1", "h1"));
+        final List<String> sample = storm.getSample();
+        assertEquals(5, sample.size());
+
+        final AlertGroupSummary summary = storm.summarize();
+        assertEquals(1_000, summary.getTotal());
+        assertEquals(250, summary.getCount(State.GOOD));
+        assertEquals(750, summary.getCount(State.BAD));
+
+        // The colo is the same for all values, host h0 is a third of them.
+        assertEquals(2, summary.getTopTagValues().size());
+        final AlertGroupSummary.TagValueCount top = summary.getTopTagValues().get(0);
+        assertEquals("host", top.getKey());
+        assertEquals("h0", top.getValue());
+        assertTrue(top.getCount() >= 334);
+    }
+
+    @Test
+    public void testStormDoesNotCountExcludedValues()
+    {
+        final GroupStorm<String> storm = storm();
+        for (int i = 0; i < 100; i++) {
+            storm.add((i % 2 == 0 ? "snoozed-h" : "bad-h") + (i % 4));
+        }
+        storm.add("good-h1");
+
+        assertEquals(51, storm.getTotal());
+        assertEquals(50, storm.getExcludedTotal());
+        storm.getSample().forEach(v -> assertTrue(!v.startsWith("snoozed")));
+
+        final AlertGroupSummary summary = storm.summarize();
+        assertEquals(51, summary.getTotal());
+        assertEquals(50, summary.getCount(State.BAD));
+        assertEquals(1, summary.getCount(State.GOOD));
+
+        // Only odd hosts, h1 and h3, were counted.
+        assertEquals(2, summary.getTopTagValues().size());
+        assertEquals(new AlertGroupSummary.TagValueCount("host", "h1", 26),
+                summary.getTopTagValues().get(0));
+        assertEquals(new AlertGroupSummary.TagValueCount("host", "h3", 25),
+                summary.getTopTagValues().get(1));
+    }
+}
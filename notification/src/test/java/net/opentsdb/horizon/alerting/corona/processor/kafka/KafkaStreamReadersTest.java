@@ -0,0 +1,216 @@
+/*
+ *  This file is part of OpenTSDB.
+ *  Copyright (C) 2021 Yahoo.
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+
+package net.opentsdb.horizon.alerting.corona.processor.kafka;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.List;
+import java.util.NoSuchElementException;
+import java.util.Optional;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.stream.Collectors;
+
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+import org.slf4j.LoggerFactory;
+
+import net.opentsdb.horizon.alerting.corona.component.kafka.KafkaMessage;
+import net.opentsdb.horizon.alerting.corona.component.kafka.KafkaStream;
+import net.opentsdb.horizon.alerting.corona.monitoring.AppMonitor;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+public class KafkaStreamReadersTest {
+
+    private static final String TOPIC = "alerts";
+
+    /**
+     * Stream fed by the test, which ends once closed and drained.
+     */
+    private static final class QueueStream
+            extends KafkaStream<byte[], byte[]>
+    {
+
+        private final BlockingQueue<Optional<KafkaMessage<byte[], byte[]>>> queue =
+                new LinkedBlockingQueue<>();
+
+        void add(final int partition, final long offset)
+        {
+            queue.add(Optional.of(
+                    new KafkaMessage<>(TOPIC, partition, offset, null, null)));
+        }
+
+        @Override
+        public int size()
+        {
+            return queue.size();
+        }
+
+        @Override
+        public void close()
+        {
+            queue.add(Optional.empty());
+        }
+
+        @Override
+        public Iterator<KafkaMessage<byte[], byte[]>> iterator()
+        {
+            return new Iterator<KafkaMessage<byte[], byte[]>>() {
+
+                private KafkaMessage<byte[], byte[]> next;
+
+                private boolean done;
+
+                @Override
+                public boolean hasNext()
+                {
+                    if (next != null) {
+                        return true;
+                    }
+                    if (done) {
+                        return false;
+                    }
+                    try {
+                        final Optional<KafkaMessage<byte[], byte[]>> item =
+                                queue.take();
+                        done = !item.isPresent();
+                        next = item.orElse(null);
+                    } catch (InterruptedException e) {
+                        Thread.currentThread().interrupt();
+                        done = true;
+                    }
+                    return next != null;
+                }
+
+                @Override
+                public KafkaMessage<byte[], byte[]> next()
+                {
+                    if (!hasNext()) {
+                        throw new NoSuchElementException();
+                    }
+                    final KafkaMessage<byte[], byte[]> message = next;
+                    next = null;
+                    return message;
+                }
+            };
+        }
+    }
+
+    private static final class Reader
+            extends KafkaStreamReader<byte[], byte[], String>
+    {
+
+        Reader(final Builder builder)
+        {
+            super(builder);
+        }
+
+        @Override
+        public void process(final KafkaMessage<byte[], byte[]> mm)
+        {
+            submit(mm.partition() + ":" + mm.offset());
+        }
+
+        static final class Builder
+                extends KafkaStreamReader.Builder<byte[], byte[], String, Builder>
+        {
+
+            @Override
+            protected Builder self()
+            {
+                return this;
+            }
+        }
+    }
+
+    @BeforeAll
+    static void stubMonitoring()
+    {
+        AppMonitor.initialize(
+                AppMonitor.config()
+                        .setApplication("corona.test")
+                        .setNamespace("Skhegay")
+                        .setHost("localhost")
+        );
+    }
+
+    private static Reader reader(final KafkaStream<byte[], byte[]> stream,
+                                 final String componentId,
+                                 final List<String> out)
+    {
+        return new Reader(new Reader.Builder()
+                .setLogger(LoggerFactory.getLogger(KafkaStreamReadersTest.class))
+                .setComponentId(componentId)
+                .setKafkaStream(stream)
+                .setNext(out::add));
+    }
+
+    private static List<String> partition(final List<String> messages,
+                                          final int partition)
+    {
+        return messages.stream()
+                .filter(m -> m.startsWith(partition + ":"))
+                .collect(Collectors.toList());
+    }
+
+    @Test
+    public void testReadersKeepPartitionOrder()
+    {
+        final QueueStream first = new QueueStream();
+        final QueueStream second = new QueueStream();
+        for (long offset = 0; offset < 100; offset++) {
+            first.add(0, offset);
+            second.add(1, offset);
+            second.add(2, offset);
+        }
+        // The first stream ends, the second one is closed by the runner.
+        first.close();
+
+        final List<String> out = Collections.synchronizedList(new ArrayList<>());
+        KafkaStreamReaders.run(Arrays.asList(
+                reader(first, "reader-0", out),
+                reader(second, "reader-1", out)
+        ));
+
+        assertEquals(300, out.size());
+        for (int partition = 0; partition < 3; partition++) {
+            final List<String> expected = new ArrayList<>();
+            for (long offset = 0; offset < 100; offset++) {
+                expected.add(partition + ":" + offset);
+            }
+            assertEquals(expected, partition(out, partition));
+        }
+    }
+
+    @Test
+    public void testSingleReaderRunsInline()
+    {
+        final QueueStream stream = new QueueStream();
+        stream.add(0, 0L);
+        stream.close();
+
+        final List<String> out = new ArrayList<>();
+        KafkaStreamReaders.run(Collections.singletonList(
+                reader(stream, "reader", out)));
+
+        assertEquals(Collections.singletonList("0:0"), out);
+    }
+}
@@ -0,0 +1,199 @@
+/*
+ *  This file is part of OpenTSDB.
+ *  Copyright (C) 2021 Yahoo.
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+
+package net.opentsdb.horizon.alerting.corona.processor.stage;
+
+import java.io.File;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import com.esotericsoftware.kryo.Kryo;
+import com.esotericsoftware.kryo.io.Input;
+import com.esotericsoftware.kryo.io.Output;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+
+import net.opentsdb.horizon.alerting.corona.model.AbstractSerializer;
+import net.opentsdb.horizon.alerting.corona.monitoring.AppMonitor;
+import net.opentsdb.horizon.alerting.corona.processor.Processor;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class BoundedStageTest {
+
+    private static final class StringSerializer
+            extends AbstractSerializer<String>
+    {
+
+        @Override
+        protected Class<String> getSerializableClass()
+        {
+            return String.class;
+        }
+
+        @Override
+        public void write(final Kryo kryo,
+                          final Output output,
+                          final String value)
+        {
+            output.writeString(value);
+        }
+
+        @Override
+        public String read(final Kryo kryo,
+                           final Input input,
+                           final Class<String> aClass)
+        {
+            return input.readString();
+        }
+    }
+
+    /**
+     * Holds the stage worker on its first item until released.
+     */
+    private static final class GatedProcessor implements Processor<String> {
+
+        private final CountDownLatch entered = new CountDownLatch(1);
+
+        private final CountDownLatch gate = new CountDownLatch(1);
+
+        private final List<String> processed =
+                Collections.synchronizedList(new ArrayList<>());
+
+        @Override
+        public void process(final String item)
+        {
+            entered.countDown();
+            try {
+                gate.await();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            processed.add(item);
+        }
+    }
+
+    @BeforeAll
+    static void stubMonitoring()
+    {
+        AppMonitor.initialize(
+                AppMonitor.config()
+                        .setApplication("corona.test")
+                        .setNamespace("Skhegay")
+                        .setHost("localhost")
+        );
+    }
+
+    private static BoundedStage<String> stage(final OverflowPolicy policy,
+                                              final Processor<String> next,
+                                              final File spillDirectory)
+    {
+        return BoundedStage.<String>builder()
+                .setName("test")
+                .setNext(next)
+                .setCapacity(2)
+                .setOverflowPolicy(policy)
+                .setSerializer(new StringSerializer())
+                .setSpillDirectory(spillDirectory == null ?
+                        null : spillDirectory.getPath())
+                .build();
+    }
+
+    @Test
+    public void testOverflowPolicyFromString()
+    {
+        assertEquals(OverflowPolicy.DROP_OLDEST,
+                OverflowPolicy.fromString("drop_oldest"));
+        assertEquals(OverflowPolicy.SPILL, OverflowPolicy.fromString("SPILL"));
+        assertThrows(IllegalArgumentException.class,
+                () -> OverflowPolicy.fromString("unknown"));
+    }
+
+    @Test
+    public void testBlockKeepsOrder() throws Exception
+    {
+        final List<String> processed =
+                Collections.synchronizedList(new ArrayList<>());
+        final BoundedStage<String> stage =
+                stage(OverflowPolicy.BLOCK, processed::add, null);
+        stage.start();
+        for (int i = 0; i < 100; i++) {
+            stage.process("a" + i);
+        }
+        stage.stop(10);
+
+        assertEquals(100, processed.size());
+        for (int i = 0; i < 100; i++) {
+            assertEquals("a" + i, processed.get(i));
+        }
+    }
+
+    @Test
+    public void testDropOldest() throws Exception
+    {
+        final GatedProcessor next = new GatedProcessor();
+        final BoundedStage<String> stage =
+                stage(OverflowPolicy.DROP_OLDEST, next, null);
+        stage.start();
+
+        stage.process("a");
+        assertTrue(next.entered.await(10, TimeUnit.SECONDS));
+        stage.process("b");
+        stage.process("c");
+        stage.process("d");
+        next.gate.countDown();
+        stage.stop(10);
+
+        assertEquals(Arrays.asList("a", "c", "d"), next.processed);
+    }
+
+    @Test
+    public void testSpillKeepsOrder() throws Exception
+    {
+        final File directory = Files.createTempDirectory("stage").toFile();
+        final GatedProcessor next = new GatedProcessor();
+        final BoundedStage<String> stage =
+                stage(OverflowPolicy.SPILL, next, directory);
+        stage.start();
+
+        stage.process("a");
+        assertTrue(next.entered.await(10, TimeUnit.SECONDS));
+        for (int i = 0; i < 10; i++) {
+            stage.process("b" + i);
+        }
+        assertTrue(new File(directory, "test.spill").exists());
+        next.gate.countDown();
+        stage.stop(10);
+
+        final List<String> expected = new ArrayList<>();
+        expected.add("a");
+        for (int i = 0; i < 10; i++) {
+            expected.add("b" + i);
+        }
+        assertEquals(expected, next.processed);
+        assertFalse(new File(directory, "test.spill").exists());
+        directory.delete();
+    }
+}
@@ -0,0 +1,136 @@
+/*
+ * This file is part of OpenTSDB.
+ * Copyright (C) 2021 Yahoo.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package net.opentsdb.horizon.alerts.query.auradb;
+
+import net.opentsdb.horizon.alerts.AlertUtils;
+import net.opentsdb.horizon.alerts.OutputWriter;
+import net.opentsdb.horizon.alerts.config.impl.HealthCheckConfig;
+import net.opentsdb.horizon.alerts.model.AlertEventBag;
+import net.opentsdb.horizon.alerts.model.tsdb.YmsStatusEvent;
+import net.opentsdb.horizon.alerts.processor.impl.StatusWriter;
+import net.opentsdb.horizon.alerts.snooze.SnoozeFilter;
+import net.opentsdb.horizon.alerts.state.AlertStateStore;
+import org.apache.commons.io.FileUtils;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.File;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * One evaluation run of a health check alert over an AuraDB response:
+ * decoding, state store, thresholds and status writes, without the
+ * query. Each invocation gets newer timestamps, so every status is
+ * evaluated. In steady mode all statuses stay good, in flapping mode they
+ * all change state on every run. Run with the gc profiler to compare the
+ * allocation rate per status:
+ *
+ * ./gradlew jmh -Pjmh.includes=AuraDBEvaluateBenchmark
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class AuraDBEvaluateBenchmark {
+
+    private static final String CONFIG =
+            "src/test/resources/data/SnoozeFilterTest/alertConfigs/alertid-180-label1.json";
+
+    private static final long START_SEC = 1_600_000_000L;
+
+    private static final long RUN_SEC = 300L;
+
+    @Param({"10000"})
+    private int statuses;
+
+    @Param({"steady", "flapping"})
+    private String mode;
+
+    private AuraDBProcessor processor;
+
+    private AlertStateStore stateStore;
+
+    private String response;
+
+    private long run;
+
+    @Setup
+    public void setUp() throws Exception {
+        final HealthCheckConfig config = (HealthCheckConfig) AlertUtils.loadConfig(
+                FileUtils.readFileToString(new File(CONFIG), StandardCharsets.UTF_8));
+        stateStore = config.createAlertStateStore();
+        processor = new AuraDBProcessor(config);
+        processor.prepAndValidate(config, stateStore);
+        processor.setStatusWriter(new StatusWriter(config, new SnoozeFilter(),
+                new OutputWriter() {
+                    @Override
+                    public void sendAlertEvent(AlertEventBag alertEventBag) {
+                    }
+
+                    @Override
+                    public void sendStatusEvent(YmsStatusEvent ymsStatusEvent) {
+                    }
+                }));
+    }
+
+    @Setup(Level.Invocation)
+    public void nextRun() {
+        run++;
+        final long start = START_SEC + run * RUN_SEC;
+        // 0 is good, 1 is bad.
+        final int code = "flapping".equals(mode) && run % 2 == 0 ? 1 : 0;
+        final StringBuilder sb = new StringBuilder("{\"results\":[{\"data\":[");
+        for (int i = 0; i < statuses; i++) {
+            if (i > 0) {
+                sb.append(',');
+            }
+            sb.append("{\"statusType\":0,\"message\":\"ok\",\"application\":\"app\",")
+                    .append("\"tags\":{\"host\":\"host-").append(i)
+                    .append("\",\"colo\":\"c1\",\"role\":\"web\"},")
+                    .append("\"statusCodeArray\":[");
+            for (int j = 0; j < 5; j++) {
+                sb.append(j > 0 ? "," : "").append(code);
+            }
+            sb.append("],\"timestampArray\":[");
+            for (int j = 0; j < 5; j++) {
+                sb.append(j > 0 ? "," : "").append(start + j * 60);
+            }
+            sb.append("]}");
+        }
+        response = sb.append("]}]}").toString();
+        stateStore.newRun();
+    }
+
+    @Benchmark
+    public AlertEventBag evaluate() {
+        return processor.evaluateStatuses(response, START_SEC + run * RUN_SEC, stateStore);
+    }
+}
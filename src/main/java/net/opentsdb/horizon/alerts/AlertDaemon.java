@@ -21,7 +21,9 @@ import net.opentsdb.horizon.alerts.monitor.Monitor;
 import net.opentsdb.horizon.alerts.monitor.impl.SimpleRunnableMonitor;
 import net.opentsdb.horizon.alerts.config.AlertConfig;
 import net.opentsdb.horizon.alerts.config.AlertConfigFetcher;
+import net.opentsdb.horizon.alerts.config.ConfigSnapshot;
 import net.opentsdb.horizon.alerts.heartbeat.HeartbeatReadable;
+import net.opentsdb.horizon.alerts.logging.SampledLogger;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
@@ -29,6 +31,7 @@ import java.util.HashMap;
 import java.util.Map;
 import java.util.Objects;
 import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicBoolean;
 
 public class AlertDaemon implements HeartbeatReadable {
     
@@ -36,6 +39,8 @@ public class AlertDaemon implements HeartbeatReadable {
 
     private static final Logger LOG = LoggerFactory.getLogger(AlertDaemon.class);
 
+    private static final SampledLogger SAMPLED_LOG = SampledLogger.getLogger(AlertDaemon.class);
+
     private ExecutorService executor = null;
 
     //Thread local set
@@ -50,10 +55,28 @@ public class AlertDaemon implements HeartbeatReadable {
 
     private EnvironmentConfig environmentConfig = new EnvironmentConfig();
 
+    /**
+     * Version of the config snapshot the monitors were last reconciled with.
+     */
+    private long appliedConfigVersion = ConfigSnapshot.UNVERSIONED;
+
+    /**
+     * Shared by the daemons of the process when alerts move between them,
+     * null otherwise.
+     */
+    private final MonitorHandover monitorHandover;
+
     public AlertDaemon(int daemonIndex, AlertConfigFetcher alertConfigFetcher) {
+        this(daemonIndex, alertConfigFetcher, null);
+    }
+
+    public AlertDaemon(int daemonIndex,
+                       AlertConfigFetcher alertConfigFetcher,
+                       MonitorHandover monitorHandover) {
         this.daemonIndex = daemonIndex;
         executor = Executors.newWorkStealingPool(environmentConfig.getNumThreadsInAlertPool());
         this.alertConfigFetcher = alertConfigFetcher;
+        this.monitorHandover = monitorHandover;
 
     }
 
@@ -73,113 +96,169 @@ public class AlertDaemon implements HeartbeatReadable {
 
                 //TODO: This object should be cached
 
-                Map<Long, AlertConfig> longAlertConfigMap = alertConfigFetcher.getAlertConfig();
+                final ConfigSnapshot<AlertConfig> configSnapshot = alertConfigFetcher.getAlertConfigSnapshot();
+                Map<Long, AlertConfig> longAlertConfigMap = configSnapshot.getConfigs();
                 //Disable == delete since it makes no sense to keep state for disabled around.
                 Map<Long,Long> monitorsToBeDeleted = new HashMap<>();
 
                 Map<Long,Long> monitorsToBeDisabled = new HashMap<>();
 
+                // Alerts still held by another daemon of the process.
+                final AtomicBoolean deferred = new AtomicBoolean();
+
                 //LOG.info("Fetched config: " + longAlertConfigMap.toString());
 
-                longAlertConfigMap.entrySet().stream()
-                        .forEach(entry -> {
+                // Nothing to reconcile when the snapshot is the one already applied.
+                final boolean configChanged = !configSnapshot.isVersioned()
+                        || configSnapshot.getVersion() != appliedConfigVersion;
+                if (configChanged) {
+                    longAlertConfigMap.entrySet().stream()
+                            .forEach(entry -> {
 
-                            Long key = entry.getKey();
-                            AlertConfig newAlertConfig = entry.getValue();
+                                Long key = entry.getKey();
+                                AlertConfig newAlertConfig = entry.getValue();
 
-                            LOG.info("Fetched config for id: {} {}",key, newAlertConfig);
+                                SAMPLED_LOG.info(key, "Fetched config for id: {}", key);
+                                SAMPLED_LOG.payload(key, "Fetched config for id: {} {}", key, newAlertConfig);
 
-                            if(!newAlertConfig.isEnabled()) {
-                                if(monitors.containsKey(key) ||
-                                        monitorFutures.containsKey(key)) {
-                                    //Clean up disabled monitors
-                                    monitorsToBeDisabled.put(key, key);
-                                } else {
-                                    //New monitor, but disabled. Do nothing.
-                                    return;
+                                if(!newAlertConfig.isEnabled()) {
+                                    if(monitors.containsKey(key) ||
+                                            monitorFutures.containsKey(key)) {
+                                        //Clean up disabled monitors
+                                        monitorsToBeDisabled.put(key, key);
+                                    } else {
+                                        //New monitor, but disabled. Do nothing.
+                                        return;
+                                    }
                                 }
-                            }
 
-                            Monitor existingMonitor = monitors.get(key);
+                                Monitor existingMonitor = monitors.get(key);
 
-                            if (existingMonitor != null) {
-                                AlertConfig existingAlertConfig = existingMonitor.getAlertConfig();
-                                if (existingAlertConfig.getHash() == newAlertConfig.getHash()) {
-                                    return;
-                                } else if (existingAlertConfig.updatable(newAlertConfig)) {
-                                    existingMonitor.updateAlertConfig(newAlertConfig);
-                                    return;
-                                } else {
-                                    // Create new Alert Config
-                                    // Check if execution is in progress
-                                    final Future<Monitor> monitorFuture = monitorFutures.get(key);
-
-                                    if (monitorFuture == null) {
-                                        LOG.error("Monitor future is null for id," +
-                                                " let it be scheduled: {}", key);
-                                        existingMonitor.finish(false);
+                                if (existingMonitor != null) {
+                                    AlertConfig existingAlertConfig = existingMonitor.getAlertConfig();
+                                    if (existingAlertConfig.getHash() == newAlertConfig.getHash()) {
+                                        return;
+                                    } else if (existingAlertConfig.updatable(newAlertConfig)) {
+                                        existingMonitor.updateAlertConfig(newAlertConfig);
+                                        return;
                                     } else {
-
-                                        Monitor monitor = null;
-                                        try {
-                                            monitor = monitorFuture.get(environmentConfig.getMonitorCheckTimeoutMs(), TimeUnit.MILLISECONDS);
-
-                                            monitor.finish(true);
-                                        } catch (InterruptedException e) {
-                                            LOG.error("Interrupted when checking future", e);
-                                            cancelMonitorExecution(monitorFuture, key);
-                                            existingMonitor.finish(false);
-                                        } catch (ExecutionException e) {
-                                            LOG.error("Monitor execution failed for {} isDone {}", key,
-                                                    monitorFuture.isDone(), e);
-                                            cancelMonitorExecution(monitorFuture, key);
-                                            existingMonitor.finish(false);
-
-                                        } catch (TimeoutException e) {
-                                            LOG.error("Monitor still in progress");
-                                            cancelMonitorExecution(monitorFuture, key);
+                                        // Create new Alert Config
+                                        // Check if execution is in progress
+                                        final Future<Monitor> monitorFuture = monitorFutures.get(key);
+                                        // Set when the run was cancelled, the monitor
+                                        // may have stopped half way through it.
+                                        boolean cancelled = false;
+
+                                        if (monitorFuture == null) {
+                                            LOG.error("Monitor future is null for id," +
+                                                    " let it be scheduled: {}", key);
                                             existingMonitor.finish(false);
+                                        } else {
+
+                                            Monitor monitor = null;
+                                            try {
+                                                monitor = monitorFuture.get(environmentConfig.getMonitorCheckTimeoutMs(), TimeUnit.MILLISECONDS);
+
+                                                monitor.finish(true);
+                                            } catch (InterruptedException e) {
+                                                LOG.error("Interrupted when checking future", e);
+                                                cancelMonitorExecution(monitorFuture, key);
+                                                existingMonitor.finish(false);
+                                                cancelled = true;
+                                            } catch (ExecutionException e) {
+                                                LOG.error("Monitor execution failed for {} isDone {}", key,
+                                                        monitorFuture.isDone(), e);
+                                                cancelMonitorExecution(monitorFuture, key);
+                                                existingMonitor.finish(false);
+                                                cancelled = true;
+
+                                            } catch (TimeoutException e) {
+                                                LOG.error("Monitor still in progress");
+                                                cancelMonitorExecution(monitorFuture, key);
+                                                existingMonitor.finish(false);
+                                                cancelled = true;
+                                            }
+                                        }
+                                        if (!cancelled
+                                                && environmentConfig.isStateMigrationEnabled()
+                                                && existingAlertConfig.migratable(newAlertConfig)) {
+                                            // Only the query changed: keep the monitor, and
+                                            // the state of the series the new query returns.
+                                            LOG.info("Migrate monitor for id: {} to new query", key);
+                                            existingMonitor.updateAlertConfig(newAlertConfig);
+                                            monitorFutures.remove(key);
+                                            return;
                                         }
+                                        final long defaultLastRunTimeSecs =
+                                                AlertUtils.getDefaultLastRunTimeSecs();
+                                        // Pick up from where we left off.
+                                        LOG.info("Update with new " +
+                                                "monitor for id: {} " +
+                                                "with time: {}", key,
+                                                defaultLastRunTimeSecs);
+                                        monitors.put(key,
+                                                new SimpleRunnableMonitor(newAlertConfig.createAlertExecutor(),
+                                                        newAlertConfig.createNotificationProcessor(),
+                                                        defaultLastRunTimeSecs));
+                                        //Remove old monitor future
+                                        monitorFutures.remove(key);
+                                        return;
+                                    }
+
+                                }
+                                if (monitorHandover != null) {
+                                    if (!monitorHandover.acquire(key, daemonIndex)) {
+                                        LOG.info("Monitor for id: {} still held by another daemon", key);
+                                        deferred.set(true);
+                                        return;
                                     }
-                                    final long defaultLastRunTimeSecs =
-                                            AlertUtils.getDefaultLastRunTimeSecs();
-                                    // Pick up from where we left off.
-                                    LOG.info("Update with new " +
-                                            "monitor for id: {} " +
-                                            "with time: {}", key,
-                                            defaultLastRunTimeSecs);
-                                    monitors.put(key,
+                                    final Monitor handedOver = monitorHandover.take(key);
+                                    if (handedOver != null && adopt(handedOver, newAlertConfig)) {
+                                        LOG.info("Take over monitor for id: {}", key);
+                                        monitors.put(key, handedOver);
+                                        monitorFutures.remove(key);
+                                        return;
+                                    }
+                                }
+                                final long defaultLastRunTimeSecs =
+                                        AlertUtils.getDefaultLastRunTimeSecs();
+                                LOG.info("Create new " +
+                                                "monitor for id: {} " +
+                                                "with time: {}", key,
+                                        defaultLastRunTimeSecs);
+                                monitors.put(key,
                                             new SimpleRunnableMonitor(newAlertConfig.createAlertExecutor(),
                                                     newAlertConfig.createNotificationProcessor(),
                                                     defaultLastRunTimeSecs));
-                                    //Remove old monitor future
-                                    monitorFutures.remove(key);
-                                    return;
-                                }
-
-                            }
-                            final long defaultLastRunTimeSecs =
-                                    AlertUtils.getDefaultLastRunTimeSecs();
-                            LOG.info("Create new " +
-                                            "monitor for id: {} " +
-                                            "with time: {}", key,
-                                    defaultLastRunTimeSecs);
-                            monitors.put(key,
-                                        new SimpleRunnableMonitor(newAlertConfig.createAlertExecutor(),
-                                                newAlertConfig.createNotificationProcessor(),
-                                                defaultLastRunTimeSecs));
-                            //Remove old monitor future
-                            monitorFutures.remove(key);
+                                //Remove old monitor future
+                                monitorFutures.remove(key);
 
-                        });
+                            });
                 
 
-                LOG.debug("Monitors: {}", monitors.toString());
-                LOG.debug("Monitor Futures: {}", monitorFutures.toString());
-
-                //Remove disabled monitors
-                //disable is same as delete as it doesnt make sense to store state yet
-                purgeMonitors(monitorsToBeDisabled);
+                    LOG.debug("Monitors: {}", monitors.toString());
+                    LOG.debug("Monitor Futures: {}", monitorFutures.toString());
+
+                    //Remove disabled monitors
+                    //disable is same as delete as it doesnt make sense to store state yet
+                    purgeMonitors(monitorsToBeDisabled);
+
+                    //Remove monitors of alerts moved to another mirror,
+                    //the new owner picks up their persisted state
+                    monitors.keySet().stream()
+                            .filter(key -> !longAlertConfigMap.containsKey(key)
+                                    && !alertConfigFetcher.owns(key))
+                            .forEach(key -> monitorsToBeDeleted.put(key, key));
+                    if (!monitorsToBeDeleted.isEmpty()) {
+                        LOG.info("Releasing monitors: {}", monitorsToBeDeleted.keySet());
+                        releaseMonitors(monitorsToBeDeleted);
+                        monitorsToBeDeleted.clear();
+                    }
+                    // Reconciled again until the other daemons released them.
+                    if (!deferred.get()) {
+                        appliedConfigVersion = configSnapshot.getVersion();
+                    }
+                }
 
                 monitors.entrySet().stream()
                         .forEach(longMonitorEntry -> {
@@ -229,24 +308,23 @@ public class AlertDaemon implements HeartbeatReadable {
                                     LOG.error("Monitor error " + key, t);
                                 }
                             }
-                            LOG.info("Checking Time to run for id: {}",
-                                    existingMonitor.getAlertConfig().getAlertId());
+                            SAMPLED_LOG.info(key, "Checking Time to run for id: {}", key);
                             Monitoring.get().reportDelay(existingMonitor);
 
                             if(!longAlertConfigMap.containsKey(key)) {
                                 // Delete monitor, dont submit a new run
                                 monitorsToBeDeleted.put(key,key);
                             } else if (existingMonitor.isTimeToRun()) {
-                                LOG.info("Time to run for id: {} {}",
-                                        existingMonitor.getAlertConfig().getAlertId(),
+                                SAMPLED_LOG.info(key, "Time to run for id: {} {}",
+                                        key,
                                         existingMonitor.getLastRuntimeInSecs());
                                 existingMonitor.prep();
                                 Callable<Monitor> callableMonitor = new RunMonitorCallable(existingMonitor);
                                 final Future<Monitor> monitorFuture = executor.submit(callableMonitor);
                                 monitorFutures.put(key, monitorFuture);
                             } else {
-                                LOG.info("Not time to run for id: {} {}",
-                                        existingMonitor.getAlertConfig().getAlertId(),
+                                SAMPLED_LOG.info(key, "Not time to run for id: {} {}",
+                                        key,
                                         existingMonitor.getLastRuntimeInSecs());
                             }
 
@@ -275,9 +353,63 @@ public class AlertDaemon implements HeartbeatReadable {
             if(monitors.containsKey(key)) {
                 monitors.remove(key);
             }
+            Monitoring.get().evictAlert(key);
+            if (monitorHandover != null) {
+                monitorHandover.release(key, daemonIndex, null);
+            }
         });
     }
 
+    /**
+     * Hands the monitors of alerts placed on another daemon over to it,
+     * once their runs in progress completed.
+     */
+    private void releaseMonitors(Map<Long, Long> monitorsToBeReleased) {
+        if (monitorHandover == null) {
+            purgeMonitors(monitorsToBeReleased);
+            return;
+        }
+        monitorsToBeReleased.keySet().forEach(key -> {
+            final Monitor monitor = monitors.remove(key);
+            final Future<Monitor> future = monitorFutures.remove(key);
+            boolean idle = monitor != null;
+            if (idle && future != null) {
+                try {
+                    future.get(environmentConfig.getMonitorCheckTimeoutMs(), TimeUnit.MILLISECONDS);
+                    monitor.finish(true);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    cancelMonitorExecution(future, key);
+                    idle = false;
+                } catch (ExecutionException e) {
+                    LOG.error("Monitor execution failed for {}", key, e);
+                    monitor.finish(false);
+                } catch (TimeoutException e) {
+                    LOG.error("Monitor still in progress, not handed over: {}", key);
+                    cancelMonitorExecution(future, key);
+                    idle = false;
+                }
+            }
+            Monitoring.get().evictAlert(key);
+            monitorHandover.release(key, daemonIndex, idle ? monitor : null);
+        });
+    }
+
+    /**
+     * @return false if the monitor cannot run the new config.
+     */
+    private static boolean adopt(final Monitor monitor, final AlertConfig alertConfig) {
+        final AlertConfig current = monitor.getAlertConfig();
+        if (current.getHash() == alertConfig.getHash()) {
+            return true;
+        }
+        if (current.updatable(alertConfig)) {
+            monitor.updateAlertConfig(alertConfig);
+            return true;
+        }
+        return false;
+    }
+
     private void cancelMonitorExecution(Future<Monitor> future, Long key) {
         if(!future.isDone()) {
             try {
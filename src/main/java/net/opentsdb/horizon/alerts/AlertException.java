@@ -27,4 +27,8 @@ public class AlertException extends Exception {
         super(message,e);
     }
 
+    public AlertException(String message, Throwable cause) {
+        super(message,cause);
+    }
+
 }
@@ -66,6 +66,8 @@ import net.opentsdb.horizon.alerts.model.tsdb.Metric;
 import net.opentsdb.horizon.alerts.model.tsdb.Tags;
 import net.opentsdb.horizon.alerts.model.tsdb.YmsStatusEvent;
 import net.opentsdb.horizon.alerts.processor.impl.StatusWriter;
+import net.opentsdb.horizon.alerts.profile.Phase;
+import net.opentsdb.horizon.alerts.profile.RunProfiler;
 import net.opentsdb.horizon.alerts.query.tsdb.TSDV3Constants;
 import net.opentsdb.horizon.alerts.state.AlertStateChange;
 import net.opentsdb.horizon.alerts.state.AlertStateStore;
@@ -153,7 +155,10 @@ public class AlertUtils {
 
     public static AlertConfig loadConfig(final String json) throws IOException {
 
-        final JsonNode root = parseJsonTree(json);
+        return loadConfig(parseJsonTree(json));
+    }
+
+    public static AlertConfig loadConfig(final JsonNode root) throws IOException {
 
         final int alertid = root.get(AlertConfigFields.ALERT_ID).asInt();
 
@@ -291,7 +296,12 @@ public class AlertUtils {
     }
 
     public static JsonNode parseJsonTree(String json) throws IOException {
-        return jsonMapper.readTree(json);
+        final Phase previous = RunProfiler.enter(Phase.PARSE);
+        try {
+            return jsonMapper.readTree(json);
+        } finally {
+            RunProfiler.exit(previous);
+        }
     }
 
     public static NotificationConfig parseNotificationConfig(String namespace, int alertid, String name, final JsonNode root) {
@@ -366,6 +376,27 @@ public class AlertUtils {
 
     }
 
+    /**
+     * Same hash as {@link #getHashForNAMT(String, long, SortedMap)} over
+     * tags held in parallel arrays, which must already be sorted by key.
+     * The scratch builder is cleared and reused, so no map or string is
+     * allocated for the tag set.
+     */
+    public static long getHashForNAMT(String namespace, long alertId,
+                                      String[] sortedTagKeys, String[] tagValues,
+                                      int tagCount, StringBuilder scratch) {
+
+        scratch.setLength(0);
+        scratch.append(namespace);
+        for(int i = 0; i < tagCount; i++){
+            scratch.append(sortedTagKeys[i]);
+            scratch.append(tagValues[i]);
+        }
+
+        return getXXHash(alertId,782738273l,hashFunction.hashChars(scratch));
+
+    }
+
     public static List<String> getNamespacesFromResponse(String response) throws IOException {
 
         List<String> namespaces = new ArrayList<>();
@@ -837,41 +868,97 @@ public class AlertUtils {
                                    final SortedMap<String, String> tagMap,
                                    final String input_status_msg) {
 
-        final Map<String, IMetric> statusMap = getStatusMap(alertState);
-
         final TreeMap<String, String> stringStringTreeMap = new TreeMap<>();
         stringStringTreeMap.putAll(tagMap);
 
         removeNsAndAppFromMap(stringStringTreeMap);
 
-        final String status_msg;
+        sendStatus(statusWriter, alertName, alertType, timestamp, namespace,
+                alertState, alertId, stringStringTreeMap, input_status_msg);
+    }
 
-        if(input_status_msg != null) {
-            status_msg = input_status_msg;
-        } else {
-            status_msg = "alert " + alertId + " in state " + alertState.name();
+    /**
+     * Same as {@link #writeStatus(StatusWriter, AlertConfig, long, String,
+     * AlertState, long, SortedMap, String)} over tags held in parallel
+     * arrays: the tags of the status event are the only map built.
+     */
+    public static void writeStatus(final StatusWriter statusWriter,
+                                   final AlertConfig alertConfig,
+                                   final long timestamp,
+                                   final String namespace,
+                                   final AlertState alertState,
+                                   final long alertId,
+                                   final String[] tagKeys,
+                                   final String[] tagValues,
+                                   final int tagCount,
+                                   final String input_status_msg) {
+
+        final TreeMap<String, String> stringStringTreeMap = new TreeMap<>();
+        for (int i = 0; i < tagCount; i++) {
+            stringStringTreeMap.put(tagKeys[i], tagValues[i]);
         }
 
-        addSystemTags(
-                stringStringTreeMap,
+        removeNsAndAppFromMap(stringStringTreeMap);
+
+        sendStatus(statusWriter,
+                alertConfig.getAlertName(),
+                alertConfig.getAlertType().getString(),
+                timestamp,
+                namespace,
+                alertState,
                 alertId,
-                alertName,
-                alertType)
-        ;
-
-        final Datum datum = Datum.newBuilder()
-                .withCluster(namespace)
-                .withApplication(ALERTS_APPLICATION)
-                .withTags(new Tags(Collections.unmodifiableMap(stringStringTreeMap)))
-                .withMetrics(statusMap)
-                .withStatus_code(null)
-                .withStatus_msg(status_msg)
-                .withTimestamp(timestamp)
-                .build();
-        YmsStatusEvent ymsStatusEvent = new YmsStatusEvent();
-        ymsStatusEvent.setData(datum);
-        ymsStatusEvent.setAdditionalProperty("ALERT_SOURCE","alert");
-        statusWriter.process(ymsStatusEvent);
+                stringStringTreeMap,
+                input_status_msg);
+    }
+
+    /**
+     * @param stringStringTreeMap tags of the status event, owned by it.
+     */
+    private static void sendStatus(final StatusWriter statusWriter,
+                                   final String alertName,
+                                   final String alertType,
+                                   final long timestamp,
+                                   final String namespace,
+                                   final AlertState alertState,
+                                   final long alertId,
+                                   final TreeMap<String, String> stringStringTreeMap,
+                                   final String input_status_msg) {
+
+        final Phase previous = RunProfiler.enter(Phase.STATUS);
+        try {
+            final Map<String, IMetric> statusMap = getStatusMap(alertState);
+
+            final String status_msg;
+
+            if(input_status_msg != null) {
+                status_msg = input_status_msg;
+            } else {
+                status_msg = "alert " + alertId + " in state " + alertState.name();
+            }
+
+            addSystemTags(
+                    stringStringTreeMap,
+                    alertId,
+                    alertName,
+                    alertType)
+            ;
+
+            final Datum datum = Datum.newBuilder()
+                    .withCluster(namespace)
+                    .withApplication(ALERTS_APPLICATION)
+                    .withTags(new Tags(Collections.unmodifiableMap(stringStringTreeMap)))
+                    .withMetrics(statusMap)
+                    .withStatus_code(null)
+                    .withStatus_msg(status_msg)
+                    .withTimestamp(timestamp)
+                    .build();
+            YmsStatusEvent ymsStatusEvent = new YmsStatusEvent();
+            ymsStatusEvent.setData(datum);
+            ymsStatusEvent.setAdditionalProperty("ALERT_SOURCE","alert");
+            statusWriter.process(ymsStatusEvent);
+        } finally {
+            RunProfiler.exit(previous);
+        }
 
     }
 
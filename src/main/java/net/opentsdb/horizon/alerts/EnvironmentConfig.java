@@ -29,7 +29,9 @@ import java.io.FileInputStream;
 import java.io.IOException;
 import java.nio.charset.StandardCharsets;
 import java.util.Arrays;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
 import java.util.Properties;
 import java.util.concurrent.TimeUnit;
@@ -145,6 +147,168 @@ public class EnvironmentConfig {
 
     public static final String DEFAULT_KAFKA_MAX_SEND_RETRIES = "10";
 
+    public static final String KAFKA_BATCHED_ALERT_WRITES = "kafka_batched_alert_writes";
+
+    public static final String DEFAULT_KAFKA_BATCHED_ALERT_WRITES = "false";
+
+    public static final String EGADS_PRIMING_THREADS = "egads_priming_threads";
+
+    public static final String DEFAULT_EGADS_PRIMING_THREADS = "4";
+
+    public static final String EGADS_PRIMING_MAX_PENDING = "egads_priming_max_pending";
+
+    public static final String DEFAULT_EGADS_PRIMING_MAX_PENDING = "10000";
+
+    public static final String EGADS_PRIMING_LOCKED_BACKOFF_MS = "egads_priming_locked_backoff_ms";
+
+    public static final String DEFAULT_EGADS_PRIMING_LOCKED_BACKOFF_MS = "30000";
+
+    public static final String EGADS_PRIMING_LOCKED_MAX_RETRIES = "egads_priming_locked_max_retries";
+
+    public static final String DEFAULT_EGADS_PRIMING_LOCKED_MAX_RETRIES = "3";
+
+    public static final String STATUS_LOG_SAMPLE_RATE = "status_log_sample_rate";
+
+    public static final String DEFAULT_STATUS_LOG_SAMPLE_RATE = "1000";
+
+    public static final String INCREMENTAL_SLIDING_WINDOW_ENABLED = "incremental_sliding_window_enabled";
+
+    public static final String DEFAULT_INCREMENTAL_SLIDING_WINDOW_ENABLED = "false";
+
+    public static final String INCREMENTAL_WINDOW_OVERLAP_SECS = "incremental_window_overlap_secs";
+
+    public static final String DEFAULT_INCREMENTAL_WINDOW_OVERLAP_SECS = "120";
+
+    public static final String INCREMENTAL_WINDOW_MAX_GAP_SECS = "incremental_window_max_gap_secs";
+
+    public static final String DEFAULT_INCREMENTAL_WINDOW_MAX_GAP_SECS = "600";
+
+    public static final String TSDB_QUERY_DEDUP_ENABLED = "tsdb_query_dedup_enabled";
+
+    public static final String DEFAULT_TSDB_QUERY_DEDUP_ENABLED = "true";
+
+    public static final String TSDB_QUERY_RESULT_TTL_MS = "tsdb_query_result_ttl_ms";
+
+    public static final String DEFAULT_TSDB_QUERY_RESULT_TTL_MS = "30000";
+
+    public static final String TSDB_QUERY_RESULT_MAX_BYTES = "tsdb_query_result_max_bytes";
+
+    public static final String DEFAULT_TSDB_QUERY_RESULT_MAX_BYTES = "67108864";
+
+    public static final String NOTIFICATION_VALUES_MODE = "notification_values_mode";
+
+    public static final String NOTIFICATION_VALUES_MODE_QUERY = "query";
+
+    public static final String NOTIFICATION_VALUES_MODE_COMBINED = "combined";
+
+    public static final String TSDB_SHARED_CONNECTIONS = "tsdb_shared_connections";
+
+    public static final String DEFAULT_TSDB_SHARED_CONNECTIONS = "16";
+
+    public static final String CONFIG_FETCH_THREADS = "config_fetch_threads";
+
+    public static final String DEFAULT_CONFIG_FETCH_THREADS = "4";
+
+    public static final String STATE_MIGRATION_ENABLED = "state_migration_enabled";
+
+    public static final String DEFAULT_STATE_MIGRATION_ENABLED = "true";
+
+    public static final String STATE_MIGRATION_RUNS = "state_migration_runs";
+
+    public static final String DEFAULT_STATE_MIGRATION_RUNS = "5";
+
+    public static final String PARTITION_STRATEGY = "partition_strategy";
+
+    public static final String PARTITION_STRATEGY_MODULO = "modulo";
+
+    public static final String PARTITION_STRATEGY_RENDEZVOUS = "rendezvous";
+
+    public static final String PARTITION_STRATEGY_COST = "cost";
+
+    public static final String MIRROR_WEIGHTS = "mirror_weights";
+
+    public static final String ALERT_COST_MODEL_PATH = "alert_cost_model_path";
+
+    public static final String DEFAULT_ALERT_COST_MODEL_PATH = "";
+
+    public static final String ALERT_COST_MODEL_SAVE_INTERVAL_SECS = "alert_cost_model_save_interval_secs";
+
+    public static final String DEFAULT_ALERT_COST_MODEL_SAVE_INTERVAL_SECS = "300";
+
+    public static final String PLACEMENT_IMBALANCE = "placement_imbalance";
+
+    public static final String DEFAULT_PLACEMENT_IMBALANCE = "0.2";
+
+    public static final String PLACEMENT_REBALANCE_INTERVAL_SECS = "placement_rebalance_interval_secs";
+
+    public static final String DEFAULT_PLACEMENT_REBALANCE_INTERVAL_SECS = "900";
+
+    public static final String LOG_SAMPLE_RATIO = "log_sample_ratio";
+
+    public static final String DEFAULT_LOG_SAMPLE_RATIO = "1.0";
+
+    public static final String LOG_ALERT_RATE_LIMIT = "log_alert_rate_limit";
+
+    public static final String DEFAULT_LOG_ALERT_RATE_LIMIT = "20";
+
+    public static final String LOG_ALERT_RATE_WINDOW_SECS = "log_alert_rate_window_secs";
+
+    public static final String DEFAULT_LOG_ALERT_RATE_WINDOW_SECS = "60";
+
+    public static final String LOG_PAYLOAD_ALERT_IDS = "log_payload_alert_ids";
+
+    public static final String LOG_PAYLOAD_MAX_CHARS = "log_payload_max_chars";
+
+    public static final String DEFAULT_LOG_PAYLOAD_MAX_CHARS = "16384";
+
+    public static final String METRICS_REPORT_INTERVAL_SECS = "metrics_report_interval_secs";
+
+    public static final String DEFAULT_METRICS_REPORT_INTERVAL_SECS = "60";
+
+    public static final String METRICS_OPENTSDB_ENDPOINT = "metrics_opentsdb_endpoint";
+
+    public static final String METRICS_FILE_PATH = "metrics_file_path";
+
+    public static final String METRICS_SCRAPE_PATH = "metrics_scrape_path";
+
+    public static final String DEFAULT_METRICS_SCRAPE_PATH = "/metrics";
+
+    public static final String RUN_PROFILER_TOP_N = "run_profiler_top_n";
+
+    public static final String DEFAULT_RUN_PROFILER_TOP_N = "20";
+
+    public static final String RUN_PROFILER_WINDOW_SECS = "run_profiler_window_secs";
+
+    public static final String DEFAULT_RUN_PROFILER_WINDOW_SECS = "600";
+
+    public static final String RUN_PROFILER_ALLOCATION = "run_profiler_allocation";
+
+    public static final String DEFAULT_RUN_PROFILER_ALLOCATION = "true";
+
+    public static final String RUN_PROFILER_PATH = "run_profiler_path";
+
+    public static final String DEFAULT_RUN_PROFILER_PATH = "/runs/slowest";
+
+    public static final String KAFKA_CLIENT = "kafka_client";
+
+    public static final String KAFKA_CLIENT_LEGACY = "legacy";
+
+    public static final String KAFKA_COMPRESSION_TYPE = "kafka_compression_type";
+
+    public static final String DEFAULT_KAFKA_COMPRESSION_TYPE = "lz4";
+
+    public static final String KAFKA_LINGER_MS = "kafka_linger_ms";
+
+    public static final String DEFAULT_KAFKA_LINGER_MS = "50";
+
+    public static final String KAFKA_BATCH_SIZE_BYTES = "kafka_batch_size_bytes";
+
+    public static final String DEFAULT_KAFKA_BATCH_SIZE_BYTES = "262144";
+
+    public static final String KAFKA_ENABLE_IDEMPOTENCE = "kafka_enable_idempotence";
+
+    public static final String DEFAULT_KAFKA_ENABLE_IDEMPOTENCE = "false";
+
     public static final String HEARTBEAT_SERVER_PATH = "heartbeat_server_path";
 
     public static final String DEFAULT_HEARTBEAT_SERVER_PATH = "/health";
@@ -247,6 +411,24 @@ public class EnvironmentConfig {
 
     public static final String DEFAULT_COLLECTOR_URL = "";
 
+    public static final String COLLECTOR_CLIENT_MODE = "collector_client_mode";
+
+    public static final String DEFAULT_COLLECTOR_CLIENT_MODE = "legacy";
+
+    public static final String COLLECTOR_CLIENT_MODE_BATCHED = "batched";
+
+    public static final String COLLECTOR_GZIP_ENABLED = "collector_gzip_enabled";
+
+    public static final String DEFAULT_COLLECTOR_GZIP_ENABLED = "true";
+
+    public static final String COLLECTOR_POST_CONCURRENCY = "collector_post_concurrency";
+
+    public static final String DEFAULT_COLLECTOR_POST_CONCURRENCY = "4";
+
+    public static final String COLLECTOR_DROP_POLICY = "collector_drop_policy";
+
+    public static final String DEFAULT_COLLECTOR_DROP_POLICY = "drop_newest";
+
     public static final String PULSAR_CONSUMER_PREFIX = "pulsar_consumer_prefix";
 
     public static final String DEFAULT_PULSAR_CONSUMER_PREFIX = "horizon-alerts";
@@ -259,6 +441,10 @@ public class EnvironmentConfig {
 
     private static final String DEFAULT_PULSAR_MAX_PENDING_MESSAGES = "300";
 
+    private static final String STATE_HANDOFF_TIMEOUT_SECS = "state_handoff_timeout_secs";
+
+    private static final String DEFAULT_STATE_HANDOFF_TIMEOUT_SECS = "30";
+
     private static final String METRIC_ALERT_PURGE_INTERVAL_NM = "non_missing_purge_interval_metric";
 
     private static final String DEFAULT_METRIC_ALERT_PURGE_INTERVAL_NM = "86400";
@@ -449,6 +635,290 @@ public class EnvironmentConfig {
         return propertiesFile.getProperty(KAFKA_RETRY_BACKOFF,DEFAULT_KAFKA_RETRY_BACKOFF);
     }
 
+    public boolean isKafkaBatchedAlertWrites() {
+        return Boolean.parseBoolean(propertiesFile.getProperty(KAFKA_BATCHED_ALERT_WRITES,DEFAULT_KAFKA_BATCHED_ALERT_WRITES));
+    }
+
+    public int getEgadsPrimingThreads() {
+        return Integer.parseInt(propertiesFile.getProperty(EGADS_PRIMING_THREADS,DEFAULT_EGADS_PRIMING_THREADS));
+    }
+
+    public int getEgadsPrimingMaxPending() {
+        return Integer.parseInt(propertiesFile.getProperty(EGADS_PRIMING_MAX_PENDING,DEFAULT_EGADS_PRIMING_MAX_PENDING));
+    }
+
+    public long getEgadsPrimingLockedBackoffMs() {
+        return Long.parseLong(propertiesFile.getProperty(EGADS_PRIMING_LOCKED_BACKOFF_MS,DEFAULT_EGADS_PRIMING_LOCKED_BACKOFF_MS));
+    }
+
+    public int getEgadsPrimingLockedMaxRetries() {
+        return Integer.parseInt(propertiesFile.getProperty(EGADS_PRIMING_LOCKED_MAX_RETRIES,DEFAULT_EGADS_PRIMING_LOCKED_MAX_RETRIES));
+    }
+
+    /**
+     * @return log one in that many statuses, per alert run, of the alerts
+     * in {@link #getLogPayloadAlertIds()}.
+     */
+    public int getStatusLogSampleRate() {
+        return Math.max(1, Integer.parseInt(propertiesFile.getProperty(STATUS_LOG_SAMPLE_RATE,DEFAULT_STATUS_LOG_SAMPLE_RATE)));
+    }
+
+    /**
+     * @return true to evaluate summary alerts from a per alert window buffer,
+     * fetching only the newest intervals on every run.
+     */
+    public boolean isIncrementalSlidingWindowEnabled() {
+        return Boolean.parseBoolean(propertiesFile.getProperty(INCREMENTAL_SLIDING_WINDOW_ENABLED,DEFAULT_INCREMENTAL_SLIDING_WINDOW_ENABLED));
+    }
+
+    /**
+     * @return seconds before the last run re-fetched, to pick up late data.
+     */
+    public long getIncrementalWindowOverlapSecs() {
+        return Long.parseLong(propertiesFile.getProperty(INCREMENTAL_WINDOW_OVERLAP_SECS,DEFAULT_INCREMENTAL_WINDOW_OVERLAP_SECS));
+    }
+
+    /**
+     * @return longest time between runs before the full window is fetched again.
+     */
+    public long getIncrementalWindowMaxGapSecs() {
+        return Long.parseLong(propertiesFile.getProperty(INCREMENTAL_WINDOW_MAX_GAP_SECS,DEFAULT_INCREMENTAL_WINDOW_MAX_GAP_SECS));
+    }
+
+    /**
+     * @return true to run identical TSDB queries once, sharing the response.
+     */
+    public boolean isTsdbQueryDedupEnabled() {
+        return Boolean.parseBoolean(propertiesFile.getProperty(TSDB_QUERY_DEDUP_ENABLED,DEFAULT_TSDB_QUERY_DEDUP_ENABLED));
+    }
+
+    /**
+     * @return how long a response is served to later identical queries, 0 to
+     * only share between queries in flight.
+     */
+    public long getTsdbQueryResultTtlMs() {
+        return Long.parseLong(propertiesFile.getProperty(TSDB_QUERY_RESULT_TTL_MS,DEFAULT_TSDB_QUERY_RESULT_TTL_MS));
+    }
+
+    /**
+     * @return heap bound of the cached responses, 64 MiB by default, 0 to
+     * not cache.
+     */
+    public long getTsdbQueryResultMaxBytes() {
+        return Long.parseLong(propertiesFile.getProperty(TSDB_QUERY_RESULT_MAX_BYTES,DEFAULT_TSDB_QUERY_RESULT_MAX_BYTES));
+    }
+
+    /**
+     * @return true to take the values of firing series from the evaluation
+     * query, instead of a second query with the longer graph window.
+     */
+    public boolean isCombinedNotificationValues() {
+        return NOTIFICATION_VALUES_MODE_COMBINED.equalsIgnoreCase(
+                propertiesFile.getProperty(NOTIFICATION_VALUES_MODE,NOTIFICATION_VALUES_MODE_QUERY));
+    }
+
+    /**
+     * @return keep-alive connections per TSDB host shared by all monitors,
+     * 0 for a single connection per monitor.
+     */
+    public int getTsdbSharedConnections() {
+        return Integer.parseInt(propertiesFile.getProperty(TSDB_SHARED_CONNECTIONS,DEFAULT_TSDB_SHARED_CONNECTIONS));
+    }
+
+    /**
+     * @return namespaces fetched in parallel from the config DB.
+     */
+    public int getConfigFetchThreads() {
+        return Integer.parseInt(propertiesFile.getProperty(CONFIG_FETCH_THREADS,DEFAULT_CONFIG_FETCH_THREADS));
+    }
+
+    /**
+     * @return true to keep the monitor, and the state of series still
+     * returned, when only the query of an alert changed.
+     */
+    public boolean isStateMigrationEnabled() {
+        return Boolean.parseBoolean(propertiesFile.getProperty(STATE_MIGRATION_ENABLED,DEFAULT_STATE_MIGRATION_ENABLED));
+    }
+
+    /**
+     * @return number of runs after a query change within which a carried
+     * over state has to be returned by the new query to be kept.
+     */
+    public int getStateMigrationRuns() {
+        return Integer.parseInt(propertiesFile.getProperty(STATE_MIGRATION_RUNS,DEFAULT_STATE_MIGRATION_RUNS));
+    }
+
+    /**
+     * @return true to assign alerts by rendezvous hashing over the live
+     * mirrors, instead of alert id modulo the configured counts.
+     */
+    public boolean isRendezvousPartitioning() {
+        return PARTITION_STRATEGY_RENDEZVOUS.equalsIgnoreCase(
+                propertiesFile.getProperty(PARTITION_STRATEGY,PARTITION_STRATEGY_MODULO));
+    }
+
+    /**
+     * @return true to run all daemons in this process and place alerts on
+     * them by observed evaluation cost. Mirrors are still assigned by
+     * rendezvous hashing.
+     */
+    public boolean isCostPartitioning() {
+        return PARTITION_STRATEGY_COST.equalsIgnoreCase(
+                propertiesFile.getProperty(PARTITION_STRATEGY,PARTITION_STRATEGY_MODULO));
+    }
+
+    /**
+     * @return file the alert cost model is kept in across restarts, empty
+     * to keep it in memory only.
+     */
+    public String getAlertCostModelPath() {
+        return propertiesFile.getProperty(ALERT_COST_MODEL_PATH,DEFAULT_ALERT_COST_MODEL_PATH);
+    }
+
+    public long getAlertCostModelSaveIntervalSecs() {
+        return Long.parseLong(propertiesFile.getProperty(ALERT_COST_MODEL_SAVE_INTERVAL_SECS,
+                DEFAULT_ALERT_COST_MODEL_SAVE_INTERVAL_SECS));
+    }
+
+    /**
+     * @return how far above the mean the most loaded daemon may get before
+     * all alerts are placed again, 0.2 for 20%.
+     */
+    public double getPlacementImbalance() {
+        return Double.parseDouble(propertiesFile.getProperty(PLACEMENT_IMBALANCE,DEFAULT_PLACEMENT_IMBALANCE));
+    }
+
+    public long getPlacementRebalanceIntervalSecs() {
+        return Long.parseLong(propertiesFile.getProperty(PLACEMENT_REBALANCE_INTERVAL_SECS,
+                DEFAULT_PLACEMENT_REBALANCE_INTERVAL_SECS));
+    }
+
+    /**
+     * @return relative share of alerts by mirror host, from
+     * {@code host:weight} pairs. Unlisted mirrors weigh 1.
+     */
+    public Map<String, Double> getMirrorWeights() {
+        final Map<String, Double> weights = new HashMap<>();
+        getList(MIRROR_WEIGHTS, null, ",").ifPresent(pairs -> {
+            for (String pair : pairs) {
+                final int colon = pair.lastIndexOf(':');
+                if (colon > 0) {
+                    weights.put(pair.substring(0, colon).trim(),
+                            Double.parseDouble(pair.substring(colon + 1).trim()));
+                }
+            }
+        });
+        return weights;
+    }
+
+    /**
+     * @return share of alerts, by id, whose per run lines are logged.
+     */
+    public double getLogSampleRatio() {
+        return Double.parseDouble(propertiesFile.getProperty(LOG_SAMPLE_RATIO,DEFAULT_LOG_SAMPLE_RATIO));
+    }
+
+    /**
+     * @return lines per alert and logger kept in each rate window, 0 for
+     * no limit.
+     */
+    public int getLogAlertRateLimit() {
+        return Integer.parseInt(propertiesFile.getProperty(LOG_ALERT_RATE_LIMIT,DEFAULT_LOG_ALERT_RATE_LIMIT));
+    }
+
+    public long getLogAlertRateWindowSecs() {
+        return Long.parseLong(propertiesFile.getProperty(LOG_ALERT_RATE_WINDOW_SECS,DEFAULT_LOG_ALERT_RATE_WINDOW_SECS));
+    }
+
+    /**
+     * @return alert ids to log queries, responses and events of.
+     */
+    public Optional<List<String>> getLogPayloadAlertIds() {
+        return getList(LOG_PAYLOAD_ALERT_IDS, null, ",");
+    }
+
+    public int getLogPayloadMaxChars() {
+        return Integer.parseInt(propertiesFile.getProperty(LOG_PAYLOAD_MAX_CHARS,DEFAULT_LOG_PAYLOAD_MAX_CHARS));
+    }
+
+    public int getMetricsReportIntervalSecs() {
+        return Integer.parseInt(propertiesFile.getProperty(METRICS_REPORT_INTERVAL_SECS,DEFAULT_METRICS_REPORT_INTERVAL_SECS));
+    }
+
+    /**
+     * @return base url of an OpenTSDB compatible endpoint to push the
+     * self-report metrics to, none if empty.
+     */
+    public String getMetricsOpenTsdbEndpoint() {
+        return propertiesFile.getProperty(METRICS_OPENTSDB_ENDPOINT);
+    }
+
+    /**
+     * @return file to append the self-report metrics to, none if empty.
+     */
+    public String getMetricsFilePath() {
+        return propertiesFile.getProperty(METRICS_FILE_PATH);
+    }
+
+    /**
+     * @return heartbeat server path serving the self-report metrics in the
+     * Prometheus text format, disabled if empty.
+     */
+    public String getMetricsScrapePath() {
+        return propertiesFile.getProperty(METRICS_SCRAPE_PATH,DEFAULT_METRICS_SCRAPE_PATH);
+    }
+
+    /**
+     * @return number of slowest alerts the run profiler keeps, 0 disables
+     * profiling.
+     */
+    public int getRunProfilerTopN() {
+        return Integer.parseInt(propertiesFile.getProperty(RUN_PROFILER_TOP_N,DEFAULT_RUN_PROFILER_TOP_N));
+    }
+
+    public int getRunProfilerWindowSecs() {
+        return Integer.parseInt(propertiesFile.getProperty(RUN_PROFILER_WINDOW_SECS,DEFAULT_RUN_PROFILER_WINDOW_SECS));
+    }
+
+    /**
+     * @return true to also measure the bytes allocated by each phase.
+     */
+    public boolean isRunProfilerAllocation() {
+        return Boolean.parseBoolean(propertiesFile.getProperty(RUN_PROFILER_ALLOCATION,DEFAULT_RUN_PROFILER_ALLOCATION));
+    }
+
+    /**
+     * @return heartbeat server path serving the slowest runs as json,
+     * disabled if empty.
+     */
+    public String getRunProfilerPath() {
+        return propertiesFile.getProperty(RUN_PROFILER_PATH,DEFAULT_RUN_PROFILER_PATH);
+    }
+
+    /**
+     * @return true to write through {@code org.apache.kafka.clients} instead
+     * of the legacy 0.8 producer pool.
+     */
+    public boolean isKafkaClientEnabled() {
+        return !KAFKA_CLIENT_LEGACY.equalsIgnoreCase(propertiesFile.getProperty(KAFKA_CLIENT,KAFKA_CLIENT_LEGACY));
+    }
+
+    public String getKafkaCompressionType() {
+        return propertiesFile.getProperty(KAFKA_COMPRESSION_TYPE,DEFAULT_KAFKA_COMPRESSION_TYPE);
+    }
+
+    public String getKafkaLingerMs() {
+        return propertiesFile.getProperty(KAFKA_LINGER_MS,DEFAULT_KAFKA_LINGER_MS);
+    }
+
+    public String getKafkaBatchSizeBytes() {
+        return propertiesFile.getProperty(KAFKA_BATCH_SIZE_BYTES,DEFAULT_KAFKA_BATCH_SIZE_BYTES);
+    }
+
+    public boolean isKafkaIdempotenceEnabled() {
+        return Boolean.parseBoolean(propertiesFile.getProperty(KAFKA_ENABLE_IDEMPOTENCE,DEFAULT_KAFKA_ENABLE_IDEMPOTENCE));
+    }
+
     public String getHeartbeatServerPath() {
         return propertiesFile.getProperty(HEARTBEAT_SERVER_PATH,DEFAULT_HEARTBEAT_SERVER_PATH);
     }
@@ -587,6 +1057,23 @@ public class EnvironmentConfig {
         return propertiesFile.getProperty(COLLECTOR_URL, DEFAULT_COLLECTOR_URL);
     }
 
+    public boolean isBatchedCollectorClient() {
+        return COLLECTOR_CLIENT_MODE_BATCHED.equalsIgnoreCase(
+                propertiesFile.getProperty(COLLECTOR_CLIENT_MODE, DEFAULT_COLLECTOR_CLIENT_MODE));
+    }
+
+    public boolean isCollectorGzipEnabled() {
+        return Boolean.parseBoolean(propertiesFile.getProperty(COLLECTOR_GZIP_ENABLED, DEFAULT_COLLECTOR_GZIP_ENABLED));
+    }
+
+    public int getCollectorPostConcurrency() {
+        return Integer.parseInt(propertiesFile.getProperty(COLLECTOR_POST_CONCURRENCY, DEFAULT_COLLECTOR_POST_CONCURRENCY));
+    }
+
+    public String getCollectorDropPolicy() {
+        return propertiesFile.getProperty(COLLECTOR_DROP_POLICY, DEFAULT_COLLECTOR_DROP_POLICY);
+    }
+
     public boolean isPulsarStatePersistenceEnabled() {
         return Boolean.parseBoolean(
                 propertiesFile.getProperty(
@@ -610,6 +1097,16 @@ public class EnvironmentConfig {
                 .getProperty(PULSAR_MAX_PENDING_MESSAGES, DEFAULT_PULSAR_MAX_PENDING_MESSAGES));
     }
 
+    /**
+     * @return seconds the config fetch waits for the state of alerts taken
+     * over from other mirrors. A later handoff still serves the alerts not
+     * run yet.
+     */
+    public int getStateHandoffTimeoutSecs() {
+        return Integer.parseInt(propertiesFile
+                .getProperty(STATE_HANDOFF_TIMEOUT_SECS, DEFAULT_STATE_HANDOFF_TIMEOUT_SECS));
+    }
+
     public Producer getPulsarPersistorConfig() {
         try {
             return PulsarClientSingleton.get().newProducer()
@@ -0,0 +1,94 @@
+/*
+ * This file is part of OpenTSDB.
+ * Copyright (C) 2021 Yahoo.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package net.opentsdb.horizon.alerts;
+
+import net.opentsdb.horizon.alerts.monitor.Monitor;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Moves monitors between the daemons of a process, for alerts placed on
+ * another daemon by cost. The monitor keeps its executor, with the state
+ * of the alert, and its last run time, so the alert is neither reset nor
+ * run by both daemons for the same interval.
+ *
+ * A daemon has to {@link #acquire(long, int)} an alert before creating
+ * its monitor, and gets it only after the previous holder released it.
+ * Monitors released but not taken, for alerts moved to another mirror,
+ * are dropped after a while.
+ */
+public class MonitorHandover {
+
+    private final Map<Long, Integer> holders = new ConcurrentHashMap<>();
+
+    private final Map<Long, Parked> parked = new ConcurrentHashMap<>();
+
+    private final long ttlMs;
+
+    /**
+     * @param ttlMs how long a released monitor waits for another daemon.
+     */
+    public MonitorHandover(final long ttlMs) {
+        this.ttlMs = ttlMs;
+    }
+
+    /**
+     * @return false while another daemon still holds the alert.
+     */
+    public boolean acquire(final long alertId, final int daemon) {
+        return holders.computeIfAbsent(alertId, id -> daemon) == daemon;
+    }
+
+    /**
+     * @return the monitor released by the previous holder, if any.
+     */
+    public Monitor take(final long alertId) {
+        expire(System.currentTimeMillis());
+        final Parked released = parked.remove(alertId);
+        return released == null ? null : released.monitor;
+    }
+
+    /**
+     * @param monitor to hand to the next holder, null if the alert was
+     *                deleted or its monitor is still running.
+     */
+    public void release(final long alertId, final int daemon, final Monitor monitor) {
+        if (monitor != null) {
+            parked.put(alertId, new Parked(monitor, System.currentTimeMillis()));
+        }
+        holders.remove(alertId, daemon);
+    }
+
+    private void expire(final long nowMs) {
+        parked.values().removeIf(released -> nowMs - released.releasedAtMs > ttlMs);
+    }
+
+    private static final class Parked {
+
+        private final Monitor monitor;
+
+        private final long releasedAtMs;
+
+        private Parked(final Monitor monitor, final long releasedAtMs) {
+            this.monitor = monitor;
+            this.releasedAtMs = releasedAtMs;
+        }
+    }
+}
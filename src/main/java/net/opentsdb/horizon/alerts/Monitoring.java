@@ -20,15 +20,21 @@ package net.opentsdb.horizon.alerts;
 import net.opentsdb.horizon.alerts.config.AlertConfig;
 import net.opentsdb.horizon.alerts.monitor.Monitor;
 import net.opentsdb.horizon.alerts.enums.AlertState;
+import net.opentsdb.horizon.alerting.corona.monitoring.FileMetricSink;
+import net.opentsdb.horizon.alerting.corona.monitoring.MetricsReporter;
+import net.opentsdb.horizon.alerting.corona.monitoring.OpenTsdbHttpSink;
 import io.ultrabrew.metrics.*;
 import io.ultrabrew.metrics.data.*;
 import joptsimple.internal.Strings;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import java.io.File;
+import java.io.IOException;
 import java.util.Collections;
 import java.util.HashMap;
 import java.util.Map;
+import java.util.Objects;
 import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.ConcurrentMap;
 import java.util.function.Function;
@@ -67,8 +73,13 @@ public class Monitoring {
         gauge("collector.queue.size",size);
     }
 
+    public void gaugeCollectorQueueRemainingCapacity(int remaining, String type, int index) {
+        gauge("collector.queue.remaining", remaining,
+                new String[] {"type", type, "index", String.valueOf(index)});
+    }
+
     public void gaugeNumberOfMonitors(Long key, String namespace) {
-        gauge("numberOfMonitors",1, getTagsNamespaceAlertId(namespace, key));
+        set(numberOfMonitors,1, alertMetrics(namespace, key).tags);
     }
 
     public void countThreadAlmostDied() {
@@ -85,6 +96,13 @@ public class Monitoring {
                 alertConfig.getAlertId(),alertConfig.getAlertType().toString()));
     }
 
+    public void countMigratedStates(AlertConfig alertConfig, int kept, int dropped) {
+        final String[] tags = getTagsNamespaceAlertId(alertConfig.getNamespace(),
+                alertConfig.getAlertId());
+        count("migratedStatesKept",kept,tags);
+        count("migratedStatesDropped",dropped,tags);
+    }
+
     public void countTSNotEnoughForEval(long alertId, String namespace, String alertConfigType,
                                         String state) {
         count("tsNotEnoughForEval", getTagsNamespaceAlertIdConfigTypeState(namespace,
@@ -130,10 +148,71 @@ public class Monitoring {
 
     }
 
+    /**
+     * Tags of an alert, built once and passed as is on every run, so the
+     * per-run metrics of an alert record without allocating.
+     */
+    private static final class AlertMetrics {
+
+        private final String namespace;
+
+        private final String[] tags;
+
+        private final String[][] stateTags;
+
+        private AlertMetrics(final String namespace, final long alertId) {
+            this.namespace = namespace;
+            final String id = String.valueOf(alertId);
+            this.tags = new String[] {"alertId", id, "namespace", namespace};
+            final AlertState[] states = AlertState.values();
+            this.stateTags = new String[states.length][];
+            for (AlertState state : states) {
+                stateTags[state.ordinal()] = new String[] {"alertId", id,
+                        "namespace", namespace, "alertType", state.name()};
+            }
+        }
+    }
+
     private final ConcurrentMap<String, MetricRegistry> registries;
 
+    private final MetricsReporter reporter;
+
     private final MetricRegistry selfReportRegistry;
 
+    private final ConcurrentMap<Long, AlertMetrics> alertMetrics = new ConcurrentHashMap<>();
+
+    private final ConcurrentMap<Integer, String[]> mirrorTags = new ConcurrentHashMap<>();
+
+    private final Gauge numberOfMonitors;
+
+    private final Timer tsdQueryLatency;
+
+    private final Timer alertEvaluationDelay;
+
+    private final Counter tsdErrors;
+
+    private final Counter tsdRequests;
+
+    private final Counter alertsWrittenToKafka;
+
+    private final Counter processingSummariesErrors;
+
+    private final Counter processingNonSummariesErrors;
+
+    private final Counter heartBeatProcessingNonSummariesErrors;
+
+    private final Counter postProcessingErrors;
+
+    private final Counter timeSeriesEvaluated;
+
+    private final Counter timeSeriesInGoodState;
+
+    private final Counter timeSeriesInBadState;
+
+    private final Counter timeSeriesInWarnState;
+
+    private final Counter alertsRaised;
+
     private static class Wrapper {
         public static final Monitoring MONITORING = new Monitoring();
     }
@@ -146,35 +225,104 @@ public class Monitoring {
                     "selfReportNamespace cannot be null nor empty.");
         }
         this.registries = new ConcurrentHashMap<>();
+        this.reporter = createReporter(new EnvironmentConfig());
         this.selfReportRegistry = createAndAddRegistry(selfReportNamespace);
+
+        this.numberOfMonitors = selfReportRegistry.gauge("numberOfMonitors");
+        this.tsdQueryLatency = selfReportRegistry.timer("tsdQueryLatency");
+        this.alertEvaluationDelay = selfReportRegistry.timer("alertEvaluationDelay");
+        this.tsdErrors = selfReportRegistry.counter("countTsdError");
+        this.tsdRequests = selfReportRegistry.counter("numTsdRequests");
+        this.alertsWrittenToKafka = selfReportRegistry.counter("alertsWrittenTokafka");
+        this.processingSummariesErrors = selfReportRegistry.counter("countProcessingSummariesError");
+        this.processingNonSummariesErrors = selfReportRegistry.counter("countProcessingNonSummariesError");
+        this.heartBeatProcessingNonSummariesErrors =
+                selfReportRegistry.counter("countHeartBeatProcessingNonSummariesError");
+        this.postProcessingErrors = selfReportRegistry.counter("countPostProcessingError");
+        this.timeSeriesEvaluated = selfReportRegistry.counter("timeSeriesEvaluated");
+        this.timeSeriesInGoodState = selfReportRegistry.counter("timeSeriesInGoodState");
+        this.timeSeriesInBadState = selfReportRegistry.counter("timeSeriesInBadState");
+        this.timeSeriesInWarnState = selfReportRegistry.counter("timeSeriesInWarnState");
+        this.alertsRaised = selfReportRegistry.counter("alertsRaised");
     }
 
     Monitoring(){this(DEFAULT_SELF_REPORT_NAMESPACE);}
 
     public static Monitoring get() {return Wrapper.MONITORING;}
 
-    private synchronized MetricRegistry createAndAddRegistry(
-            final String namespaceName) {
-        if (registries.containsKey(namespaceName)) {
-            return registries.get(namespaceName);
-        }
-        final EnvironmentConfig environmentConfig = new EnvironmentConfig();
+    /**
+     * Windows are pushed to the OpenTSDB endpoint and appended to the file
+     * when configured, and served by the heartbeat server for scraping.
+     */
+    private static MetricsReporter createReporter(final EnvironmentConfig environmentConfig) {
 
         Map<String,String> STATIC_TAG_MAP =
                      new HashMap<String,String>(){{
-                             this.put(CONTAINER_NAME,environmentConfig.getContainerName());
                              this.put(CONTAINER_NAME,environmentConfig.getContainerName());
                              if(!Strings.isNullOrEmpty(environmentConfig.getBaseHost())) {
                                      this.put(HOST,environmentConfig.getBaseHost());
                                  }
                          }};
+        final MetricsReporter.Builder builder = MetricsReporter.builder()
+                .setAggregators(FUNCTION_MAP)
+                .setPrefix(APPLICATION_NAME + ".")
+                .setStaticTags(STATIC_TAG_MAP)
+                .setIntervalSecs(environmentConfig.getMetricsReportIntervalSecs());
+
+        final String endpoint = environmentConfig.getMetricsOpenTsdbEndpoint();
+        if (!Strings.isNullOrEmpty(endpoint)) {
+            builder.addSink(OpenTsdbHttpSink.create(endpoint.trim()));
+        }
+        final String path = environmentConfig.getMetricsFilePath();
+        if (!Strings.isNullOrEmpty(path)) {
+            try {
+                builder.addSink(new FileMetricSink(new File(path.trim())));
+            } catch (IOException e) {
+                LOG.error("Unable to open metrics file {}", path, e);
+            }
+        }
+        final MetricsReporter reporter = builder.build();
+        reporter.start();
+        return reporter;
+    }
+
+    private synchronized MetricRegistry createAndAddRegistry(
+            final String namespaceName) {
+        if (registries.containsKey(namespaceName)) {
+            return registries.get(namespaceName);
+        }
         final MetricRegistry registry = new MetricRegistry();
-        // TODO - configuration of reporters.
-        //registry.addReporter(reporter);
+        registry.addReporter(reporter);
         registries.put(namespaceName, registry);
         return registry;
     }
 
+    /**
+     * @return the reporter of the self-report metrics, for the scrape
+     * endpoint.
+     */
+    public MetricsReporter getReporter() {
+        return reporter;
+    }
+
+    private AlertMetrics alertMetrics(final String namespace, final long alertId) {
+        final AlertMetrics metrics = alertMetrics.get(alertId);
+        if (metrics != null && Objects.equals(metrics.namespace, namespace)) {
+            return metrics;
+        }
+        // A moved alert gets the tags of its new namespace.
+        final AlertMetrics added = new AlertMetrics(namespace, alertId);
+        alertMetrics.put(alertId, added);
+        return added;
+    }
+
+    /**
+     * Drops the cached tags of a deleted alert.
+     */
+    public void evictAlert(final long alertId) {
+        alertMetrics.remove(alertId);
+    }
+
     private void time(final String metricName,
                       final long duration,
                       final String ... tags) {
@@ -215,12 +363,73 @@ public class Monitoring {
         }
     }
 
+    private void update(final Timer timer,
+                      final long duration,
+                      final String[] tags) {
+        try {
+            timer.update(duration, tags);
+        } catch (IllegalArgumentException iae) {
+            LOG.error("Reporting time for {}, duration {}",
+                    timer.id, duration, iae);
+        }
+    }
+
+    private void inc(final Counter counter,
+                       final long count,
+                       final String[] tags) {
+        try {
+            counter.inc(count, tags);
+        } catch (IllegalArgumentException iae) {
+            LOG.error("Reporting count for {}", counter.id, iae);
+        }
+    }
+
+    private void set(final Gauge gauge,
+                       final long value,
+                       final String[] tags) {
+        try {
+            gauge.set(value, tags);
+        } catch (IllegalArgumentException iae) {
+            LOG.error("Reporting gauge for {}, value {}",
+                    gauge.id, value, iae);
+        }
+    }
+
     public void timeConfigFetchTime(long valueInNanoSecs,int mirrorId) {
-        time("configFetchTime",valueInNanoSecs,new String[]{"mirrorId",String.valueOf(mirrorId)});
+        time("configFetchTime",valueInNanoSecs,
+                mirrorTags.computeIfAbsent(mirrorId, id -> new String[]{"mirrorId",String.valueOf(id)}));
     }
 
     public void timeTsdQueryRunTime(long diffInMs, long alertId, String namespace) {
-        time("tsdQueryLatency",diffInMs,getTagsNamespaceAlertId(namespace,alertId));
+        update(tsdQueryLatency,diffInMs,alertMetrics(namespace,alertId).tags);
+    }
+
+    public void timeEgadsPrimingLag(long lagMs, String namespace, long alertId) {
+        time("egadsPrimingLag",lagMs,alertMetrics(namespace,alertId).tags);
+    }
+
+    public void timeEgadsPrimingLatency(long diffInMs, String namespace, long alertId) {
+        time("egadsPrimingLatency",diffInMs,alertMetrics(namespace,alertId).tags);
+    }
+
+    public void countEgadsPrimingOutcome(String namespace, long alertId, String outcome) {
+        count("egadsPrimingOutcome",
+                new String[] {"namespace", namespace, "alertId",
+                        String.valueOf(alertId), "outcome", outcome});
+    }
+
+    public void gaugeEgadsPrimingPending(int pending) {
+        gauge("egadsPrimingPending",pending);
+    }
+
+    public void countTsdbQueryDedup(String namespace, String outcome) {
+        count("tsdbQueryDedup",
+                new String[] {"namespace", namespace, "outcome", outcome});
+    }
+
+    public void gaugeTsdbQueryDedupRatios(long hitPercent, long coalescePercent) {
+        gauge("tsdbQueryDedupHitRatio",hitPercent);
+        gauge("tsdbQueryDedupCoalesceRatio",coalescePercent);
     }
 
     public void reportCollectorPostLatency(long diffInMs, String namespace, String type, int index) {
@@ -267,37 +476,48 @@ public class Monitoring {
                 getTagsNamespaceTypeIndex(namespace, type, index));
     }
 
+    public void incDroppedCollectorEvent(String namespace, String type, int index,
+                                         String reason, int count) {
+        count("droppedPostsToCollector", count,
+                new String[] {"namespace", namespace, "type", type,
+                        "index", String.valueOf(index), "reason", reason});
+    }
+
 
     public void countProcessingSummariesError(long alertId, String namespace) {
-        count("countProcessingSummariesError",1,getTagsNamespaceAlertId(namespace,alertId));
+        inc(processingSummariesErrors,1,alertMetrics(namespace,alertId).tags);
+    }
+
+    public void countSlidingWindowQuery(String namespace, long alertId, String mode) {
+        count("countSlidingWindowQuery",1,"alertId",String.valueOf(alertId),"namespace",namespace,"mode",mode);
     }
 
     public void countProcessingNonSummariesError(long alertId, String namespace) {
-        count("countProcessingNonSummariesError",1,getTagsNamespaceAlertId(namespace,alertId));
+        inc(processingNonSummariesErrors,1,alertMetrics(namespace,alertId).tags);
     }
 
     public void countHeartBeatProcessingNonSummariesError(long alertId, String namespace) {
-        count("countHeartBeatProcessingNonSummariesError",1,getTagsNamespaceAlertId(namespace,alertId));
+        inc(heartBeatProcessingNonSummariesErrors,1,alertMetrics(namespace,alertId).tags);
     }
 
     public void countPostProcessingError(long alertId, String namespace) {
-        count("countPostProcessingError",1,getTagsNamespaceAlertId(namespace,alertId));
+        inc(postProcessingErrors,1,alertMetrics(namespace,alertId).tags);
     }
 
     public void countTsdbErrors(int errors,long alertId,String namespace) {
-        count("countTsdError",errors,getTagsNamespaceAlertId(namespace,alertId));
+        inc(tsdErrors,errors,alertMetrics(namespace,alertId).tags);
     }
 
     public void countTsdbRequests(int request,long alertId, String namespace) {
-        count("numTsdRequests",request,getTagsNamespaceAlertId(namespace,alertId));
+        inc(tsdRequests,request,alertMetrics(namespace,alertId).tags);
     }
 
     public void incAlertsWrittenToKafka(long alertId, String namespace) {
-        count("alertsWrittenTokafka",1,getTagsNamespaceAlertId(namespace,alertId));
+        inc(alertsWrittenToKafka,1,alertMetrics(namespace,alertId).tags);
     }
 
     public void incStatusesWrittenToKafka(long alertId, String namespace) {
-        count("alertsWrittenTokafka",1,getTagsNamespaceAlertId(namespace,alertId));
+        inc(alertsWrittenToKafka,1,alertMetrics(namespace,alertId).tags);
     }
 
     public void reportDelay(Monitor monitor) {
@@ -311,11 +531,11 @@ public class Monitoring {
     }
 
     public void timeAlertEvaluationDelay(long valueInSecs, String namespace, long alertId) {
-        time("alertEvaluationDelay",valueInSecs,getTagsNamespaceAlertId(namespace,alertId));
+        update(alertEvaluationDelay,valueInSecs,alertMetrics(namespace,alertId).tags);
     }
 
     public void countTimeseriesEvaluated(long count, String namespace, long alertId, AlertState type) {
-        count("timeSeriesEvaluated",count,getTagsNamespaceAlertIdType(namespace,alertId,type));
+        inc(timeSeriesEvaluated,count,alertMetrics(namespace,alertId).stateTags[type.ordinal()]);
     }
 
     public void countTotalStatusesSeen(int totalStatuses, String[] tags) {
@@ -333,20 +553,20 @@ public class Monitoring {
     public void reportSeriesInState(long count, String namespace, long alertId, AlertState type) {
         switch (type) {
             case GOOD:
-                count("timeSeriesInGoodState",count,getTagsNamespaceAlertIdType(namespace,alertId,AlertState.GOOD));
+                inc(timeSeriesInGoodState,count,alertMetrics(namespace,alertId).stateTags[AlertState.GOOD.ordinal()]);
             break;
             case BAD:
-                count("timeSeriesInBadState",count,getTagsNamespaceAlertIdType(namespace,alertId,AlertState.BAD));
+                inc(timeSeriesInBadState,count,alertMetrics(namespace,alertId).stateTags[AlertState.BAD.ordinal()]);
                 break;
             case WARN:
-                count("timeSeriesInWarnState",count,getTagsNamespaceAlertIdType(namespace,alertId,AlertState.WARN));
+                inc(timeSeriesInWarnState,count,alertMetrics(namespace,alertId).stateTags[AlertState.WARN.ordinal()]);
                 break;
 
         }
     }
 
     public void reportAlertsRaised(long count,String namespace, long alertId, AlertState type) {
-        count("alertsRaised",count,getTagsNamespaceAlertIdType(namespace,alertId,type));
+        inc(alertsRaised,count,alertMetrics(namespace,alertId).stateTags[type.ordinal()]);
     }
 
     public void statePersistenceTotalTimeMs(long deltaMs, final String[] tags)  {
@@ -411,11 +631,6 @@ public class Monitoring {
         return new String[] {"namespace", namespace, "type", type, "index", String.valueOf(index)};
     }
 
-    private String[] getTagsNamespaceAlertIdType(String namespace, long alertId, AlertState type) {
-
-        return new String[] {"alertId", String.valueOf(alertId) ,"namespace", namespace,"alertType",type.name()};
-    }
-
     private static String[] getTagsNamespaceAlertIdConfigType(String namespace, long alertId, String alertConfigType) {
 
         return new String[] {"alertId", String.valueOf(alertId) ,"namespace", namespace,"alertConfigType",alertConfigType};
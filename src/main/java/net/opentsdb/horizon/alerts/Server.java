@@ -21,6 +21,7 @@ import net.opentsdb.horizon.alerts.config.AlertConfig;
 import net.opentsdb.horizon.alerts.config.AlertConfigFetcher;
 import net.opentsdb.horizon.alerts.config.ConfigOrchestrator;
 import net.opentsdb.horizon.alerts.heartbeat.HeartbeatServer;
+import net.opentsdb.horizon.alerts.profile.RunProfiler;
 import net.opentsdb.horizon.alerts.state.persistence.PulsarClientSingleton;
 import net.opentsdb.horizon.alerts.state.persistence.PulsarStatePersistor;
 import net.opentsdb.horizon.alerts.state.persistence.PulsarStateProvider;
@@ -43,6 +44,7 @@ import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
 
 public class Server {
 
@@ -69,6 +71,11 @@ public class Server {
                 environmentConfig.getMirrorId(),
                 environmentConfig.getNumberOfMirrors());
 
+        if (environmentConfig.isCostPartitioning()) {
+            startPlacedDaemons(environmentConfig);
+            return;
+        }
+
         final AlertConfigFetcher alertConfigFetcher
                 = ConfigOrchestrator.getAlertConfigFetcher(0);
 
@@ -80,6 +87,26 @@ public class Server {
             alertDaemon = daemon.startDaemon();
     }
 
+    /**
+     * Runs every daemon of this mirror in process, with alerts placed on
+     * them by their observed evaluation cost.
+     */
+    private static void startPlacedDaemons(final EnvironmentConfig environmentConfig) {
+        tryInitializeStatePersistence(
+                environmentConfig,
+                ConfigOrchestrator.getMirrorConfigFetcher());
+
+        // Alerts moved between daemons keep their monitor, if taken within
+        // a few runs.
+        final MonitorHandover monitorHandover = new MonitorHandover(
+                TimeUnit.SECONDS.toMillis(4 * environmentConfig.getAlertDaemonRunFreqSecs()));
+        for (int i = 0; i < environmentConfig.getNumberOfDaemons(); i++) {
+            final AlertDaemon daemon = new AlertDaemon(i,
+                    ConfigOrchestrator.getAlertConfigFetcher(i), monitorHandover);
+            daemonList.put(daemon, daemon.startDaemon());
+        }
+    }
+
     private static void tryInitializeStatePersistence(
             final EnvironmentConfig config,
             final AlertConfigFetcher alertConfigFetcher) {
@@ -191,6 +218,10 @@ public class Server {
         }
         HeartbeatServer heartbeatServer = new HeartbeatServer(hostname, environmentConfig.getPort(),
                 environmentConfig.getHeartbeatServerPath());
+        heartbeatServer.setMetrics(environmentConfig.getMetricsScrapePath(),
+                Monitoring.get().getReporter());
+        heartbeatServer.setRunProfiler(environmentConfig.getRunProfilerPath(),
+                RunProfiler.get());
         heartbeatServer.start();
         return heartbeatServer;
     }
@@ -178,6 +178,19 @@ public abstract class AlertConfig {
         }
     }
 
+    /**
+     * Whether the state of a config can be carried over to a config which
+     * is not {@link #updatable(AlertConfig)} because its query changed.
+     *
+     * @param alertConfig
+     * @return
+     */
+    public boolean migratable(AlertConfig alertConfig) {
+        return alertConfig.getClass() == this.getClass()
+                && alertConfig.getAlertId() == this.alertId
+                && alertConfig.namespace.equals(this.namespace);
+    }
+
     /**
      * Whether a config can be updated without reset
      *
@@ -24,6 +24,22 @@ public interface AlertConfigFetcher {
 
     public Map<Long,AlertConfig> getAlertConfig();
 
+    /**
+     * Configs with their version. Sources which publish versioned
+     * snapshots let the daemons skip unchanged configs.
+     */
+    default ConfigSnapshot<AlertConfig> getAlertConfigSnapshot() {
+        return ConfigSnapshot.unversioned(getAlertConfig());
+    }
+
+    /**
+     * Whether this fetcher is still assigned the alert. Sources which move
+     * alerts between daemons return false for the ones moved away.
+     */
+    default boolean owns(long alertId) {
+        return true;
+    }
+
 
 
 }
@@ -23,13 +23,18 @@ import net.opentsdb.horizon.alerts.config.impl.FileConfigFetcher;
 import net.opentsdb.horizon.alerts.config.impl.HorizonConfigFetcher;
 import net.opentsdb.horizon.alerts.config.impl.NamespaceRejectFilter;
 import net.opentsdb.horizon.alerts.config.impl.PartitionedConfigFetcher;
+import net.opentsdb.horizon.alerts.cost.AlertCostModel;
+import net.opentsdb.horizon.alerts.cost.BinPackingPlacement;
+import net.opentsdb.horizon.alerts.heartbeat.MirrorHealthCheck;
 import net.opentsdb.horizon.alerts.http.AlertHttpsClient;
 import net.opentsdb.horizon.alerts.http.AuthProviders;
+import net.opentsdb.horizon.alerts.state.persistence.StateHandoff;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import java.util.List;
 import java.util.Optional;
+import java.util.concurrent.TimeUnit;
 
 import static net.opentsdb.horizon.alerts.EnvironmentConfig.ALL_NAMESPACES;
 
@@ -45,18 +50,102 @@ public class ConfigOrchestrator {
 
     private static EnvironmentConfig environmentConfig = new EnvironmentConfig();
 
+    /**
+     * In cost placement mode all daemons of the process partition the
+     * same configs, so a placement computed for a version holds for all.
+     */
+    private static AlertConfigFetcher sharedSeedFetcher;
+
+    private static BinPackingPlacement sharedPlacement;
+
     public static AlertConfigFetcher getAlertConfigFetcher(int daemonid) {
 
         final AlertConfigFetcher seedAlertConfigFetcher;
 
+        if (environmentConfig.isCostPartitioning()) {
+            seedAlertConfigFetcher = getSharedSeedFetcher();
+        } else {
+            seedAlertConfigFetcher = getSeedFetcher(daemonid);
+        }
+
+        final PartitionedConfigFetcher.PartitionedConfigFetcherBuilder builder =
+                getPartitionBuilder(seedAlertConfigFetcher, daemonid,
+                        environmentConfig.getNumberOfDaemons());
+
+        if (environmentConfig.isCostPartitioning()) {
+            builder.placement(getSharedPlacement())
+                    .costModel(AlertCostModel.get());
+        }
+        return builder.build();
+
+    }
+
+    /**
+     * @return the configs of all daemons of this mirror, to bootstrap the
+     * state of alerts placed by cost on any of them.
+     */
+    public static AlertConfigFetcher getMirrorConfigFetcher() {
+        return getPartitionBuilder(getSharedSeedFetcher(), 0, 1).build();
+    }
+
+    private static PartitionedConfigFetcher.PartitionedConfigFetcherBuilder getPartitionBuilder(
+            final AlertConfigFetcher seedAlertConfigFetcher,
+            final int daemonid,
+            final int numberOfDaemons) {
+
+        final PartitionedConfigFetcher.PartitionedConfigFetcherBuilder builder =
+                PartitionedConfigFetcher.builder()
+                .alertConfigFetcher(seedAlertConfigFetcher)
+                .daemonid(daemonid)
+                .totalNumberOfDaemons(numberOfDaemons)
+                .mirrorid(environmentConfig.getMirrorId())
+                .totalNumberOfMirrors(environmentConfig.getNumberOfMirrors())
+                .mirrorSetId(environmentConfig.getMirrorSetId())
+                .totalNumberMirrorSets(environmentConfig.getNumberOfMirrorSets());
+
+        if (environmentConfig.isRendezvousPartitioning()
+                || environmentConfig.isCostPartitioning()) {
+            builder.rendezvous(true);
+            if (environmentConfig.isMirroringEnabled()) {
+                // Alerts of a mirror going down move to the live ones.
+                MirrorHealthCheck.initMirrorHealthCheck();
+                builder.mirrorHost(environmentConfig.getBaseHost())
+                        .liveMirrors(MirrorHealthCheck::getLiveMirrors)
+                        .membershipVersion(MirrorHealthCheck::getMembershipVersion)
+                        .mirrorWeights(environmentConfig.getMirrorWeights())
+                        .onAcquired(StateHandoff::acquire);
+            }
+        }
+        return builder;
+    }
+
+    private static synchronized AlertConfigFetcher getSharedSeedFetcher() {
+        if (sharedSeedFetcher == null) {
+            sharedSeedFetcher = getSeedFetcher(0);
+        }
+        return sharedSeedFetcher;
+    }
+
+    private static synchronized BinPackingPlacement getSharedPlacement() {
+        if (sharedPlacement == null) {
+            sharedPlacement = new BinPackingPlacement(
+                    environmentConfig.getNumberOfDaemons(),
+                    environmentConfig.getPlacementImbalance(),
+                    TimeUnit.SECONDS.toMillis(environmentConfig.getPlacementRebalanceIntervalSecs()));
+        }
+        return sharedPlacement;
+    }
+
+    private static AlertConfigFetcher getSeedFetcher(int daemonid) {
+
         final NamespaceFetcher namespaceFetcher = getNamespaceFetcher();
 
         if(environmentConfig.getConfigSource().
                 equalsIgnoreCase(EnvironmentConfig.DEFAULT_CONFIG_SOURCE)) {
 
-            seedAlertConfigFetcher = new FileConfigFetcher(daemonid);
+            return new FileConfigFetcher(daemonid);
         } else {
-            seedAlertConfigFetcher = HorizonConfigFetcher.builder()
+            return HorizonConfigFetcher.builder()
                                         .withNamespaceFetcher(namespaceFetcher)
                                         .withClient(getConfigDBClient())
                                         .withEndpoint(
@@ -70,17 +159,6 @@ public class ConfigOrchestrator {
                                         .build();
 
         }
-
-        return PartitionedConfigFetcher.builder()
-                .alertConfigFetcher(seedAlertConfigFetcher)
-                .daemonid(daemonid)
-                .totalNumberOfDaemons(environmentConfig.getNumberOfDaemons())
-                .mirrorid(environmentConfig.getMirrorId())
-                .totalNumberOfMirrors(environmentConfig.getNumberOfMirrors())
-                .mirrorSetId(environmentConfig.getMirrorSetId())
-                .totalNumberMirrorSets(environmentConfig.getNumberOfMirrorSets())
-                .build();
-
     }
 
     static NamespaceFetcher getNamespaceFetcher() {
@@ -113,6 +191,7 @@ public class ConfigOrchestrator {
 
     private static AlertHttpsClient getConfigDBClient() {
         return AlertHttpsClient.create(
+                    environmentConfig.getConfigFetchThreads(),
                     AuthProviders.getAuthProvider(
                             environmentConfig.getConfigDbAuthProvider()
 
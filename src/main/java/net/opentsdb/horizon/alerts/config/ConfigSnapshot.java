@@ -0,0 +1,84 @@
+/*
+ * This file is part of OpenTSDB.
+ * Copyright (C) 2021 Yahoo.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package net.opentsdb.horizon.alerts.config;
+
+import java.util.Collections;
+import java.util.Map;
+
+/**
+ * Immutable set of configs by id, published as a whole by a fetcher.
+ *
+ * The version increases whenever the content changes, so consumers
+ * compare versions instead of copying or walking the configs.
+ * {@link #UNVERSIONED} means the source does not track changes.
+ */
+public final class ConfigSnapshot<C> {
+
+    public static final long UNVERSIONED = -1;
+
+    private static final ConfigSnapshot<?> EMPTY =
+            new ConfigSnapshot<>(0, Collections.emptyMap());
+
+    private final long version;
+
+    private final Map<Long, C> configs;
+
+    /**
+     * @param configs not copied, must not be modified afterwards.
+     */
+    public ConfigSnapshot(final long version, final Map<Long, C> configs) {
+        this.version = version;
+        this.configs = Collections.unmodifiableMap(configs);
+    }
+
+    @SuppressWarnings("unchecked")
+    public static <C> ConfigSnapshot<C> empty() {
+        return (ConfigSnapshot<C>) EMPTY;
+    }
+
+    public static <C> ConfigSnapshot<C> unversioned(final Map<Long, C> configs) {
+        return new ConfigSnapshot<>(UNVERSIONED, configs);
+    }
+
+    public long getVersion() {
+        return version;
+    }
+
+    public boolean isVersioned() {
+        return version != UNVERSIONED;
+    }
+
+    public Map<Long, C> getConfigs() {
+        return configs;
+    }
+
+    /**
+     * @return true if both hold the same config instances for the same ids.
+     */
+    public boolean sameConfigs(final Map<Long, C> other) {
+        if (configs.size() != other.size()) {
+            return false;
+        }
+        for (Map.Entry<Long, C> entry : other.entrySet()) {
+            if (configs.get(entry.getKey()) != entry.getValue()) {
+                return false;
+            }
+        }
+        return true;
+    }
+}
@@ -23,6 +23,10 @@ import java.util.Map;
 
 public interface SnoozeFetcher {
 
+    /**
+     * @return snoozes by id. Changes are published as a new map, the
+     * returned map is not modified afterwards.
+     */
     Map<Long, Snooze> getSnoozeConfig();
 
 }
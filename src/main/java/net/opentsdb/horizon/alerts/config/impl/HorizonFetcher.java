@@ -19,7 +19,9 @@ package net.opentsdb.horizon.alerts.config.impl;
 
 import com.fasterxml.jackson.databind.JsonNode;
 import net.opentsdb.horizon.alerts.AlertUtils;
+import net.opentsdb.horizon.alerts.EnvironmentConfig;
 import net.opentsdb.horizon.alerts.Monitoring;
+import net.opentsdb.horizon.alerts.config.ConfigSnapshot;
 import net.opentsdb.horizon.alerts.http.AlertHttpsClient;
 import net.opentsdb.horizon.alerts.http.AuthProviders;
 import lombok.Getter;
@@ -35,21 +37,32 @@ import java.util.ArrayList;
 import java.util.Collections;
 import java.util.HashMap;
 import java.util.HashSet;
+import java.util.Iterator;
 import java.util.List;
 import java.util.Map;
-import java.util.Objects;
 import java.util.Set;
-import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
 import java.util.concurrent.ScheduledExecutorService;
 import java.util.concurrent.ScheduledFuture;
 import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
 import java.util.function.Function;
-import java.util.stream.Collectors;
+import java.util.function.Supplier;
+import java.util.function.ToLongFunction;
 
 /**
  * For fetching a config of type C from horizon.
  * Final cause builders with inheritance are broken.
+ *
+ * Namespaces are fetched in parallel, and each response is parsed once
+ * into a tree which is handed to the config function node by node. When
+ * the id and last modified time of a node can be read from the tree, a
+ * config unchanged since the previous run is reused instead of parsed.
+ * Every run which changes the configs publishes a new immutable
+ * {@link ConfigSnapshot} with the next version.
  * @param <C>
  */
 @Getter
@@ -64,7 +77,12 @@ public final class HorizonFetcher<C> {
 
     private final String namespaceUrl;
 
-    private Map<Long, C> fetchedConfigs = new ConcurrentHashMap<>();
+    private volatile ConfigSnapshot<C> snapshot = ConfigSnapshot.empty();
+
+    /**
+     * Last modified time by id of the configs in {@link #snapshot}.
+     */
+    private volatile Map<Long, Long> lastModifiedById = Collections.emptyMap();
 
     private final int mirrorId;
 
@@ -76,25 +94,48 @@ public final class HorizonFetcher<C> {
 
     private final Map<String,String> qParams;
 
-    private final Function<String, C> stringCFunction;
+    private final Function<JsonNode, C> nodeCFunction;
 
     private final Function<C,Long> cLongFunction;
 
+    private final ToLongFunction<JsonNode> idFromNode;
+
+    private final ToLongFunction<JsonNode> lastModifiedFromNode;
+
+    private final Supplier<List<String>> namespaceSupplier;
+
+    private final ExecutorService fetchService;
+
     private ScheduledExecutorService service = Executors.newScheduledThreadPool(1);
 
     private HorizonFetcher(Builder builder) {
-        alertHttpsClient = new AlertHttpsClient();
-
-        alertHttpsClient.setAuthProvider(
-                AuthProviders.getAuthProvider(builder.authProvider));
+        final int fetchThreads = Math.max(1, builder.fetchThreads);
+        if (builder.alertHttpsClient != null) {
+            alertHttpsClient = builder.alertHttpsClient;
+        } else {
+            alertHttpsClient = new AlertHttpsClient(fetchThreads);
+            alertHttpsClient.setAuthProvider(
+                    AuthProviders.getAuthProvider(builder.authProvider));
+        }
 
         configUrl = AlertUtils.getURL(builder.endpoint, "api/v1/namespace/%s/"+builder.fetchPath);
         namespaceUrl = AlertUtils.getURL(builder.endpoint, namespaceFetchPath);
         mirrorId = builder.mirrorId;
         inTestEnv = builder.inTestEnv;
         qParams = Collections.unmodifiableMap(builder.qParams);
-        stringCFunction = builder.stringCFunction;
+        nodeCFunction = builder.nodeCFunction;
         cLongFunction = builder.cLongFunction;
+        idFromNode = builder.idFromNode;
+        lastModifiedFromNode = builder.lastModifiedFromNode;
+        namespaceSupplier = builder.namespaceSupplier;
+
+        final AtomicInteger threadCount = new AtomicInteger();
+        fetchService = Executors.newFixedThreadPool(fetchThreads, r -> {
+            final Thread thread = new Thread(r,
+                    "config-fetch-" + builder.fetchPath + "-" + threadCount.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
     }
 
     public synchronized void init() {
@@ -109,42 +150,76 @@ public final class HorizonFetcher<C> {
         }
     }
 
+    /**
+     * @return the configs of the current snapshot, not copied.
+     */
     public Map<Long,C> getConfig() {
 
-        return Collections.unmodifiableMap(new HashMap<>(fetchedConfigs));
+        return snapshot.getConfigs();
     }
 
     public void run() {
-        List<String> namespaceList = getNamespaceList();
-        log.debug("Fetching configs from DB namespace list : "+ namespaceList);
-        if(!namespaceList.isEmpty()) {
-            namespacesFromResponse.addAll(namespaceList);
-        } else {
-            return;
-        }
+        try {
+            final List<String> namespaceList = namespaceSupplier != null ?
+                    namespaceSupplier.get() : getNamespaceList();
+            log.debug("Fetching configs from DB namespace list : "+ namespaceList);
+            if(!namespaceList.isEmpty()) {
+                namespacesFromResponse.addAll(namespaceList);
+            } else {
+                log.error("Received no namespaces for config fetch");
+                return;
+            }
 
-        fetchConfig(namespaceList);
+            fetchConfig(namespaceList);
+        } catch (Throwable t) {
+            // Keep the schedule alive.
+            log.error("Error running config fetch", t);
+        }
     }
 
     private void fetchConfig(List<String> namespaceList) {
 
-        final Map<Long, C> collect = namespaceList.stream()
-                .map(namespace -> getConfigFromService(String.format(configUrl, namespace)))
-                .filter(list -> !list.isEmpty())
-                .flatMap(list -> list.stream())
-                .filter(Objects::nonNull)
-                .filter(str -> !str.isEmpty())
-                .map(stringCFunction).filter(Objects::nonNull)
-                .collect(Collectors.toMap(cLongFunction, Function.identity()));
-
-        if(!collect.isEmpty()) {
-            fetchedConfigs = collect;
+        final ConfigSnapshot<C> previous = snapshot;
+        final Map<Long, Long> previousLastModified = lastModifiedById;
+
+        final List<Future<List<Fetched<C>>>> futures = new ArrayList<>(namespaceList.size());
+        for (String namespace : namespaceList) {
+            futures.add(fetchService.submit(() ->
+                    getConfigFromService(String.format(configUrl, namespace),
+                            previous, previousLastModified)));
+        }
+
+        final Map<Long, C> configs = new HashMap<>();
+        final Map<Long, Long> lastModified = new HashMap<>();
+        for (Future<List<Fetched<C>>> future : futures) {
+            try {
+                for (Fetched<C> fetched : future.get()) {
+                    configs.put(fetched.id, fetched.config);
+                    lastModified.put(fetched.id, fetched.lastModified);
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                log.error("Interrupted fetching configs");
+                return;
+            } catch (ExecutionException e) {
+                log.error("Error fetching configs", e.getCause());
+            }
+        }
+
+        if(!configs.isEmpty() && !previous.sameConfigs(configs)) {
+            lastModifiedById = lastModified;
+            snapshot = new ConfigSnapshot<>(previous.getVersion() + 1, configs);
+            log.info("Published config snapshot version: {} configs: {}",
+                    previous.getVersion() + 1, configs.size());
         }
 
     }
 
-    private List<String> getConfigFromService(String configUrl) {
-        final List<String> config = new ArrayList<>();
+    private List<Fetched<C>> getConfigFromService(String configUrl,
+                                                  ConfigSnapshot<C> previous,
+                                                  Map<Long, Long> previousLastModified) {
+        final List<Fetched<C>> config = new ArrayList<>();
+        int reused = 0;
 
         try {
             log.debug("Running "+  configUrl);
@@ -154,32 +229,73 @@ public final class HorizonFetcher<C> {
             HttpGet alertsHttpGet = new HttpGet(uriBuilder.build());
             alertsHttpGet.addHeader("accept","application/json");
             long start = System.nanoTime();
-            CloseableHttpResponse alertExecute = alertHttpsClient.execute(alertsHttpGet);
-            long end = System.nanoTime();
-            Monitoring.get().timeConfigFetchTime(end-start,mirrorId);
-            String response = EntityUtils.toString(alertExecute.getEntity());
-            if(alertExecute.getStatusLine().getStatusCode() == 200) {
-                //log.info("response: "+ alertResponse);
-                JsonNode root = AlertUtils.parseJsonTree(response);
-
-                root.elements()
-                        .forEachRemaining(node -> config.add(node.toString()));
-            } else {
-                log.error("Got error response fetching  " +
-                        "from config DB, Status Code: " + " url : "+ configUrl
-                        +alertExecute.getStatusLine().getStatusCode()
-                        + '\n' + response);
+            try (CloseableHttpResponse alertExecute = alertHttpsClient.execute(alertsHttpGet)) {
+                long end = System.nanoTime();
+                Monitoring.get().timeConfigFetchTime(end-start,mirrorId);
+                String response = EntityUtils.toString(alertExecute.getEntity());
+                if(alertExecute.getStatusLine().getStatusCode() == 200) {
+                    JsonNode root = AlertUtils.parseJsonTree(response);
+
+                    final Iterator<JsonNode> elements = root.elements();
+                    while (elements.hasNext()) {
+                        final JsonNode node = elements.next();
+                        if (node == null || node.isNull()) {
+                            continue;
+                        }
+                        final Fetched<C> fetched = toConfig(node, previous, previousLastModified);
+                        if (fetched != null) {
+                            config.add(fetched);
+                            if (fetched.reused) {
+                                reused++;
+                            }
+                        }
+                    }
+                } else {
+                    log.error("Got error response fetching  " +
+                            "from config DB, Status Code: " + " url : "+ configUrl
+                            +alertExecute.getStatusLine().getStatusCode()
+                            + '\n' + response);
+                }
             }
         } catch (Exception e) {
             log.error("Error fetching from config DB:"+ " url : "+ configUrl,e);
 
         }
         if(config.size() != 0 ) {
-            log.info("URL : {} Returned config : {}", configUrl, config.size());
+            log.info("URL : {} Returned config : {} unchanged : {}", configUrl, config.size(), reused);
         }
         return config;
     }
 
+    private Fetched<C> toConfig(JsonNode node,
+                                ConfigSnapshot<C> previous,
+                                Map<Long, Long> previousLastModified) {
+        long lastModified = -1;
+        if (idFromNode != null && lastModifiedFromNode != null) {
+            try {
+                final long id = idFromNode.applyAsLong(node);
+                lastModified = lastModifiedFromNode.applyAsLong(node);
+                final Long previousTime = previousLastModified.get(id);
+                final C previousConfig = previous.getConfigs().get(id);
+                if (previousConfig != null && previousTime != null && previousTime == lastModified) {
+                    return new Fetched<>(id, lastModified, previousConfig, true);
+                }
+            } catch (RuntimeException e) {
+                log.debug("No id or last modified time in config: {}", node, e);
+            }
+        }
+        try {
+            final C c = nodeCFunction.apply(node);
+            if (c == null) {
+                return null;
+            }
+            return new Fetched<>(cLongFunction.apply(c), lastModified, c, false);
+        } catch (RuntimeException e) {
+            log.error("Error parsing config: " + node, e);
+            return null;
+        }
+    }
+
     public List<String> getNamespaceList() {
 
         if(inTestEnv) {
@@ -190,8 +306,7 @@ public final class HorizonFetcher<C> {
         HttpGet namespaceHttpGet = new HttpGet(namespaceUrl);
         namespaceHttpGet.addHeader("accept","application/json");
         List<String> namespaces = new ArrayList<>();
-        try {
-            CloseableHttpResponse namespaceExecute = alertHttpsClient.execute(namespaceHttpGet);
+        try (CloseableHttpResponse namespaceExecute = alertHttpsClient.execute(namespaceHttpGet)) {
             String response = EntityUtils.toString(namespaceExecute.getEntity());
             if(namespaceExecute.getStatusLine().getStatusCode() == 200) {
                 namespaces = AlertUtils.getNamespacesFromResponse(response);
@@ -214,22 +329,49 @@ public final class HorizonFetcher<C> {
         return namespaces;
     }
 
+    private static final class Fetched<C> {
+
+        private final long id;
+
+        private final long lastModified;
+
+        private final C config;
+
+        private final boolean reused;
+
+        private Fetched(long id, long lastModified, C config, boolean reused) {
+            this.id = id;
+            this.lastModified = lastModified;
+            this.config = config;
+            this.reused = reused;
+        }
+    }
+
     public static final class Builder<C> {
 
         private String fetchPath ;
 
         private String authProvider;
 
+        private AlertHttpsClient alertHttpsClient;
+
         private int mirrorId;
 
         private String endpoint;
 
         private boolean inTestEnv;
 
-        private Function<String, C> stringCFunction;
+        private Function<JsonNode, C> nodeCFunction;
 
         private Function<C,Long> cLongFunction;
 
+        private ToLongFunction<JsonNode> idFromNode;
+
+        private ToLongFunction<JsonNode> lastModifiedFromNode;
+
+        private Supplier<List<String>> namespaceSupplier;
+
+        private int fetchThreads = new EnvironmentConfig().getConfigFetchThreads();
 
         private Map<String,String> qParams = new HashMap<>();
 
@@ -243,6 +385,14 @@ public final class HorizonFetcher<C> {
             return this;
         }
 
+        /**
+         * Use the given client instead of one built from the auth provider.
+         */
+        public Builder<C> withClient(AlertHttpsClient alertHttpsClient) {
+            this.alertHttpsClient = alertHttpsClient;
+            return this;
+        }
+
         public Builder<C> withMirrorId(int mirrorId) {
             this.mirrorId = mirrorId;
             return this;
@@ -258,8 +408,31 @@ public final class HorizonFetcher<C> {
             return this;
         }
 
+        public Builder<C> withQueryParam(String name, String value) {
+            this.qParams.put(name, value);
+            return this;
+        }
+
+        /**
+         * Namespaces to fetch, instead of all namespaces of the endpoint.
+         */
+        public Builder<C> withNamespaces(Supplier<List<String>> namespaceSupplier) {
+            this.namespaceSupplier = namespaceSupplier;
+            return this;
+        }
+
+        public Builder<C> withFetchThreads(int fetchThreads) {
+            this.fetchThreads = fetchThreads;
+            return this;
+        }
+
         public Builder<C> configFromString(Function<String, C> stringCFunction) {
-            this.stringCFunction = stringCFunction;
+            this.nodeCFunction = node -> stringCFunction.apply(node.toString());
+            return this;
+        }
+
+        public Builder<C> configFromNode(Function<JsonNode, C> nodeCFunction) {
+            this.nodeCFunction = nodeCFunction;
             return this;
         }
 
@@ -268,6 +441,17 @@ public final class HorizonFetcher<C> {
             return this;
         }
 
+        /**
+         * Id and last modified time read from the raw config. Together they
+         * let unchanged configs be reused without parsing.
+         */
+        public Builder<C> versionFromNode(ToLongFunction<JsonNode> idFromNode,
+                                          ToLongFunction<JsonNode> lastModifiedFromNode) {
+            this.idFromNode = idFromNode;
+            this.lastModifiedFromNode = lastModifiedFromNode;
+            return this;
+        }
+
         public HorizonFetcher<C> build() {
 
             return new HorizonFetcher<>(this);
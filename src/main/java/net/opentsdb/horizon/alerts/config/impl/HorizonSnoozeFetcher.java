@@ -28,6 +28,10 @@ import net.opentsdb.horizon.alerts.AlertUtils;
 
 public class HorizonSnoozeFetcher implements SnoozeFetcher {
 
+    private static final String SNOOZE_ID = "id";
+
+    private static final String SNOOZE_UPDATED_TIME = "updatedTime";
+
     private static HorizonFetcher<Snooze> snoozeHorizonFetcher;
 
     public HorizonSnoozeFetcher(){
@@ -44,16 +48,18 @@ public class HorizonSnoozeFetcher implements SnoozeFetcher {
                     .withFetchPath("snooze")
                     .withEndpoint(environmentConfig.getConfigDbEndpoint())
                     .withMirrorId(environmentConfig.getMirrorId())
-                    .configFromString(string ->
+                    .configFromNode(node ->
                     {
                         try {
-                            return AlertUtils.jsonMapper.readValue(string, Snooze.class);
+                            return AlertUtils.jsonMapper.treeToValue(node, Snooze.class);
                         } catch (IOException e) {
                             e.printStackTrace();
                         }
                         return null;
                     })
-                    .idFromConfig(Snooze::getId);
+                    .idFromConfig(Snooze::getId)
+                    .versionFromNode(node -> node.get(SNOOZE_ID).asLong(),
+                            node -> node.get(SNOOZE_UPDATED_TIME).asLong());
 
             if(environmentConfig.inTestEnv()) {
                 builder.inTest();
@@ -19,11 +19,27 @@ package net.opentsdb.horizon.alerts.config.impl;
 
 import net.opentsdb.horizon.alerts.config.AlertConfig;
 import net.opentsdb.horizon.alerts.config.AlertConfigFetcher;
+import net.opentsdb.horizon.alerts.config.ConfigSnapshot;
+import net.opentsdb.horizon.alerts.cost.AlertCostModel;
+import net.opentsdb.horizon.alerts.cost.BinPackingPlacement;
+import it.unimi.dsi.fastutil.longs.LongIterator;
+import it.unimi.dsi.fastutil.longs.LongOpenHashSet;
+import it.unimi.dsi.fastutil.longs.LongSet;
 import lombok.Builder;
+import lombok.extern.slf4j.Slf4j;
 
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
 import java.util.Objects;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.LongSupplier;
+import java.util.function.ObjLongConsumer;
+import java.util.function.Supplier;
 import java.util.stream.Collectors;
+@Slf4j
 @Builder
 public class PartitionedConfigFetcher implements AlertConfigFetcher {
 
@@ -37,10 +53,155 @@ public class PartitionedConfigFetcher implements AlertConfigFetcher {
     private final int mirrorSetId;
     private final int totalNumberMirrorSets;
 
+    /**
+     * Assign by {@link RendezvousPartitioner} instead of alert id modulo.
+     */
+    private final boolean rendezvous;
+
+    /**
+     * Host of this mirror, one of {@link #liveMirrors}.
+     */
+    private final String mirrorHost;
+
+    /**
+     * Mirrors currently up, including this one. Null to partition over
+     * {@link #totalNumberOfMirrors} numbered mirrors.
+     */
+    private final Supplier<Collection<String>> liveMirrors;
+
+    /**
+     * Changes whenever {@link #liveMirrors} does.
+     */
+    private final LongSupplier membershipVersion;
+
+    private final Map<String, Double> mirrorWeights;
+
+    /**
+     * Called with the alerts this mirror took over from other mirrors, on
+     * all its daemons, and the new membership version, before they are
+     * published to the daemon. Every daemon of the process calls it for
+     * the same change.
+     */
+    private final ObjLongConsumer<Collection<AlertConfig>> onAcquired;
+
+    /**
+     * Assigns the alerts of this mirror to daemons by observed cost,
+     * instead of by alert id. Shared by the daemons of the process.
+     */
+    private final BinPackingPlacement placement;
+
+    private final AlertCostModel costModel;
+
+
+    /**
+     * Partition of the last versioned snapshot, reused until it or the
+     * mirror membership changes.
+     */
+    private final AtomicReference<Partition> partitioned =
+            new AtomicReference<>();
 
     @Override
     public Map<Long, AlertConfig> getAlertConfig() {
-        return alertConfigFetcher.getAlertConfig()
+        return partition(alertConfigFetcher.getAlertConfig(), ConfigSnapshot.UNVERSIONED, null);
+    }
+
+    @Override
+    public ConfigSnapshot<AlertConfig> getAlertConfigSnapshot() {
+        final ConfigSnapshot<AlertConfig> snapshot = alertConfigFetcher.getAlertConfigSnapshot();
+        final long membership = membershipVersion == null ? 0 : membershipVersion.getAsLong();
+        final Partition cached = partitioned.get();
+        if (snapshot.isVersioned() && cached != null
+                && cached.sourceVersion == snapshot.getVersion()
+                && cached.membership == membership
+                && (placement == null || (cached.placementEpoch == placement.getEpoch()
+                        && !placement.isStale(snapshot.getVersion(), System.currentTimeMillis())))) {
+            return cached.snapshot;
+        }
+
+        final LongSet mirrorIds = new LongOpenHashSet();
+        final Map<Long, AlertConfig> configs = partition(snapshot.getConfigs(), snapshot.getVersion(), mirrorIds);
+        if (cached != null && cached.membership != membership) {
+            handoff(cached.mirrorIds, snapshot.getConfigs(), mirrorIds, membership);
+        }
+        final long placementEpoch = placement == null ? 0 : placement.getEpoch();
+        // Membership and placement changes have to be reconciled like config changes.
+        final long version = snapshot.isVersioned() ?
+                snapshot.getVersion() + ((membership + (placementEpoch << 16)) << 32)
+                : ConfigSnapshot.UNVERSIONED;
+        final ConfigSnapshot<AlertConfig> result = new ConfigSnapshot<>(version, configs);
+        partitioned.set(new Partition(snapshot.getVersion(), membership, placementEpoch, mirrorIds, result));
+        return result;
+    }
+
+    private void handoff(final LongSet previous,
+                         final Map<Long, AlertConfig> configs,
+                         final LongSet current,
+                         final long membership) {
+        final List<AlertConfig> acquired = new ArrayList<>();
+        final LongIterator ids = current.iterator();
+        while (ids.hasNext()) {
+            final long id = ids.nextLong();
+            if (!previous.contains(id)) {
+                acquired.add(configs.get(id));
+            }
+        }
+        log.info("Mirror membership changed: kept: {} acquired: {} released: {}",
+                current.size() - acquired.size(), acquired.size(),
+                previous.size() - (current.size() - acquired.size()));
+        if (onAcquired != null && !acquired.isEmpty()) {
+            try {
+                onAcquired.accept(acquired, membership);
+            } catch (Exception e) {
+                log.error("State handoff failed for {} alerts", acquired.size(), e);
+            }
+        }
+    }
+
+    /**
+     * @return false for alerts assigned to another daemon or mirror, for
+     * example after a mirror came back up.
+     */
+    @Override
+    public boolean owns(final long alertId) {
+        if (placement != null) {
+            return placement.binOf(alertId) == daemonid;
+        }
+        if (rendezvous) {
+            return new Ownership().owns(alertId);
+        }
+        return inBucket(alertId, mirrorSetId, totalNumberMirrorSets)
+                && inBucket(alertId, mirrorid, totalNumberOfMirrors)
+                && inBucket(alertId, daemonid, totalNumberOfDaemons);
+    }
+
+    /**
+     * @param mirrorIds filled with the alerts of this mirror, on all its
+     *                  daemons, when not null and partitioning by
+     *                  rendezvous or placement.
+     */
+    private Map<Long, AlertConfig> partition(Map<Long, AlertConfig> configs,
+                                             long sourceVersion,
+                                             LongSet mirrorIds) {
+        if (placement != null) {
+            return place(configs, sourceVersion, mirrorIds);
+        }
+        if (rendezvous) {
+            final Ownership ownership = new Ownership();
+            final Map<Long, AlertConfig> partition = new HashMap<>();
+            configs.forEach((id, config) -> {
+                if (Objects.nonNull(config) && ownership.ownsMirror(id)) {
+                    if (mirrorIds != null) {
+                        mirrorIds.add(id.longValue());
+                    }
+                    if (ownership.ownsDaemon(id)) {
+                        partition.put(id, config);
+                    }
+                }
+            });
+            return partition;
+        }
+
+        return configs
                 .entrySet()
                 .stream()
                 .filter(entry -> inBucket(entry.getKey(),mirrorSetId,totalNumberMirrorSets))
@@ -52,6 +213,43 @@ public class PartitionedConfigFetcher implements AlertConfigFetcher {
     }
 
 
+    /**
+     * Splits by mirror as usual, then places the alerts of this mirror
+     * on the daemons by their cost.
+     */
+    private Map<Long, AlertConfig> place(final Map<Long, AlertConfig> configs,
+                                         final long sourceVersion,
+                                         final LongSet mirrorIds) {
+        final Ownership ownership = rendezvous ? new Ownership() : null;
+        final Map<Long, AlertConfig> mirrorConfigs = new HashMap<>();
+        configs.forEach((id, config) -> {
+            if (Objects.nonNull(config) && (ownership == null ? ownsByBucket(id) : ownership.ownsMirror(id))) {
+                mirrorConfigs.put(id, config);
+            }
+        });
+        costModel.retain(mirrorConfigs);
+        if (mirrorIds != null) {
+            mirrorConfigs.keySet().forEach(id -> mirrorIds.add(id.longValue()));
+        }
+
+        final double fallback = costModel.meanEstimate();
+        placement.place(sourceVersion, mirrorConfigs.keySet(),
+                id -> costModel.estimate(id, fallback), System.currentTimeMillis());
+
+        final Map<Long, AlertConfig> partition = new HashMap<>();
+        mirrorConfigs.forEach((id, config) -> {
+            if (placement.binOf(id) == daemonid) {
+                partition.put(id, config);
+            }
+        });
+        return partition;
+    }
+
+    private boolean ownsByBucket(long alertId) {
+        return inBucket(alertId, mirrorSetId, totalNumberMirrorSets)
+                && inBucket(alertId, mirrorid, totalNumberOfMirrors);
+    }
+
     private boolean inBucket(long alertId,int bid,int totalBucketSets) {
 
         final long l = alertId % totalBucketSets;
@@ -62,4 +260,86 @@ public class PartitionedConfigFetcher implements AlertConfigFetcher {
         }
 
     }
+
+    /**
+     * Rendezvous node keys of the current mirror membership.
+     */
+    private final class Ownership {
+
+        private final long[] mirrorSetKeys =
+                RendezvousPartitioner.nodeKeys("set-", totalNumberMirrorSets);
+
+        private final long[] daemonKeys =
+                RendezvousPartitioner.nodeKeys("daemon-", totalNumberOfDaemons);
+
+        private final long[] mirrorKeys;
+
+        private final double[] weights;
+
+        private final int self;
+
+        private Ownership() {
+            final Collection<String> mirrors = liveMirrors == null ? null : liveMirrors.get();
+            if (mirrors == null || !mirrors.contains(mirrorHost)) {
+                mirrorKeys = RendezvousPartitioner.nodeKeys("mirror-", totalNumberOfMirrors);
+                weights = null;
+                self = mirrorid;
+                return;
+            }
+            mirrorKeys = new long[mirrors.size()];
+            weights = new double[mirrors.size()];
+            int i = 0;
+            int index = 0;
+            for (String mirror : mirrors) {
+                if (mirror.equals(mirrorHost)) {
+                    index = i;
+                }
+                mirrorKeys[i] = RendezvousPartitioner.nodeKey(mirror);
+                weights[i] = mirrorWeights == null ? 0 : mirrorWeights.getOrDefault(mirror, 0.0);
+                i++;
+            }
+            self = index;
+        }
+
+        boolean owns(final long alertId) {
+            return ownsMirror(alertId) && ownsDaemon(alertId);
+        }
+
+        boolean ownsDaemon(final long alertId) {
+            return RendezvousPartitioner.owns(alertId, daemonid, daemonKeys, null);
+        }
+
+        boolean ownsMirror(final long alertId) {
+            return RendezvousPartitioner.owns(alertId, mirrorSetId, mirrorSetKeys, null)
+                    && RendezvousPartitioner.owns(alertId, self, mirrorKeys, weights);
+        }
+    }
+
+    private static final class Partition {
+
+        private final long sourceVersion;
+
+        private final long membership;
+
+        private final long placementEpoch;
+
+        /**
+         * Alerts of this mirror, on all its daemons.
+         */
+        private final LongSet mirrorIds;
+
+        private final ConfigSnapshot<AlertConfig> snapshot;
+
+        private Partition(final long sourceVersion,
+                          final long membership,
+                          final long placementEpoch,
+                          final LongSet mirrorIds,
+                          final ConfigSnapshot<AlertConfig> snapshot) {
+            this.sourceVersion = sourceVersion;
+            this.membership = membership;
+            this.placementEpoch = placementEpoch;
+            this.mirrorIds = mirrorIds;
+            this.snapshot = snapshot;
+        }
+    }
 }
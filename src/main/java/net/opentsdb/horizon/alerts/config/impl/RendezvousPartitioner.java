@@ -0,0 +1,111 @@
+/*
+ * This file is part of OpenTSDB.
+ * Copyright (C) 2021 Yahoo.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package net.opentsdb.horizon.alerts.config.impl;
+
+import net.openhft.hashing.LongHashFunction;
+
+/**
+ * Weighted rendezvous (highest random weight) hashing of alert ids onto
+ * nodes.
+ *
+ * Every node scores every alert and the highest score owns it. Adding or
+ * removing a node only moves the alerts won or lost by that node, unlike
+ * {@code alertId % nodes} which reassigns almost every alert when the
+ * node count changes. All daemons compute the same owner from the same
+ * node list, whatever its order.
+ */
+public final class RendezvousPartitioner {
+
+    private static final LongHashFunction HASH = LongHashFunction.xx();
+
+    private static final double DEFAULT_WEIGHT = 1.0;
+
+    private RendezvousPartitioner() {
+    }
+
+    /**
+     * @return key of a node name, for {@link #owns(long, int, long[], double[])}.
+     */
+    public static long nodeKey(final String node) {
+        return HASH.hashChars(node);
+    }
+
+    /**
+     * @return keys of nodes {@code prefix + 0 .. prefix + (total - 1)}.
+     */
+    public static long[] nodeKeys(final String prefix, final int total) {
+        final long[] keys = new long[Math.max(total, 1)];
+        for (int i = 0; i < keys.length; i++) {
+            keys[i] = nodeKey(prefix + i);
+        }
+        return keys;
+    }
+
+    /**
+     * Score of an alert on a node: {@code -weight / ln(u)} for a uniform
+     * {@code u} in (0, 1) drawn from both keys, so a node wins a share of
+     * alerts proportional to its weight.
+     */
+    static double score(final long alertId, final long nodeKey, final double weight) {
+        final long hash = mix(mix(alertId) ^ nodeKey);
+        // 53 random bits, shifted away from 0 and 1.
+        final double u = ((hash >>> 11) + 0.5) / (1L << 53);
+        return -weight / Math.log(u);
+    }
+
+    /**
+     * @param self index of this node in {@code nodeKeys}.
+     * @param weights weight by node index, null for equal weights.
+     * @return true if node {@code self} has the highest score for the alert.
+     */
+    public static boolean owns(final long alertId,
+                               final int self,
+                               final long[] nodeKeys,
+                               final double[] weights) {
+        if (nodeKeys.length <= 1) {
+            return true;
+        }
+        final double own = score(alertId, nodeKeys[self], weight(weights, self));
+        for (int node = 0; node < nodeKeys.length; node++) {
+            if (node == self) {
+                continue;
+            }
+            final double other = score(alertId, nodeKeys[node], weight(weights, node));
+            // Ties go to the lower key, which every node agrees on.
+            if (other > own || (other == own && nodeKeys[node] < nodeKeys[self])) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * SplitMix64 finalizer.
+     */
+    private static long mix(long z) {
+        z = (z ^ (z >>> 30)) * 0xBF58476D1CE4E5B9L;
+        z = (z ^ (z >>> 27)) * 0x94D049BB133111EBL;
+        return z ^ (z >>> 31);
+    }
+
+    private static double weight(final double[] weights, final int node) {
+        if (weights == null || weights[node] <= 0) {
+            return DEFAULT_WEIGHT;
+        }
+        return weights[node];
+    }
+}
@@ -0,0 +1,305 @@
+/*
+ * This file is part of OpenTSDB.
+ * Copyright (C) 2021 Yahoo.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package net.opentsdb.horizon.alerts.cost;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import net.opentsdb.horizon.alerts.AlertUtils;
+import net.opentsdb.horizon.alerts.EnvironmentConfig;
+import lombok.extern.slf4j.Slf4j;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Observed evaluation cost by alert id, smoothed over runs.
+ *
+ * TSDB latency, response bytes and series evaluated are accumulated
+ * while a run is in progress and folded into the averages when the
+ * monitor finishes it. State size is taken from the last persisted state.
+ * Nothing is recorded unless alerts are partitioned by cost, as only cost
+ * placement prunes the deleted alerts.
+ */
+@Slf4j
+public class AlertCostModel {
+
+    /**
+     * Weight of the latest run in the moving averages.
+     */
+    static final double ALPHA = 0.2;
+
+    private static final int FORMAT_VERSION = 1;
+
+    private final ConcurrentMap<Long, Cost> costs = new ConcurrentHashMap<>();
+
+    private final File file;
+
+    private final boolean enabled;
+
+    private static class Wrapper {
+        public static final AlertCostModel COST_MODEL = create(new EnvironmentConfig());
+    }
+
+    AlertCostModel(final File file) {
+        this(file, true);
+    }
+
+    AlertCostModel(final File file, final boolean enabled) {
+        this.file = file;
+        this.enabled = enabled;
+    }
+
+    public static AlertCostModel get() {return Wrapper.COST_MODEL;}
+
+    private static AlertCostModel create(final EnvironmentConfig config) {
+        if (!config.isCostPartitioning()) {
+            return new AlertCostModel(null, false);
+        }
+        final String path = config.getAlertCostModelPath();
+        if (path == null || path.trim().isEmpty()) {
+            return new AlertCostModel(null);
+        }
+        final AlertCostModel model = new AlertCostModel(new File(path));
+        model.load();
+
+        final ScheduledExecutorService saver = Executors.newSingleThreadScheduledExecutor(r -> {
+            final Thread thread = new Thread(r, "alert-cost-model-saver");
+            thread.setDaemon(true);
+            return thread;
+        });
+        final long interval = config.getAlertCostModelSaveIntervalSecs();
+        saver.scheduleWithFixedDelay(model::save, interval, interval, TimeUnit.SECONDS);
+        Runtime.getRuntime().addShutdownHook(new Thread(model::save));
+        return model;
+    }
+
+    public void recordTsdbQuery(final long alertId, final long latencyMs) {
+        if (enabled) {
+            cost(alertId).addTsdb(latencyMs);
+        }
+    }
+
+    public void recordResponseBytes(final long alertId, final long bytes) {
+        if (enabled) {
+            cost(alertId).addBytes(bytes);
+        }
+    }
+
+    public void recordSeriesEvaluated(final long alertId, final long series) {
+        if (enabled) {
+            cost(alertId).addSeries(series);
+        }
+    }
+
+    public void recordStateSize(final long alertId, final long states) {
+        if (enabled) {
+            cost(alertId).setStateSize(states);
+        }
+    }
+
+    /**
+     * Folds the measurements taken since the last run into the averages.
+     */
+    public void recordRun(final long alertId, final long evaluationMs) {
+        if (enabled) {
+            cost(alertId).endRun(evaluationMs);
+        }
+    }
+
+    /**
+     * The evaluation time already covers the TSDB wait and the work on the
+     * response and series, the other measurements are kept to explain it.
+     *
+     * @return the expected evaluation time of the alert in ms, or
+     * {@code fallback} when it has not completed a run yet.
+     */
+    public double estimate(final long alertId, final double fallback) {
+        final Cost cost = costs.get(alertId);
+        if (cost == null) {
+            return fallback;
+        }
+        synchronized (cost) {
+            return cost.runs == 0 ? fallback : cost.evalMs;
+        }
+    }
+
+    /**
+     * @return the mean expected evaluation time of the alerts which have
+     * completed a run, 1 ms if none has.
+     */
+    public double meanEstimate() {
+        double sum = 0;
+        int n = 0;
+        for (Cost cost : costs.values()) {
+            synchronized (cost) {
+                if (cost.runs > 0) {
+                    sum += cost.evalMs;
+                    n++;
+                }
+            }
+        }
+        return n == 0 ? 1 : sum / n;
+    }
+
+    /**
+     * Drops the alerts not in {@code alertIds}, so deleted alerts do not
+     * accumulate in the persisted model.
+     */
+    public void retain(final Map<Long, ?> alertIds) {
+        costs.keySet().removeIf(id -> !alertIds.containsKey(id));
+    }
+
+    private Cost cost(final long alertId) {
+        return costs.computeIfAbsent(alertId, id -> new Cost());
+    }
+
+    ObjectNode toJson() {
+        final ObjectNode root = AlertUtils.jsonMapper.createObjectNode();
+        root.put("version", FORMAT_VERSION);
+        final ObjectNode alerts = root.putObject("alerts");
+        costs.forEach((id, cost) -> {
+            synchronized (cost) {
+                if (cost.runs == 0) {
+                    return;
+                }
+                alerts.putObject(Long.toString(id))
+                        .put("evalMs", cost.evalMs)
+                        .put("tsdbMs", cost.tsdbMs)
+                        .put("responseBytes", cost.responseBytes)
+                        .put("series", cost.series)
+                        .put("stateSize", cost.stateSize)
+                        .put("runs", cost.runs);
+            }
+        });
+        return root;
+    }
+
+    void fromJson(final JsonNode root) {
+        if (root.path("version").asInt() != FORMAT_VERSION) {
+            log.warn("Ignoring cost model of version {}", root.path("version"));
+            return;
+        }
+        final Iterator<Map.Entry<String, JsonNode>> alerts = root.path("alerts").fields();
+        while (alerts.hasNext()) {
+            final Map.Entry<String, JsonNode> entry = alerts.next();
+            final JsonNode node = entry.getValue();
+            final Cost cost = new Cost();
+            cost.evalMs = node.path("evalMs").asDouble();
+            cost.tsdbMs = node.path("tsdbMs").asDouble();
+            cost.responseBytes = node.path("responseBytes").asDouble();
+            cost.series = node.path("series").asDouble();
+            cost.stateSize = node.path("stateSize").asLong();
+            cost.runs = node.path("runs").asLong();
+            costs.put(Long.parseLong(entry.getKey()), cost);
+        }
+    }
+
+    void load() {
+        if (file == null || !file.exists()) {
+            return;
+        }
+        try {
+            fromJson(AlertUtils.jsonMapper.readTree(file));
+            log.info("Loaded cost of {} alerts from {}", costs.size(), file);
+        } catch (Exception e) {
+            log.error("Unable to load cost model from {}, starting empty", file, e);
+        }
+    }
+
+    /**
+     * Written to a temporary file first, so a crash never leaves a
+     * truncated model behind.
+     */
+    void save() {
+        if (file == null) {
+            return;
+        }
+        try {
+            final File tmp = new File(file.getPath() + ".tmp");
+            AlertUtils.jsonMapper.writeValue(tmp, toJson());
+            Files.move(tmp.toPath(), file.toPath(),
+                    StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } catch (IOException e) {
+            log.error("Unable to save cost model to {}", file, e);
+        }
+    }
+
+    private static final class Cost {
+
+        private double evalMs;
+
+        private double tsdbMs;
+
+        private double responseBytes;
+
+        private double series;
+
+        private long stateSize;
+
+        private long runs;
+
+        private long pendingTsdbMs;
+
+        private long pendingBytes;
+
+        private long pendingSeries;
+
+        synchronized void addTsdb(final long latencyMs) {
+            pendingTsdbMs += latencyMs;
+        }
+
+        synchronized void addBytes(final long bytes) {
+            pendingBytes += bytes;
+        }
+
+        synchronized void addSeries(final long count) {
+            pendingSeries += count;
+        }
+
+        synchronized void setStateSize(final long states) {
+            stateSize = states;
+        }
+
+        synchronized void endRun(final long evaluationMs) {
+            if (runs == 0) {
+                evalMs = evaluationMs;
+                tsdbMs = pendingTsdbMs;
+                responseBytes = pendingBytes;
+                series = pendingSeries;
+            } else {
+                evalMs += ALPHA * (evaluationMs - evalMs);
+                tsdbMs += ALPHA * (pendingTsdbMs - tsdbMs);
+                responseBytes += ALPHA * (pendingBytes - responseBytes);
+                series += ALPHA * (pendingSeries - series);
+            }
+            runs++;
+            pendingTsdbMs = 0;
+            pendingBytes = 0;
+            pendingSeries = 0;
+        }
+    }
+}
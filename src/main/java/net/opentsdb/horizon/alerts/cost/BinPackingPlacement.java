@@ -0,0 +1,205 @@
+/*
+ * This file is part of OpenTSDB.
+ * Copyright (C) 2021 Yahoo.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package net.opentsdb.horizon.alerts.cost;
+
+import it.unimi.dsi.fastutil.longs.Long2IntMap;
+import it.unimi.dsi.fastutil.longs.Long2IntOpenHashMap;
+import net.opentsdb.horizon.alerts.config.ConfigSnapshot;
+import lombok.extern.slf4j.Slf4j;
+
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.function.LongToDoubleFunction;
+
+/**
+ * Assigns alerts to daemons so that each gets about the same expected
+ * evaluation time.
+ *
+ * Assignments are sticky: new alerts go to the least loaded daemon and
+ * the others stay where they are, since moving an alert drops the state
+ * its monitor keeps in memory. All alerts are packed again, largest
+ * first, only when the most loaded daemon exceeds the mean by
+ * {@code imbalance}, and at most once every {@code rebalanceIntervalMs}.
+ *
+ * One instance is shared by the daemons of a process.
+ */
+@Slf4j
+public class BinPackingPlacement {
+
+    private static final int UNASSIGNED = -1;
+
+    private final int bins;
+
+    private final double imbalance;
+
+    private final long rebalanceIntervalMs;
+
+    private Long2IntOpenHashMap assignment = new Long2IntOpenHashMap();
+
+    private long sourceVersion = Long.MIN_VALUE;
+
+    private long nextRebalanceMs;
+
+    /**
+     * Incremented whenever the assignment changes.
+     */
+    private volatile long epoch;
+
+    public BinPackingPlacement(final int bins,
+                               final double imbalance,
+                               final long rebalanceIntervalMs) {
+        if (bins < 1) {
+            throw new IllegalArgumentException("bins must be positive: " + bins);
+        }
+        this.bins = bins;
+        this.imbalance = imbalance;
+        this.rebalanceIntervalMs = rebalanceIntervalMs;
+        this.assignment.defaultReturnValue(UNASSIGNED);
+    }
+
+    public long getEpoch() {
+        return epoch;
+    }
+
+    /**
+     * @return true if {@link #place} would compute a new assignment.
+     */
+    public synchronized boolean isStale(final long sourceVersion, final long nowMs) {
+        return sourceVersion == ConfigSnapshot.UNVERSIONED
+                || sourceVersion != this.sourceVersion
+                || nowMs >= nextRebalanceMs;
+    }
+
+    /**
+     * @return the daemon of the alert, -1 if it has not been placed.
+     */
+    public synchronized int binOf(final long alertId) {
+        return assignment.get(alertId);
+    }
+
+    /**
+     * Places {@code alertIds}, keyed by the version of the configs they
+     * come from. Daemons asking again for the same version get the
+     * assignment already computed until the next rebalance is due.
+     */
+    public synchronized void place(final long sourceVersion,
+                                   final Collection<Long> alertIds,
+                                   final LongToDoubleFunction cost,
+                                   final long nowMs) {
+        if (!isStale(sourceVersion, nowMs)) {
+            return;
+        }
+        final boolean rebalanceDue = nowMs >= nextRebalanceMs;
+        this.sourceVersion = sourceVersion;
+
+        final long[] ids = new long[alertIds.size()];
+        final double[] costs = new double[ids.length];
+        int n = 0;
+        for (Long id : alertIds) {
+            ids[n] = id;
+            costs[n] = cost.applyAsDouble(id);
+            n++;
+        }
+        final Integer[] order = byCostDescending(ids, costs);
+
+        Long2IntOpenHashMap next = new Long2IntOpenHashMap(ids.length);
+        next.defaultReturnValue(UNASSIGNED);
+        double[] loads = new double[bins];
+        for (int i = 0; i < ids.length; i++) {
+            final int bin = assignment.get(ids[i]);
+            if (bin != UNASSIGNED && bin < bins) {
+                next.put(ids[i], bin);
+                loads[bin] += costs[i];
+            }
+        }
+        for (Integer i : order) {
+            if (!next.containsKey(ids[i])) {
+                final int bin = leastLoaded(loads);
+                next.put(ids[i], bin);
+                loads[bin] += costs[i];
+            }
+        }
+
+        if (rebalanceDue) {
+            nextRebalanceMs = nowMs + rebalanceIntervalMs;
+            if (isImbalanced(loads)) {
+                final double before = max(loads);
+                next = new Long2IntOpenHashMap(ids.length);
+                next.defaultReturnValue(UNASSIGNED);
+                loads = new double[bins];
+                for (Integer i : order) {
+                    final int bin = leastLoaded(loads);
+                    next.put(ids[i], bin);
+                    loads[bin] += costs[i];
+                }
+                log.info("Rebalanced {} alerts over {} daemons, max load: {} ms -> {} ms",
+                        ids.length, bins, before, max(loads));
+            }
+        }
+
+        if (!next.equals(assignment)) {
+            assignment = next;
+            epoch++;
+        }
+    }
+
+    /**
+     * Largest first, ties by alert id, so every run packs the same way.
+     */
+    private static Integer[] byCostDescending(final long[] ids, final double[] costs) {
+        final Integer[] order = new Integer[ids.length];
+        for (int i = 0; i < order.length; i++) {
+            order[i] = i;
+        }
+        Arrays.sort(order, (a, b) -> {
+            final int byCost = Double.compare(costs[b], costs[a]);
+            return byCost != 0 ? byCost : Long.compare(ids[a], ids[b]);
+        });
+        return order;
+    }
+
+    private boolean isImbalanced(final double[] loads) {
+        double sum = 0;
+        for (double load : loads) {
+            sum += load;
+        }
+        return sum > 0 && max(loads) > (1 + imbalance) * sum / bins;
+    }
+
+    private static int leastLoaded(final double[] loads) {
+        int min = 0;
+        for (int i = 1; i < loads.length; i++) {
+            if (loads[i] < loads[min]) {
+                min = i;
+            }
+        }
+        return min;
+    }
+
+    private static double max(final double[] loads) {
+        double max = 0;
+        for (double load : loads) {
+            max = Math.max(max, load);
+        }
+        return max;
+    }
+
+    Long2IntMap getAssignment() {
+        return assignment;
+    }
+}
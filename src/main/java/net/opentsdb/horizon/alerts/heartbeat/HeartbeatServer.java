@@ -18,8 +18,13 @@
 package net.opentsdb.horizon.alerts.heartbeat;
 
 import com.google.gson.Gson;
+import net.opentsdb.horizon.alerting.corona.monitoring.MetricsReporter;
+import net.opentsdb.horizon.alerting.corona.monitoring.PrometheusFormat;
+import net.opentsdb.horizon.alerts.profile.RunProfiler;
 import io.undertow.Handlers;
 import io.undertow.Undertow;
+import io.undertow.server.handlers.PathHandler;
+import io.undertow.util.Headers;
 import io.undertow.util.Methods;
 
 import java.util.ArrayList;
@@ -45,6 +50,14 @@ public class HeartbeatServer {
 
     private Gson gson = new Gson();
 
+    private String metricsPath;
+
+    private MetricsReporter metricsReporter;
+
+    private String runProfilerPath;
+
+    private RunProfiler runProfiler;
+
     public HeartbeatServer(String hostname,int port,String path) {
         this.hostname = hostname;
         this.port = port;
@@ -55,11 +68,28 @@ public class HeartbeatServer {
         this.heartbeatReadable = heartbeatReadable;
     }
 
+    /**
+     * Serves the last reporting window of {@code reporter} on {@code path}
+     * in the Prometheus text format. Has to be set before {@link #start()}.
+     */
+    public void setMetrics(String path, MetricsReporter reporter) {
+        this.metricsPath = path;
+        this.metricsReporter = reporter;
+    }
+
+    /**
+     * Serves the slowest runs kept by {@code profiler} on {@code path} as
+     * json. Has to be set before {@link #start()}.
+     */
+    public void setRunProfiler(String path, RunProfiler profiler) {
+        this.runProfilerPath = path;
+        this.runProfiler = profiler;
+    }
+
     public void start() {
 
 
-        Undertow server = Undertow.builder().addHttpListener(port,
-                hostname).setHandler(Handlers.path()
+        final PathHandler handler = Handlers.path()
                                 .addPrefixPath(path,httpServerExchange -> {
                                     if(httpServerExchange.getRequestMethod().equals(Methods.GET)) {
                                         // Optional health check
@@ -79,7 +109,39 @@ public class HeartbeatServer {
                                         httpServerExchange.setStatusCode(405);
                                         httpServerExchange.getResponseSender().send("Not allowed");
                                     }
-                                })).build();
+                                });
+
+        if (metricsReporter != null && metricsPath != null && !metricsPath.isEmpty()) {
+            handler.addExactPath(metricsPath, httpServerExchange -> {
+                if(httpServerExchange.getRequestMethod().equals(Methods.GET)) {
+                    httpServerExchange.setStatusCode(200);
+                    httpServerExchange.getResponseHeaders().put(Headers.CONTENT_TYPE,
+                            PrometheusFormat.CONTENT_TYPE);
+                    httpServerExchange.getResponseSender().send(metricsReporter.scrape());
+                } else {
+                    httpServerExchange.setStatusCode(405);
+                    httpServerExchange.getResponseSender().send("Not allowed");
+                }
+            });
+        }
+
+        if (runProfiler != null && runProfiler.isEnabled()
+                && runProfilerPath != null && !runProfilerPath.isEmpty()) {
+            handler.addExactPath(runProfilerPath, httpServerExchange -> {
+                if(httpServerExchange.getRequestMethod().equals(Methods.GET)) {
+                    httpServerExchange.setStatusCode(200);
+                    httpServerExchange.getResponseHeaders().put(Headers.CONTENT_TYPE,
+                            "application/json");
+                    httpServerExchange.getResponseSender().send(runProfiler.toJson().toString());
+                } else {
+                    httpServerExchange.setStatusCode(405);
+                    httpServerExchange.getResponseSender().send("Not allowed");
+                }
+            });
+        }
+
+        Undertow server = Undertow.builder().addHttpListener(port,
+                hostname).setHandler(handler).build();
 
 
         server.start();
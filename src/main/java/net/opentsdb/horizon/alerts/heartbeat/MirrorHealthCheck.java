@@ -29,11 +29,15 @@ import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import java.io.IOException;
+import java.util.ArrayList;
 import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.Executors;
 import java.util.concurrent.ScheduledExecutorService;
 import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
 
 public class MirrorHealthCheck {
 
@@ -47,7 +51,12 @@ public class MirrorHealthCheck {
 
     private Map<String,byte[]> mirrorMap = new HashMap<>();
 
-    private Map<String,Boolean> mirrorAvail = new HashMap<>();
+    private Map<String,Boolean> mirrorAvail = new ConcurrentHashMap<>();
+
+    /**
+     * Incremented whenever a mirror is added or removed.
+     */
+    private final AtomicLong membershipVersion = new AtomicLong();
 
     private final CloseableHttpClient closeableHttpClient;
 
@@ -137,6 +146,7 @@ public class MirrorHealthCheck {
                                     EFFECTIVE_NUMBER_OF_MIRRORS = EFFECTIVE_NUMBER_OF_MIRRORS + 1;
                                     LOG.info("Adding mirror: {} total: {}", mirror, EFFECTIVE_NUMBER_OF_MIRRORS);
                                     mirrorAvail.put(mirror, true);
+                                    membershipVersion.incrementAndGet();
                                 }
                             }
                         } else {
@@ -148,6 +158,7 @@ public class MirrorHealthCheck {
                                     EFFECTIVE_NUMBER_OF_MIRRORS = EFFECTIVE_NUMBER_OF_MIRRORS - 1;
                                     LOG.info("Removing mirror: {} total: {}", mirror, EFFECTIVE_NUMBER_OF_MIRRORS);
                                     mirrorAvail.put(mirror, false);
+                                    membershipVersion.incrementAndGet();
                                 }
 
                                 final int countOfFailures = getCountOfFailures(mirror,
@@ -158,6 +169,7 @@ public class MirrorHealthCheck {
                                     EFFECTIVE_NUMBER_OF_MIRRORS = EFFECTIVE_NUMBER_OF_MIRRORS - 1;
                                     LOG.info("Removing mirror: {} total: {}", mirror, EFFECTIVE_NUMBER_OF_MIRRORS);
                                     mirrorAvail.put(mirror, false);
+                                    membershipVersion.incrementAndGet();
                                 }
                             }
                         }
@@ -228,6 +240,30 @@ public class MirrorHealthCheck {
         return MIRROR_WRAPPER.mirrorHealthCheck.EFFECTIVE_NUMBER_OF_MIRRORS;
     }
 
+    /**
+     * @return this host and the mirrors currently available.
+     */
+    public static List<String> getLiveMirrors() {
+        final MirrorHealthCheck check = MIRROR_WRAPPER.mirrorHealthCheck;
+        final List<String> live = new ArrayList<>();
+        if (check.config.getBaseHost() != null) {
+            live.add(check.config.getBaseHost());
+        }
+        check.mirrorAvail.forEach((mirror, available) -> {
+            if (available) {
+                live.add(mirror);
+            }
+        });
+        return live;
+    }
+
+    /**
+     * @return a value which changes whenever {@link #getLiveMirrors()} does.
+     */
+    public static long getMembershipVersion() {
+        return MIRROR_WRAPPER.mirrorHealthCheck.membershipVersion.get();
+    }
+
     private static long getBucketedCurrTime() {
         final long l = System.currentTimeMillis() / 1000;
         return (l - l % runfreq);
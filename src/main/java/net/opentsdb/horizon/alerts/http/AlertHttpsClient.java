@@ -39,7 +39,7 @@ import java.util.List;
 
 public class AlertHttpsClient {
 
-    private CloseableHttpClient closeableHttpClient = null;
+    private volatile CloseableHttpClient closeableHttpClient = null;
 
     private static final int DEFAULT_TIMEOUT_MS = 60_000;
 
@@ -49,6 +49,20 @@ public class AlertHttpsClient {
 
     private AuthProviderForAlertClient authProviderForAlertClient;
 
+    /**
+     * Pooled keep-alive connections per route. One for a client owned by a
+     * single monitor, more when monitors share the client.
+     */
+    private final int maxConnections;
+
+    public AlertHttpsClient() {
+        this(1);
+    }
+
+    public AlertHttpsClient(final int maxConnections) {
+        this.maxConnections = Math.max(1, maxConnections);
+    }
+
     private CloseableHttpClient createClient() throws Exception {
 
         final SSLConnectionSocketFactory factory;
@@ -75,16 +89,16 @@ public class AlertHttpsClient {
 
             return HttpClientBuilder.create()
                     .setRetryHandler(retryHandler)
-                    .setMaxConnTotal(1)
-                    .setMaxConnPerRoute(1)
+                    .setMaxConnTotal(maxConnections)
+                    .setMaxConnPerRoute(maxConnections)
                     .setDefaultRequestConfig(requestConfig)
                     .setSSLSocketFactory(factory).build();
         } else {
 
             return HttpClientBuilder.create()
                     .setRetryHandler(retryHandler)
-                    .setMaxConnTotal(1)
-                    .setMaxConnPerRoute(1)
+                    .setMaxConnTotal(maxConnections)
+                    .setMaxConnPerRoute(maxConnections)
                     .setDefaultRequestConfig(requestConfig)
                     .build();
         }
@@ -100,23 +114,38 @@ public class AlertHttpsClient {
          return alertHttpsClient;
     }
 
+    public static AlertHttpsClient create(
+            int maxConnections,
+            AuthProviderForAlertClient authProviderForAlertClient) {
+         AlertHttpsClient alertHttpsClient = new AlertHttpsClient(maxConnections);
+         alertHttpsClient.setAuthProvider(authProviderForAlertClient);
+         return alertHttpsClient;
+    }
+
     public void setAuthProvider(AuthProviderForAlertClient authProvider) {
         this.authProviderForAlertClient = authProvider;
     }
 
     public CloseableHttpResponse execute(HttpUriRequest httpPost) throws AlertException {
 
-        if (closeableHttpClient == null) {
-            try {
-                closeableHttpClient = createClient();
-                LOG.info("Created client");
-            } catch (Exception e) {
-                throw new AlertException("Error creating httpclient:", e);
+        CloseableHttpClient client = closeableHttpClient;
+        if (client == null) {
+            synchronized (this) {
+                client = closeableHttpClient;
+                if (client == null) {
+                    try {
+                        client = createClient();
+                        closeableHttpClient = client;
+                        LOG.info("Created client with {} connections", maxConnections);
+                    } catch (Exception e) {
+                        throw new AlertException("Error creating httpclient:", e);
+                    }
+                }
             }
         }
 
         try {
-            return closeableHttpClient.execute(httpPost);
+            return client.execute(httpPost);
         } catch (ClientProtocolException e) {
             LOG.error("Exception running http post: ", e);
             throw new AlertException("Error running http post", e);
@@ -0,0 +1,474 @@
+/*
+ * This file is part of OpenTSDB.
+ * Copyright (C) 2021 Yahoo.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package net.opentsdb.horizon.alerts.http;
+
+import com.fasterxml.jackson.core.JsonEncoding;
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.google.common.base.Strings;
+import net.opentsdb.horizon.alerts.AlertException;
+import net.opentsdb.horizon.alerts.Monitoring;
+import net.opentsdb.horizon.alerts.OutputWriter;
+import net.opentsdb.horizon.alerts.http.impl.AthensAuthProvider;
+import net.opentsdb.horizon.alerts.model.AlertEventBag;
+import net.opentsdb.horizon.alerts.model.tsdb.Datum;
+import net.opentsdb.horizon.alerts.model.tsdb.IMetric;
+import net.opentsdb.horizon.alerts.model.tsdb.YmsStatusEvent;
+import lombok.extern.slf4j.Slf4j;
+import org.apache.http.client.methods.CloseableHttpResponse;
+import org.apache.http.client.methods.HttpPost;
+import org.apache.http.entity.ByteArrayEntity;
+import org.apache.http.util.EntityUtils;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * High throughput variant of {@link CollectorWriterClient}.
+ *
+ * Status events are streamed straight into a per namespace
+ * {@link JsonGenerator} backed by a pooled byte buffer (optionally gzipped),
+ * so no intermediate tree or String is built per event. Full batches are
+ * handed off to a small pool of posting threads, which lets different
+ * namespaces be posted concurrently while the drain thread keeps encoding.
+ *
+ * The inbound queue is bounded and applies a {@link DropPolicy} when full.
+ * Every drop is reported with its reason through {@link Monitoring}: a
+ * full queue, a batch which could not be encoded, and a batch the collector
+ * did not accept.
+ */
+@Slf4j
+public class BatchedCollectorWriterClient implements OutputWriter {
+
+    public enum DropPolicy {
+        /** Reject the incoming event, keep what is already queued. */
+        DROP_NEWEST,
+        /** Evict the oldest queued event to make room for the new one. */
+        DROP_OLDEST;
+
+        public static DropPolicy fromString(String policy) {
+            for (DropPolicy dropPolicy : values()) {
+                if (dropPolicy.name().equalsIgnoreCase(policy)) {
+                    return dropPolicy;
+                }
+            }
+            return DROP_NEWEST;
+        }
+    }
+
+    private static final String COLLECTOR_URL_FORMAT = "https://%s";
+
+    private static final String PATH_FORMAT = "%s/yms/V2/sendMessage?namespace=%s";
+
+    private static final JsonFactory JSON_FACTORY = new JsonFactory();
+
+    private static final int INITIAL_BUFFER_SIZE = 64 * 1024;
+
+    private static final int MAX_POOLED_BUFFERS = 64;
+
+    private final BlockingQueue<YmsStatusEvent> blockingQueue;
+
+    private final BlockingQueue<PooledBuffer> bufferPool =
+            new ArrayBlockingQueue<>(MAX_POOLED_BUFFERS);
+
+    private final Map<String, NamespaceBatch> batches = new HashMap<>();
+
+    private final ScheduledExecutorService drainExecutor;
+
+    private final ThreadPoolExecutor postExecutor;
+
+    private final ThreadLocal<AlertHttpsClient> httpsClients =
+            ThreadLocal.withInitial(() ->
+                    AlertHttpsClient.create(new AthensAuthProvider()));
+
+    private final String collectorUrl;
+    private final int sizeToFlush;
+    private final long timeToFlushInMs;
+    private final boolean gzip;
+    private final DropPolicy dropPolicy;
+    private final int index;
+    private final String type;
+
+    BatchedCollectorWriterClient(String collectorHostPort,
+                                 String type,
+                                 int sizeToFlush,
+                                 int timeToFlushInSecs,
+                                 int flushFrequencyInMs,
+                                 int blockingQueueSizeMax,
+                                 int postConcurrency,
+                                 boolean gzip,
+                                 DropPolicy dropPolicy,
+                                 int index) {
+        this.collectorUrl = String.format(COLLECTOR_URL_FORMAT, collectorHostPort);
+        this.sizeToFlush = sizeToFlush;
+        this.timeToFlushInMs = timeToFlushInSecs * 1000L;
+        this.gzip = gzip;
+        this.dropPolicy = dropPolicy;
+        this.index = index;
+        this.type = type;
+        this.blockingQueue = new ArrayBlockingQueue<>(blockingQueueSizeMax);
+
+        // Bounded hand-off: when every poster is busy and the hand-off queue
+        // is full, the drain thread posts itself, which naturally slows
+        // down draining and lets the inbound queue apply the drop policy.
+        this.postExecutor = new ThreadPoolExecutor(postConcurrency, postConcurrency,
+                60, TimeUnit.SECONDS,
+                new ArrayBlockingQueue<>(postConcurrency * 2),
+                new ThreadPoolExecutor.CallerRunsPolicy());
+
+        this.drainExecutor = new ScheduledThreadPoolExecutor(1);
+        this.drainExecutor.scheduleAtFixedRate(this::drain, 10000,
+                flushFrequencyInMs, TimeUnit.MILLISECONDS);
+    }
+
+    void drain() {
+        try {
+            Monitoring.get().gaugeCollectorQueueSize(blockingQueue.size());
+            Monitoring.get().gaugeCollectorQueueRemainingCapacity(
+                    blockingQueue.remainingCapacity(), type, index);
+
+            YmsStatusEvent event;
+            while ((event = blockingQueue.poll()) != null) {
+                final String namespace = event.getDatum().getCluster();
+                NamespaceBatch batch = batches.get(namespace);
+                if (batch == null) {
+                    batch = new NamespaceBatch(namespace, borrowBuffer());
+                    batches.put(namespace, batch);
+                }
+                try {
+                    batch.append(event);
+                } catch (IOException | RuntimeException e) {
+                    // The generator is left mid-event, start over with a new batch.
+                    log.error("Error encoding status for {}, dropping its batch", namespace, e);
+                    batches.remove(namespace);
+                    batch.discard();
+                    reportDropped(namespace, "encoding", batch.count + 1);
+                    continue;
+                }
+                Monitoring.get().incStatusesToBePosted(namespace, type, index);
+
+                if (batch.count >= sizeToFlush) {
+                    batches.remove(namespace);
+                    submit(batch);
+                }
+            }
+
+            final long now = currentTimeMillis();
+            final Iterator<NamespaceBatch> iterator = batches.values().iterator();
+            while (iterator.hasNext()) {
+                final NamespaceBatch batch = iterator.next();
+                if (now - batch.createdAt > timeToFlushInMs) {
+                    iterator.remove();
+                    submit(batch);
+                }
+            }
+        } catch (Throwable t) {
+            log.error("Error running flush to collector", t);
+        }
+    }
+
+    private void submit(final NamespaceBatch batch) {
+        final PooledBuffer buffer;
+        try {
+            buffer = batch.finish();
+        } catch (IOException e) {
+            log.error("Error encoding batch for {}", batch.namespace, e);
+            reportDropped(batch.namespace, "encoding", batch.count);
+            releaseBuffer(batch.buffer);
+            return;
+        }
+        postExecutor.execute(() -> {
+            try {
+                if (!post(batch.namespace, buffer)) {
+                    reportDropped(batch.namespace, "post_failed", batch.count);
+                }
+            } catch (Exception e) {
+                log.error("Error posting {} statuses to {}", batch.count, batch.namespace, e);
+                reportDropped(batch.namespace, "post_failed", batch.count);
+            } finally {
+                releaseBuffer(buffer);
+            }
+        });
+    }
+
+    /**
+     * @return true if the collector accepted the batch.
+     */
+    boolean post(final String namespace, final PooledBuffer buffer)
+            throws AlertException {
+
+        final String finalUrl = String.format(PATH_FORMAT, collectorUrl, namespace);
+        final HttpPost httpPost = new HttpPost(finalUrl);
+        httpPost.setHeader("Content-type", "application/json");
+        if (gzip) {
+            httpPost.setHeader("Content-Encoding", "gzip");
+        }
+        httpPost.setEntity(new ByteArrayEntity(buffer.array(), 0, buffer.size()));
+
+        final int bytes = buffer.size();
+        final long start = System.currentTimeMillis();
+        final CloseableHttpResponse execute = httpsClients.get().execute(httpPost);
+        final long end = System.currentTimeMillis();
+
+        final int statusCode = execute.getStatusLine().getStatusCode();
+        EntityUtils.consumeQuietly(execute.getEntity());
+
+        if (statusCode == 200) {
+            Monitoring.get().reportCollector2xx(1, namespace, type, index);
+            Monitoring.get().reportCollectorPostLatency(end - start, namespace, type, index);
+            Monitoring.get().reportCollectorSuccesfullyBytesPosted(bytes, namespace, type, index);
+        } else if (statusCode >= 500) {
+            Monitoring.get().reportCollector5xx(1, namespace, type, index);
+            Monitoring.get().reportCollector5xxFailedBytesPosted(bytes, namespace, type, index);
+        } else if (statusCode >= 400) {
+            Monitoring.get().reportCollector4xx(1, namespace, type, index);
+            Monitoring.get().reportCollector4xxFailedBytesPosted(bytes, namespace, type, index);
+        }
+        return statusCode == 200;
+    }
+
+    void reportDropped(final String namespace, final String reason, final int count) {
+        Monitoring.get().incDroppedCollectorEvent(namespace, type, index, reason, count);
+    }
+
+    long currentTimeMillis() {
+        return System.currentTimeMillis();
+    }
+
+    private PooledBuffer borrowBuffer() {
+        final PooledBuffer buffer = bufferPool.poll();
+        return buffer == null ? new PooledBuffer(INITIAL_BUFFER_SIZE) : buffer;
+    }
+
+    private void releaseBuffer(final PooledBuffer buffer) {
+        buffer.reset();
+        bufferPool.offer(buffer);
+    }
+
+    @Override
+    public void sendAlertEvent(AlertEventBag alertEventBag) {
+        //Do nothing for now
+    }
+
+    @Override
+    public void sendStatusEvent(YmsStatusEvent ymsStatusEvent) {
+        if (blockingQueue.offer(ymsStatusEvent)) {
+            return;
+        }
+
+        final String namespace = ymsStatusEvent.getDatum().getCluster();
+        if (dropPolicy == DropPolicy.DROP_OLDEST) {
+            final YmsStatusEvent evicted = blockingQueue.poll();
+            if (evicted != null) {
+                reportDropped(evicted.getDatum().getCluster(), "evicted", 1);
+            }
+            if (blockingQueue.offer(ymsStatusEvent)) {
+                return;
+            }
+        }
+        log.debug("Dropping event as queue is full: {}", namespace);
+        reportDropped(namespace, "queue_full", 1);
+    }
+
+    /**
+     * Writes a single status as one line of newline delimited JSON, in the
+     * same shape {@link CollectorWriterClient} produces.
+     */
+    static void writeEvent(final JsonGenerator generator,
+                           final YmsStatusEvent event) throws IOException {
+        final Datum datum = event.getDatum();
+        generator.writeStartObject();
+        generator.writeStringField("application", datum.getApplication());
+        generator.writeNumberField("timestamp", datum.getTimestamp());
+
+        generator.writeObjectFieldStart("dimensions");
+        for (Map.Entry<String, String> tag : datum.getTags().getDimensions().entrySet()) {
+            generator.writeStringField(tag.getKey(), tag.getValue());
+        }
+        generator.writeEndObject();
+
+        generator.writeObjectFieldStart("metrics");
+        for (Map.Entry<String, IMetric> metric : datum.getMetrics().entrySet()) {
+            generator.writeStringField(metric.getKey(),
+                    String.valueOf(metric.getValue().getValue()));
+        }
+        generator.writeEndObject();
+
+        if (!Strings.isNullOrEmpty(datum.getStatus_msg())) {
+            generator.writeStringField("status_msg", datum.getStatus_msg());
+        }
+        generator.writeEndObject();
+    }
+
+    /**
+     * {@link ByteArrayOutputStream} exposing its backing array so the
+     * request entity can wrap it without a copy.
+     */
+    static final class PooledBuffer extends ByteArrayOutputStream {
+
+        PooledBuffer(int size) {
+            super(size);
+        }
+
+        byte[] array() {
+            return buf;
+        }
+    }
+
+    private final class NamespaceBatch {
+
+        private final String namespace;
+        private final PooledBuffer buffer;
+        private final OutputStream stream;
+        private final JsonGenerator generator;
+        private final long createdAt = currentTimeMillis();
+        private int count;
+
+        NamespaceBatch(String namespace, PooledBuffer buffer) {
+            this.namespace = namespace;
+            this.buffer = buffer;
+            try {
+                this.stream = gzip ? new GZIPOutputStream(buffer, 8192) : buffer;
+                this.generator = JSON_FACTORY.createGenerator(stream, JsonEncoding.UTF8);
+            } catch (IOException e) {
+                // Only in-memory streams are involved here.
+                throw new IllegalStateException(e);
+            }
+            // Newline delimited JSON: one root value per line.
+            this.generator.setRootValueSeparator(null);
+        }
+
+        void append(YmsStatusEvent event) throws IOException {
+            if (count != 0) {
+                generator.writeRaw('\n');
+            }
+            writeEvent(generator, event);
+            count++;
+        }
+
+        PooledBuffer finish() throws IOException {
+            generator.close();
+            stream.close();
+            return buffer;
+        }
+
+        void discard() {
+            try {
+                generator.close();
+                stream.close();
+            } catch (IOException | RuntimeException e) {
+                // Dropped anyway.
+            }
+            releaseBuffer(buffer);
+        }
+    }
+
+    public static class Builder {
+
+        private String collectorHostPort;
+        private int sizeToFlush;
+        private int timeToFlushInSecs;
+        private int flushFrequencyInMs;
+        private int blockingQueueSizeMax;
+        private int postConcurrency = 1;
+        private boolean gzip = true;
+        private DropPolicy dropPolicy = DropPolicy.DROP_NEWEST;
+        private int index;
+        private String type;
+
+        public Builder withCollectorHostPort(String collectorHostPort) {
+            this.collectorHostPort = collectorHostPort;
+            return this;
+        }
+
+        public Builder ofType(String type) {
+            this.type = type;
+            return this;
+        }
+
+        public Builder sizeToFlush(int sizeToFlush) {
+            this.sizeToFlush = sizeToFlush;
+            return this;
+        }
+
+        public Builder timeToFlushInSecs(int timeToFlushInSecs) {
+            this.timeToFlushInSecs = timeToFlushInSecs;
+            return this;
+        }
+
+        public Builder flushFrequencyInMs(int flushFrequencyInMs) {
+            this.flushFrequencyInMs = flushFrequencyInMs;
+            return this;
+        }
+
+        public Builder blockingQueueSizeMax(int blockingQueueSizeMax) {
+            this.blockingQueueSizeMax = blockingQueueSizeMax;
+            return this;
+        }
+
+        public Builder postConcurrency(int postConcurrency) {
+            this.postConcurrency = postConcurrency;
+            return this;
+        }
+
+        public Builder gzip(boolean gzip) {
+            this.gzip = gzip;
+            return this;
+        }
+
+        public Builder dropPolicy(DropPolicy dropPolicy) {
+            this.dropPolicy = dropPolicy;
+            return this;
+        }
+
+        public Builder withIndex(int index) {
+            this.index = index;
+            return this;
+        }
+
+        public BatchedCollectorWriterClient build() {
+            return new BatchedCollectorWriterClient(
+                    this.collectorHostPort,
+                    this.type,
+                    this.sizeToFlush,
+                    this.timeToFlushInSecs,
+                    this.flushFrequencyInMs,
+                    this.blockingQueueSizeMax,
+                    Math.max(1, this.postConcurrency),
+                    this.gzip,
+                    this.dropPolicy,
+                    this.index
+            );
+        }
+
+        public static Builder create() {
+            return new Builder();
+        }
+    }
+}
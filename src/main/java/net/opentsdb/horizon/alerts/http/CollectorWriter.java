@@ -25,10 +25,10 @@ import lombok.extern.slf4j.Slf4j;
 @Slf4j
 public class CollectorWriter implements OutputWriter {
 
-    private volatile CollectorWriterClient[] collectorWriterClients;
+    private volatile OutputWriter[] collectorWriterClients;
 
 
-    CollectorWriter(CollectorWriterClient[] collectorWriterClients) {
+    CollectorWriter(OutputWriter[] collectorWriterClients) {
         this.collectorWriterClients = collectorWriterClients;
     }
 
@@ -18,6 +18,7 @@
 package net.opentsdb.horizon.alerts.http;
 
 import net.opentsdb.horizon.alerts.EnvironmentConfig;
+import net.opentsdb.horizon.alerts.OutputWriter;
 
 
 public class CollectorWriters {
@@ -67,20 +68,37 @@ public class CollectorWriters {
 
                     final int numCollectorClients
                             = environmentConfig.getNumCollectorClients();
-                    CollectorWriterClient[] collectorWriterClients
-                            = new CollectorWriterClient[numCollectorClients];
+                    OutputWriter[] collectorWriterClients
+                            = new OutputWriter[numCollectorClients];
 
                     for(int i = 0; i < numCollectorClients; i++) {
-                        collectorWriterClients[i]
-                                = CollectorWriterClient.Builder.create()
-                                .ofType(type)
-                                .withCollectorHostPort(environmentConfig.getCollectorUrl())
-                                .sizeToFlush(environmentConfig.getCollectorFlushSize())
-                                .timeToFlushInSecs(environmentConfig.getCollectorBatchTimeout())
-                                .flushFrequencyInMs(environmentConfig.getCollectorFlushFrequency())
-                                .blockingQueueSizeMax(maxBacklog)
-                                .withIndex(i)
-                                .build();
+                        if(environmentConfig.isBatchedCollectorClient()) {
+                            collectorWriterClients[i]
+                                    = BatchedCollectorWriterClient.Builder.create()
+                                    .ofType(type)
+                                    .withCollectorHostPort(environmentConfig.getCollectorUrl())
+                                    .sizeToFlush(environmentConfig.getCollectorFlushSize())
+                                    .timeToFlushInSecs(environmentConfig.getCollectorBatchTimeout())
+                                    .flushFrequencyInMs(environmentConfig.getCollectorFlushFrequency())
+                                    .blockingQueueSizeMax(maxBacklog)
+                                    .postConcurrency(environmentConfig.getCollectorPostConcurrency())
+                                    .gzip(environmentConfig.isCollectorGzipEnabled())
+                                    .dropPolicy(BatchedCollectorWriterClient.DropPolicy
+                                            .fromString(environmentConfig.getCollectorDropPolicy()))
+                                    .withIndex(i)
+                                    .build();
+                        } else {
+                            collectorWriterClients[i]
+                                    = CollectorWriterClient.Builder.create()
+                                    .ofType(type)
+                                    .withCollectorHostPort(environmentConfig.getCollectorUrl())
+                                    .sizeToFlush(environmentConfig.getCollectorFlushSize())
+                                    .timeToFlushInSecs(environmentConfig.getCollectorBatchTimeout())
+                                    .flushFrequencyInMs(environmentConfig.getCollectorFlushFrequency())
+                                    .blockingQueueSizeMax(maxBacklog)
+                                    .withIndex(i)
+                                    .build();
+                        }
                     }
 
                     wrapper.collectorWriter = new CollectorWriter(collectorWriterClients);
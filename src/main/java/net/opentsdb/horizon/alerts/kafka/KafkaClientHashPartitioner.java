@@ -0,0 +1,54 @@
+/*
+ * This file is part of OpenTSDB.
+ * Copyright (C) 2021 Yahoo.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package net.opentsdb.horizon.alerts.kafka;
+
+import org.apache.kafka.clients.producer.Partitioner;
+import org.apache.kafka.common.Cluster;
+
+import java.util.Map;
+
+/**
+ * {@code org.apache.kafka.clients} counterpart of
+ * {@link KafkaHashBasedPartitioner}. Expects binary keys from
+ * {@link KafkaHashBasedPartitioner#toBinaryKey(long)} and picks the same
+ * partition the legacy partitioner would, so events for an alert stay on
+ * one partition across the migration.
+ */
+public class KafkaClientHashPartitioner implements Partitioner {
+
+    @Override
+    public int partition(String topic, Object key, byte[] keyBytes,
+                         Object value, byte[] valueBytes, Cluster cluster) {
+        final int numOfPartitions = cluster.partitionsForTopic(topic).size();
+        if (keyBytes == null || keyBytes.length != 8) {
+            return 0;
+        }
+        return (int) Math.abs(
+                KafkaHashBasedPartitioner.fromBinaryKey(keyBytes) % numOfPartitions);
+    }
+
+    @Override
+    public void close() {
+
+    }
+
+    @Override
+    public void configure(Map<String, ?> configs) {
+
+    }
+}
@@ -0,0 +1,88 @@
+/*
+ * This file is part of OpenTSDB.
+ * Copyright (C) 2021 Yahoo.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package net.opentsdb.horizon.alerts.kafka;
+
+import net.opentsdb.horizon.alerts.EnvironmentConfig;
+import org.apache.kafka.clients.producer.KafkaProducer;
+import org.apache.kafka.clients.producer.Producer;
+import org.apache.kafka.clients.producer.ProducerConfig;
+import org.apache.kafka.common.serialization.ByteArraySerializer;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.Properties;
+
+/**
+ * Process wide {@code org.apache.kafka.clients} producer, used instead of
+ * {@link KafkaProducerPool} when {@code kafka_client=client}. The client
+ * producer is thread safe and batches per partition on its own, so one
+ * instance replaces the pool of legacy async producers.
+ */
+public class KafkaClientProducer {
+
+    private static final Logger LOG = LoggerFactory.getLogger(KafkaClientProducer.class);
+
+    private static volatile Producer<byte[], byte[]> producer;
+
+    private KafkaClientProducer() {
+
+    }
+
+    public static Producer<byte[], byte[]> get() {
+        if (producer == null) {
+            synchronized (KafkaClientProducer.class) {
+                if (producer == null) {
+                    producer = new KafkaProducer<>(getKafkaProps(new EnvironmentConfig()));
+                    LOG.info("Initialized kafka client producer");
+                }
+            }
+        }
+        return producer;
+    }
+
+    static Properties getKafkaProps(EnvironmentConfig environmentConfig) {
+        final Properties props = new Properties();
+        props.put(ProducerConfig.BOOTSTRAP_SERVERS_CONFIG,
+                environmentConfig.getKafkaBrokersFormatted());
+        props.put(ProducerConfig.KEY_SERIALIZER_CLASS_CONFIG,
+                ByteArraySerializer.class.getName());
+        props.put(ProducerConfig.VALUE_SERIALIZER_CLASS_CONFIG,
+                ByteArraySerializer.class.getName());
+        props.put(ProducerConfig.PARTITIONER_CLASS_CONFIG,
+                KafkaClientHashPartitioner.class.getName());
+        props.put(ProducerConfig.COMPRESSION_TYPE_CONFIG,
+                environmentConfig.getKafkaCompressionType());
+        props.put(ProducerConfig.LINGER_MS_CONFIG,
+                environmentConfig.getKafkaLingerMs());
+        props.put(ProducerConfig.BATCH_SIZE_CONFIG,
+                environmentConfig.getKafkaBatchSizeBytes());
+        props.put(ProducerConfig.RETRY_BACKOFF_MS_CONFIG,
+                environmentConfig.getRetryBackOff());
+        props.put(ProducerConfig.REQUEST_TIMEOUT_MS_CONFIG, "10000");
+        if (environmentConfig.isKafkaIdempotenceEnabled()) {
+            props.put(ProducerConfig.ENABLE_IDEMPOTENCE_CONFIG, "true");
+            props.put(ProducerConfig.ACKS_CONFIG, "all");
+        } else {
+            // Same fire and forget semantics as the legacy pool.
+            props.put(ProducerConfig.ACKS_CONFIG, "0");
+            props.put(ProducerConfig.RETRIES_CONFIG,
+                    environmentConfig.getMessageSendMaxRetries());
+        }
+        return props;
+    }
+}
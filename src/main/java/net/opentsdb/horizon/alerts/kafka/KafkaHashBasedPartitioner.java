@@ -29,10 +29,34 @@ public class KafkaHashBasedPartitioner implements kafka.producer.Partitioner {
     @Override
     public int partition(Object key, int numOfPartitions) {
 
-        int partition = 0;
-        String stringKey = (String) key;
-        partition = (int)(Math.abs(Long.parseLong(stringKey) %numOfPartitions));
-        //The above is Long.parseLong to allow Long values (where Integer.parseInt would fail)
-        return partition;
+        final long hash;
+        if (key instanceof byte[]) {
+            hash = fromBinaryKey((byte[]) key);
+        } else {
+            //Long.parseLong to allow Long values (where Integer.parseInt would fail)
+            hash = Long.parseLong((String) key);
+        }
+        return (int)(Math.abs(hash % numOfPartitions));
+    }
+
+    /**
+     * Encodes the alert hash as an 8 byte big-endian key. Both key forms
+     * land on the same partition for the same hash.
+     */
+    public static byte[] toBinaryKey(long hash) {
+        final byte[] key = new byte[8];
+        for (int i = 7; i >= 0; i--) {
+            key[i] = (byte) hash;
+            hash >>>= 8;
+        }
+        return key;
+    }
+
+    public static long fromBinaryKey(byte[] key) {
+        long hash = 0;
+        for (int i = 0; i < 8; i++) {
+            hash = (hash << 8) | (key[i] & 0xFF);
+        }
+        return hash;
     }
 }
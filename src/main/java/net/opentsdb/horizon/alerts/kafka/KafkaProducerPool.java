@@ -35,6 +35,8 @@ public class KafkaProducerPool {
 
     private kafka.javaapi.producer.Producer<String, byte[]>[] keyedProducers;
 
+    private kafka.javaapi.producer.Producer<byte[], byte[]>[] binaryKeyedProducers;
+
     private static AtomicInteger roundRobinInc = new AtomicInteger(0);
 
     private volatile static boolean inited;
@@ -71,10 +73,17 @@ public class KafkaProducerPool {
             final KafkaProducerPool kafkaProducerPool = POOL_WRAPPER.getKafkaProducerPool();
             numProducers = numOfProducers;
             kafkaProducerPool.keyedProducers = new Producer[numOfProducers];
+            kafkaProducerPool.binaryKeyedProducers = new Producer[numOfProducers];
             LOG.info("Initializing " + numOfProducers + " keyed kafka producers");
 
+            final Properties binaryKeyProps = new Properties();
+            binaryKeyProps.putAll(kafkaConfig.props().props());
+            binaryKeyProps.put("key.serializer.class", "kafka.serializer.DefaultEncoder");
+            final ProducerConfig binaryKeyConfig = new ProducerConfig(binaryKeyProps);
+
             for (int i = 0; i < numOfProducers; i++) {
                 kafkaProducerPool.keyedProducers[i] = new Producer<String, byte[]>(kafkaConfig);
+                kafkaProducerPool.binaryKeyedProducers[i] = new Producer<byte[], byte[]>(binaryKeyConfig);
             }
             inited = true;
         }
@@ -89,6 +98,23 @@ public class KafkaProducerPool {
         return POOL_WRAPPER.getKafkaProducerPool().getKeyedProducer();
     }
 
+    /**
+     * Producer whose keys are raw bytes, see
+     * {@link KafkaHashBasedPartitioner#toBinaryKey(long)}.
+     */
+    public static Producer<byte[], byte[]> getBinaryKeyedProducer() {
+
+        if(!inited) {
+            throw new AssertionError("The Kafka producer pool needs to be inited first");
+        }
+
+        final KafkaProducerPool pool = POOL_WRAPPER.getKafkaProducerPool();
+        if (numProducers == 1) {
+            return pool.binaryKeyedProducers[0];
+        }
+        return pool.binaryKeyedProducers[getProducerIndex()];
+    }
+
     private Producer<String, byte[]> getKeyedProducer() {
         if (numProducers == 1) {
             return keyedProducers[0];
@@ -20,14 +20,19 @@ package net.opentsdb.horizon.alerts.kafka;
 import net.opentsdb.horizon.alerts.EnvironmentConfig;
 import net.opentsdb.horizon.alerts.Monitoring;
 import net.opentsdb.horizon.alerts.OutputWriter;
+import net.opentsdb.horizon.alerts.model.AlertEvent;
 import net.opentsdb.horizon.alerts.model.AlertEventBag;
 import net.opentsdb.horizon.alerts.model.tsdb.Datum;
 import net.opentsdb.horizon.alerts.model.tsdb.YmsStatusEvent;
 import net.opentsdb.horizon.alerts.serde.Serde;
 import kafka.producer.KeyedMessage;
+import org.apache.kafka.clients.producer.Producer;
+import org.apache.kafka.clients.producer.ProducerRecord;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import java.util.ArrayList;
+import java.util.List;
 import java.util.concurrent.TimeUnit;
 
 /**
@@ -42,16 +47,24 @@ public class KafkaWriter implements OutputWriter {
 
     private final String alerts_topic;
 
+    private final boolean batchedAlertWrites;
+
+    private final boolean useKafkaClient;
+
     private static final Logger LOG = LoggerFactory.getLogger(KafkaWriter.class);
 
     public KafkaWriter() {
-        KafkaProducerPool.initPool(environmentConfig.getNumberOfProducers(),
-                environmentConfig.getKafkaBrokersFormatted(),
-                environmentConfig.getMessageSendMaxRetries(),
-                environmentConfig.getRetryBackOff());
+        useKafkaClient = environmentConfig.isKafkaClientEnabled();
+        if (!useKafkaClient) {
+            KafkaProducerPool.initPool(environmentConfig.getNumberOfProducers(),
+                    environmentConfig.getKafkaBrokersFormatted(),
+                    environmentConfig.getMessageSendMaxRetries(),
+                    environmentConfig.getRetryBackOff());
+        }
 
         status_topic = environmentConfig.getStatusTopic();
         alerts_topic = environmentConfig.getAlertsTopic();
+        batchedAlertWrites = environmentConfig.isKafkaBatchedAlertWrites();
     }
 
     public void sendAlertEvent(AlertEventBag alertEventBag) {
@@ -64,6 +77,16 @@ public class KafkaWriter implements OutputWriter {
         LOG.info("Writing {} to alert {} topic",
                 alertEventBag.toString(),alerts_topic);
 
+        if (useKafkaClient) {
+            sendAlertEventWithClient(alertEventBag);
+            return;
+        }
+
+        if (batchedAlertWrites) {
+            sendAlertEventBatch(alertEventBag);
+            return;
+        }
+
         alertEventBag.getAlertEvents()
             .stream()
             .forEach(alertEvent -> {
@@ -78,6 +101,46 @@ public class KafkaWriter implements OutputWriter {
 
     }
 
+    /**
+     * Serializes the whole bag through a reused scratch buffer and hands it
+     * to a single producer call, keyed by the binary alert hash.
+     */
+    private void sendAlertEventBatch(AlertEventBag alertEventBag) {
+        final List<AlertEvent> alertEvents = alertEventBag.getAlertEvents();
+        if (alertEvents.isEmpty()) {
+            return;
+        }
+
+        final List<KeyedMessage<byte[], byte[]>> messages =
+                new ArrayList<>(alertEvents.size());
+        for (AlertEvent alertEvent : alertEvents) {
+            messages.add(new KeyedMessage<>(alerts_topic,
+                    KafkaHashBasedPartitioner.toBinaryKey(alertEvent.getAlertHash()),
+                    serde.kryoSerializeEventReusingBuffer(alertEvent)));
+        }
+        KafkaProducerPool.getBinaryKeyedProducer().send(messages);
+
+        for (AlertEvent alertEvent : alertEvents) {
+            Monitoring.get().incAlertsWrittenToKafka(alertEvent.getAlertId(),
+                    alertEvent.getNamespace());
+        }
+    }
+
+    /**
+     * The client producer batches per partition itself (see linger.ms and
+     * batch.size), so events are simply handed over one by one.
+     */
+    private void sendAlertEventWithClient(AlertEventBag alertEventBag) {
+        final Producer<byte[], byte[]> producer = KafkaClientProducer.get();
+        for (AlertEvent alertEvent : alertEventBag.getAlertEvents()) {
+            producer.send(new ProducerRecord<>(alerts_topic,
+                    KafkaHashBasedPartitioner.toBinaryKey(alertEvent.getAlertHash()),
+                    serde.kryoSerializeEventReusingBuffer(alertEvent)));
+            Monitoring.get().incAlertsWrittenToKafka(alertEvent.getAlertId(),
+                    alertEvent.getNamespace());
+        }
+    }
+
     public void sendStatusEvent(YmsStatusEvent ymsStatusEvent) {
         if(environmentConfig.fireEmails()) {
             LOG.info("Fire emails is true so, not writing to kafka");
@@ -96,10 +159,16 @@ public class KafkaWriter implements OutputWriter {
         datum.setTimeUnit(TimeUnit.MICROSECONDS);
 
         final byte[] bytes = serde.kryoSerializeYmsEvent(ymsStatusEvent);
-                    KeyedMessage dataToStatus = new KeyedMessage<>(status_topic,
-                            String.valueOf(ymsStatusEvent.hashCode()),
-                            bytes);
-                    KafkaProducerPool.getProducer().send(dataToStatus);
+                    if (useKafkaClient) {
+                        KafkaClientProducer.get().send(new ProducerRecord<>(status_topic,
+                                KafkaHashBasedPartitioner.toBinaryKey(ymsStatusEvent.hashCode()),
+                                bytes));
+                    } else {
+                        KeyedMessage dataToStatus = new KeyedMessage<>(status_topic,
+                                String.valueOf(ymsStatusEvent.hashCode()),
+                                bytes);
+                        KafkaProducerPool.getProducer().send(dataToStatus);
+                    }
                     Monitoring.get().incStatusesWrittenToKafka(
                             Long.parseLong(String.valueOf(ymsStatusEvent.getTags()
                                             .get("horizon_alert_id"))),
@@ -0,0 +1,250 @@
+/*
+ * This file is part of OpenTSDB.
+ * Copyright (C) 2021 Yahoo.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package net.opentsdb.horizon.alerts.logging;
+
+import net.opentsdb.horizon.alerts.EnvironmentConfig;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Logger for lines written once per alert run or more often.
+ *
+ * Lines are kept for a sample of the alert ids, and limited per alert id
+ * to a number of lines per window. Lines dropped by the limit are counted
+ * and reported with the next line written for the alert. The window of an
+ * alert which has written nothing for a full window after its own is
+ * dropped, together with any count not reported yet.
+ *
+ * Payloads (queries, responses, configs, events) are only written for the
+ * alert ids listed in {@code log_payload_alert_ids}, truncated to
+ * {@code log_payload_max_chars}.
+ */
+public class SampledLogger {
+
+    private static final String SUPPRESSED = " suppressed: {}";
+
+    private final Logger logger;
+
+    private final Settings settings;
+
+    private final ConcurrentMap<Long, Window> windows = new ConcurrentHashMap<>();
+
+    private final AtomicLong lastExpiry = new AtomicLong(System.nanoTime());
+
+    SampledLogger(final Logger logger, final Settings settings) {
+        this.logger = logger;
+        this.settings = settings;
+    }
+
+    public static SampledLogger getLogger(final Class<?> clazz) {
+        return new SampledLogger(LoggerFactory.getLogger(clazz), Settings.Wrapper.SETTINGS);
+    }
+
+    /**
+     * @return true if payloads of the alert are to be written.
+     */
+    public boolean isPayloadEnabled(final long alertId) {
+        return settings.payloadAlertIds.contains(alertId) && logger.isInfoEnabled();
+    }
+
+    public void info(final long alertId, final String format, final Object arg) {
+        if (logger.isInfoEnabled()) {
+            final int suppressed = acquire(alertId);
+            if (suppressed == 0) {
+                logger.info(format, arg);
+            } else if (suppressed > 0) {
+                logger.info(format + SUPPRESSED, arg, suppressed);
+            }
+        }
+    }
+
+    public void info(final long alertId, final String format, final Object arg1, final Object arg2) {
+        if (logger.isInfoEnabled()) {
+            final int suppressed = acquire(alertId);
+            if (suppressed == 0) {
+                logger.info(format, arg1, arg2);
+            } else if (suppressed > 0) {
+                logger.info(format + SUPPRESSED, arg1, arg2, suppressed);
+            }
+        }
+    }
+
+    public void info(final long alertId, final String format, final Object... args) {
+        if (logger.isInfoEnabled()) {
+            final int suppressed = acquire(alertId);
+            if (suppressed == 0) {
+                logger.info(format, args);
+            } else if (suppressed > 0) {
+                final Object[] withSuppressed = Arrays.copyOf(args, args.length + 1);
+                withSuppressed[args.length] = suppressed;
+                logger.info(format + SUPPRESSED, withSuppressed);
+            }
+        }
+    }
+
+    /**
+     * Writes {@code format} with its last argument truncated, if payloads
+     * of the alert are enabled.
+     */
+    public void payload(final long alertId, final String format, final Object... args) {
+        if (!isPayloadEnabled(alertId) || args.length == 0) {
+            return;
+        }
+        final Object[] truncated = Arrays.copyOf(args, args.length);
+        truncated[args.length - 1] = truncate(args[args.length - 1], settings.payloadMaxChars);
+        logger.info(format, truncated);
+    }
+
+    static String truncate(final Object payload, final int maxChars) {
+        final String s = String.valueOf(payload);
+        if (s.length() <= maxChars) {
+            return s;
+        }
+        return s.substring(0, maxChars) + "... (" + (s.length() - maxChars) + " more chars)";
+    }
+
+    /**
+     * @return -1 if the line is to be dropped, else the number of lines
+     * dropped since the last one written for the alert.
+     */
+    int acquire(final long alertId) {
+        return acquire(alertId, System.nanoTime());
+    }
+
+    int acquire(final long alertId, final long now) {
+        if (!settings.sampled(alertId)) {
+            return -1;
+        }
+        if (settings.linesPerWindow <= 0) {
+            return 0;
+        }
+        expireWindows(now);
+        final Window window = windows.computeIfAbsent(alertId, id -> new Window());
+        return window.acquire(now, settings.windowNanos, settings.linesPerWindow);
+    }
+
+    /**
+     * At most once per window, by the first caller after it.
+     */
+    private void expireWindows(final long now) {
+        final long last = lastExpiry.get();
+        if (now - last < settings.windowNanos || !lastExpiry.compareAndSet(last, now)) {
+            return;
+        }
+        final long idleNanos = 2 * settings.windowNanos;
+        windows.values().removeIf(window -> window.idle(now, idleNanos));
+    }
+
+    int windowCount() {
+        return windows.size();
+    }
+
+    private static final class Window {
+
+        private long start = Long.MIN_VALUE;
+
+        private int count;
+
+        private int suppressed;
+
+        synchronized int acquire(final long now, final long windowNanos, final int linesPerWindow) {
+            if (start == Long.MIN_VALUE || now - start >= windowNanos) {
+                start = now;
+                count = 0;
+            }
+            if (count >= linesPerWindow) {
+                suppressed++;
+                return -1;
+            }
+            count++;
+            final int reported = suppressed;
+            suppressed = 0;
+            return reported;
+        }
+
+        synchronized boolean idle(final long now, final long idleNanos) {
+            return start != Long.MIN_VALUE && now - start >= idleNanos;
+        }
+    }
+
+    static final class Settings {
+
+        private static final long SAMPLE_BUCKETS = 10_000;
+
+        private final long sampledBuckets;
+
+        private final int linesPerWindow;
+
+        private final long windowNanos;
+
+        private final Set<Long> payloadAlertIds;
+
+        private final int payloadMaxChars;
+
+        private static class Wrapper {
+            public static final Settings SETTINGS = fromConfig(new EnvironmentConfig());
+        }
+
+        Settings(final double sampleRatio,
+                 final int linesPerWindow,
+                 final long windowSecs,
+                 final Set<Long> payloadAlertIds,
+                 final int payloadMaxChars) {
+            this.sampledBuckets = Math.round(Math.max(0, Math.min(1, sampleRatio)) * SAMPLE_BUCKETS);
+            this.linesPerWindow = linesPerWindow;
+            this.windowNanos = TimeUnit.SECONDS.toNanos(windowSecs);
+            this.payloadAlertIds = payloadAlertIds;
+            this.payloadMaxChars = payloadMaxChars;
+        }
+
+        private static Settings fromConfig(final EnvironmentConfig config) {
+            final Set<Long> payloadAlertIds = new HashSet<>();
+            for (String id : config.getLogPayloadAlertIds().orElse(Collections.emptyList())) {
+                if (!id.trim().isEmpty()) {
+                    payloadAlertIds.add(Long.parseLong(id.trim()));
+                }
+            }
+            return new Settings(config.getLogSampleRatio(),
+                    config.getLogAlertRateLimit(),
+                    config.getLogAlertRateWindowSecs(),
+                    payloadAlertIds,
+                    config.getLogPayloadMaxChars());
+        }
+
+        /**
+         * The same alerts are always sampled, so their runs can be followed.
+         */
+        boolean sampled(final long alertId) {
+            if (sampledBuckets >= SAMPLE_BUCKETS) {
+                return true;
+            }
+            long h = alertId * 0x9E3779B97F4A7C15L;
+            h ^= h >>> 32;
+            return Math.floorMod(h, SAMPLE_BUCKETS) < sampledBuckets;
+        }
+    }
+}
@@ -21,19 +21,21 @@ import net.opentsdb.horizon.alerts.AlertException;
 import net.opentsdb.horizon.alerts.AlertUtils;
 import net.opentsdb.horizon.alerts.monitor.Monitor;
 import net.opentsdb.horizon.alerts.config.AlertConfig;
+import net.opentsdb.horizon.alerts.cost.AlertCostModel;
+import net.opentsdb.horizon.alerts.logging.SampledLogger;
 import net.opentsdb.horizon.alerts.model.AlertEventBag;
 import net.opentsdb.horizon.alerts.processor.ControlledAlertExecutor;
 import net.opentsdb.horizon.alerts.processor.Overseer;
 import net.opentsdb.horizon.alerts.processor.notification.NotificationProcessor;
-import org.slf4j.Logger;
-import org.slf4j.LoggerFactory;
+import net.opentsdb.horizon.alerts.profile.Phase;
+import net.opentsdb.horizon.alerts.profile.RunProfiler;
 
 import java.util.concurrent.TimeUnit;
 
 
 public class SimpleRunnableMonitor implements Monitor {
 
-    private static final Logger LOG = LoggerFactory.getLogger(SimpleRunnableMonitor.class);
+    private static final SampledLogger SAMPLED_LOG = SampledLogger.getLogger(SimpleRunnableMonitor.class);
 
     private ControlledAlertExecutor<AlertEventBag, AlertConfig> controlledAlertExecutor;
 
@@ -63,8 +65,6 @@ public class SimpleRunnableMonitor implements Monitor {
     @Override
     public boolean isTimeToRun() {
 
-        LOG.info("");
-
         return overseer.isTimeToRun();
     }
 
@@ -78,14 +78,29 @@ public class SimpleRunnableMonitor implements Monitor {
         overseer.startNewRun();
         final long alertId = controlledAlertExecutor.getAlertConfig().getAlertId();
         final long currentRunTimeSecs = overseer.getCurrentRunTimeSecs();
-        LOG.info("Starting monitor run for {} {}",alertId,currentRunTimeSecs);
+        SAMPLED_LOG.info(alertId, "Starting monitor run for {} {}",alertId,currentRunTimeSecs);
         //LOG.info("m: "+ controlledAlertExecutor + " e: "+ enrichmentProcessor);
-        final AlertEventBag eventBag = controlledAlertExecutor.evaluate(overseer.getCurrentRunTimeSecs(),TimeUnit.SECONDS);
-
-        LOG.info("Result of monitor run for {} {} : {} ",alertId,currentRunTimeSecs,eventBag);
-        AlertUtils.reportAlertStats(eventBag,
-                controlledAlertExecutor.getAlertConfig());
-        enrichmentProcessor.process(eventBag);
+        RunProfiler.get().begin(alertId, controlledAlertExecutor.getAlertConfig().getNamespace());
+        try {
+            final long evaluationStart = System.nanoTime();
+            final AlertEventBag eventBag = controlledAlertExecutor.evaluate(overseer.getCurrentRunTimeSecs(),TimeUnit.SECONDS);
+            AlertCostModel.get().recordRun(alertId,
+                    TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - evaluationStart));
+
+            SAMPLED_LOG.info(alertId, "Result of monitor run for {} {} : {} events",alertId,currentRunTimeSecs,
+                    eventBag == null || eventBag.getAlertEvents() == null ? 0 : eventBag.getAlertEvents().size());
+            SAMPLED_LOG.payload(alertId, "Result of monitor run for {} {} : {} ",alertId,currentRunTimeSecs,eventBag);
+            AlertUtils.reportAlertStats(eventBag,
+                    controlledAlertExecutor.getAlertConfig());
+            final Phase previous = RunProfiler.enter(Phase.NOTIFY);
+            try {
+                enrichmentProcessor.process(eventBag);
+            } finally {
+                RunProfiler.exit(previous);
+            }
+        } finally {
+            RunProfiler.get().end();
+        }
         overseer.endRun();
 
     }
@@ -0,0 +1,54 @@
+/*
+ * This file is part of OpenTSDB.
+ * Copyright (C) 2021 Yahoo.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package net.opentsdb.horizon.alerts.profile;
+
+/**
+ * Parts of a monitor run the profiler attributes time to.
+ */
+public enum Phase {
+
+    /** Waiting for the TSDB response. */
+    QUERY,
+
+    /** Parsing responses into json trees. */
+    PARSE,
+
+    /** Everything else inside the executor, mostly state updates. */
+    EVALUATE,
+
+    /** Dropping stale states. */
+    PURGE,
+
+    /** Persisting the state store. */
+    PERSIST,
+
+    /** Writing statuses to the collector queues. */
+    STATUS,
+
+    /** Matching events against snoozes. */
+    SNOOZE,
+
+    /** Writing alert events for notification. */
+    NOTIFY;
+
+    static final Phase[] VALUES = values();
+
+    public String key() {
+        return name().toLowerCase();
+    }
+}
@@ -0,0 +1,158 @@
+/*
+ * This file is part of OpenTSDB.
+ * Copyright (C) 2021 Yahoo.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package net.opentsdb.horizon.alerts.profile;
+
+import com.fasterxml.jackson.databind.node.ObjectNode;
+
+/**
+ * Wall time, bytes and allocation of one monitor run, split by phase.
+ *
+ * Confined to the thread running the monitor. Phases are exclusive: the
+ * time spent in a nested phase is not counted in the enclosing one.
+ */
+public final class RunProfile {
+
+    private final long alertId;
+
+    private final String namespace;
+
+    private final AllocationCounter allocation;
+
+    private final long startMs;
+
+    private final long startNanos;
+
+    private final long[] nanos = new long[Phase.VALUES.length];
+
+    private final long[] allocated = new long[Phase.VALUES.length];
+
+    private final long[] bytes = new long[Phase.VALUES.length];
+
+    private Phase current = Phase.EVALUATE;
+
+    private long markNanos;
+
+    private long markAllocated;
+
+    private long endNanos;
+
+    RunProfile(final long alertId, final String namespace, final AllocationCounter allocation) {
+        this.alertId = alertId;
+        this.namespace = namespace;
+        this.allocation = allocation;
+        this.startMs = System.currentTimeMillis();
+        this.startNanos = System.nanoTime();
+        this.markNanos = startNanos;
+        this.markAllocated = allocation.allocatedBytes();
+    }
+
+    /**
+     * Closes the current phase and opens {@code phase}.
+     *
+     * @return the phase to return to.
+     */
+    Phase enter(final Phase phase) {
+        final Phase previous = current;
+        mark();
+        current = phase;
+        return previous;
+    }
+
+    void addBytes(final Phase phase, final long count) {
+        bytes[phase.ordinal()] += count;
+    }
+
+    void end() {
+        mark();
+        endNanos = markNanos;
+    }
+
+    private void mark() {
+        final long nowNanos = System.nanoTime();
+        final long nowAllocated = allocation.allocatedBytes();
+        nanos[current.ordinal()] += nowNanos - markNanos;
+        allocated[current.ordinal()] += nowAllocated - markAllocated;
+        markNanos = nowNanos;
+        markAllocated = nowAllocated;
+    }
+
+    public long getAlertId() {
+        return alertId;
+    }
+
+    public String getNamespace() {
+        return namespace;
+    }
+
+    public long getStartMs() {
+        return startMs;
+    }
+
+    public long getTotalNanos() {
+        return endNanos - startNanos;
+    }
+
+    public long getNanos(final Phase phase) {
+        return nanos[phase.ordinal()];
+    }
+
+    public long getAllocatedBytes(final Phase phase) {
+        return allocated[phase.ordinal()];
+    }
+
+    public long getBytes(final Phase phase) {
+        return bytes[phase.ordinal()];
+    }
+
+    public long getTotalAllocatedBytes() {
+        long total = 0;
+        for (long a : allocated) {
+            total += a;
+        }
+        return total;
+    }
+
+    void toJson(final ObjectNode node) {
+        node.put("alertId", alertId)
+                .put("namespace", namespace)
+                .put("startMs", startMs)
+                .put("totalMs", getTotalNanos() / 1_000_000d)
+                .put("allocatedBytes", getTotalAllocatedBytes());
+        final ObjectNode phases = node.putObject("phases");
+        for (Phase phase : Phase.VALUES) {
+            final int i = phase.ordinal();
+            if (nanos[i] == 0 && bytes[i] == 0) {
+                continue;
+            }
+            final ObjectNode p = phases.putObject(phase.key());
+            p.put("ms", nanos[i] / 1_000_000d);
+            p.put("allocatedBytes", allocated[i]);
+            if (bytes[i] != 0) {
+                p.put("bytes", bytes[i]);
+            }
+        }
+    }
+
+    /**
+     * Bytes allocated by the current thread, 0 where the JVM does not
+     * count them.
+     */
+    interface AllocationCounter {
+        long allocatedBytes();
+    }
+}
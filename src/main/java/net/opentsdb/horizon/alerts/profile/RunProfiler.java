@@ -0,0 +1,217 @@
+/*
+ * This file is part of OpenTSDB.
+ * Copyright (C) 2021 Yahoo.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package net.opentsdb.horizon.alerts.profile;
+
+import com.fasterxml.jackson.databind.node.ArrayNode;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import net.opentsdb.horizon.alerts.AlertUtils;
+import net.opentsdb.horizon.alerts.EnvironmentConfig;
+import lombok.extern.slf4j.Slf4j;
+
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadMXBean;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+
+/**
+ * Profiles monitor runs by phase and keeps the slowest alerts of the last
+ * one to two windows.
+ *
+ * The monitor opens a profile on its thread with {@link #begin}, the code
+ * it calls marks phases with {@link #enter} and {@link #exit}, which do
+ * nothing outside of a profiled run:
+ * <pre>
+ * final Phase previous = RunProfiler.enter(Phase.QUERY);
+ * try {
+ *     ...
+ * } finally {
+ *     RunProfiler.exit(previous);
+ * }
+ * </pre>
+ */
+@Slf4j
+public class RunProfiler {
+
+    private static final ThreadLocal<RunProfile> CURRENT = new ThreadLocal<>();
+
+    private final int topN;
+
+    private final long windowMs;
+
+    private final RunProfile.AllocationCounter allocation;
+
+    private List<RunProfile> currentWindow = new ArrayList<>();
+
+    private List<RunProfile> previousWindow = new ArrayList<>();
+
+    private long windowStartMs = System.currentTimeMillis();
+
+    private static class Wrapper {
+        public static final RunProfiler PROFILER = create(new EnvironmentConfig());
+    }
+
+    RunProfiler(final int topN, final long windowMs, final RunProfile.AllocationCounter allocation) {
+        this.topN = topN;
+        this.windowMs = windowMs;
+        this.allocation = allocation;
+    }
+
+    public static RunProfiler get() {return Wrapper.PROFILER;}
+
+    private static RunProfiler create(final EnvironmentConfig config) {
+        return new RunProfiler(config.getRunProfilerTopN(),
+                config.getRunProfilerWindowSecs() * 1000L,
+                config.isRunProfilerAllocation() ? threadAllocation() : () -> 0);
+    }
+
+    /**
+     * Uses the HotSpot extension of {@link ThreadMXBean}.
+     */
+    private static RunProfile.AllocationCounter threadAllocation() {
+        final ThreadMXBean bean = ManagementFactory.getThreadMXBean();
+        if (bean instanceof com.sun.management.ThreadMXBean) {
+            final com.sun.management.ThreadMXBean sunBean = (com.sun.management.ThreadMXBean) bean;
+            if (sunBean.isThreadAllocatedMemorySupported()) {
+                if (!sunBean.isThreadAllocatedMemoryEnabled()) {
+                    sunBean.setThreadAllocatedMemoryEnabled(true);
+                }
+                return () -> sunBean.getThreadAllocatedBytes(Thread.currentThread().getId());
+            }
+        }
+        log.warn("Thread allocation is not available, profiling time only");
+        return () -> 0;
+    }
+
+    public boolean isEnabled() {
+        return topN > 0;
+    }
+
+    /**
+     * Opens a profile for the run on the current thread.
+     */
+    public void begin(final long alertId, final String namespace) {
+        if (isEnabled()) {
+            CURRENT.set(new RunProfile(alertId, namespace, allocation));
+        }
+    }
+
+    /**
+     * Closes the profile of the current thread and keeps it if it is among
+     * the slowest.
+     *
+     * @return the profile, null if none was open.
+     */
+    public RunProfile end() {
+        final RunProfile profile = CURRENT.get();
+        if (profile == null) {
+            return null;
+        }
+        CURRENT.remove();
+        profile.end();
+        offer(profile, System.currentTimeMillis());
+        return profile;
+    }
+
+    /**
+     * @return the phase to pass back to {@link #exit}, null outside of a
+     * profiled run.
+     */
+    public static Phase enter(final Phase phase) {
+        final RunProfile profile = CURRENT.get();
+        return profile == null ? null : profile.enter(phase);
+    }
+
+    public static void exit(final Phase previous) {
+        if (previous != null) {
+            final RunProfile profile = CURRENT.get();
+            if (profile != null) {
+                profile.enter(previous);
+            }
+        }
+    }
+
+    public static void addBytes(final Phase phase, final long bytes) {
+        final RunProfile profile = CURRENT.get();
+        if (profile != null) {
+            profile.addBytes(phase, bytes);
+        }
+    }
+
+    synchronized void offer(final RunProfile profile, final long nowMs) {
+        rotate(nowMs);
+        offer(currentWindow, profile);
+    }
+
+    /**
+     * Keeps the slowest run per alert, at most {@code topN} alerts.
+     */
+    private void offer(final List<RunProfile> window, final RunProfile profile) {
+        int fastest = -1;
+        for (int i = 0; i < window.size(); i++) {
+            final RunProfile kept = window.get(i);
+            if (kept.getAlertId() == profile.getAlertId()) {
+                if (kept.getTotalNanos() < profile.getTotalNanos()) {
+                    window.set(i, profile);
+                }
+                return;
+            }
+            if (fastest < 0 || kept.getTotalNanos() < window.get(fastest).getTotalNanos()) {
+                fastest = i;
+            }
+        }
+        if (window.size() < topN) {
+            window.add(profile);
+        } else if (window.get(fastest).getTotalNanos() < profile.getTotalNanos()) {
+            window.set(fastest, profile);
+        }
+    }
+
+    private void rotate(final long nowMs) {
+        if (nowMs - windowStartMs < windowMs) {
+            return;
+        }
+        // An idle window drops both.
+        previousWindow = nowMs - windowStartMs < 2 * windowMs ? currentWindow : new ArrayList<>();
+        currentWindow = new ArrayList<>();
+        windowStartMs = nowMs;
+    }
+
+    /**
+     * @return the slowest runs per alert over the current and previous
+     * windows, slowest first.
+     */
+    public synchronized List<RunProfile> slowest(final long nowMs) {
+        rotate(nowMs);
+        final List<RunProfile> merged = new ArrayList<>(previousWindow);
+        for (RunProfile profile : currentWindow) {
+            offer(merged, profile);
+        }
+        merged.sort(Comparator.comparingLong(RunProfile::getTotalNanos).reversed());
+        return merged;
+    }
+
+    public ArrayNode toJson() {
+        final ArrayNode runs = AlertUtils.jsonMapper.createArrayNode();
+        for (RunProfile profile : slowest(System.currentTimeMillis())) {
+            final ObjectNode node = runs.addObject();
+            profile.toJson(node);
+        }
+        return runs;
+    }
+}
@@ -17,11 +17,15 @@
 
 package net.opentsdb.horizon.alerts.query;
 
+import java.util.Objects;
 import java.util.concurrent.TimeUnit;
 
+import net.opentsdb.horizon.alerts.EnvironmentConfig;
 import net.opentsdb.horizon.alerts.Monitoring;
 import net.opentsdb.horizon.alerts.state.purge.Purge;
 import net.opentsdb.horizon.alerts.config.AlertConfig;
+import net.opentsdb.horizon.alerts.profile.Phase;
+import net.opentsdb.horizon.alerts.profile.RunProfiler;
 import net.opentsdb.horizon.alerts.state.persistence.StatePersistor;
 import net.opentsdb.horizon.alerts.state.persistence.StatePersistors;
 import net.opentsdb.horizon.alerts.state.persistence.StateProviders;
@@ -32,6 +36,7 @@ import net.opentsdb.horizon.alerts.AlertException;
 import net.opentsdb.horizon.alerts.AlertUtils;
 import net.opentsdb.horizon.alerts.model.AlertEventBag;
 import net.opentsdb.horizon.alerts.state.AlertStateStore;
+import net.opentsdb.horizon.alerts.state.impl.SeenRecordingAlertStateStore;
 
 public abstract class StateTimeBasedExecutor<T extends AlertConfig>
         extends TimeBasedExecutor<AlertEventBag, T> {
@@ -47,9 +52,25 @@ public abstract class StateTimeBasedExecutor<T extends AlertConfig>
 
     private final StatePersistor statePersistor;
 
+    private final int stateMigrationRuns;
+
+    private String md5BaseQueryString;
+
+    /**
+     * Set when the query changed under an existing state store. Records
+     * the states the new query returns, for {@link #migrationRunsLeft}
+     * runs; the carried over states it never returned are then dropped.
+     */
+    private volatile SeenRecordingAlertStateStore migrationStore = null;
+
+    private volatile int migrationRunsLeft = 0;
+
+    private volatile int migratedStates = 0;
+
     public StateTimeBasedExecutor(T alertConfig) {
         super(alertConfig);
         this.statePersistor = StatePersistors.getDefault(alertConfig.getAlertId());
+        this.stateMigrationRuns = new EnvironmentConfig().getStateMigrationRuns();
     }
 
     @Override
@@ -68,7 +89,15 @@ public abstract class StateTimeBasedExecutor<T extends AlertConfig>
             alertStateStore.setTransitionConfig(alertConfig.getTransitionConfig());
             alertStateStore.setNagIntervalInSecs(alertConfig.getNagIntervalInSecs());
             alertStateStore.setStoreAlertIdentity(alertConfig.storeIdentity());
+            if (!Objects.equals(md5BaseQueryString, alertConfig.getMd5BaseQueryString())) {
+                LOG.info("id: {} Query changed, migrating {} states",
+                        alertConfig.getAlertId(), alertStateStore.size());
+                migratedStates = alertStateStore.size();
+                migrationRunsLeft = Math.max(1, stateMigrationRuns);
+                migrationStore = new SeenRecordingAlertStateStore(alertStateStore);
+            }
         }
+        this.md5BaseQueryString = alertConfig.getMd5BaseQueryString();
         this.purge = alertConfig.createPurge();
 
         LOG.info("id: {} Updated with : {} {} {}", alertConfig.getAlertId(),
@@ -91,23 +120,53 @@ public abstract class StateTimeBasedExecutor<T extends AlertConfig>
     public AlertEventBag execute(long endTime, TimeUnit timeUnit)
             throws AlertException {
         alertStateStore.newRun();
-        final AlertEventBag alertBag =
-                execute(endTime - slack, timeUnit, alertStateStore);
+        final AlertEventBag alertBag;
+        final SeenRecordingAlertStateStore recordingStore = migrationStore;
+        if (recordingStore != null) {
+            alertBag = execute(endTime - slack, timeUnit, recordingStore);
+            if (--migrationRunsLeft <= 0) {
+                finishMigration(recordingStore);
+            }
+        } else {
+            alertBag = execute(endTime - slack, timeUnit, alertStateStore);
+        }
 
         final long runStampSec = TimeUnit.SECONDS.convert(endTime, timeUnit);
 
-        this.purge.purge(this.alertStateStore, false);
+        Phase previous = RunProfiler.enter(Phase.PURGE);
+        try {
+            this.purge.purge(this.alertStateStore, false);
+        } finally {
+            RunProfiler.exit(previous);
+        }
 
+        previous = RunProfiler.enter(Phase.PERSIST);
         try {
             persistState(alertStateStore, runStampSec);
         } catch (Exception e) {
             LOG.error("Failed to persist state: alert_id={}, run_stamp_sec={}",
                     getAlertConfig().getAlertId(), runStampSec, e);
             Monitoring.get().reportStatePersistenceFailure(getAlertConfig());
+        } finally {
+            RunProfiler.exit(previous);
         }
         return alertBag;
     }
 
+    /**
+     * Drops the carried over states which the new query did not return in
+     * any run since the change. A series missing from a single run, e.g.
+     * because of a data gap, keeps its state.
+     */
+    private void finishMigration(final SeenRecordingAlertStateStore recordingStore) {
+        migrationStore = null;
+        final int dropped = recordingStore.purgeUnseen();
+        final int kept = Math.max(0, migratedStates - dropped);
+        LOG.info("id: {} Migrated states kept: {} dropped: {}",
+                getAlertConfig().getAlertId(), kept, dropped);
+        Monitoring.get().countMigratedStates(getAlertConfig(), kept, dropped);
+    }
+
     private void persistState(final AlertStateStore stateStore,
                               final long runStampSec) {
         LOG.info("id: {} Starting persisting of state", getAlertConfig().getAlertId());
@@ -26,8 +26,10 @@ import net.opentsdb.horizon.alerts.Monitoring;
 import net.opentsdb.horizon.alerts.config.AlertConfig;
 import net.opentsdb.horizon.alerts.config.impl.HealthCheckConfig;
 import net.opentsdb.horizon.alerts.config.impl.HealthCheckConfigFields;
+import net.opentsdb.horizon.alerts.cost.AlertCostModel;
 import net.opentsdb.horizon.alerts.enums.AlertState;
 import net.opentsdb.horizon.alerts.enums.AlertType;
+import net.opentsdb.horizon.alerts.logging.SampledLogger;
 import net.opentsdb.horizon.alerts.model.AlertEvent;
 import net.opentsdb.horizon.alerts.model.AlertEventBag;
 import net.opentsdb.horizon.alerts.model.HealthCheckAlertEvent;
@@ -46,20 +48,19 @@ import java.time.Instant;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.HashMap;
-import java.util.Iterator;
 import java.util.List;
 import java.util.Map;
 import java.util.Objects;
 import java.util.SortedMap;
-import java.util.TreeMap;
 import java.util.concurrent.TimeUnit;
+import java.util.function.Supplier;
 
 @Slf4j
 public class AuraDBProcessor extends StateTimeBasedExecutor<HealthCheckConfig> {
 
-    private HealthCheckConfig healthCheckConfig;
+    private static final SampledLogger SAMPLED_LOG = SampledLogger.getLogger(AuraDBProcessor.class);
 
-    private AlertStateStore alertStateStore = null;
+    private HealthCheckConfig healthCheckConfig;
 
     private String queryJson = null;
 
@@ -77,10 +78,19 @@ public class AuraDBProcessor extends StateTimeBasedExecutor<HealthCheckConfig> {
 
     private final String[] namespaceIdAlertConfigTypeTags;
 
+    /**
+     * Decode buffers, reused across statuses and runs of the same thread.
+     */
+    private static final ThreadLocal<AuraDBStatus> STATUS =
+            ThreadLocal.withInitial(AuraDBStatus::new);
+
+    private final int statusLogSampleRate;
+
     public AuraDBProcessor(HealthCheckConfig alertConfig) {
         super(alertConfig);
         auraDBClient = new TSDBClient(environmentConfig.getTsdbEndpoint(), environmentConfig.getTSDBAuthProvider());
         namespaceIdAlertConfigTypeTags = Monitoring.getTagsNamespaceAlertIdConfigType(alertConfig);
+        statusLogSampleRate = environmentConfig.getStatusLogSampleRate();
     }
 
     @Override
@@ -114,236 +124,234 @@ public class AuraDBProcessor extends StateTimeBasedExecutor<HealthCheckConfig> {
 
         queryJson = baseStatusQuery.toString();
 
-        log.info("Constructed for alert id: {} {}",alertId,queryJson);
+        SAMPLED_LOG.payload(alertId, "Constructed for alert id: {} {}",alertId,queryJson);
 
         return true;
     }
 
+    /**
+     * Replaces the writer created by {@link #prepAndValidate}, for the
+     * evaluation benchmark.
+     */
+    void setStatusWriter(StatusWriter statusWriter) {
+        this.statusWriter = statusWriter;
+    }
+
     @Override
     public AlertEventBag execute(final long endTime,
                                  final TimeUnit timeUnit,
                                  final AlertStateStore alertStateStore) throws AlertException {
-        final Long2LongOpenHashMap seenThisRun = new Long2LongOpenHashMap();
-        log.info("id: {} Running status query: {}",alertId,queryJson);
+        SAMPLED_LOG.payload(alertId, "id: {} Running status query: {}",alertId,queryJson);
         final String response = auraDBClient.getResponse(queryJson, alertId);
-        this.alertStateStore = alertStateStore;
-        log.debug("alert id: {} Received aura response: {}",alertId,response);
+        SAMPLED_LOG.payload(alertId, "alert id: {} Received aura response: {}",alertId,response);
+        return evaluateStatuses(response, endTime, alertStateStore);
+    }
+
+    /**
+     * Evaluates every status of the response. Tags stay in the decode
+     * buffers: the state store and the status writer take the hash and the
+     * sorted arrays, maps are only built for a new identity or an alert.
+     */
+    AlertEventBag evaluateStatuses(final String response,
+                                   final long endTime,
+                                   final AlertStateStore alertStateStore) {
+        final Long2LongOpenHashMap seenThisRun = new Long2LongOpenHashMap();
+        // Statuses are only logged at debug, for alerts with payload logging on.
+        final boolean logStatuses = log.isDebugEnabled() && SAMPLED_LOG.isPayloadEnabled(alertId);
         final LocalMonitor localMonitor = new LocalMonitor(
                 getAlertConfig(), this.namespaceIdAlertConfigTypeTags);
-        try {
-            final JsonNode root = AlertUtils.parseJsonTree(response);
+        final List<AlertEvent> alertEventList = new ArrayList<>();
+        final AlertEventBag alertEventBag = new AlertEventBag(alertEventList,healthCheckConfig);
+        final AuraDBStatus status = STATUS.get();
 
-            final List<AlertEvent> alertEventList = new ArrayList<>();
+        try (final AuraDBStatusReader statuses = new AuraDBStatusReader(response)) {
 
-            final AlertEventBag alertEventBag = new AlertEventBag(alertEventList,healthCheckConfig);
-            final JsonNode resultNode = root.get("results").get(0);
-            final Iterator<JsonNode> statuses;
-            if(resultNode.has("data") && resultNode.get("data").size() != 0) {
-                statuses = resultNode.get("data").elements();
-            } else {
-                return alertEventBag;
-            }
-
-                while(statuses.hasNext()) {
-                    localMonitor.totalStatuses++;
-
-                    final JsonNode status = statuses.next();
-
-                    final int type = status.get("statusType").asInt();
+            while(statuses.next(status)) {
+                localMonitor.totalStatuses++;
 
-                    if(type != 0) {
-                        //Received some other type than check.
-                        continue;
-                    }
-
-                    if(!status.hasNonNull("message")) {
-                        continue;
-                    }
-
-                    final String message = status.get("message").asText();
-
-                    final TreeMap<String,String> tags = new TreeMap<>();
-                    final AlertState[] alertStates;
-                    final long[] timestamps;
+                if(status.statusType != 0) {
+                    //Received some other type than check.
+                    continue;
+                }
 
-                    final String application = status.get("application").asText();
-                    addNsAndApp(tags, namespaceForData, application);
-                    final JsonNode tagsNode = status.get("tags");
-                    final Iterator<String> tagKeys = tagsNode.fieldNames();
-                    while(tagKeys.hasNext()) {
-                        final String tagKey = tagKeys.next();
-                        tags.put(tagKey, tagsNode.get(tagKey).asText());
-                    }
-                    final JsonNode statusHistory = status.get("statusCodeArray");
-                    final JsonNode statusHistoryTimestamps = status.get("timestampArray");
-                    final int statusHistoryLength = statusHistory.size();
-                    final int statusHistoryTimestampLength = statusHistoryTimestamps.size();
+                if(status.message == null) {
+                    continue;
+                }
 
+                final int statusHistoryLength = status.historyLength();
+                if(statusHistoryLength <= 0) {
+                    //issue or empty, skip Status
+                    continue;
+                }
 
-                    if(statusHistoryLength != statusHistoryTimestampLength) {
-                        //issue, skip Status
-                        continue;
-                    }
-                    if(statusHistoryLength == 0) {
-                        continue;
-                    }
-                    alertStates = new AlertState[statusHistoryLength];
-                    timestamps = new long[statusHistoryLength];
+                status.putTagIfAbsent(HealthCheckConfigFields.NAMESPACE_FOR_DATA, namespaceForData);
+                status.putTagIfAbsent(HealthCheckConfigFields.APPLICATION_FOR_DATA,
+                        status.application);
+
+                final AlertState[] alertStates = status.states();
+                final long[] timestamps = status.timestamps();
+                final String message = status.message;
+                final long lastSeen = status.lastSeen();
+                final long hashForNAMT = status.hash(namespace, alertId);
+                final long storedLastSeenTime = alertStateStore.getLastSeenTime(hashForNAMT);
+                seenThisRun.put(hashForNAMT, hashForNAMT);
+
+                final boolean sampled = logStatuses
+                        && localMonitor.totalStatuses % statusLogSampleRate == 0;
+                if(sampled) {
+                    log.debug("alert id: {} last seen: str: {} rec: {} , {} datapoints {} for {}",
+                            alertId, storedLastSeenTime, lastSeen, status.get(),
+                            status.statesToString(), hashForNAMT);
+                }
+                final boolean bypassEvaluation;
+                if(lastSeen <= storedLastSeenTime || storedLastSeenTime == -1) {
+                    // Missing alert check
+                    if(healthCheckConfig.isMissingEnabled()) {
+                        if(sampled) {
+                            log.debug("Evaluating missing: {} , {}", alertId, hashForNAMT);
+                        }
+                        final AlertEvent alertEvent;
+                        if(isMissingIntervalExceeded(lastSeen)) {
+                            alertEvent = evaluateForMissing(alertStateStore, hashForNAMT, status.get(),
+                                    alertStates, timestamps, statusHistoryLength, lastSeen, endTime);
+                        } else {
+                            alertEvent = null;
+                        }
 
-                    for(int i = 0; i < statusHistoryLength; i++) {
-                        alertStates[i] = AlertState.fromId(statusHistory.get(i).asLong());
-                        // Ideally should be converting by using time unit.. but perf
-                        timestamps[i] = statusHistoryTimestamps.get(i).asLong();
-                    }
+                        if(alertEvent != null) {
 
-                    final long lastSeen = timestamps[statusHistoryLength -1];
-                    final long hashForNAMT = AlertUtils.getHashForNAMT(namespace, alertId, tags);
-                    final long storedLastSeenTime = alertStateStore.getLastSeenTime(hashForNAMT);
-                    seenThisRun.put(hashForNAMT, hashForNAMT);
-                    log.debug("alert id: {} last seen: str: {} rec: {} , {}",alertId,storedLastSeenTime, lastSeen, tags);
-                    log.info("alert id: {} Received datapoints {} in status for {}", alertId,
-                            Arrays.toString(alertStates), hashForNAMT);
-                    final boolean bypassEvaluation;
-                    if(lastSeen <= storedLastSeenTime || storedLastSeenTime == -1) {
-                        // Missing alert check
-                        if(healthCheckConfig.isMissingEnabled()) {
-                            log.info("Evaluating missing: {} , {}",alertId, tags);
-                            final AlertEvent alertEvent  = evaluateForMissing(hashForNAMT,
-                                        tags, alertStates, timestamps, lastSeen, endTime);
-
-                            if(alertEvent != null) {
-
-                                alertEvent.setAlertDetails(AlertUtils.getMessageForMissing(lastSeen));
-                                setProp(HealthCheckConfigFields.MISSING_SINCE,
-                                        lastSeen, alertEvent);
-                                alertEventList.add(alertEvent);
-                                bypassEvaluation = true;
-                            } else {
-                                bypassEvaluation = false;
-                            }
-                            localMonitor.evaluatedMissing++;
+                            alertEvent.setAlertDetails(AlertUtils.getMessageForMissing(lastSeen));
+                            setProp(HealthCheckConfigFields.MISSING_SINCE,
+                                    lastSeen, alertEvent);
+                            alertEventList.add(alertEvent);
+                            bypassEvaluation = true;
                         } else {
                             bypassEvaluation = false;
                         }
-                        //No update, skip
-                        if(storedLastSeenTime != -1) {
-                            localMonitor.noUpdate++;
-                            continue;
-                        } else {
-                            localMonitor.firstTime++;
-                        }
+                        localMonitor.evaluatedMissing++;
                     } else {
                         bypassEvaluation = false;
                     }
+                    //No update, skip
+                    if(storedLastSeenTime != -1) {
+                        localMonitor.noUpdate++;
+                        continue;
+                    } else {
+                        localMonitor.firstTime++;
+                    }
+                } else {
+                    bypassEvaluation = false;
+                }
 
-                    if(!bypassEvaluation) {
-                        localMonitor.evaluated++;
-                        //Eval
-                        AlertEvent alertEvent = null;
-                        final String messageToSet;
-                        // Check if missing recovery
-                        if (healthCheckConfig.isMissingEnabled()) {
-                            alertEvent = recoverAlertFromMissing(hashForNAMT, tags, alertStates,
-                                    timestamps, false, lastSeen, storedLastSeenTime);
-                            localMonitor.evaluatedMissingRecovery++;
-                        }
-
-                        if (alertEvent != null) {
-                            messageToSet = AlertUtils.getMessageForMissingRecovery(lastSeen);
-                            setProp(HealthCheckConfigFields.RECOVERED_SINCE,
-                                    lastSeen, alertEvent);
-                        } else {
-                            messageToSet = message;
-                        }
+                if(!bypassEvaluation) {
+                    localMonitor.evaluated++;
+                    //Eval
+                    AlertEvent alertEvent = null;
+                    final String messageToSet;
+                    // Check if missing recovery
+                    if (healthCheckConfig.isMissingEnabled()) {
+                        alertEvent = recoverAlertFromMissing(alertStateStore, hashForNAMT, status, alertStates,
+                                timestamps, statusHistoryLength, false, lastSeen, storedLastSeenTime);
+                        localMonitor.evaluatedMissingRecovery++;
+                    }
 
-                        if (alertEvent == null && healthCheckConfig.isHasBadThreshold()) {
-                            localMonitor.evaluatedBad++;
-                            alertEvent = evaluate(AlertState.BAD, hashForNAMT, healthCheckConfig.getBadThreshold(),
-                                    tags, alertStates, timestamps);
-                        }
-                        if (alertEvent == null && healthCheckConfig.isHasWarnThreshold()) {
-                            localMonitor.evaluatedWarn++;
-                            alertEvent = evaluate(AlertState.WARN, hashForNAMT, healthCheckConfig.getWarnThreshold(),
-                                    tags, alertStates, timestamps);
-                        }
-                        if (alertEvent == null && healthCheckConfig.isHasUnknownThreshold()) {
-                            localMonitor.evaluatedUnknown++;
-                            alertEvent = evaluate(AlertState.UNKNOWN, hashForNAMT, healthCheckConfig.getUnknownThreshold(),
-                                    tags, alertStates, timestamps);
-                        }
-                        if (alertEvent == null && healthCheckConfig.isHasRecoveryThreshold()) {
-                            localMonitor.evaluatedGood++;
-                            alertEvent = evaluate(AlertState.GOOD, hashForNAMT, healthCheckConfig.getRecoveryThreshold(),
-                                    tags, alertStates, timestamps);
-                        }
+                    if (alertEvent != null) {
+                        messageToSet = AlertUtils.getMessageForMissingRecovery(lastSeen);
+                        setProp(HealthCheckConfigFields.RECOVERED_SINCE,
+                                lastSeen, alertEvent);
+                    } else {
+                        messageToSet = message;
+                    }
 
-                        if (alertEvent != null) {
-                            alertEvent.setAlertDetails(messageToSet);
-                            alertEventList.add(alertEvent);
-                        }
-                        if (Objects.nonNull(alertStateStore.getCurrentState(hashForNAMT))) {
-                            //First can be indeterminate
-                            AlertUtils.writeStatus(statusWriter,
-                                    healthCheckConfig,
-                                    endTime,
-                                    healthCheckConfig.getNamespace(),
-                                    alertStateStore.getCurrentState(hashForNAMT),
-                                    healthCheckConfig.getAlertId(),
-                                    tags, messageToSet);
-                        }
+                    if (alertEvent == null && healthCheckConfig.isHasBadThreshold()) {
+                        localMonitor.evaluatedBad++;
+                        alertEvent = evaluate(alertStateStore, AlertState.BAD, hashForNAMT, healthCheckConfig.getBadThreshold(),
+                                status, alertStates, timestamps, statusHistoryLength);
+                    }
+                    if (alertEvent == null && healthCheckConfig.isHasWarnThreshold()) {
+                        localMonitor.evaluatedWarn++;
+                        alertEvent = evaluate(alertStateStore, AlertState.WARN, hashForNAMT, healthCheckConfig.getWarnThreshold(),
+                                status, alertStates, timestamps, statusHistoryLength);
+                    }
+                    if (alertEvent == null && healthCheckConfig.isHasUnknownThreshold()) {
+                        localMonitor.evaluatedUnknown++;
+                        alertEvent = evaluate(alertStateStore, AlertState.UNKNOWN, hashForNAMT, healthCheckConfig.getUnknownThreshold(),
+                                status, alertStates, timestamps, statusHistoryLength);
+                    }
+                    if (alertEvent == null && healthCheckConfig.isHasRecoveryThreshold()) {
+                        localMonitor.evaluatedGood++;
+                        alertEvent = evaluate(alertStateStore, AlertState.GOOD, hashForNAMT, healthCheckConfig.getRecoveryThreshold(),
+                                status, alertStates, timestamps, statusHistoryLength);
                     }
 
+                    if (alertEvent != null) {
+                        alertEvent.setAlertDetails(messageToSet);
+                        alertEventList.add(alertEvent);
+                    }
+                    if (Objects.nonNull(alertStateStore.getCurrentState(hashForNAMT))) {
+                        //First can be indeterminate
+                        AlertUtils.writeStatus(statusWriter,
+                                healthCheckConfig,
+                                endTime,
+                                healthCheckConfig.getNamespace(),
+                                alertStateStore.getCurrentState(hashForNAMT),
+                                healthCheckConfig.getAlertId(),
+                                status.tagKeys(), status.tagValues(), status.tagCount(),
+                                messageToSet);
+                    }
+                }
 
-                    addNsAndApp(tags,namespaceForData,application);
-                    alertStateStore.updateDataPoint(namespace, alertId, tags, lastSeen);
+                alertStateStore.updateDataPoint(hashForNAMT, status, lastSeen);
 
-                }
+            }
 
-                //Missing
-                if(healthCheckConfig.isMissingEnabled()) {
-                    final LongIterator iteratorForStoredData = alertStateStore.getIteratorForStoredData();
+            //Missing
+            if(healthCheckConfig.isMissingEnabled()) {
+                final LongIterator iteratorForStoredData = alertStateStore.getIteratorForStoredData();
 
-                    while (iteratorForStoredData.hasNext()) {
-                        final long hash = iteratorForStoredData.nextLong();
+                while (iteratorForStoredData.hasNext()) {
+                    final long hash = iteratorForStoredData.nextLong();
 
-                        // Look for results which havent come.
-                        if(!seenThisRun.containsKey(hash)) {
+                    // Look for results which havent come.
+                    if(!seenThisRun.containsKey(hash)) {
 
-                            final long lastSeenTime = alertStateStore.getLastSeenTime(hash);
-                            final SortedMap<String, String> tags = alertStateStore.getTags(hash);
-                            if(tags == null) {
+                        final long lastSeenTime = alertStateStore.getLastSeenTime(hash);
+                        localMonitor.evaluatedMissing++;
+                        if(!isMissingIntervalExceeded(lastSeenTime)) {
+                            continue;
+                        }
+                        final SortedMap<String, String> tags = alertStateStore.getTags(hash);
+                        if(tags == null) {
 
-                                log.debug("alert id: {} Tags null for hash: {} with last seen {}", alertId,
-                                        hash, lastSeenTime);
+                            log.debug("alert id: {} Tags null for hash: {} with last seen {}", alertId,
+                                    hash, lastSeenTime);
 
-                                continue;
-                            }
+                            continue;
+                        }
 
-                            AlertState[] alertStates = new AlertState[1];
-                            alertStates[0] = AlertState.MISSING;
-                            long[] timestamps = new long[1];
-                            timestamps[0] = Instant.now().getEpochSecond();
-                            final AlertEvent alertEvent =
-                                    evaluateForMissing(hash, tags, alertStates,
-                                            timestamps, lastSeenTime, endTime);
-                            localMonitor.evaluatedMissing++;
+                        AlertState[] alertStates = new AlertState[1];
+                        alertStates[0] = AlertState.MISSING;
+                        long[] timestamps = new long[1];
+                        timestamps[0] = Instant.now().getEpochSecond();
+                        final AlertEvent alertEvent =
+                                evaluateForMissing(alertStateStore, hash, tags, alertStates,
+                                        timestamps, 1, lastSeenTime, endTime);
 
-                            if(alertEvent != null) {
-                                alertEventList.add(alertEvent);
-                            }
+                        if(alertEvent != null) {
+                            alertEventList.add(alertEvent);
                         }
                     }
                 }
+            }
 
-                localMonitor.reportStats();
-            //}
+            localMonitor.reportStats();
             removeNsAndApp(alertEventBag);
             return alertEventBag;
 
-
-
         } catch (IOException e) {
-            e.printStackTrace();
+            log.error("alert id: {} Unable to read aura response", alertId, e);
+        } finally {
+            status.reset();
         }
 
         return null;
@@ -357,19 +365,18 @@ public class AuraDBProcessor extends StateTimeBasedExecutor<HealthCheckConfig> {
         }
     }
 
-    private void addNsAndApp(TreeMap<String, String> tags, String namespaceForData, String application) {
-        if(!tags.containsKey(HealthCheckConfigFields.NAMESPACE_FOR_DATA)) {
-            tags.put(HealthCheckConfigFields.NAMESPACE_FOR_DATA,namespaceForData);
-        }
-        if(!tags.containsKey(HealthCheckConfigFields.APPLICATION_FOR_DATA)) {
-            tags.put(HealthCheckConfigFields.APPLICATION_FOR_DATA,application);
-        }
+    private boolean isMissingIntervalExceeded(long storedLastSeenTime) {
+        final long currentTimeSecs = Instant.now().getEpochSecond();
+        return (int)(currentTimeSecs - storedLastSeenTime) >
+                healthCheckConfig.getMissingIntervalInSec();
     }
 
-    private AlertEvent evaluateForMissing(long hash,
+    private AlertEvent evaluateForMissing(AlertStateStore alertStateStore,
+                                          long hash,
                                           SortedMap<String, String> tags,
                                           AlertState[] alertStates,
                                           long[] timestamps,
+                                          int size,
                                           long storedLastSeenTime,
                                           long endTime) {
 
@@ -386,7 +393,7 @@ public class AuraDBProcessor extends StateTimeBasedExecutor<HealthCheckConfig> {
                     healthCheckConfig.getAlertId(),
                     tags, AlertUtils.getMessageForMissing(storedLastSeenTime));
 
-            return createAlertEvent(AlertState.MISSING, hash, tags, alertStates, timestamps, 1,
+            return createAlertEvent(alertStateStore, AlertState.MISSING, hash, () -> tags, alertStates, timestamps, size, 1,
                     intervalForMissing,false);
         }
 
@@ -394,8 +401,10 @@ public class AuraDBProcessor extends StateTimeBasedExecutor<HealthCheckConfig> {
 
     }
 
-    private AlertEvent recoverAlertFromMissing(long hash, TreeMap<String, String> tags,
-                                               AlertState[] alertStates, long[] timestamps, boolean autoRecovery,
+    private AlertEvent recoverAlertFromMissing(AlertStateStore alertStateStore,
+                                               long hash, AuraDBStatus status,
+                                               AlertState[] alertStates, long[] timestamps, int size,
+                                               boolean autoRecovery,
                                                long lastSeen, long storedLastSeenTime) {
 
         if(alertStateStore.getCurrentState(hash) != AlertState.MISSING) {
@@ -409,17 +418,16 @@ public class AuraDBProcessor extends StateTimeBasedExecutor<HealthCheckConfig> {
             intervalSinceDataWentMissing = (int) (lastSeen - storedLastSeenTime);
         }
 
-        return createAlertEvent(AlertState.GOOD, hash, tags, alertStates, timestamps, 1,
+        return createAlertEvent(alertStateStore, AlertState.GOOD, hash, status, alertStates, timestamps, size, 1,
                 intervalSinceDataWentMissing, autoRecovery);
 
 
     }
 
-    private AlertEvent evaluate(AlertState state, long hash,
-                                double threshold, TreeMap<String, String> tags,
-                                AlertState[] alertStates, long[] timestamps) {
-
-        int size = alertStates.length;
+    private AlertEvent evaluate(AlertStateStore alertStateStore,
+                                AlertState state, long hash,
+                                double threshold, AuraDBStatus status,
+                                AlertState[] alertStates, long[] timestamps, int size) {
 
         final int thres;
         if(threshold > size) {
@@ -439,7 +447,7 @@ public class AuraDBProcessor extends StateTimeBasedExecutor<HealthCheckConfig> {
         if(obs == thres) {
             //yay
 
-            return createAlertEvent(state, hash, tags, alertStates, timestamps,
+            return createAlertEvent(alertStateStore, state, hash, status, alertStates, timestamps, size,
                     thres, 0, false);
 
         }
@@ -448,18 +456,24 @@ public class AuraDBProcessor extends StateTimeBasedExecutor<HealthCheckConfig> {
     }
 
 
-    private AlertEvent createAlertEvent(AlertState state, long hash,
-                                        SortedMap<String, String> tags,
+    /**
+     * The state and timestamp buffers may be reused, they are copied into
+     * the event up to size. The tags are only requested for an alert, the
+     * event owns and modifies the map.
+     */
+    private AlertEvent createAlertEvent(AlertStateStore alertStateStore,
+                                        AlertState state, long hash,
+                                        Supplier<? extends SortedMap<String, String>> tagSupplier,
                                         AlertState[] alertStates,
                                         long[] timestamps,
+                                        int size,
                                         int thres, int interval,
                                         boolean isAutoRecovery) {
 
-        int size = alertStates.length;
-
-        final AlertStateChange stageChange = alertStateStore.raiseAlert(namespace, alertId, tags, state);
+        final AlertStateChange stageChange = alertStateStore.raiseAlert(hash, tagSupplier, state);
 
         if (stageChange.raiseAlert()) {
+            final SortedMap<String, String> tags = tagSupplier.get();
             final long ts;
             if(size != 0) {
                 ts = timestamps[size - 1];
@@ -475,7 +489,8 @@ public class AuraDBProcessor extends StateTimeBasedExecutor<HealthCheckConfig> {
 
             annotateAlertEvent((HealthCheckAlertEvent) alertEvent,
                     stageChange,
-                    ns,app,alertStates,timestamps,thres, interval,isAutoRecovery);
+                    ns,app,Arrays.copyOf(alertStates, size),Arrays.copyOf(timestamps, size),
+                    thres, interval,isAutoRecovery);
 
             return alertEvent;
         }
@@ -545,7 +560,7 @@ public class AuraDBProcessor extends StateTimeBasedExecutor<HealthCheckConfig> {
             final String namespace = alertConfig.getNamespace();
             final long alertId = alertConfig.getAlertId();
 
-            log.info("alert id: {} Statuses Total: {} first: {} no update: {} evaluated: {} ",
+            SAMPLED_LOG.info(alertId, "alert id: {} Statuses Total: {} first: {} no update: {} evaluated: {} ",
                     alertId, totalStatuses, firstTime, noUpdate, evaluated);
 
             final Monitoring monitoring = Monitoring.get();
@@ -555,6 +570,7 @@ public class AuraDBProcessor extends StateTimeBasedExecutor<HealthCheckConfig> {
             monitoring.countTimeseriesEvaluated(evaluatedGood, namespace, alertId, AlertState.GOOD);
             monitoring.countTimeseriesEvaluated(evaluatedUnknown, namespace, alertId, AlertState.UNKNOWN);
             monitoring.countTimeseriesEvaluated(evaluatedMissing, namespace, alertId, AlertState.MISSING);
+            AlertCostModel.get().recordSeriesEvaluated(alertId, evaluated);
 
             monitoring.countTotalStatusesSeen(totalStatuses, namespaceIdAlertConfigTypeTags);
             monitoring.countStatusNotUpdated(noUpdate, namespaceIdAlertConfigTypeTags);
@@ -0,0 +1,194 @@
+/*
+ * This file is part of OpenTSDB.
+ * Copyright (C) 2021 Yahoo.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package net.opentsdb.horizon.alerts.query.auradb;
+
+import net.opentsdb.horizon.alerts.AlertUtils;
+import net.opentsdb.horizon.alerts.enums.AlertState;
+
+import java.util.Arrays;
+import java.util.TreeMap;
+import java.util.function.Supplier;
+
+/**
+ * One status of an AuraDB response, decoded into reusable buffers.
+ *
+ * Instances are meant to be kept per thread and {@link #reset()} between
+ * statuses: the tag arrays and the state/timestamp history only grow, so a
+ * steady state run does not allocate per status. Tags are kept sorted by
+ * key, which lets {@link #hash(String, long)} produce the same value as
+ * {@link AlertUtils#getHashForNAMT(String, long, java.util.SortedMap)}
+ * without building the map. As a supplier, maps are only materialized
+ * when the state store records a new identity or an alert is raised; the
+ * status writer reads the sorted arrays directly.
+ */
+final class AuraDBStatus implements Supplier<TreeMap<String, String>> {
+
+    private static final int INITIAL_TAGS = 16;
+
+    private static final int INITIAL_HISTORY = 32;
+
+    int statusType;
+
+    String message;
+
+    String application;
+
+    private String[] tagKeys = new String[INITIAL_TAGS];
+
+    private String[] tagValues = new String[INITIAL_TAGS];
+
+    private int tagCount;
+
+    private AlertState[] states = new AlertState[INITIAL_HISTORY];
+
+    private int stateCount;
+
+    private long[] timestamps = new long[INITIAL_HISTORY];
+
+    private int timestampCount;
+
+    private final StringBuilder hashScratch = new StringBuilder(256);
+
+    void reset() {
+        statusType = -1;
+        message = null;
+        application = null;
+        Arrays.fill(tagKeys, 0, tagCount, null);
+        Arrays.fill(tagValues, 0, tagCount, null);
+        tagCount = 0;
+        stateCount = -1;
+        timestampCount = -1;
+    }
+
+    /**
+     * Insert keeping the keys sorted, a later value for the same key wins.
+     */
+    void putTag(String key, String value) {
+        int pos = Arrays.binarySearch(tagKeys, 0, tagCount, key);
+        if (pos >= 0) {
+            tagValues[pos] = value;
+            return;
+        }
+        pos = -(pos + 1);
+        if (tagCount == tagKeys.length) {
+            tagKeys = Arrays.copyOf(tagKeys, tagCount << 1);
+            tagValues = Arrays.copyOf(tagValues, tagCount << 1);
+        }
+        System.arraycopy(tagKeys, pos, tagKeys, pos + 1, tagCount - pos);
+        System.arraycopy(tagValues, pos, tagValues, pos + 1, tagCount - pos);
+        tagKeys[pos] = key;
+        tagValues[pos] = value;
+        tagCount++;
+    }
+
+    void putTagIfAbsent(String key, String value) {
+        if (Arrays.binarySearch(tagKeys, 0, tagCount, key) < 0) {
+            putTag(key, value);
+        }
+    }
+
+    int tagCount() {
+        return tagCount;
+    }
+
+    /**
+     * Backing tag key buffer, sorted and valid up to {@link #tagCount()}.
+     */
+    String[] tagKeys() {
+        return tagKeys;
+    }
+
+    /**
+     * Backing tag value buffer, valid up to {@link #tagCount()}.
+     */
+    String[] tagValues() {
+        return tagValues;
+    }
+
+    void startStates() {
+        stateCount = 0;
+    }
+
+    void addState(AlertState state) {
+        if (stateCount == states.length) {
+            states = Arrays.copyOf(states, stateCount << 1);
+        }
+        states[stateCount++] = state;
+    }
+
+    void startTimestamps() {
+        timestampCount = 0;
+    }
+
+    void addTimestamp(long timestamp) {
+        if (timestampCount == timestamps.length) {
+            timestamps = Arrays.copyOf(timestamps, timestampCount << 1);
+        }
+        timestamps[timestampCount++] = timestamp;
+    }
+
+    /**
+     * @return history length, -1 if the status history is absent or does
+     * not line up with the timestamps.
+     */
+    int historyLength() {
+        if (stateCount != timestampCount) {
+            return -1;
+        }
+        return stateCount;
+    }
+
+    /**
+     * Backing state buffer, valid up to {@link #historyLength()}.
+     */
+    AlertState[] states() {
+        return states;
+    }
+
+    /**
+     * Backing timestamp buffer, valid up to {@link #historyLength()}.
+     */
+    long[] timestamps() {
+        return timestamps;
+    }
+
+    long lastSeen() {
+        return timestamps[timestampCount - 1];
+    }
+
+    long hash(String namespace, long alertId) {
+        return AlertUtils.getHashForNAMT(namespace, alertId,
+                tagKeys, tagValues, tagCount, hashScratch);
+    }
+
+    /**
+     * @return a fresh copy of the tags, owned by the caller.
+     */
+    @Override
+    public TreeMap<String, String> get() {
+        final TreeMap<String, String> map = new TreeMap<>();
+        for (int i = 0; i < tagCount; i++) {
+            map.put(tagKeys[i], tagValues[i]);
+        }
+        return map;
+    }
+
+    String statesToString() {
+        return Arrays.toString(Arrays.copyOf(states, Math.max(stateCount, 0)));
+    }
+}
@@ -0,0 +1,166 @@
+/*
+ * This file is part of OpenTSDB.
+ * Copyright (C) 2021 Yahoo.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package net.opentsdb.horizon.alerts.query.auradb;
+
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+import net.opentsdb.horizon.alerts.enums.AlertState;
+
+import java.io.Closeable;
+import java.io.IOException;
+
+/**
+ * Streams the statuses of an AuraDB response without building a tree.
+ *
+ * Only the data of the first result is read, the same way the tree based
+ * evaluation did. Each {@link #next(AuraDBStatus)} decodes one status into
+ * the caller's buffers.
+ */
+final class AuraDBStatusReader implements Closeable {
+
+    private static final JsonFactory JSON_FACTORY = new JsonFactory();
+
+    private final JsonParser parser;
+
+    private boolean hasData;
+
+    AuraDBStatusReader(final String response) throws IOException {
+        this.parser = JSON_FACTORY.createParser(response);
+        this.hasData = seekToData();
+    }
+
+    /**
+     * Moves to the data array of the first result.
+     */
+    private boolean seekToData() throws IOException {
+        if (parser.nextToken() != JsonToken.START_OBJECT) {
+            return false;
+        }
+        if (!seekToField("results") || parser.nextToken() != JsonToken.START_ARRAY) {
+            return false;
+        }
+        if (parser.nextToken() != JsonToken.START_OBJECT) {
+            return false;
+        }
+        return seekToField("data") && parser.nextToken() == JsonToken.START_ARRAY;
+    }
+
+    /**
+     * Skips the fields of the current object up to the given one.
+     */
+    private boolean seekToField(final String name) throws IOException {
+        while (parser.nextToken() == JsonToken.FIELD_NAME) {
+            if (name.equals(parser.getCurrentName())) {
+                return true;
+            }
+            parser.nextToken();
+            parser.skipChildren();
+        }
+        return false;
+    }
+
+    /**
+     * Decodes the next status.
+     *
+     * @param status reset and filled with the next status.
+     * @return false once all statuses are read.
+     */
+    boolean next(final AuraDBStatus status) throws IOException {
+        if (!hasData) {
+            return false;
+        }
+        if (parser.nextToken() != JsonToken.START_OBJECT) {
+            hasData = false;
+            return false;
+        }
+
+        status.reset();
+        while (parser.nextToken() == JsonToken.FIELD_NAME) {
+            final String field = parser.getCurrentName();
+            final JsonToken value = parser.nextToken();
+            switch (field) {
+                case "statusType":
+                    status.statusType = parser.getValueAsInt(-1);
+                    break;
+                case "message":
+                    status.message = value == JsonToken.VALUE_NULL ?
+                            null : parser.getValueAsString();
+                    break;
+                case "application":
+                    status.application = parser.getValueAsString("");
+                    break;
+                case "tags":
+                    readTags(status, value);
+                    break;
+                case "statusCodeArray":
+                    readStates(status, value);
+                    break;
+                case "timestampArray":
+                    readTimestamps(status, value);
+                    break;
+                default:
+                    parser.skipChildren();
+            }
+        }
+        return true;
+    }
+
+    private void readTags(final AuraDBStatus status, final JsonToken value)
+            throws IOException {
+        if (value != JsonToken.START_OBJECT) {
+            parser.skipChildren();
+            return;
+        }
+        while (parser.nextToken() == JsonToken.FIELD_NAME) {
+            final String key = parser.getCurrentName();
+            parser.nextToken();
+            status.putTag(key, parser.getValueAsString(""));
+            parser.skipChildren();
+        }
+    }
+
+    private void readStates(final AuraDBStatus status, final JsonToken value)
+            throws IOException {
+        if (value != JsonToken.START_ARRAY) {
+            parser.skipChildren();
+            return;
+        }
+        status.startStates();
+        while (parser.nextToken() != JsonToken.END_ARRAY) {
+            status.addState(AlertState.fromId(parser.getValueAsLong()));
+        }
+    }
+
+    private void readTimestamps(final AuraDBStatus status, final JsonToken value)
+            throws IOException {
+        if (value != JsonToken.START_ARRAY) {
+            parser.skipChildren();
+            return;
+        }
+        status.startTimestamps();
+        while (parser.nextToken() != JsonToken.END_ARRAY) {
+            status.addTimestamp(parser.getValueAsLong());
+        }
+    }
+
+    @Override
+    public void close() throws IOException {
+        parser.close();
+    }
+}
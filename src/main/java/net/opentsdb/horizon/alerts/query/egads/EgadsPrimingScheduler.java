@@ -0,0 +1,300 @@
+/*
+ * This file is part of OpenTSDB.
+ * Copyright (C) 2021 Yahoo.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package net.opentsdb.horizon.alerts.query.egads;
+
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import net.opentsdb.horizon.core.validate.Validate;
+import net.opentsdb.horizon.alerts.AlertException;
+import net.opentsdb.horizon.alerts.EnvironmentConfig;
+import net.opentsdb.horizon.alerts.Monitoring;
+import net.opentsdb.horizon.alerts.query.tsdb.TSDBClient;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Runs EGADS priming queries off the evaluation threads.
+ * <p>
+ * Priming calls are executed by a small dedicated pool, so an expensive
+ * model build never holds a monitor thread, and at most
+ * {@code egads_priming_threads} priming queries hit TSDB at once. A call
+ * may be delayed to its aligned priming slot. A {@code 423 Locked}
+ * response means the model is already being built: the call is retried
+ * with exponential backoff, and counted as primed once retries run out.
+ * <p>
+ * Lag (how late a call started against its slot), latency and outcome
+ * are reported per alert.
+ */
+public class EgadsPrimingScheduler {
+
+    /* ------------ Constants ------------ */
+
+    private static final Logger LOG =
+            LoggerFactory.getLogger(EgadsPrimingScheduler.class);
+
+    private static final String MSG_423_LOCKED = "423 Locked";
+
+    /* ------------ Static Fields ------------ */
+
+    private static volatile EgadsPrimingScheduler instance;
+
+    /* ------------ Fields ------------ */
+
+    /**
+     * Null for the direct scheduler.
+     */
+    private final ScheduledExecutorService executor;
+
+    private final int maxPending;
+
+    private final long lockedBackoffMs;
+
+    private final int lockedMaxRetries;
+
+    private final AtomicInteger pending = new AtomicInteger();
+
+    /* ------------ Constructor ------------ */
+
+    EgadsPrimingScheduler(final ScheduledExecutorService executor,
+                          final int maxPending,
+                          final long lockedBackoffMs,
+                          final int lockedMaxRetries) {
+        this.executor = executor;
+        this.maxPending = maxPending;
+        this.lockedBackoffMs = lockedBackoffMs;
+        this.lockedMaxRetries = lockedMaxRetries;
+    }
+
+    /**
+     * @return the process wide scheduler.
+     */
+    public static EgadsPrimingScheduler get() {
+        if (instance == null) {
+            synchronized (EgadsPrimingScheduler.class) {
+                if (instance == null) {
+                    instance = create(new EnvironmentConfig());
+                }
+            }
+        }
+        return instance;
+    }
+
+    static EgadsPrimingScheduler create(final EnvironmentConfig config) {
+        final AtomicInteger threadCount = new AtomicInteger();
+        final ScheduledThreadPoolExecutor executor =
+                new ScheduledThreadPoolExecutor(
+                        Math.max(1, config.getEgadsPrimingThreads()),
+                        r -> {
+                            final Thread thread = new Thread(r,
+                                    "egads-priming-" + threadCount.incrementAndGet());
+                            thread.setDaemon(true);
+                            return thread;
+                        });
+        executor.setRemoveOnCancelPolicy(true);
+        return new EgadsPrimingScheduler(
+                executor,
+                config.getEgadsPrimingMaxPending(),
+                config.getEgadsPrimingLockedBackoffMs(),
+                config.getEgadsPrimingLockedMaxRetries()
+        );
+    }
+
+    /**
+     * Scheduler running the calls on the submitting thread, ignoring
+     * delays and without retries.
+     */
+    public static EgadsPrimingScheduler direct() {
+        return new EgadsPrimingScheduler(null, Integer.MAX_VALUE, 0L, 0);
+    }
+
+    /* ------------ Methods ------------ */
+
+    /**
+     * Schedule a priming call.
+     *
+     * @param task priming call.
+     * @param delaySec seconds to wait before the call.
+     * @return false if the call was rejected, in which case the callback
+     * is not invoked.
+     */
+    public boolean schedule(final Task task, final long delaySec) {
+        Validate.paramNotNull(task, "task cannot be null");
+        if (pending.incrementAndGet() > maxPending) {
+            pending.decrementAndGet();
+            Monitoring.get().countEgadsPrimingOutcome(
+                    task.namespace, task.alertId, Outcome.REJECTED.tag);
+            LOG.warn("priming rejected, too many pending: alert_id={}, max_pending={}",
+                    task.alertId, maxPending);
+            return false;
+        }
+        Monitoring.get().gaugeEgadsPrimingPending(pending.get());
+
+        final long delayMs = TimeUnit.SECONDS.toMillis(Math.max(0L, delaySec));
+        task.dueAtMs = System.currentTimeMillis() + delayMs;
+        if (executor == null) {
+            run(task);
+            return true;
+        }
+        try {
+            executor.schedule(() -> run(task), delayMs, TimeUnit.MILLISECONDS);
+        } catch (RejectedExecutionException e) {
+            pending.decrementAndGet();
+            Monitoring.get().countEgadsPrimingOutcome(
+                    task.namespace, task.alertId, Outcome.REJECTED.tag);
+            LOG.error("priming rejected by executor: alert_id={}", task.alertId, e);
+            return false;
+        }
+        return true;
+    }
+
+    private void run(final Task task) {
+        final long startMs = System.currentTimeMillis();
+        if (task.attempt == 0) {
+            Monitoring.get().timeEgadsPrimingLag(
+                    Math.max(0L, startMs - task.dueAtMs), task.namespace, task.alertId);
+        }
+
+        Outcome outcome;
+        try {
+            final String responsePayload =
+                    task.tsdbClient.getResponse(task.request, task.alertId);
+            LOG.debug("prime tsdb response: alert_id={}, prime_end_time_sec={}, response=<<{}>>.",
+                    task.alertId, task.primingEndTimeSec, responsePayload);
+            outcome = Outcome.PRIMED;
+        } catch (AlertException e) {
+            if (!isLocked(e)) {
+                LOG.error("priming call failed: alert_id=" + task.alertId + ".", e);
+                outcome = Outcome.FAILED;
+            } else if (retryLocked(task)) {
+                return;
+            } else {
+                outcome = Outcome.LOCKED;
+            }
+        } catch (Exception e) {
+            LOG.error("priming unexpected exception: alert_id=" + task.alertId + ".", e);
+            outcome = Outcome.FAILED;
+        }
+
+        Monitoring.get().timeEgadsPrimingLatency(
+                System.currentTimeMillis() - startMs, task.namespace, task.alertId);
+        Monitoring.get().countEgadsPrimingOutcome(
+                task.namespace, task.alertId, outcome.tag);
+        Monitoring.get().gaugeEgadsPrimingPending(pending.decrementAndGet());
+
+        try {
+            task.callback.onComplete(task.primingEndTimeSec, outcome != Outcome.FAILED);
+        } catch (Exception e) {
+            LOG.error("priming callback failed: alert_id=" + task.alertId + ".", e);
+        }
+    }
+
+    /**
+     * @return true if the call was rescheduled.
+     */
+    private boolean retryLocked(final Task task) {
+        if (executor == null || task.attempt >= lockedMaxRetries) {
+            return false;
+        }
+        final long backoffMs = lockedBackoffMs << task.attempt;
+        task.attempt++;
+        LOG.debug("priming locked, retrying: alert_id={}, attempt={}, backoff_ms={}",
+                task.alertId, task.attempt, backoffMs);
+        try {
+            executor.schedule(() -> run(task), backoffMs, TimeUnit.MILLISECONDS);
+            return true;
+        } catch (RejectedExecutionException e) {
+            return false;
+        }
+    }
+
+    private static boolean isLocked(final AlertException e) {
+        final Throwable cause = e.getCause();
+        final String causeMsg = cause == null ? null : cause.getMessage();
+        final String msg = e.getMessage();
+        return (causeMsg != null && causeMsg.contains(MSG_423_LOCKED))
+                || (msg != null && msg.contains(MSG_423_LOCKED));
+    }
+
+    int getPending() {
+        return pending.get();
+    }
+
+    public void shutdown() {
+        if (executor != null) {
+            executor.shutdownNow();
+        }
+    }
+
+    /* ------------ Types ------------ */
+
+    enum Outcome {
+        PRIMED("primed"),
+        LOCKED("locked"),
+        FAILED("failed"),
+        REJECTED("rejected");
+
+        private final String tag;
+
+        Outcome(final String tag) {
+            this.tag = tag;
+        }
+    }
+
+    public interface Callback {
+
+        /**
+         * @param primingEndTimeSec priming end time of the call.
+         * @param primed true if the model is primed or being built.
+         */
+        void onComplete(long primingEndTimeSec, boolean primed);
+    }
+
+    public static final class Task {
+
+        private final String namespace;
+        private final long alertId;
+        private final String request;
+        private final TSDBClient tsdbClient;
+        private final long primingEndTimeSec;
+        private final Callback callback;
+
+        private volatile long dueAtMs;
+        private volatile int attempt;
+
+        public Task(final String namespace,
+                    final long alertId,
+                    final String request,
+                    final TSDBClient tsdbClient,
+                    final long primingEndTimeSec,
+                    final Callback callback) {
+            Validate.paramNotNull(request, "request cannot be null");
+            Validate.paramNotNull(tsdbClient, "tsdbClient cannot be null");
+            Validate.paramNotNull(callback, "callback cannot be null");
+            this.namespace = namespace;
+            this.alertId = alertId;
+            this.request = request;
+            this.tsdbClient = tsdbClient;
+            this.primingEndTimeSec = primingEndTimeSec;
+            this.callback = callback;
+        }
+    }
+}
@@ -21,8 +21,11 @@ import java.time.Instant;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.Objects;
 import java.util.Optional;
 import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
 
 import net.opentsdb.horizon.core.validate.Validate;
 import net.opentsdb.horizon.alerts.AlertException;
@@ -49,6 +52,7 @@ import net.opentsdb.horizon.alerts.state.AlertStateStore;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import com.fasterxml.jackson.databind.JsonNode;
 import com.google.common.collect.Lists;
 
 public final class PeriodOverPeriodProcessor
@@ -75,6 +79,7 @@ public final class PeriodOverPeriodProcessor
     private final TSDBClient tsdbClient;
     private final StatusWriter statusWriter;
     private final CollectorWriter collectorWriter;
+    private final EgadsPrimingScheduler primingScheduler;
 
     private String namespace;
     private long alertId;
@@ -90,7 +95,14 @@ public final class PeriodOverPeriodProcessor
     // Based on the baselinePeriodSec
     private long primingSlackSec;
 
-    private long lastPrimedEndTimeSec = 0;
+    private volatile long lastPrimedEndTimeSec = 0;
+    // Set while a priming call is scheduled or running.
+    private final AtomicBoolean primingInFlight = new AtomicBoolean();
+    // Query the model was primed for.
+    private JsonNode primedQueryJson;
+    // Bumped on query changes, so a pending call primed for the previous
+    // query does not count as priming of the new one.
+    private final AtomicLong primingGeneration = new AtomicLong();
 
     /* ------------ Constructor ------------ */
 
@@ -111,13 +123,30 @@ public final class PeriodOverPeriodProcessor
             final TSDBClient tsdbClient,
             final StatusWriter statusWriter,
             final CollectorWriter collectorWriter) {
+        this(
+                alertConfig,
+                tsdbClient,
+                statusWriter,
+                collectorWriter,
+                EgadsPrimingScheduler.get()
+        );
+    }
+
+    public PeriodOverPeriodProcessor(
+            final PeriodOverPeriodAlertConfig alertConfig,
+            final TSDBClient tsdbClient,
+            final StatusWriter statusWriter,
+            final CollectorWriter collectorWriter,
+            final EgadsPrimingScheduler primingScheduler) {
         super(alertConfig);
         Validate.paramNotNull(tsdbClient, "tsdbClient cannot be null");
         Validate.paramNotNull(statusWriter, "statusWriter cannot be null");
         Validate.paramNotNull(collectorWriter, "collectorWriter cannot be null");
+        Validate.paramNotNull(primingScheduler, "primingScheduler cannot be null");
         this.tsdbClient = tsdbClient;
         this.statusWriter = statusWriter;
         this.collectorWriter = collectorWriter;
+        this.primingScheduler = primingScheduler;
         this.responseParser = EgadsResponseParser.create(EGADS_NODE_ID);
         displayWindowSec = DISPLAY_WINDOW_SEC;
     }
@@ -139,6 +168,13 @@ public final class PeriodOverPeriodProcessor
                 );
         baselinePeriodSec = queryTemplate.getBaselinePeriodSec();
         primingSlackSec = computePrimingSlackSec(baselinePeriodSec);
+        if (!Objects.equals(primedQueryJson, alertConfig.getQueryJson())) {
+            // Models primed for the previous query do not apply to the new
+            // one, prime at the next slot.
+            primingGeneration.incrementAndGet();
+            lastPrimedEndTimeSec = 0;
+            primedQueryJson = alertConfig.getQueryJson();
+        }
         return true;
     }
 
@@ -498,11 +534,13 @@ public final class PeriodOverPeriodProcessor
      * end time is always the 17-th minute of every hour. Note, that the call
      * itself doesn't have to be at the exact minute, it can be made a bit
      * later, but the query range has to be aligned.
+     *
+     * The aligned minute is picked per alert from its id, which spreads
+     * priming calls of all alerts over the priming interval. Calls run on
+     * the EgadsPrimingScheduler, so evaluation never waits for them; a new
+     * call is only made once the previous one completed.
      */
 
-    private final String MSG_423_LOCKED = "423 Locked";
-    private final String EMPTY = "";
-
     private void tryPrimeNextModel(final long endTime, final TimeUnit timeUnit) {
         final long endTimeSec = TimeUnit.SECONDS.convert(endTime, timeUnit);
         if (baselinePeriodSec < MIN_PRIMING_PERIOD_SEC
@@ -512,7 +550,13 @@ public final class PeriodOverPeriodProcessor
             return;
         }
 
-        long primingTimeSec = nextPrimingEndTimeSec(endTimeSec);
+        if (!primingInFlight.compareAndSet(false, true)) {
+            // Previous priming call still pending.
+            return;
+        }
+
+        final long generation = primingGeneration.get();
+        final long primingTimeSec = nextPrimingEndTimeSec(endTimeSec);
         final String request =
                 buildRequest(
                         primingTimeSec + primingSlackSec,
@@ -523,26 +567,31 @@ public final class PeriodOverPeriodProcessor
         LOG.debug("prime time: alert_id={}, prime_end_time_sec={}, last_primed_time_sec={}, request=<<{}>>.",
                 alertId, primingTimeSec, lastPrimedEndTimeSec, request);
 
-        try {
-            final String responsePayload = tsdbClient.getResponse(request, alertId);
-            LOG.debug("prime tsdb response: alert_id={}, end_time={}, response=<<{}>>.",
-                    alertId, endTime, responsePayload);
-        } catch (AlertException e) {
-            final Throwable cause = e.getCause();
-            final String causeMsg = cause == null ? EMPTY : cause.getMessage();
-            final String msg = e.getMessage();
-            if ((causeMsg == null || !causeMsg.contains(MSG_423_LOCKED))
-                    && (msg == null || !msg.contains(MSG_423_LOCKED))) {
-                LOG.error("priming call failed: alert_id=" + alertId + ".", e);
-                return;
-            }
-        } catch (Exception e) {
-            LOG.error("priming unexpected exception: alert_id=" + alertId + ".", e);
-            return;
+        final boolean scheduled = primingScheduler.schedule(
+                new EgadsPrimingScheduler.Task(
+                        namespace,
+                        alertId,
+                        request,
+                        tsdbClient,
+                        primingTimeSec,
+                        (timeSec, primed) ->
+                                onPrimingComplete(generation, timeSec, primed)
+                ),
+                primingTimeSec - endTimeSec
+        );
+        if (!scheduled) {
+            primingInFlight.set(false);
         }
+    }
 
-        // Update the state for the next run.
-        lastPrimedEndTimeSec = primingTimeSec;
+    private void onPrimingComplete(final long generation,
+                                   final long primingTimeSec,
+                                   final boolean primed) {
+        if (primed && generation == primingGeneration.get()) {
+            // Update the state for the next run.
+            lastPrimedEndTimeSec = primingTimeSec;
+        }
+        primingInFlight.set(false);
     }
 
     private boolean isTimeToPrime(final long endTimeSec) {
@@ -555,8 +604,8 @@ public final class PeriodOverPeriodProcessor
      * This method does not account for priming slack.
      * <p>
      * Note: if last priming was done more than 2 priming intervals before,
-     * then we reinitialize priming with current `endTime` to catchup with
-     * current queries.
+     * then we reinitialize priming with the first slot of this alert at or
+     * after the current `endTime` to catchup with current queries.
      *
      * @param endTimeSec end time in seconds
      * @return next priming end time in seconds.
@@ -566,13 +615,29 @@ public final class PeriodOverPeriodProcessor
 
         if (lastPrimedSec == 0L
                 || endTimeSec - lastPrimedSec > 2L * PRIMING_INTERVAL_SEC) {
-            // Use the current end time if:
+            // Use the next slot of this alert if:
             // - no priming was done before; or
             // - last priming time was too long ago for whatever reason.
-            return endTimeSec;
+            return alignToPrimingSlot(endTimeSec, alertId, AlertUtils.dataFrequencyInSecs);
         }
 
         return lastPrimedSec + PRIMING_INTERVAL_SEC;
     }
 
+    /**
+     * The offset is a multiple of the run frequency, so primed ranges line
+     * up with the evaluated ones, whose end times are run aligned.
+     *
+     * @return the first time at or after the given one which falls on the
+     * alert's offset within the priming interval.
+     */
+    static long alignToPrimingSlot(final long timeSec,
+                                   final long alertId,
+                                   final long runFrequencySec) {
+        final long slots = Math.max(1L, PRIMING_INTERVAL_SEC / runFrequencySec);
+        final long offsetSec =
+                Math.floorMod(AlertUtils.getXXHash(alertId), slots) * runFrequencySec;
+        return timeSec + Math.floorMod(offsetSec - timeSec, PRIMING_INTERVAL_SEC);
+    }
+
 }
@@ -0,0 +1,246 @@
+/*
+ * This file is part of OpenTSDB.
+ * Copyright (C) 2021 Yahoo.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package net.opentsdb.horizon.alerts.query.tsdb;
+
+import it.unimi.dsi.fastutil.longs.Long2ObjectMap;
+import it.unimi.dsi.fastutil.longs.Long2ObjectOpenHashMap;
+import it.unimi.dsi.fastutil.objects.ObjectIterator;
+import net.opentsdb.horizon.alerts.enums.SummaryType;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.TreeMap;
+
+/**
+ * Recent values of every time series of an alert, kept over the sliding
+ * window so that each run only has to fetch the newest intervals.
+ *
+ * Each series owns a ring of {@code window / interval + 1} slots indexed
+ * by {@code timestamp / interval}, together with the running sum and count
+ * of its non NaN values. Writing a slot again (late data in the overlap)
+ * replaces the value, and advancing the window end only visits the slots
+ * which fall out of it, so a run costs O(new points) per series.
+ *
+ * Not thread safe, owned by one {@link TSDBV3SlidingWindowQuery}.
+ */
+final class SlidingWindowBuffer {
+
+    private static final long EMPTY = Long.MIN_VALUE;
+
+    private final long windowSecs;
+
+    private final long intervalSecs;
+
+    private final int capacity;
+
+    private final Long2ObjectOpenHashMap<Series> series = new Long2ObjectOpenHashMap<>();
+
+    private long endTimeSecs = -1;
+
+    SlidingWindowBuffer(final long windowSecs, final long intervalSecs) {
+        if (windowSecs <= 0 || intervalSecs <= 0) {
+            throw new IllegalArgumentException("window " + windowSecs
+                    + " and interval " + intervalSecs + " must be positive");
+        }
+        this.windowSecs = windowSecs;
+        this.intervalSecs = intervalSecs;
+        this.capacity = (int) (windowSecs / intervalSecs) + 1;
+    }
+
+    long getWindowSecs() {
+        return windowSecs;
+    }
+
+    long getIntervalSecs() {
+        return intervalSecs;
+    }
+
+    long getEndTimeSecs() {
+        return endTimeSecs;
+    }
+
+    int size() {
+        return series.size();
+    }
+
+    /**
+     * @return true if the buffer holds the window up to its end time, and
+     * moving to the given end only needs the intervals in between.
+     */
+    boolean canAdvanceTo(final long newEndTimeSecs, final long maxGapSecs) {
+        return endTimeSecs != -1
+                && newEndTimeSecs > endTimeSecs
+                && newEndTimeSecs - endTimeSecs <= Math.min(maxGapSecs, windowSecs);
+    }
+
+    /**
+     * Moves the window end, dropping the values and the series which fall
+     * out of the window.
+     */
+    void advance(final long newEndTimeSecs) {
+        if (endTimeSecs == -1 || newEndTimeSecs - endTimeSecs >= windowSecs) {
+            series.clear();
+        } else if (newEndTimeSecs > endTimeSecs) {
+            final long oldStart = endTimeSecs - windowSecs;
+            final long newStart = newEndTimeSecs - windowSecs;
+            final ObjectIterator<Long2ObjectMap.Entry<Series>> it =
+                    series.long2ObjectEntrySet().fastIterator();
+            while (it.hasNext()) {
+                final Series s = it.next().getValue();
+                for (long t = oldStart - Math.floorMod(oldStart, intervalSecs);
+                     t <= newStart; t += intervalSecs) {
+                    s.remove(t);
+                }
+                if (s.points == 0) {
+                    it.remove();
+                }
+            }
+        }
+        endTimeSecs = newEndTimeSecs;
+    }
+
+    /**
+     * Record a value. Values outside of the current window,
+     * {@code (end - window, end]}, are ignored.
+     */
+    void put(final long stateId,
+             final TreeMap<String, String> tags,
+             final long timestampSecs,
+             final double value) {
+        if (timestampSecs <= endTimeSecs - windowSecs || timestampSecs > endTimeSecs) {
+            return;
+        }
+        Series s = series.get(stateId);
+        if (s == null) {
+            s = new Series(tags);
+            series.put(stateId, s);
+        }
+        s.put(timestampSecs, value);
+    }
+
+    /**
+     * @return summary of each series over the window, NaN for series
+     * without a value.
+     */
+    List<TsdbV3ResultProcessor.SummaryValue> summaries(final SummaryType summaryType) {
+        final long windowStart = endTimeSecs - windowSecs;
+        final String tsField = String.valueOf(windowStart);
+        final List<TsdbV3ResultProcessor.SummaryValue> summaries = new ArrayList<>(series.size());
+        for (Series s : series.values()) {
+            summaries.add(new TsdbV3ResultProcessor.SummaryValue(
+                    new TreeMap<>(s.tags),
+                    tsField,
+                    endTimeSecs,
+                    Collections.singletonList(s.summary(summaryType))
+            ));
+        }
+        return summaries;
+    }
+
+    /**
+     * Summary of one series, for tests.
+     */
+    double summary(final long stateId, final SummaryType summaryType) {
+        final Series s = series.get(stateId);
+        return s == null ? Double.NaN : s.summary(summaryType);
+    }
+
+    private final class Series {
+
+        private final TreeMap<String, String> tags;
+
+        private final long[] timestamps = new long[capacity];
+
+        private final double[] values = new double[capacity];
+
+        private int points;
+
+        private int count;
+
+        private double sum;
+
+        private int updates;
+
+        private Series(final TreeMap<String, String> tags) {
+            this.tags = tags;
+            Arrays.fill(timestamps, EMPTY);
+        }
+
+        private int slot(final long timestampSecs) {
+            return (int) Math.floorMod(timestampSecs / intervalSecs, (long) capacity);
+        }
+
+        private void put(final long timestampSecs, final double value) {
+            final int slot = slot(timestampSecs);
+            if (timestamps[slot] != EMPTY) {
+                clear(slot);
+            }
+            timestamps[slot] = timestampSecs;
+            values[slot] = value;
+            points++;
+            if (!Double.isNaN(value)) {
+                sum += value;
+                count++;
+            }
+            // Bound the drift of the running sum.
+            if (++updates >= capacity) {
+                recompute();
+            }
+        }
+
+        private void remove(final long timestampSecs) {
+            final int slot = slot(timestampSecs);
+            if (timestamps[slot] == timestampSecs) {
+                clear(slot);
+            }
+        }
+
+        private void clear(final int slot) {
+            final double value = values[slot];
+            if (!Double.isNaN(value)) {
+                sum -= value;
+                count--;
+            }
+            timestamps[slot] = EMPTY;
+            points--;
+            if (count == 0) {
+                sum = 0d;
+            }
+        }
+
+        private void recompute() {
+            double s = 0d;
+            for (int i = 0; i < capacity; i++) {
+                if (timestamps[i] != EMPTY && !Double.isNaN(values[i])) {
+                    s += values[i];
+                }
+            }
+            sum = s;
+            updates = 0;
+        }
+
+        private double summary(final SummaryType summaryType) {
+            if (count == 0) {
+                return Double.NaN;
+            }
+            return summaryType == SummaryType.AVG ? sum / count : sum;
+        }
+    }
+}
@@ -33,6 +33,7 @@ import org.slf4j.LoggerFactory;
 
 import java.io.FileInputStream;
 import java.nio.charset.StandardCharsets;
+import java.util.concurrent.ConcurrentHashMap;
 
 public class TSDBClient {
 
@@ -44,10 +45,33 @@ public class TSDBClient {
 
     private AlertHttpsClient alertHttpsClient = null;
 
+    /**
+     * Pooled clients by auth provider and host, shared by every monitor
+     * querying that host, so queries due in the same tick reuse warm TLS
+     * connections instead of each monitor opening its own.
+     */
+    private static final ConcurrentHashMap<String, AlertHttpsClient> SHARED_CLIENTS =
+            new ConcurrentHashMap<>();
+
     public TSDBClient(String tsdbHost, String authProvider) {
         this.tsdbHost = tsdbHost;
-        alertHttpsClient = new AlertHttpsClient();
-        alertHttpsClient.setAuthProvider(AuthProviders.getAuthProvider(authProvider));
+        final int sharedConnections = new EnvironmentConfig().getTsdbSharedConnections();
+        if (sharedConnections > 0) {
+            alertHttpsClient = SHARED_CLIENTS.computeIfAbsent(authProvider + '@' + tsdbHost,
+                    key -> AlertHttpsClient.create(sharedConnections,
+                            AuthProviders.getAuthProvider(authProvider)));
+        } else {
+            alertHttpsClient = new AlertHttpsClient();
+            alertHttpsClient.setAuthProvider(AuthProviders.getAuthProvider(authProvider));
+        }
+    }
+
+    AlertHttpsClient getAlertHttpsClient() {
+        return alertHttpsClient;
+    }
+
+    public String getTsdbHost() {
+        return tsdbHost;
     }
 
     public String getResponse(String query, String queryPath, long alertId) throws AlertException {
@@ -63,17 +87,17 @@ public class TSDBClient {
         httpPost.setEntity(entity);
         try {
             LOG.debug("Sending query for client: " + AlertUtils.getURL(tsdbHost, queryPath));
-            final CloseableHttpResponse execute = alertHttpsClient.execute(httpPost);
-
-            final int statusCode = execute.getStatusLine().getStatusCode();
-            if (statusCode == 200 || statusCode == 204) {
-                LOG.debug("Sent query for client: " + query);
-                return EntityUtils.toString(execute.getEntity());
+            try (CloseableHttpResponse execute = alertHttpsClient.execute(httpPost)) {
+                final int statusCode = execute.getStatusLine().getStatusCode();
+                if (statusCode == 200 || statusCode == 204) {
+                    LOG.debug("Sent query for client: " + query);
+                    return EntityUtils.toString(execute.getEntity());
+                }
+                final String s = EntityUtils.toString(execute.getEntity());
+                LOG.error("Response {} while running tsd query: {}", execute.getStatusLine().toString() + '\n' + s, query);
+                throw new AlertException("Error running tsdb query: " + execute.getStatusLine().toString() + '\n' + s + '\n' +
+                        " error for query : " + query);
             }
-            final String s = EntityUtils.toString(execute.getEntity());
-            LOG.error("Response {} while running tsd query: {}", execute.getStatusLine().toString() + '\n' + s, query);
-            throw new AlertException("Error running tsdb query: " + execute.getStatusLine().toString() + '\n' + s + '\n' +
-                    " error for query : " + query);
 
         } catch (Exception e) {
             LOG.error("Exception running tsd query: ", e);
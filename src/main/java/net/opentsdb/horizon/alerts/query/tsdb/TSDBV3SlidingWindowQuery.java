@@ -17,12 +17,16 @@
 
 package net.opentsdb.horizon.alerts.query.tsdb;
 
+import com.fasterxml.jackson.databind.JsonNode;
 import it.unimi.dsi.fastutil.longs.Long2BooleanMap;
 import net.opentsdb.horizon.alerts.AlertException;
+import net.opentsdb.horizon.alerts.AlertUtils;
 import net.opentsdb.horizon.alerts.EnvironmentConfig;
+import net.opentsdb.horizon.alerts.Monitoring;
 import net.opentsdb.horizon.alerts.config.SuppressMetricConfig;
 import net.opentsdb.horizon.alerts.config.impl.MetricAlertConfig;
 import net.opentsdb.horizon.alerts.model.AlertEventBag;
+import net.opentsdb.horizon.alerts.logging.SampledLogger;
 import net.opentsdb.horizon.alerts.query.StateTimeBasedExecutor;
 import net.opentsdb.horizon.alerts.processor.impl.StatusWriter;
 import net.opentsdb.horizon.alerts.snooze.SnoozeFilter;
@@ -63,6 +67,8 @@ public class TSDBV3SlidingWindowQuery extends StateTimeBasedExecutor<MetricAlert
 
     private static final Logger LOG = LoggerFactory.getLogger(TSDBV3SlidingWindowQuery.class);
 
+    private static final SampledLogger SAMPLED_LOG = SampledLogger.getLogger(TSDBV3SlidingWindowQuery.class);
+
     private volatile String namespace;
 
     private MetricAlertConfig metricAlertConfig;
@@ -95,10 +101,32 @@ public class TSDBV3SlidingWindowQuery extends StateTimeBasedExecutor<MetricAlert
 
     private boolean summaries = false;
 
-    private AlertStateStore alertStateStore;
-
     private StatusWriter statusWriter;
 
+    /**
+     * Summaries are computed here from the raw values of the window, which
+     * are kept in {@link #slidingWindowBuffer}, instead of by TSDB.
+     */
+    private volatile boolean incremental = false;
+
+    private volatile SerdesOptions rawValuesSerdes = null;
+
+    /**
+     * The raw metric is part of the evaluation query's output, and the
+     * notification values are taken from it instead of a second query.
+     */
+    private volatile boolean combinedNotificationValues = false;
+
+    /**
+     * Null until the first full fetch, and after config changes or errors.
+     */
+    private volatile SlidingWindowBuffer slidingWindowBuffer = null;
+
+    /**
+     * Base query and metric the buffered raw values were fetched for.
+     */
+    private String slidingWindowBufferSource = null;
+
     public TSDBV3SlidingWindowQuery(MetricAlertConfig alertConfig) {
         this(alertConfig, null);
     }
@@ -140,8 +168,6 @@ public class TSDBV3SlidingWindowQuery extends StateTimeBasedExecutor<MetricAlert
                 this.statusWriter = new StatusWriter(metricAlertConfig, new SnoozeFilter());
             }
 
-            this.alertStateStore = alertStateStore;
-
             this.namespace = metricAlertConfig.getNamespace();
 
             SemanticQuery query = TsdbV3QueryBuilder.fromJsonNode(metricAlertConfig.getQueryJson());
@@ -213,6 +239,33 @@ public class TSDBV3SlidingWindowQuery extends StateTimeBasedExecutor<MetricAlert
                         serdesOutputbuilder);
             }
 
+            incremental = environmentConfig.isIncrementalSlidingWindowEnabled()
+                    && summaries
+                    && metricAlertConfig.getSummarizer() != null
+                    && metricAlertConfig.getSuppressMetricConfig() == null;
+            // Threshold and notification changes keep the raw values of the
+            // window, a changed query or window starts over with a full one.
+            final String bufferSource = metricAlertConfig.getMd5BaseQueryString()
+                    + '\n' + metricSourceFromConfig;
+            final SlidingWindowBuffer buffer = slidingWindowBuffer;
+            if (!incremental || buffer == null
+                    || metricAlertConfig.getMd5BaseQueryString() == null
+                    || !bufferSource.equals(slidingWindowBufferSource)
+                    || buffer.getWindowSecs() != metricAlertConfig.getSlidingWindowInSecs()) {
+                slidingWindowBuffer = null;
+            }
+            slidingWindowBufferSource = bufferSource;
+            rawValuesSerdes = JsonV2QuerySerdesOptions.newBuilder()
+                    .addFilter(metricSourceFromConfig)
+                    .setType(TSDV3Constants.JSONV3_QUERY_SERDES)
+                    .setId(TSDV3Constants.JSONV3_QUERY_SERDES).build();
+
+            combinedNotificationValues = !incremental
+                    && environmentConfig.isCombinedNotificationValues();
+            if (combinedNotificationValues && !metricSourceFromConfig.equals(metricSource)) {
+                serdesOutputbuilder.addFilter(metricSourceFromConfig);
+            }
+
             LOG.debug("Added parts: {} {} {}", metricId, metricName, metricSource);
             serdes = serdesOutputbuilder
                     .addFilter(metricSource)
@@ -292,19 +345,55 @@ public class TSDBV3SlidingWindowQuery extends StateTimeBasedExecutor<MetricAlert
         if(!metricAlertConfig.isHasBadThreshold() && !metricAlertConfig.isHasWarnThreshold()) {
             return new AlertEventBag(new ArrayList<>(),metricAlertConfig);
         }
+
+        final AlertEventBag alertEventBag;
+        if (incremental) {
+            alertEventBag = executeIncremental(normalizedEndTimeInSecs, alertStateStore);
+        } else {
+            alertEventBag = executeFullWindow(normalizedEndTimeInSecs, alertStateStore);
+        }
+
+        // Run query only when needed
+        if(!combinedNotificationValues
+                && alertEventBag != null && !alertEventBag.getAlertEvents().isEmpty()) {
+            JsonV2QuerySerdesOptions.Builder builder = JsonV2QuerySerdesOptions.newBuilder();
+            SerdesOptions serdesLocal = builder
+                    .addFilter(metricSourceFromConfig)
+                    .setType(TSDV3Constants.JSONV3_QUERY_SERDES)
+                    .setId(TSDV3Constants.JSONV3_QUERY_SERDES).build();
+
+            final String alert_query_response = TsdbV3ResultProcessor.runQueryAndGetResponse(tsdbClient, this.alertId, this.namespace,
+                    baseExecutionGraph, filters, serdesLocal, normalizedEndTimeInSecs,
+                    getTimeseriesWindowLengthForNotification(metricAlertConfig.getSlidingWindowInSecs()));
+
+            TsdbV3ResultProcessor.
+                    updateWithValues(alert_query_response, metricAlertConfig,
+                            metricSourceFromConfig, metricId, alertEventBag);
+        }
+
+
+
+        return alertEventBag;
+    }
+
+    private AlertEventBag executeFullWindow(final long normalizedEndTimeInSecs,
+                                            final AlertStateStore alertStateStore) throws AlertException {
         //tsdb time is end inclusive - subtract one window.
         //
         final String response = TsdbV3ResultProcessor.runQueryAndGetResponse(tsdbClient,this.alertId,this.namespace,
                 executionGraph,filters,serdes, normalizedEndTimeInSecs,
                 metricAlertConfig.getSlidingWindowInSecs());
-        //LOG.info("id: {} Received result query JSON",this.alertId);
-        LOG.info("id: {} Received result query JSON: {}",this.alertId,response);
+        SAMPLED_LOG.info(this.alertId, "id: {} Received result query JSON of {} chars",
+                this.alertId, response == null ? 0 : response.length());
+        SAMPLED_LOG.payload(this.alertId, "id: {} Received result query JSON: {}",
+                this.alertId, response);
 
         final Conditional heartbeatSuppressConditional;
         final AlertEventBag alertEventBag;
         final SuppressMetricConfig suppressMetricConfig = this.metricAlertConfig.getSuppressMetricConfig();
         if (suppressMetricConfig != null) {
-            LOG.info("Processing heartbeat for suppress metric config: {}", suppressMetricConfig.toString());
+            SAMPLED_LOG.info(this.alertId, "id: {} Processing heartbeat for suppress metric config: {}",
+                    this.alertId, suppressMetricConfig);
             if (suppressMetricConfig.getSampler().equals(SUMMARY)) {
                 Long2BooleanMap long2BooleanMap = TsdbV3ResultProcessor.processHeartBeatForSummaries(response,
                         suppressMetricConfig,
@@ -325,34 +414,106 @@ public class TSDBV3SlidingWindowQuery extends StateTimeBasedExecutor<MetricAlert
         if (summaries) {
             alertEventBag = TsdbV3ResultProcessor.processForSummaries(response, this.statusWriter,
                     this.metricAlertConfig, this.metricSource,
-                    this.metricId, this.metricName, this.alertStateStore,
+                    this.metricId, this.metricName, alertStateStore,
                     normalizedEndTimeInSecs, metricAlertConfig.getSlidingWindowInSecs(), heartbeatSuppressConditional);
         } else {
             alertEventBag = TsdbV3ResultProcessor.processForNonSummaries(response, this.statusWriter,
                     this.metricAlertConfig, this.metricSource,
-                    this.metricId, this.metricName, this.alertStateStore, heartbeatSuppressConditional);
+                    this.metricId, this.metricName, alertStateStore, heartbeatSuppressConditional);
         }
 
-        // Run query only when needed
-        if(alertEventBag != null && !alertEventBag.getAlertEvents().isEmpty()) {
-            JsonV2QuerySerdesOptions.Builder builder = JsonV2QuerySerdesOptions.newBuilder();
-            SerdesOptions serdesLocal = builder
-                    .addFilter(metricSourceFromConfig)
-                    .setType(TSDV3Constants.JSONV3_QUERY_SERDES)
-                    .setId(TSDV3Constants.JSONV3_QUERY_SERDES).build();
-
-            final String alert_query_response = TsdbV3ResultProcessor.runQueryAndGetResponse(tsdbClient, this.alertId, this.namespace,
-                    baseExecutionGraph, filters, serdesLocal, normalizedEndTimeInSecs,
-                    getTimeseriesWindowLengthForNotification(metricAlertConfig.getSlidingWindowInSecs()));
-
+        if (combinedNotificationValues
+                && alertEventBag != null && !alertEventBag.getAlertEvents().isEmpty()) {
             TsdbV3ResultProcessor.
-                    updateWithValues(alert_query_response, metricAlertConfig,
+                    updateWithValues(response, metricAlertConfig,
                             metricSourceFromConfig, metricId, alertEventBag);
         }
+        return alertEventBag;
+    }
+
+    /**
+     * Summary evaluation over {@link SlidingWindowBuffer}: only the
+     * intervals since the last run, plus an overlap for late data, are
+     * fetched. The full window is fetched on the first run, after config
+     * changes and errors, and when runs were missed for longer than
+     * incremental_window_max_gap_secs.
+     */
+    private AlertEventBag executeIncremental(final long normalizedEndTimeInSecs,
+                                             final AlertStateStore alertStateStore) throws AlertException {
+        final long windowSecs = metricAlertConfig.getSlidingWindowInSecs();
+        SlidingWindowBuffer buffer = slidingWindowBuffer;
+        final long fetchSecs;
+        if (buffer != null && buffer.canAdvanceTo(normalizedEndTimeInSecs,
+                environmentConfig.getIncrementalWindowMaxGapSecs())) {
+            fetchSecs = Math.min(windowSecs, normalizedEndTimeInSecs - buffer.getEndTimeSecs()
+                    + environmentConfig.getIncrementalWindowOverlapSecs());
+            Monitoring.get().countSlidingWindowQuery(namespace, alertId, "incremental");
+        } else {
+            buffer = null;
+            fetchSecs = windowSecs;
+            Monitoring.get().countSlidingWindowQuery(namespace, alertId, "full");
+        }
+        // Dropped until this run completed.
+        slidingWindowBuffer = null;
 
+        final String response = TsdbV3ResultProcessor.runQueryAndGetResponse(tsdbClient, this.alertId,
+                this.namespace, baseExecutionGraph, filters, rawValuesSerdes,
+                normalizedEndTimeInSecs, fetchSecs);
+        LOG.debug("id: {} Received raw values for the last {}s: {}", this.alertId, fetchSecs, response);
 
+        try {
+            final Map<String, JsonNode> sourceNodes = TsdbV3ResultProcessor.getSourceNodes(response);
+            JsonNode valuesNode = TsdbV3ResultProcessor.getStartsWith(sourceNodes, metricSourceFromConfig);
+            if (valuesNode == null) {
+                valuesNode = TsdbV3ResultProcessor.getStartsWith(sourceNodes, metricId);
+            }
+            final long[] startEndInterval = valuesNode == null ?
+                    null : AlertUtils.getStartEndAndIntervalFromTimeSpec(valuesNode);
+
+            if (startEndInterval == null || startEndInterval[2] <= 0) {
+                if (buffer == null) {
+                    // Nothing to build the window from.
+                    return new AlertEventBag(new ArrayList<>(), metricAlertConfig);
+                }
+            } else if (buffer == null || buffer.getIntervalSecs() != startEndInterval[2]) {
+                buffer = new SlidingWindowBuffer(windowSecs, startEndInterval[2]);
+            }
+            buffer.advance(normalizedEndTimeInSecs);
+
+            if (startEndInterval != null && valuesNode.hasNonNull(TSDV3Constants.DATA)) {
+                final long[] timestamps = AlertUtils.getTimestampsFromInterval(
+                        startEndInterval[0], startEndInterval[1], startEndInterval[2], 0);
+                final Iterator<JsonNode> dataNodes = valuesNode.get(TSDV3Constants.DATA).elements();
+                while (dataNodes.hasNext()) {
+                    final JsonNode next = dataNodes.next();
+                    if (!next.has(TSDV3Constants.NumericType)) {
+                        continue;
+                    }
+                    final TreeMap<String, String> tagMap = new TreeMap<>();
+                    final List<Double> values = new ArrayList<>();
+                    TsdbV3ResultProcessor.fillValuesFromDataNode(next, tagMap, values);
+                    final long hashForNAMT = AlertUtils.getHashForNAMT(namespace, alertId, tagMap);
+                    // Values and timestamps both end at the query end.
+                    for (int v = values.size() - 1, t = timestamps.length - 1; v >= 0 && t >= 0; v--, t--) {
+                        final Double value = values.get(v);
+                        buffer.put(hashForNAMT, tagMap, timestamps[t],
+                                value == null ? Double.NaN : value);
+                    }
+                }
+            }
 
-        return alertEventBag;
+            final AlertEventBag alertEventBag = TsdbV3ResultProcessor.evaluateSummaries(
+                    buffer.summaries(metricAlertConfig.getSummarizer()),
+                    this.statusWriter, this.metricAlertConfig, this.metricName,
+                    alertStateStore, normalizedEndTimeInSecs, windowSecs,
+                    new NoOpConditional());
+            slidingWindowBuffer = buffer;
+            return alertEventBag;
+        } catch (Exception e) {
+            LOG.error("id: {} Error evaluating incremental window, ", alertId, e);
+            Monitoring.get().countProcessingSummariesError(alertId, namespace);
+            throw new AlertException("Error evaluating incremental window for summaries", e);
+        }
     }
 
     private long getTimeseriesWindowLengthForNotification(long slidingWindowLength) {
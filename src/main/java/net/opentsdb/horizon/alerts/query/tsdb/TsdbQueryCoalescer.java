@@ -0,0 +1,213 @@
+/*
+ * This file is part of OpenTSDB.
+ * Copyright (C) 2021 Yahoo.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package net.opentsdb.horizon.alerts.query.tsdb;
+
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import net.opentsdb.horizon.alerts.AlertException;
+import net.opentsdb.horizon.alerts.EnvironmentConfig;
+import net.opentsdb.horizon.alerts.Monitoring;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Runs identical TSDB queries once.
+ *
+ * Alerts of a namespace often query the same metric and filters with
+ * different thresholds. The serialized {@link net.opentsdb.query.SemanticQuery}
+ * (execution graph, filters, time range and serdes) together with the TSDB
+ * host is the key: the first caller runs the query, callers arriving while
+ * it is in flight wait for and share its response, and callers arriving
+ * within {@code tsdb_query_result_ttl_ms} after it completed get the
+ * response from a cache bounded to {@code tsdb_query_result_max_bytes}.
+ * Failures are shared with the waiting callers but never cached.
+ */
+public class TsdbQueryCoalescer {
+
+    private static final Logger LOG = LoggerFactory.getLogger(TsdbQueryCoalescer.class);
+
+    public static final String OUTCOME_EXECUTED = "executed";
+
+    public static final String OUTCOME_COALESCED = "coalesced";
+
+    public static final String OUTCOME_HIT = "hit";
+
+    private static volatile TsdbQueryCoalescer instance;
+
+    private final boolean enabled;
+
+    private final ConcurrentHashMap<String, CompletableFuture<String>> inFlight =
+            new ConcurrentHashMap<>();
+
+    /**
+     * Null when responses are only shared between queries in flight.
+     */
+    private final Cache<String, String> results;
+
+    private final LongAdder executed = new LongAdder();
+
+    private final LongAdder coalesced = new LongAdder();
+
+    private final LongAdder hits = new LongAdder();
+
+    TsdbQueryCoalescer(final boolean enabled, final long resultTtlMs, final long maxResultBytes) {
+        this.enabled = enabled;
+        if (resultTtlMs > 0 && maxResultBytes > 0) {
+            this.results = CacheBuilder.newBuilder()
+                    .expireAfterWrite(resultTtlMs, TimeUnit.MILLISECONDS)
+                    .maximumWeight(maxResultBytes)
+                    .weigher(TsdbQueryCoalescer::weigh)
+                    .build();
+        } else {
+            this.results = null;
+        }
+    }
+
+    /**
+     * Upper bound of the heap taken by an entry, two bytes per char.
+     */
+    private static int weigh(final String key, final String response) {
+        return (int) Math.min(Integer.MAX_VALUE,
+                2L * ((long) key.length() + response.length()));
+    }
+
+    public static TsdbQueryCoalescer get() {
+        if (instance == null) {
+            synchronized (TsdbQueryCoalescer.class) {
+                if (instance == null) {
+                    instance = create(new EnvironmentConfig());
+                }
+            }
+        }
+        return instance;
+    }
+
+    public static TsdbQueryCoalescer create(final EnvironmentConfig environmentConfig) {
+        return new TsdbQueryCoalescer(
+                environmentConfig.isTsdbQueryDedupEnabled(),
+                environmentConfig.getTsdbQueryResultTtlMs(),
+                environmentConfig.getTsdbQueryResultMaxBytes());
+    }
+
+    /**
+     * Response for the query, run by this caller or shared with an
+     * identical one.
+     */
+    public String getResponse(final TSDBClient tsdbClient,
+                              final String query,
+                              final long alertId,
+                              final String namespace) throws AlertException {
+        final String host = tsdbClient.getTsdbHost();
+        if (!enabled || host == null) {
+            return tsdbClient.getResponse(query, alertId);
+        }
+
+        final String key = host + '\n' + query;
+        final String cached = getCached(key);
+        if (cached != null) {
+            record(hits, namespace, OUTCOME_HIT);
+            return cached;
+        }
+
+        final CompletableFuture<String> mine = new CompletableFuture<>();
+        final CompletableFuture<String> running = inFlight.putIfAbsent(key, mine);
+        if (running != null) {
+            record(coalesced, namespace, OUTCOME_COALESCED);
+            LOG.debug("id: {} Waiting for identical query in flight", alertId);
+            return await(running);
+        }
+
+        try {
+            // The previous run may have completed between the lookup and
+            // the claim, its response is then cached.
+            final String completed = getCached(key);
+            if (completed != null) {
+                record(hits, namespace, OUTCOME_HIT);
+                mine.complete(completed);
+                return completed;
+            }
+
+            record(executed, namespace, OUTCOME_EXECUTED);
+            final String response = tsdbClient.getResponse(query, alertId);
+            if (results != null) {
+                results.put(key, response);
+            }
+            mine.complete(response);
+            return response;
+        } catch (AlertException | RuntimeException | Error e) {
+            // Waiting callers must be released whatever the failure.
+            mine.completeExceptionally(e);
+            throw e;
+        } finally {
+            // Cached before removed, so no caller runs it twice.
+            inFlight.remove(key, mine);
+        }
+    }
+
+    private static String await(final CompletableFuture<String> running) throws AlertException {
+        try {
+            return running.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new AlertException("Interrupted waiting for tsdb query", e);
+        } catch (ExecutionException e) {
+            final Throwable cause = e.getCause();
+            if (cause instanceof AlertException) {
+                throw (AlertException) cause;
+            }
+            throw new AlertException("Error running tsdb query", cause);
+        }
+    }
+
+    private String getCached(final String key) {
+        return results == null ? null : results.getIfPresent(key);
+    }
+
+    private void record(final LongAdder adder, final String namespace, final String outcome) {
+        adder.increment();
+        Monitoring.get().countTsdbQueryDedup(namespace, outcome);
+
+        final long e = executed.sum();
+        final long c = coalesced.sum();
+        final long h = hits.sum();
+        final long total = e + c + h;
+        Monitoring.get().gaugeTsdbQueryDedupRatios(h * 100 / total, c * 100 / total);
+    }
+
+    long getExecuted() {
+        return executed.sum();
+    }
+
+    long getCoalesced() {
+        return coalesced.sum();
+    }
+
+    long getHits() {
+        return hits.sum();
+    }
+
+    int getInFlight() {
+        return inFlight.size();
+    }
+}
@@ -23,7 +23,11 @@ import net.opentsdb.horizon.alerts.AlertUtils;
 import net.opentsdb.horizon.alerts.Monitoring;
 import net.opentsdb.horizon.alerts.config.SuppressMetricConfig;
 import net.opentsdb.horizon.alerts.config.impl.MetricAlertConfig;
+import net.opentsdb.horizon.alerts.cost.AlertCostModel;
+import net.opentsdb.horizon.alerts.profile.Phase;
+import net.opentsdb.horizon.alerts.profile.RunProfiler;
 import net.opentsdb.horizon.alerts.enums.ComparatorType;
+import net.opentsdb.horizon.alerts.logging.SampledLogger;
 import net.opentsdb.horizon.alerts.model.AlertEvent;
 import net.opentsdb.horizon.alerts.model.AlertEventBag;
 import net.opentsdb.horizon.alerts.enums.AlertState;
@@ -38,6 +42,7 @@ import it.unimi.dsi.fastutil.longs.Long2BooleanOpenHashMap;
 
 import it.unimi.dsi.fastutil.longs.Long2LongMap;
 import it.unimi.dsi.fastutil.longs.Long2LongOpenHashMap;
+import it.unimi.dsi.fastutil.longs.Long2ObjectOpenHashMap;
 import it.unimi.dsi.fastutil.longs.LongIterator;
 import net.opentsdb.query.QueryMode;
 import net.opentsdb.query.QueryNodeConfig;
@@ -72,6 +77,8 @@ public class TsdbV3ResultProcessor {
 
     private static final Logger LOG = LoggerFactory.getLogger(TsdbV3ResultProcessor.class);
 
+    private static final SampledLogger SAMPLED_LOG = SampledLogger.getLogger(TsdbV3ResultProcessor.class);
+
     public static String runQueryAndGetResponse(TSDBClient tsdbClient, long alertId,
                                                 String namespace,
                                                 List<QueryNodeConfig> executionGraph,
@@ -89,26 +96,35 @@ public class TsdbV3ResultProcessor {
 
         String json = JSON.serializeToString(query);
 
-        LOG.debug("id: {} Running query JSON replace null: {}",alertId,json);
         if(json.contains("\"filterId\":null,")) {
             json = json.replaceAll("\"filterId\":null,","");
         } else if(json.contains(",\"filterId\":null")) {
             json = json.replaceAll(",\"filterId\":null","");
         }
-        LOG.info("id: {} Running query JSON after replace null: {}",alertId,json);
+        SAMPLED_LOG.info(alertId, "id: {} Running query of {} chars", alertId, json.length());
+        SAMPLED_LOG.payload(alertId, "id: {} Running query JSON: {}", alertId, json);
 
+        final Phase previous = RunProfiler.enter(Phase.QUERY);
         try {
             long start = System.currentTimeMillis();
-            final String response = tsdbClient.getResponse(json, alertId);
+            final String response = TsdbQueryCoalescer.get()
+                    .getResponse(tsdbClient, json, alertId, namespace);
             long end = System.currentTimeMillis();
             long diff = end - start;
 
             Monitoring.get().timeTsdQueryRunTime(diff,alertId,namespace);
+            AlertCostModel.get().recordTsdbQuery(alertId, diff);
+            if (response != null) {
+                AlertCostModel.get().recordResponseBytes(alertId, response.length());
+                RunProfiler.addBytes(Phase.QUERY, response.length());
+            }
             return response;
         } catch (AlertException e) {
             LOG.error("Error running tsd query for alertd: {} namespace: {}",alertId,namespace);
             Monitoring.get().countTsdbErrors(1,alertId,namespace);
             throw e;
+        } finally {
+            RunProfiler.exit(previous);
         }
 
     }
@@ -122,9 +138,21 @@ public class TsdbV3ResultProcessor {
 
         try {
 
-            final Map<Map<String, String>, AlertEvent> collect = alertEventBag.getAlertEvents()
-                    .stream()
-                    .collect(Collectors.toMap(AlertEvent::getTags, Function.identity()));
+            // Events are keyed by their NAMT hash, the tags confirm the match.
+            // Events whose hash is already taken are kept aside and matched
+            // by their tags.
+            final List<AlertEvent> alertEvents = alertEventBag.getAlertEvents();
+            final Long2ObjectOpenHashMap<AlertEvent> eventsByHash =
+                    new Long2ObjectOpenHashMap<>(alertEvents.size());
+            final List<AlertEvent> collidedEvents = new ArrayList<>(0);
+            for (AlertEvent alertEvent : alertEvents) {
+                if (eventsByHash.containsKey(alertEvent.getAlertHash())) {
+                    collidedEvents.add(alertEvent);
+                } else {
+                    eventsByHash.put(alertEvent.getAlertHash(), alertEvent);
+                }
+            }
+            final String namespace = metricAlertConfig.getNamespace();
 
             final Map<String,JsonNode>  nodeMap = getSourceNodes(response);
 
@@ -139,6 +167,7 @@ public class TsdbV3ResultProcessor {
 
 
             final long alertId = metricAlertConfig.getAlertId();
+            int remaining = eventsByHash.size() + collidedEvents.size();
 
             long[] startEndInterval = AlertUtils.getStartEndAndIntervalFromTimeSpec(metricValuesNode);
             if(startEndInterval == null) {
@@ -149,7 +178,7 @@ public class TsdbV3ResultProcessor {
 
             if(timestampsFromInterval.length > 0) {
 
-                while (dataNodes.hasNext()) {
+                while (remaining > 0 && dataNodes.hasNext()) {
                     final JsonNode next = dataNodes.next();
                     final TreeMap<String, String> tagMap = new TreeMap<>();
                     final List<Double> valueForTheTimeseries = new ArrayList<>();
@@ -160,9 +189,11 @@ public class TsdbV3ResultProcessor {
                         continue;
                     }
 
-                    if (collect.containsKey(tagMap)) {
+                    final AlertEvent alertEvent = findEvent(eventsByHash, collidedEvents,
+                            AlertUtils.getHashForNAMT(namespace, alertId, tagMap), tagMap);
+                    if (alertEvent != null) {
+                        remaining--;
                         // Fetch Values
-                        final AlertEvent alertEvent = collect.get(tagMap);
                         final long alertHash = alertEvent.getAlertHash();
                         if (alertEvent instanceof SingleMetricAlertEvent) {
                             final SingleMetricAlertEvent singleMetricAlertEvent
@@ -265,6 +296,23 @@ public class TsdbV3ResultProcessor {
 
     }
 
+    private static AlertEvent findEvent(final Long2ObjectOpenHashMap<AlertEvent> eventsByHash,
+                                        final List<AlertEvent> collidedEvents,
+                                        final long hash,
+                                        final Map<String, String> tagMap) {
+        final AlertEvent alertEvent = eventsByHash.get(hash);
+        if (alertEvent != null && tagMap.equals(alertEvent.getTags())) {
+            return alertEvent;
+        }
+        for (int i = 0; i < collidedEvents.size(); i++) {
+            final AlertEvent collided = collidedEvents.get(i);
+            if (collided.getAlertHash() == hash && tagMap.equals(collided.getTags())) {
+                return collidedEvents.remove(i);
+            }
+        }
+        return null;
+    }
+
     public static int getBreachIndex(double[] valuesInWindow, double threshold, String operator) {
 
         final int length = valuesInWindow.length;
@@ -341,7 +389,7 @@ public class TsdbV3ResultProcessor {
             final JsonNode metricValuesNode = getMetricValuesNode(metricSourceNode, metricIdNode);
 
             if(metricValuesNode == null || !metricValuesNode.hasNonNull(DATA)) {
-                LOG.info("id: {} metric values object not returned AlertEventBag: {}",metricAlertConfig.getAlertId(),alertEventBag);
+                SAMPLED_LOG.payload(metricAlertConfig.getAlertId(), "id: {} metric values object not returned AlertEventBag: {}",metricAlertConfig.getAlertId(),alertEventBag);
                 return alertEventBag;
             }
 
@@ -461,6 +509,11 @@ public class TsdbV3ResultProcessor {
 
             }
             if(metricValuesNode != null) {
+                // Once per series, not per threshold.
+                if (metricValuesNode.hasNonNull(DATA)) {
+                    AlertCostModel.get().recordSeriesEvaluated(metricAlertConfig.getAlertId(),
+                            metricValuesNode.get(DATA).size());
+                }
 
                 fillValueDetails(metricValuesNode,
                         metricName,
@@ -487,7 +540,7 @@ public class TsdbV3ResultProcessor {
             events.forEach(event -> AlertUtils.setMetricName(event, metricName));
             //fillDetails()
 
-            LOG.info("id: {} AlertEventBag: {}",metricAlertConfig.getAlertId(),alertEventBag);
+            SAMPLED_LOG.payload(metricAlertConfig.getAlertId(), "id: {} AlertEventBag: {}",metricAlertConfig.getAlertId(),alertEventBag);
             return alertEventBag;
 
         } catch (Exception e) {
@@ -575,7 +628,7 @@ public class TsdbV3ResultProcessor {
                     }
                 }
             } else {
-                LOG.info("id: {} (checkAutoRecoveryFromState) heartbeatMap contains val for hash: {} {}",
+                SAMPLED_LOG.info(metricAlertConfig.getAlertId(), "id: {} (checkAutoRecoveryFromState) heartbeatMap contains val for hash: {} {}",
                         metricAlertConfig.getAlertId(),
                         hash,
                         tagsMap);
@@ -620,7 +673,7 @@ public class TsdbV3ResultProcessor {
                     }
                 }
             } else {
-                LOG.info("id: {} heartbeatMap (checkMissingFromState) contains val for hash: {} {}",
+                SAMPLED_LOG.info(metricAlertConfig.getAlertId(), "id: {} heartbeatMap (checkMissingFromState) contains val for hash: {} {}",
                         metricAlertConfig.getAlertId(),
                         hash,
                         tagsMap);
@@ -697,7 +750,7 @@ public class TsdbV3ResultProcessor {
                     alertEvents.add(alertEvent);
                 }
             } else {
-                LOG.info("id: {} heartbeatMap (checkMissingAndRecovery) contains val for hash: {} {}", metricAlertConfig.getAlertId(), hashForNAMT, tagMap);
+                SAMPLED_LOG.info(metricAlertConfig.getAlertId(), "id: {} heartbeatMap (checkMissingAndRecovery) contains val for hash: {} {}", metricAlertConfig.getAlertId(), hashForNAMT, tagMap);
             }
 
             updateStateWithDatapoint(latestNonNanTimestamp, alertStateStore, metricAlertConfig, hashForNAMT,tagMap, timestamps);
@@ -786,7 +839,7 @@ public class TsdbV3ResultProcessor {
                                                  final SortedMap<String, String> tagMap,
                                                  final long[] timestamps) {
 
-        LOG.info("alert id: {} Updating with data point: {} latest: {} storeIdentity: {}" , metricAlertConfig.getAlertId(),
+        SAMPLED_LOG.info(metricAlertConfig.getAlertId(), "alert id: {} Updating with data point: {} latest: {} storeIdentity: {}" , metricAlertConfig.getAlertId(),
                 hashForNAMT, latestNonNanTimestamp, alertStateStore.getStoreAlertIdentity());
 
         //update state with last seen
@@ -885,7 +938,7 @@ public class TsdbV3ResultProcessor {
         return alertEvent;
     }
 
-    private static JsonNode getStartsWith(Map<String, JsonNode> sourceNodes, String requested) {
+    static JsonNode getStartsWith(Map<String, JsonNode> sourceNodes, String requested) {
 
         for (String key : sourceNodes.keySet()) {
             if(key.startsWith(requested)) {
@@ -920,10 +973,10 @@ public class TsdbV3ResultProcessor {
             final long hashForNAMT = AlertUtils.getHashForNAMT(metricAlertConfig.getNamespace(),
                     metricAlertConfig.getAlertId(), tagMap);
             if(valueForTheTimeseries.size() < 20) {
-                LOG.info("id: {} Received in temporal values: {} for {}", metricAlertConfig.getAlertId()
+                SAMPLED_LOG.info(metricAlertConfig.getAlertId(), "id: {} Received in temporal values: {} for {}", metricAlertConfig.getAlertId()
                         , valueForTheTimeseries, hashForNAMT);
             } else {
-                LOG.info("id: {} Received in temporal values: {} for {} ", metricAlertConfig.getAlertId()
+                SAMPLED_LOG.info(metricAlertConfig.getAlertId(), "id: {} Received in temporal values: {} for {} ", metricAlertConfig.getAlertId()
                         , valueForTheTimeseries.size(), hashForNAMT);
             }
             long2LongOpenHashMap.put(hashForNAMT,valueForTheTimeseries.size());
@@ -985,15 +1038,15 @@ public class TsdbV3ResultProcessor {
                 if(valuesInWindow != 0) {
                     if(valuesRequiredInWindow > valuesInWindow) {
                         //Not enough values in window for
-                        LOG.info("id: {} Skipping, as not " +
+                        SAMPLED_LOG.info(alertId, "id: {} Skipping, as not " +
                                 "enough values in window required: {} found: {} for {} state to evaluate: {}", alertId, valuesRequiredInWindow,
                                 valuesInWindow, hashForNAMT, alertState.name());
                         continue;
                     }
                 } else {
                     //Should not happen
-                    LOG.info("In should not happen");
-                    LOG.info("id: {} Received no values in window {} required: {} for {} state to evaluate: {}", alertId, valuesInWindow,
+                    LOG.debug("In should not happen");
+                    SAMPLED_LOG.info(alertId, "id: {} Received no values in window {} required: {} for {} state to evaluate: {}", alertId, valuesInWindow,
                             valuesRequiredInWindow, hashForNAMT, alertState.name());
                 }
 
@@ -1011,11 +1064,11 @@ public class TsdbV3ResultProcessor {
                 } else {
                     thre = temporalThreshold;
                 }
-                LOG.info("id: {} state to evaluate: {} for: {} Expected num of values to breach {}, actual number of breaching values is {}",
+                SAMPLED_LOG.info(alertId, "id: {} state to evaluate: {} for: {} Expected num of values to breach {}, actual number of breaching values is {}",
                          alertId, alertState.name(), hashForNAMT,
                         thre, tVal);
             } else {
-                LOG.info("id: {} state to evaluate: {} for: {} (not dynamic) Expected num of values to breach {}, actual number of breaching values is {}  ",alertId, alertState.name(), 
+                SAMPLED_LOG.info(alertId, "id: {} state to evaluate: {} for: {} (not dynamic) Expected num of values to breach {}, actual number of breaching values is {}  ",alertId, alertState.name(), 
                          hashForNAMT,
                         temporalThreshold,tVal);
                 thre = temporalThreshold;
@@ -1036,7 +1089,7 @@ public class TsdbV3ResultProcessor {
                         alertEvents.add(alertEvent);
                     }
                 } else {
-                    LOG.info("id: {} heartbeatMap contains val for hash: {} {}", metricAlertConfig.getAlertId(), hashForNAMT, tagMap);
+                    SAMPLED_LOG.info(metricAlertConfig.getAlertId(), "id: {} heartbeatMap contains val for hash: {} {}", metricAlertConfig.getAlertId(), hashForNAMT, tagMap);
                 }
             }
 
@@ -1098,14 +1151,14 @@ public class TsdbV3ResultProcessor {
                 if (valuesInWindow != 0) {
                     if (valuesRequiredInWindow > valuesInWindow) {
                         //Not enough values in window for
-                        LOG.info("id: {} Skipping heartbeat values, as not " +
+                        SAMPLED_LOG.info(alertId, "id: {} Skipping heartbeat values, as not " +
                                         "enough values in window required: {} found: {} for {} state to evaluate", alertId, valuesRequiredInWindow,
                                 valuesInWindow, hashForNAMT);
                         continue;
                     }
                 } else {
                     //Should not happen
-                    LOG.info("Warn id: {} Received no values in heartbeat window {} required: {} for {} state to evaluate", alertId, valuesInWindow,
+                    SAMPLED_LOG.info(alertId, "Warn id: {} Received no values in heartbeat window {} required: {} for {} state to evaluate", alertId, valuesInWindow,
                             valuesRequiredInWindow, hashForNAMT);
                 }
             }
@@ -1117,18 +1170,18 @@ public class TsdbV3ResultProcessor {
                 } else {
                     thre = temporalThreshold;
                 }
-                LOG.info("id: {} hearbeatfor: {} Expected num of values to breach {}, actual number of breaching values is {}",
+                SAMPLED_LOG.info(alertId, "id: {} hearbeatfor: {} Expected num of values to breach {}, actual number of breaching values is {}",
                         alertId, hashForNAMT, thre, tVal);
             } else {
-                LOG.info("id: {} hearbeat to evaluate for: {} (not dynamic) Expected num of values to breach {}, actual number of breaching values is {}  ", alertId,
+                SAMPLED_LOG.info(alertId, "id: {} hearbeat to evaluate for: {} (not dynamic) Expected num of values to breach {}, actual number of breaching values is {}  ", alertId,
                         hashForNAMT,
                         temporalThreshold, tVal);
                 thre = temporalThreshold;
             }
             if (tVal >= thre) {
-                LOG.info("Suppressing heartbeat metric id: {} with suppress config: {} with timestamps: {} values in window: {} tval: {} thre: {}",
+                SAMPLED_LOG.info(alertId, "Suppressing heartbeat metric id: {} with suppress config: {} with timestamps: {} values in window: {} tval: {} thre: {}",
                         alertId,
-                        metricAlertConfig.getSuppressMetricConfig().toString(),
+                        metricAlertConfig.getSuppressMetricConfig(),
                         timestamps,
                         valuesInCurrentWindow,
                         tVal,
@@ -1218,7 +1271,7 @@ public class TsdbV3ResultProcessor {
 
     }
 
-    private static void fillValuesFromDataNode(JsonNode next, TreeMap<String,String> tagMap, List<Double> valueForTheTimeseries) {
+    static void fillValuesFromDataNode(JsonNode next, TreeMap<String,String> tagMap, List<Double> valueForTheTimeseries) {
         if(next.has(TSDV3Constants.NumericSummaryType)) {
             fillValuesAndTagsForSummaryType(next,tagMap,valueForTheTimeseries);
         } else if(next.has(TSDV3Constants.NumericType)) {
@@ -1352,9 +1405,6 @@ public class TsdbV3ResultProcessor {
                                                     final Conditional heartbeatSuppressConditional) throws AlertException {
 
         try {
-            List<AlertEvent> alertEvents = new ArrayList<>();
-            String namespace = metricAlertConfig.getNamespace();
-            long alertId = metricAlertConfig.getAlertId();
             final JsonNode root = AlertUtils.parseJsonTree(response);
 
             JsonNode summaryNode = null;
@@ -1370,18 +1420,10 @@ public class TsdbV3ResultProcessor {
                 }
 
             }
-            final long startTime = normalizedEndTimeInSecs - sliding_window_in_secs;
-
-            //final long[] timestampsFromInterval = AlertUtils.getTimestampsFromInterval
-              //      (startEndInterval[0], startEndInterval[1], startEndInterval[2],0);
-
-            //This will capture timeseries looked at in this run.
-            final Long2LongOpenHashMap timeseries = new Long2LongOpenHashMap();
-
             if (summaryNode == null) {
                 throw new AlertException("Unable to get the summary node: " + response);
             }
-            final Long2LongOpenHashMap statusWriterState = new Long2LongOpenHashMap();
+            final List<SummaryValue> summaryValues = new ArrayList<>();
             final Iterator<JsonNode> dataNodes = summaryNode.get(DATA).elements();
             while (dataNodes.hasNext()) {
                 final JsonNode next = dataNodes.next();
@@ -1402,160 +1444,226 @@ public class TsdbV3ResultProcessor {
                 final String tsField = valueNode.fieldNames().next();
                 final long timestamp = Long.parseLong(tsField) + metricAlertConfig.getSlidingWindowInSecs();
 
-                final double tVal = valueForTheTimeseries.get(0);
-                final long hashForNAMT = AlertUtils.getHashForNAMT(namespace,alertId,tagMap);
-                boolean shouldSuppress = false;
-                if (!heartbeatSuppressConditional.checkCondition(tagMap)) {
-                    LOG.info("id: {} heartbeatMap (processForSummaries) contains val for hash: {} {}", alertId, hashForNAMT, tagMap);
-                    shouldSuppress = true;
-                }
-                LOG.info("id: {} Received tVal: {} for hash: {} {}",alertId, tVal, hashForNAMT, tagMap);
-                if(metricAlertConfig.isMissingEnabled()) {
-                    final AlertEvent missingAlertEvent;
-                    if (tVal == Double.NaN) {
-                        //Missing
-
-                        final long lastSeenTime;
-
-                        if (alertStateStore.getLastSeenTime(hashForNAMT) != -1) {
-                            lastSeenTime = alertStateStore.getLastSeenTime(hashForNAMT);
-                        } else {
-                            lastSeenTime = timestamp;
-                        }
-                        if (!shouldSuppress) {
-                            missingAlertEvent = createMissingAlertEvent(hashForNAMT,
-                                    AlertState.MISSING, new long[]{timestamp},
-                                    metricAlertConfig, statusWriter,
-                                    statusWriterState, tagMap, new double[]{tVal}, alertStateStore, lastSeenTime);
-                        } else {
-                            missingAlertEvent = null;
-                        }
+                summaryValues.add(new SummaryValue(tagMap, tsField, timestamp, valueForTheTimeseries));
+            }
 
-                        if(alertStateStore.getLastSeenTime(hashForNAMT) == -1) {
-                            alertStateStore.updateDataPoint(namespace,alertId,tagMap,timestamp);
-                        }
+            return evaluateSummaries(summaryValues, statusWriter, metricAlertConfig, metricName,
+                    alertStateStore, normalizedEndTimeInSecs, sliding_window_in_secs,
+                    heartbeatSuppressConditional);
+
+        } catch (Exception e) {
+            LOG.error("id: {} Error parsing tsdb response as json, ", metricAlertConfig.getAlertId(), e);
+            Monitoring.get().countProcessingSummariesError(metricAlertConfig.getAlertId(),
+                    metricAlertConfig.getNamespace());
+            throw new AlertException("Error parsing tsdb response as json for summaries", e);
+        }
+
+    }
+
+    /**
+     * Summary of one time series over the sliding window.
+     */
+    static final class SummaryValue {
+
+        final TreeMap<String, String> tagMap;
+        final String tsField;
+        final long timestamp;
+        final List<Double> values;
+
+        /**
+         * @param tagMap series tags.
+         * @param tsField window start, as reported for the summary.
+         * @param timestamp window end.
+         * @param values the summary, a single value.
+         */
+        SummaryValue(final TreeMap<String, String> tagMap,
+                     final String tsField,
+                     final long timestamp,
+                     final List<Double> values) {
+            this.tagMap = tagMap;
+            this.tsField = tsField;
+            this.timestamp = timestamp;
+            this.values = values;
+        }
+    }
+
+    /**
+     * Evaluates the window summaries of all time series, whether they were
+     * computed by TSDB or from {@link SlidingWindowBuffer}.
+     */
+    static AlertEventBag evaluateSummaries(final Iterable<SummaryValue> summaryValues,
+                                           final StatusWriter statusWriter,
+                                           final MetricAlertConfig metricAlertConfig,
+                                           final String metricName,
+                                           final AlertStateStore alertStateStore,
+                                           final long normalizedEndTimeInSecs,
+                                           final long sliding_window_in_secs,
+                                           final Conditional heartbeatSuppressConditional) {
+
+        List<AlertEvent> alertEvents = new ArrayList<>();
+        String namespace = metricAlertConfig.getNamespace();
+        long alertId = metricAlertConfig.getAlertId();
+        final long startTime = normalizedEndTimeInSecs - sliding_window_in_secs;
+
+        //This will capture timeseries looked at in this run.
+        final Long2LongOpenHashMap timeseries = new Long2LongOpenHashMap();
+
+        final Long2LongOpenHashMap statusWriterState = new Long2LongOpenHashMap();
+        long seriesEvaluated = 0;
+        for (SummaryValue summaryValue : summaryValues) {
+            seriesEvaluated++;
+            final TreeMap<String, String> tagMap = summaryValue.tagMap;
+            final List<Double> valueForTheTimeseries = summaryValue.values;
+            final String tsField = summaryValue.tsField;
+            final long timestamp = summaryValue.timestamp;
+
+            final double tVal = valueForTheTimeseries.get(0);
+            final long hashForNAMT = AlertUtils.getHashForNAMT(namespace,alertId,tagMap);
+            boolean shouldSuppress = false;
+            if (!heartbeatSuppressConditional.checkCondition(tagMap)) {
+                SAMPLED_LOG.info(alertId, "id: {} heartbeatMap (processForSummaries) contains val for hash: {} {}", alertId, hashForNAMT, tagMap);
+                shouldSuppress = true;
+            }
+            SAMPLED_LOG.info(alertId, "id: {} Received tVal: {} for hash: {} {}",alertId, tVal, hashForNAMT, tagMap);
+            if(metricAlertConfig.isMissingEnabled()) {
+                final AlertEvent missingAlertEvent;
+                if (tVal == Double.NaN) {
+                    //Missing
+
+                    final long lastSeenTime;
+
+                    if (alertStateStore.getLastSeenTime(hashForNAMT) != -1) {
+                        lastSeenTime = alertStateStore.getLastSeenTime(hashForNAMT);
                     } else {
-                        if (alertStateStore.getCurrentState(hashForNAMT) == AlertState.MISSING) {
-                            //check missing recovery
-                            if (!shouldSuppress) {
-                                missingAlertEvent = createMissingAlertEvent(hashForNAMT,
-                                        AlertState.GOOD, new long[]{timestamp},
-                                        metricAlertConfig, statusWriter, statusWriterState,
-                                        tagMap, new double[]{tVal}, alertStateStore, timestamp);
-                            }
-                            else {
-                                missingAlertEvent = null;
-                            }
-                        } else {
-                            missingAlertEvent = null;
-                        }
-                        alertStateStore.updateDataPoint(namespace, alertId, tagMap, timestamp);
+                        lastSeenTime = timestamp;
                     }
-                    timeseries.put(hashForNAMT, hashForNAMT);
-                    if(missingAlertEvent != null) {
-                        alertEvents.add(missingAlertEvent);
-                        continue;
-                        //Skip rest of the execution
+                    if (!shouldSuppress) {
+                        missingAlertEvent = createMissingAlertEvent(hashForNAMT,
+                                AlertState.MISSING, new long[]{timestamp},
+                                metricAlertConfig, statusWriter,
+                                statusWriterState, tagMap, new double[]{tVal}, alertStateStore, lastSeenTime);
+                    } else {
+                        missingAlertEvent = null;
                     }
-                } else  {
-                    //Update data point
-                    if(tVal == Double.NaN) {
-                        if(alertStateStore.getLastSeenTime(hashForNAMT) == -1) {
-                            alertStateStore.updateDataPoint(namespace,alertId,tagMap,timestamp);
+
+                    if(alertStateStore.getLastSeenTime(hashForNAMT) == -1) {
+                        alertStateStore.updateDataPoint(namespace,alertId,tagMap,timestamp);
+                    }
+                } else {
+                    if (alertStateStore.getCurrentState(hashForNAMT) == AlertState.MISSING) {
+                        //check missing recovery
+                        if (!shouldSuppress) {
+                            missingAlertEvent = createMissingAlertEvent(hashForNAMT,
+                                    AlertState.GOOD, new long[]{timestamp},
+                                    metricAlertConfig, statusWriter, statusWriterState,
+                                    tagMap, new double[]{tVal}, alertStateStore, timestamp);
+                        }
+                        else {
+                            missingAlertEvent = null;
                         }
                     } else {
-                        alertStateStore.updateDataPoint(namespace, alertId, tagMap, timestamp);
+                        missingAlertEvent = null;
                     }
+                    alertStateStore.updateDataPoint(namespace, alertId, tagMap, timestamp);
                 }
-
-                int countdown = 3;
-                while(countdown > 0 && tVal != Double.NaN) {
-                    long countOfBreached = 0;
-                    long alertsRaised = 0;
-                    double threshold = Double.NaN;
-                    AlertState alertState = AlertState.GOOD;
-                    String comparator = null;
-                    if(countdown == 3 && metricAlertConfig.isHasBadThreshold()) {
-                        threshold = metricAlertConfig.getBadThreshold();
-                        alertState = AlertState.BAD;
-                        comparator = metricAlertConfig.getComparisonOperator();
-                    } else if(countdown == 2 && metricAlertConfig.isHasWarnThreshold()) {
-                        threshold = metricAlertConfig.getWarnThreshold();
-                        alertState = AlertState.WARN;
-                        comparator = metricAlertConfig.getComparisonOperator();
-                    } else if(countdown == 1 && metricAlertConfig.isHasRecoveryThreshold()){
-                        threshold = metricAlertConfig.getRecoveryThreshold();
-                        alertState = AlertState.GOOD;
-                        comparator = metricAlertConfig.getFlippedComparisionOperator();
-                    } else {
-                        countdown--;
-                        continue;
+                timeseries.put(hashForNAMT, hashForNAMT);
+                if(missingAlertEvent != null) {
+                    alertEvents.add(missingAlertEvent);
+                    continue;
+                    //Skip rest of the execution
+                }
+            } else  {
+                //Update data point
+                if(tVal == Double.NaN) {
+                    if(alertStateStore.getLastSeenTime(hashForNAMT) == -1) {
+                        alertStateStore.updateDataPoint(namespace,alertId,tagMap,timestamp);
                     }
+                } else {
+                    alertStateStore.updateDataPoint(namespace, alertId, tagMap, timestamp);
+                }
+            }
 
-                    if (compare(tVal,threshold,comparator)) {
-                        countOfBreached++;
-                        AlertEvent alertEvent = null;
-                        if (!shouldSuppress) { 
-                            alertEvent = AlertUtils.createAlertEvent(hashForNAMT, metricAlertConfig,
-                                alertState, tsField, alertStateStore, tagMap);
-                            AlertUtils.updateAlertValues(valueForTheTimeseries,alertEvent,true);
-                        }
-
-                        final String status_msg = getDetailsString(metricName,alertState,
-                                valueForTheTimeseries,metricAlertConfig).trim();
+            int countdown = 3;
+            while(countdown > 0 && tVal != Double.NaN) {
+                long countOfBreached = 0;
+                long alertsRaised = 0;
+                double threshold = Double.NaN;
+                AlertState alertState = AlertState.GOOD;
+                String comparator = null;
+                if(countdown == 3 && metricAlertConfig.isHasBadThreshold()) {
+                    threshold = metricAlertConfig.getBadThreshold();
+                    alertState = AlertState.BAD;
+                    comparator = metricAlertConfig.getComparisonOperator();
+                } else if(countdown == 2 && metricAlertConfig.isHasWarnThreshold()) {
+                    threshold = metricAlertConfig.getWarnThreshold();
+                    alertState = AlertState.WARN;
+                    comparator = metricAlertConfig.getComparisonOperator();
+                } else if(countdown == 1 && metricAlertConfig.isHasRecoveryThreshold()){
+                    threshold = metricAlertConfig.getRecoveryThreshold();
+                    alertState = AlertState.GOOD;
+                    comparator = metricAlertConfig.getFlippedComparisionOperator();
+                } else {
+                    countdown--;
+                    continue;
+                }
 
-                        if (alertEvent != null) {
+                if (compare(tVal,threshold,comparator)) {
+                    countOfBreached++;
+                    AlertEvent alertEvent = null;
+                    if (!shouldSuppress) { 
+                        alertEvent = AlertUtils.createAlertEvent(hashForNAMT, metricAlertConfig,
+                            alertState, tsField, alertStateStore, tagMap);
+                        AlertUtils.updateAlertValues(valueForTheTimeseries,alertEvent,true);
+                    }
 
-                            AlertUtils.setMetricName(alertEvent,metricName);
-                            alertEvent.setAlertDetails(status_msg);
-                            alertEvents.add(alertEvent);
-                        }
+                    final String status_msg = getDetailsString(metricName,alertState,
+                            valueForTheTimeseries,metricAlertConfig).trim();
 
-                        if(!shouldSuppress && !statusWriterState.containsKey(hashForNAMT)) {
-                            AlertUtils.writeStatus(statusWriter,
-                                    metricAlertConfig,
-                                    normalizedEndTimeInSecs,
-                                    namespace,
-                                    alertState,
-                                    alertId,
-                                    tagMap,
-                                    status_msg);
-                            statusWriterState.put(hashForNAMT,1l);
-                        }
+                    if (alertEvent != null) {
 
+                        AlertUtils.setMetricName(alertEvent,metricName);
+                        alertEvent.setAlertDetails(status_msg);
+                        alertEvents.add(alertEvent);
                     }
 
-                    reportAlertStats(1, countOfBreached,
-                            namespace, alertId, alertState);
+                    if(!shouldSuppress && !statusWriterState.containsKey(hashForNAMT)) {
+                        AlertUtils.writeStatus(statusWriter,
+                                metricAlertConfig,
+                                normalizedEndTimeInSecs,
+                                namespace,
+                                alertState,
+                                alertId,
+                                tagMap,
+                                status_msg);
+                        statusWriterState.put(hashForNAMT,1l);
+                    }
 
-                    countdown--;
                 }
 
-            }
+                reportAlertStats(1, countOfBreached,
+                        namespace, alertId, alertState);
 
-            //Rest of the missing data points
-            if(metricAlertConfig.isMissingEnabled()) {
-                alertEvents.addAll(checkMissingFromState(alertStateStore, timeseries, metricAlertConfig, statusWriter,
-                        statusWriterState,
-                        new long[]{startTime},new double[]{Double.NaN}, heartbeatSuppressConditional));
-            } else if(metricAlertConfig.isAutoRecover()) {
-                alertEvents.addAll(checkAutoRecoveryFromState(alertStateStore, metricAlertConfig, statusWriter,
-                        normalizedEndTimeInSecs,
-                        new long[]{startTime},new double[]{Double.NaN}, heartbeatSuppressConditional));
+                countdown--;
             }
 
-            AlertEventBag alertEventBag = new AlertEventBag(alertEvents, metricAlertConfig);
-            LOG.debug("id: {} AlertEventBag: {}", metricAlertConfig.getAlertId(), alertEventBag);
-            return alertEventBag;
-
+        }
 
-        } catch (Exception e) {
-            LOG.error("id: {} Error parsing tsdb response as json, ", metricAlertConfig.getAlertId(), e);
-            Monitoring.get().countProcessingSummariesError(metricAlertConfig.getAlertId(),
-                    metricAlertConfig.getNamespace());
-            throw new AlertException("Error parsing tsdb response as json for summaries", e);
+        //Rest of the missing data points
+        if(metricAlertConfig.isMissingEnabled()) {
+            alertEvents.addAll(checkMissingFromState(alertStateStore, timeseries, metricAlertConfig, statusWriter,
+                    statusWriterState,
+                    new long[]{startTime},new double[]{Double.NaN}, heartbeatSuppressConditional));
+        } else if(metricAlertConfig.isAutoRecover()) {
+            alertEvents.addAll(checkAutoRecoveryFromState(alertStateStore, metricAlertConfig, statusWriter,
+                    normalizedEndTimeInSecs,
+                    new long[]{startTime},new double[]{Double.NaN}, heartbeatSuppressConditional));
         }
+        // Once per series, not per threshold.
+        AlertCostModel.get().recordSeriesEvaluated(alertId, seriesEvaluated);
 
+        AlertEventBag alertEventBag = new AlertEventBag(alertEvents, metricAlertConfig);
+        LOG.debug("id: {} AlertEventBag: {}", metricAlertConfig.getAlertId(), alertEventBag);
+        return alertEventBag;
     }
 
     public static Long2BooleanMap processHeartBeatForSummaries(final String response,
@@ -1601,18 +1709,18 @@ public class TsdbV3ResultProcessor {
 
                 final double tVal = timeSeriesValues.get(0);
                 final long hashForNAMT = AlertUtils.getHashForNAMT(namespace, alertId, tagsMap);
-                LOG.info("id: {} (Heartbeat summaries) Received tVal: {} for hash: {} {}", alertId, tVal, hashForNAMT, tagsMap);
+                SAMPLED_LOG.info(alertId, "id: {} (Heartbeat summaries) Received tVal: {} for hash: {} {}", alertId, tVal, hashForNAMT, tagsMap);
 
                 resultMap.put(hashForNAMT, false);
                 if (suppressMetricConfig.getComparatorType().equals(ComparatorType.MISSING)) {
                     if (Double.isNaN(tVal)) {
-                        LOG.info("id: {} (Heartbeat missing) Received tVal: {} for hash: {} {}", alertId, tVal, hashForNAMT, tagsMap);
+                        SAMPLED_LOG.info(alertId, "id: {} (Heartbeat missing) Received tVal: {} for hash: {} {}", alertId, tVal, hashForNAMT, tagsMap);
                         resultMap.put(hashForNAMT, true);
                     }
                 } else {
                     if (!Double.isNaN(tVal)) {
                         if (compare(tVal, threshold, comparator)) {
-                            LOG.info("id: {} (Heartbeat summary) Received tVal: {} for hash: {} {}", alertId, tVal, hashForNAMT, tagsMap);
+                            SAMPLED_LOG.info(alertId, "id: {} (Heartbeat summary) Received tVal: {} for hash: {} {}", alertId, tVal, hashForNAMT, tagsMap);
                             resultMap.put(hashForNAMT, true);
                         }
                     }
@@ -1680,12 +1788,12 @@ public class TsdbV3ResultProcessor {
                     startEndInterval);
 
             if(!metricSourceNode.hasNonNull(DATA)) {
-                LOG.info("id: {} metric values object not returned", metricAlertConfig.getAlertId());
+                SAMPLED_LOG.info(metricAlertConfig.getAlertId(), "id: {} metric values object not returned", metricAlertConfig.getAlertId());
             }
 
             LOG.debug("startend: {}, {}", Arrays.toString(startEndInterval), metricSourceNode.toString());
 
-            LOG.info("id: {} Heartbeat resultMap: {}", metricAlertConfig.getAlertId(), resultMap);
+            SAMPLED_LOG.payload(metricAlertConfig.getAlertId(), "id: {} Heartbeat resultMap: {}", metricAlertConfig.getAlertId(), resultMap);
             return resultMap;
 
         } catch (Exception e) {
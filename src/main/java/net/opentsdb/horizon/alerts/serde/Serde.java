@@ -34,8 +34,32 @@ public class Serde {
 
     private Kryo kryo = new Kryo();
 
+    private static final int SCRATCH_BUFFER_SIZE = 4096;
+
+    private Output scratch;
+
     public byte[] kryoSerializeEvent(AlertEvent event) {
         Output output = new Output(1024, -1);
+        kryoSerializeEvent(event, output);
+        return output.toBytes();
+    }
+
+    /**
+     * Serializes the event into a scratch buffer owned by this instance and
+     * returns an exact size copy. The scratch buffer grows to the largest
+     * event seen and is reused, so only the returned array is allocated.
+     * Like {@link Kryo}, this is not thread safe.
+     */
+    public byte[] kryoSerializeEventReusingBuffer(AlertEvent event) {
+        if (scratch == null) {
+            scratch = new Output(SCRATCH_BUFFER_SIZE, -1);
+        }
+        scratch.clear();
+        kryoSerializeEvent(event, scratch);
+        return scratch.toBytes();
+    }
+
+    private void kryoSerializeEvent(AlertEvent event, Output output) {
         //Version byte change version to 2 for adding window sampler
         //Version byte change version to 3 for adding prev signal instead of transition
         //Version byte change version to 4 for adding alert state
@@ -60,7 +84,6 @@ public class Serde {
         }
 
         event.write(kryo, output);
-        return output.toBytes();
     }
 
     public AlertEvent kryoDeserializeEvent(byte[] serialized) {
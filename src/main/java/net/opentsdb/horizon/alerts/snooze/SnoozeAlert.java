@@ -23,6 +23,8 @@ import net.opentsdb.horizon.alerts.model.AlertEventBag;
 import net.opentsdb.horizon.alerts.model.MonitorEvent;
 import net.opentsdb.horizon.alerts.processor.ChainableProcessor;
 import net.opentsdb.horizon.alerts.processor.impl.EnrichmentProcessor;
+import net.opentsdb.horizon.alerts.profile.Phase;
+import net.opentsdb.horizon.alerts.profile.RunProfiler;
 import lombok.extern.slf4j.Slf4j;
 
 import java.util.Collections;
@@ -46,26 +48,31 @@ public class SnoozeAlert extends EnrichmentProcessor {
 
         final AlertConfig alertConfig = e.getAlertConfig();
 
-        e.getAlertEvents()
-                .stream()
-                .filter(Objects::nonNull)
-                .forEach(alert -> {
-                    final Map<String, String> tagsClone = new HashMap<>(alert.getTags());
-                    AlertUtils.addSystemTags(
-                            tagsClone,
-                            alertConfig.getAlertId(),
-                            alertConfig.getAlertName(),
-                            alertConfig.getAlertType().getString()
-                    );
-
-                    if (snoozeFilter.snooze(
-                            new ClonedEvent(
-                                    alert.getNamespace(),
-                                    tagsClone),
-                            alertConfig)) {
-                        alert.setSnoozed(true);
-                    }
-                });
+        final Phase previous = RunProfiler.enter(Phase.SNOOZE);
+        try {
+            e.getAlertEvents()
+                    .stream()
+                    .filter(Objects::nonNull)
+                    .forEach(alert -> {
+                        final Map<String, String> tagsClone = new HashMap<>(alert.getTags());
+                        AlertUtils.addSystemTags(
+                                tagsClone,
+                                alertConfig.getAlertId(),
+                                alertConfig.getAlertName(),
+                                alertConfig.getAlertType().getString()
+                        );
+
+                        if (snoozeFilter.snooze(
+                                new ClonedEvent(
+                                        alert.getNamespace(),
+                                        tagsClone),
+                                alertConfig)) {
+                            alert.setSnoozed(true);
+                        }
+                    });
+        } finally {
+            RunProfiler.exit(previous);
+        }
 
         return sendToNext(e);
 
@@ -0,0 +1,299 @@
+/*
+ * This file is part of OpenTSDB.
+ * Copyright (C) 2021 Yahoo.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package net.opentsdb.horizon.alerts.snooze;
+
+import net.opentsdb.horizon.alerts.config.AlertConfig;
+import net.opentsdb.horizon.alerts.model.MonitorEvent;
+import net.opentsdb.horizon.alerts.model.Snooze;
+import net.opentsdb.horizon.alerts.query.tsdb.TsdbV3QueryBuilder;
+import lombok.extern.slf4j.Slf4j;
+
+import it.unimi.dsi.fastutil.longs.Long2ObjectMap;
+import it.unimi.dsi.fastutil.longs.Long2ObjectOpenHashMap;
+import net.opentsdb.query.filter.QueryFilter;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * Snoozes compiled for matching, built once per fetched snooze map and
+ * shared by every {@link SnoozeFilter} reading the same map.
+ *
+ * Snoozes are grouped by namespace. Within a namespace the snoozes active
+ * at a time are kept with the interval between the surrounding start and
+ * end times, during which the set cannot change; evaluation time only
+ * moves forward, so the set is rebuilt once per boundary. The active set
+ * is indexed by alert id and label, so an event only tests the tag
+ * filters of the snoozes which apply to its alert.
+ */
+@Slf4j
+final class SnoozeIndex {
+
+    private static final SnoozeIndex EMPTY = new SnoozeIndex(Collections.emptyMap());
+
+    private static final AtomicReference<SnoozeIndex> SHARED = new AtomicReference<>(EMPTY);
+
+    private final Map<Long, Snooze> source;
+
+    private final Map<String, NamespaceSnoozes> byNamespace;
+
+    private SnoozeIndex(final Map<Long, Snooze> source) {
+        this.source = source;
+        final Map<String, List<CompiledSnooze>> grouped = new HashMap<>();
+        for (Snooze snooze : source.values()) {
+            if (snooze == null || snooze.getNamespace() == null) {
+                continue;
+            }
+            final CompiledSnooze compiled = CompiledSnooze.compile(snooze);
+            if (compiled != null) {
+                grouped.computeIfAbsent(key(snooze.getNamespace()), ns -> new ArrayList<>())
+                        .add(compiled);
+            }
+        }
+        this.byNamespace = new HashMap<>(grouped.size());
+        grouped.forEach((ns, snoozes) -> byNamespace.put(ns,
+                new NamespaceSnoozes(snoozes.toArray(new CompiledSnooze[0]))));
+    }
+
+    /**
+     * @param snoozes fetched snoozes, not copied.
+     * @return the shared index if it was built from the same map instance,
+     * otherwise a new index which replaces it.
+     */
+    static SnoozeIndex of(final Map<Long, Snooze> snoozes) {
+        if (snoozes == null || snoozes.isEmpty()) {
+            return EMPTY;
+        }
+        final SnoozeIndex shared = SHARED.get();
+        if (shared.source == snoozes) {
+            return shared;
+        }
+        final SnoozeIndex index = new SnoozeIndex(snoozes);
+        SHARED.compareAndSet(shared, index);
+        return index;
+    }
+
+    boolean isEmpty(final String namespace) {
+        return !byNamespace.containsKey(key(namespace));
+    }
+
+    boolean snooze(final MonitorEvent event,
+                   final AlertConfig alertConfig,
+                   final long currentTimeMillis) {
+        final NamespaceSnoozes snoozes = byNamespace.get(key(event.getNamespace()));
+        if (snoozes == null) {
+            return false;
+        }
+        final ActiveSnoozes active = snoozes.activeAt(currentTimeMillis);
+        if (matchesAny(active.unscoped, event, alertConfig)) {
+            return true;
+        }
+        if (matchesAny(active.byAlertId.get(alertConfig.getAlertId()), event, alertConfig)) {
+            return true;
+        }
+        final List<String> labels = alertConfig.getLabels();
+        if (labels != null && !active.byLabel.isEmpty()) {
+            for (int i = 0; i < labels.size(); i++) {
+                if (matchesAny(active.byLabel.get(labels.get(i)), event, alertConfig)) {
+                    return true;
+                }
+            }
+        }
+        return false;
+    }
+
+    private static boolean matchesAny(final CompiledSnooze[] snoozes,
+                                      final MonitorEvent event,
+                                      final AlertConfig alertConfig) {
+        if (snoozes == null) {
+            return false;
+        }
+        for (CompiledSnooze snooze : snoozes) {
+            if (snooze.matches(event, alertConfig)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private static String key(final String namespace) {
+        return namespace.toLowerCase(Locale.ROOT);
+    }
+
+    private static boolean isValid(List<?> list) {
+        return list != null && !list.isEmpty();
+    }
+
+    private static final class CompiledSnooze {
+
+        private final Snooze snooze;
+
+        /** Restricted to alert ids or labels. */
+        private final boolean scoped;
+
+        private final QueryFilter filter;
+
+        private CompiledSnooze(final Snooze snooze, final boolean scoped, final QueryFilter filter) {
+            this.snooze = snooze;
+            this.scoped = scoped;
+            this.filter = filter;
+        }
+
+        /**
+         * @return null for snoozes which can never apply: neither scoped
+         * nor filtered.
+         */
+        static CompiledSnooze compile(final Snooze snooze) {
+            final boolean scoped = isValid(snooze.getAlertIds()) || isValid(snooze.getLabels());
+            if (!scoped && snooze.getFilter() == null) {
+                return null;
+            }
+            return new CompiledSnooze(snooze, scoped, snooze.getFilter());
+        }
+
+        boolean activeAt(final long currentTimeMillis) {
+            return currentTimeMillis >= snooze.getStartTime()
+                    && currentTimeMillis < snooze.getEndTime();
+        }
+
+        /**
+         * Scope was matched by the index, only the tag filter is left. A
+         * filter failing to evaluate is ignored, as if it was not set.
+         */
+        boolean matches(final MonitorEvent event, final AlertConfig alertConfig) {
+            if (filter == null) {
+                return true;
+            }
+            try {
+                return TsdbV3QueryBuilder.matches(filter, event.getTags());
+            } catch (Throwable t) {
+                log.error("Query snooze failed for namespace: {} snooze: {} {} message:",
+                        alertConfig.getNamespace(), snooze.getId(), t.getMessage());
+                return scoped;
+            }
+        }
+    }
+
+    /**
+     * Snoozes active in {@code [validFromMillis, validUntilMillis)}.
+     */
+    private static final class ActiveSnoozes {
+
+        private final long validFromMillis;
+
+        private final long validUntilMillis;
+
+        private final CompiledSnooze[] unscoped;
+
+        private final Long2ObjectMap<CompiledSnooze[]> byAlertId;
+
+        private final Map<String, CompiledSnooze[]> byLabel;
+
+        private ActiveSnoozes(final long validFromMillis,
+                              final long validUntilMillis,
+                              final CompiledSnooze[] unscoped,
+                              final Long2ObjectMap<CompiledSnooze[]> byAlertId,
+                              final Map<String, CompiledSnooze[]> byLabel) {
+            this.validFromMillis = validFromMillis;
+            this.validUntilMillis = validUntilMillis;
+            this.unscoped = unscoped;
+            this.byAlertId = byAlertId;
+            this.byLabel = byLabel;
+        }
+
+        boolean covers(final long currentTimeMillis) {
+            return currentTimeMillis >= validFromMillis && currentTimeMillis < validUntilMillis;
+        }
+    }
+
+    private static final class NamespaceSnoozes {
+
+        private final CompiledSnooze[] snoozes;
+
+        private volatile ActiveSnoozes active;
+
+        private NamespaceSnoozes(final CompiledSnooze[] snoozes) {
+            this.snoozes = snoozes;
+        }
+
+        ActiveSnoozes activeAt(final long currentTimeMillis) {
+            ActiveSnoozes current = active;
+            if (current == null || !current.covers(currentTimeMillis)) {
+                // Racing rebuilds compute the same set.
+                current = build(currentTimeMillis);
+                active = current;
+            }
+            return current;
+        }
+
+        private ActiveSnoozes build(final long currentTimeMillis) {
+            long validFrom = Long.MIN_VALUE;
+            long validUntil = Long.MAX_VALUE;
+            final List<CompiledSnooze> unscoped = new ArrayList<>();
+            final Map<Long, List<CompiledSnooze>> byAlertId = new HashMap<>();
+            final Map<String, List<CompiledSnooze>> byLabel = new HashMap<>();
+            for (CompiledSnooze compiled : snoozes) {
+                final Snooze snooze = compiled.snooze;
+                if (compiled.activeAt(currentTimeMillis)) {
+                    validFrom = Math.max(validFrom, snooze.getStartTime());
+                    validUntil = Math.min(validUntil, snooze.getEndTime());
+                    if (!compiled.scoped) {
+                        unscoped.add(compiled);
+                        continue;
+                    }
+                    if (isValid(snooze.getAlertIds())) {
+                        for (Long alertId : snooze.getAlertIds()) {
+                            if (alertId == null) {
+                                continue;
+                            }
+                            byAlertId.computeIfAbsent(alertId, id -> new ArrayList<>()).add(compiled);
+                        }
+                    }
+                    if (isValid(snooze.getLabels())) {
+                        for (String label : snooze.getLabels()) {
+                            byLabel.computeIfAbsent(label, l -> new ArrayList<>()).add(compiled);
+                        }
+                    }
+                } else if (currentTimeMillis < snooze.getStartTime()) {
+                    validUntil = Math.min(validUntil, snooze.getStartTime());
+                } else {
+                    validFrom = Math.max(validFrom, snooze.getEndTime());
+                }
+            }
+
+            final Long2ObjectMap<CompiledSnooze[]> alertIdIndex =
+                    new Long2ObjectOpenHashMap<>(byAlertId.size());
+            byAlertId.forEach((id, list) -> alertIdIndex.put(id.longValue(),
+                    list.toArray(new CompiledSnooze[0])));
+            final Map<String, CompiledSnooze[]> labelIndex = new HashMap<>(byLabel.size());
+            byLabel.forEach((label, list) -> labelIndex.put(label,
+                    list.toArray(new CompiledSnooze[0])));
+
+            log.debug("Active snoozes: {} from: {} until: {}",
+                    unscoped.size() + alertIdIndex.size() + labelIndex.size(),
+                    validFrom, validUntil);
+            return new ActiveSnoozes(validFrom, validUntil,
+                    unscoped.isEmpty() ? null : unscoped.toArray(new CompiledSnooze[0]),
+                    alertIdIndex, labelIndex);
+        }
+    }
+}
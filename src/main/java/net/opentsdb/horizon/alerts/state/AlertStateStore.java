@@ -18,6 +18,7 @@
 package net.opentsdb.horizon.alerts.state;
 
 import java.util.SortedMap;
+import java.util.function.Supplier;
 
 import net.opentsdb.horizon.alerts.config.TransitionConfig;
 import net.opentsdb.horizon.alerts.enums.AlertState;
@@ -50,11 +51,38 @@ public interface AlertStateStore extends Iterable<AlertStateEntry> {
                                 SortedMap<String, String> tags,
                                 AlertState newState);
 
+    /**
+     * Same as {@link #raiseAlert(String, long, SortedMap, AlertState)} for
+     * callers which already know the state id. The tags are only requested
+     * to log a state change which raises an alert.
+     *
+     * @param stateId state id (alert hash)
+     * @param tags identity tags supplier.
+     * @param newState evaluated state.
+     * @return state change.
+     */
+    AlertStateChange raiseAlert(long stateId,
+                                Supplier<? extends SortedMap<String, String>> tags,
+                                AlertState newState);
+
     void updateDataPoint(String namespace,
                          long alertId,
                          SortedMap<String, String> tags,
                          long seenTime);
 
+    /**
+     * Same as {@link #updateDataPoint(String, long, SortedMap, long)} for
+     * callers which already know the state id. The tags are only requested
+     * when identity information has to be stored for a new state id.
+     *
+     * @param stateId state id (alert hash)
+     * @param tags identity tags supplier.
+     * @param seenTime data point timestamp.
+     */
+    void updateDataPoint(long stateId,
+                         Supplier<? extends SortedMap<String, String>> tags,
+                         long seenTime);
+
     /**
      * Get current alert state.
      *
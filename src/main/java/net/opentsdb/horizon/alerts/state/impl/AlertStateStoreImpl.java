@@ -22,6 +22,7 @@ import java.util.Map;
 import java.util.SortedMap;
 import java.util.TreeMap;
 import java.util.function.Consumer;
+import java.util.function.Supplier;
 
 import net.opentsdb.horizon.alerts.AlertUtils;
 import net.opentsdb.horizon.alerts.config.TransitionConfig;
@@ -195,25 +196,33 @@ public class AlertStateStoreImpl implements ModifiableAlertStateStore {
                                        final SortedMap<String, String> tags,
                                        final AlertState newState) {
         final long hashForNAMT = AlertUtils.getHashForNAMT(namespace, alertId, tags);
-        LOG.debug(storeKey + " check before contains key: " + hashForNAMT +
-                " " + alertRaisedInCurrent.containsKey(hashForNAMT) + " " + newState.name());
-        if (!alertRaisedInCurrent.containsKey(hashForNAMT)) {
-            LOG.debug(storeKey + " contains key: " + hashForNAMT +
-                    " " + alertRaisedInCurrent.containsKey(hashForNAMT) + " " + newState.name());
+        return raiseAlert(hashForNAMT, () -> tags, newState);
+    }
 
+    @Override
+    public AlertStateChange raiseAlert(final long hashForNAMT,
+                                       final Supplier<? extends SortedMap<String, String>> tags,
+                                       final AlertState newState) {
+        if (LOG.isDebugEnabled()) {
+            LOG.debug(storeKey + " check before contains key: " + hashForNAMT +
+                    " " + alertRaisedInCurrent.containsKey(hashForNAMT) + " " + newState.name());
+        }
+        if (!alertRaisedInCurrent.containsKey(hashForNAMT)) {
             alertRaisedInCurrent.put(hashForNAMT, 1l);
             return checkInRun(hashForNAMT, newState, tags);
         }
 
         return new AlertStateChangeImpl(
-                AlertState.fromId(previousStates.get(alertId)),
+                AlertState.fromId(previousStates.get(hashForNAMT)),
                 newState,
                 false,
                 false
         );
     }
 
-    private AlertStateChange checkInRun(long stateId, AlertState newState, SortedMap<String, String> tags) {
+    private AlertStateChange checkInRun(long stateId,
+                                        AlertState newState,
+                                        Supplier<? extends SortedMap<String, String>> tags) {
 
         AlertState oldState = AlertState.fromId(currentStates.
                 computeIfAbsent(stateId, k -> AlertState.GOOD.getId()));
@@ -234,15 +243,17 @@ public class AlertStateStoreImpl implements ModifiableAlertStateStore {
             if (checkWhetherToRaiseAlert(newState, oldState)) {
                 startNag(stateId);
                 LOG.info("id: {} transition of state warranting firing of alert: {} {} old: {} new: {}",
-                        storeKey, tags.toString(), stateId, oldState, newState);
+                        storeKey, tags.get(), stateId, oldState, newState);
                 return new AlertStateChangeImpl(oldState, newState, false, true);
             }
         } else {
 
             AlertState originState = AlertState.fromId(previousStates.get(stateId));
 
-            LOG.debug("id: {} no transition of state warranting firing of alert: {} old: {} new: {} orig: {}",
-                    storeKey, stateId, oldState, newState, originState);
+            if (LOG.isDebugEnabled()) {
+                LOG.debug("id: {} no transition of state warranting firing of alert: {} old: {} new: {} orig: {}",
+                        storeKey, stateId, oldState, newState, originState);
+            }
             /*
              * No state transition has happened.
              * 1. Check if things are good. If yes, do nothing and return false.
@@ -259,7 +270,7 @@ public class AlertStateStoreImpl implements ModifiableAlertStateStore {
                 if (checkWhetherToRaiseAlert(newState, originState)) {
                     if (nag(stateId)) {
                         LOG.info("id: {} Time to nag the alert for {} {} state: {} nag_interval: {}",
-                                storeKey, tags.toString(), stateId, newState.name(), nagIntervalInSecs);
+                                storeKey, tags.get(), stateId, newState.name(), nagIntervalInSecs);
                         startNag(stateId);
                         return new AlertStateChangeImpl(originState, newState, true, true);
                     }
@@ -327,13 +338,28 @@ public class AlertStateStoreImpl implements ModifiableAlertStateStore {
             storeAlertIdentity(hashForNAMT, tags);
         }
 
-        if (lastSeenDataPoint.containsKey(hashForNAMT)) {
-            if (lastSeenDataPoint.get(hashForNAMT) >= seenTime) {
+        updateLastSeen(hashForNAMT, seenTime);
+    }
+
+    @Override
+    public void updateDataPoint(long stateId,
+                                Supplier<? extends SortedMap<String, String>> tags,
+                                long seenTime) {
+        if (storeAlertIdentity && !identities.containsKey(stateId)) {
+            storeAlertIdentity(stateId, tags.get());
+        }
+
+        updateLastSeen(stateId, seenTime);
+    }
+
+    private void updateLastSeen(long stateId, long seenTime) {
+        if (lastSeenDataPoint.containsKey(stateId)) {
+            if (lastSeenDataPoint.get(stateId) >= seenTime) {
                 return;
             }
         }
 
-        lastSeenDataPoint.put(hashForNAMT, seenTime);
+        lastSeenDataPoint.put(stateId, seenTime);
     }
 
     private void storeAlertIdentity(final long stateId,
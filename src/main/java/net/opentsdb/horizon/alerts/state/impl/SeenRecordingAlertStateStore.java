@@ -0,0 +1,174 @@
+/*
+ * This file is part of OpenTSDB.
+ * Copyright (C) 2021 Yahoo.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package net.opentsdb.horizon.alerts.state.impl;
+
+import java.util.Iterator;
+import java.util.SortedMap;
+import java.util.function.Supplier;
+
+import it.unimi.dsi.fastutil.longs.LongArrayList;
+import it.unimi.dsi.fastutil.longs.LongIterator;
+import it.unimi.dsi.fastutil.longs.LongOpenHashSet;
+
+import net.opentsdb.horizon.alerts.AlertUtils;
+import net.opentsdb.horizon.alerts.config.TransitionConfig;
+import net.opentsdb.horizon.alerts.enums.AlertState;
+import net.opentsdb.horizon.alerts.state.AlertStateChange;
+import net.opentsdb.horizon.alerts.state.AlertStateEntry;
+import net.opentsdb.horizon.alerts.state.AlertStateStore;
+
+/**
+ * Delegating store which records the state ids a run raised or updated.
+ *
+ * Used for the runs after the query of an alert changed: states carried
+ * over from the old query which the new query did not return in any of
+ * them are dropped by {@link #purgeUnseen()} instead of going missing
+ * later.
+ */
+public class SeenRecordingAlertStateStore implements AlertStateStore {
+
+    private final AlertStateStore delegate;
+
+    private final LongOpenHashSet seen = new LongOpenHashSet();
+
+    public SeenRecordingAlertStateStore(final AlertStateStore delegate) {
+        this.delegate = delegate;
+    }
+
+    /**
+     * Purge every state which was not raised or updated through this store.
+     *
+     * @return number of states purged.
+     */
+    public int purgeUnseen() {
+        final LongArrayList unseen = new LongArrayList();
+        for (AlertStateEntry entry : delegate) {
+            if (!seen.contains(entry.getStateId())) {
+                unseen.add(entry.getStateId());
+            }
+        }
+        final LongIterator it = unseen.iterator();
+        while (it.hasNext()) {
+            delegate.purgeState(it.nextLong());
+        }
+        return unseen.size();
+    }
+
+    @Override
+    public void setTransitionConfig(TransitionConfig config) {
+        delegate.setTransitionConfig(config);
+    }
+
+    @Override
+    public void setNagIntervalInSecs(int nagIntervalInSecs) {
+        delegate.setNagIntervalInSecs(nagIntervalInSecs);
+    }
+
+    @Override
+    public void newRun() {
+        delegate.newRun();
+    }
+
+    @Override
+    public AlertStateChange raiseAlert(String namespace,
+                                       long alertId,
+                                       SortedMap<String, String> tags,
+                                       AlertState newState) {
+        seen.add(AlertUtils.getHashForNAMT(namespace, alertId, tags));
+        return delegate.raiseAlert(namespace, alertId, tags, newState);
+    }
+
+    @Override
+    public AlertStateChange raiseAlert(long stateId,
+                                       Supplier<? extends SortedMap<String, String>> tags,
+                                       AlertState newState) {
+        seen.add(stateId);
+        return delegate.raiseAlert(stateId, tags, newState);
+    }
+
+    @Override
+    public void updateDataPoint(String namespace,
+                                long alertId,
+                                SortedMap<String, String> tags,
+                                long seenTime) {
+        seen.add(AlertUtils.getHashForNAMT(namespace, alertId, tags));
+        delegate.updateDataPoint(namespace, alertId, tags, seenTime);
+    }
+
+    @Override
+    public void updateDataPoint(long stateId,
+                                Supplier<? extends SortedMap<String, String>> tags,
+                                long seenTime) {
+        seen.add(stateId);
+        delegate.updateDataPoint(stateId, tags, seenTime);
+    }
+
+    @Override
+    public AlertState getCurrentState(long stateId) {
+        return delegate.getCurrentState(stateId);
+    }
+
+    @Override
+    public AlertState getPreviousState(long stateId) {
+        return delegate.getPreviousState(stateId);
+    }
+
+    @Override
+    public long getLastSeenTime(long stateId) {
+        return delegate.getLastSeenTime(stateId);
+    }
+
+    @Override
+    public SortedMap<String, String> getTags(long stateId) {
+        return delegate.getTags(stateId);
+    }
+
+    @Override
+    public boolean getStoreAlertIdentity() {
+        return delegate.getStoreAlertIdentity();
+    }
+
+    @Override
+    public void setStoreAlertIdentity(boolean storeAlertIdentity) {
+        delegate.setStoreAlertIdentity(storeAlertIdentity);
+    }
+
+    @Override
+    public LongIterator getIteratorForStoredData() {
+        return delegate.getIteratorForStoredData();
+    }
+
+    @Override
+    public void purgeState(long stateId) {
+        delegate.purgeState(stateId);
+    }
+
+    @Override
+    public void purgeStateByTime(long timestampSec) {
+        delegate.purgeStateByTime(timestampSec);
+    }
+
+    @Override
+    public int size() {
+        return delegate.size();
+    }
+
+    @Override
+    public Iterator<AlertStateEntry> iterator() {
+        return delegate.iterator();
+    }
+}
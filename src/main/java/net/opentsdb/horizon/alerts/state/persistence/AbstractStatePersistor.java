@@ -18,6 +18,7 @@
 package net.opentsdb.horizon.alerts.state.persistence;
 
 import net.opentsdb.horizon.alerts.Monitoring;
+import net.opentsdb.horizon.alerts.cost.AlertCostModel;
 import net.opentsdb.horizon.alerts.config.AlertConfig;
 import net.opentsdb.horizon.alerts.state.AlertStateEntry;
 
@@ -88,6 +89,7 @@ public abstract class AbstractStatePersistor implements StatePersistor {
                 (persistEndTime - persistStartTime),
                 tagsNamespaceAlertIdConfigType
         );
+        AlertCostModel.get().recordStateSize(alertId, serializer.getSerializedCount());
 
         log.info("id: {} Finished persistence of state", alertId);
     }
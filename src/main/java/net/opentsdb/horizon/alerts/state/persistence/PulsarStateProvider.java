@@ -34,6 +34,7 @@ import org.apache.pulsar.client.api.Consumer;
 import org.apache.pulsar.client.api.Message;
 import org.apache.pulsar.client.api.PulsarClient;
 import org.apache.pulsar.client.api.PulsarClientException;
+import org.apache.pulsar.client.api.SubscriptionInitialPosition;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
@@ -161,6 +162,14 @@ public class PulsarStateProvider implements StateProvider, Closeable {
         consumer.close();
     }
 
+    /**
+     * Drop the subscription, for consumers created by
+     * {@link #createFromEarliest(PulsarClient, String, String, long)}.
+     */
+    public void unsubscribe() throws PulsarClientException {
+        consumer.unsubscribe();
+    }
+
     /**
      * Get the alert state store for the given config.
      *
@@ -225,4 +234,30 @@ public class PulsarStateProvider implements StateProvider, Closeable {
 
         return new PulsarStateProvider(consumer, cutoffTimeSec);
     }
+
+    /**
+     * Same as {@link #create(PulsarClient, String, String, long)} for a
+     * new subscription, which reads the topic from the earliest retained
+     * message.
+     */
+    public static PulsarStateProvider createFromEarliest(final PulsarClient pulsarClient,
+                                                         final String topicName,
+                                                         final String consumerName,
+                                                         final long cutoffTimeSec) {
+        final Consumer consumer;
+        try {
+            LOG.info("Creating Pulsar consumer: {} from earliest for topic: {} ",
+                    consumerName, topicName);
+            consumer = pulsarClient.newConsumer()
+                    .topic(topicName)
+                    .consumerName(consumerName)
+                    .subscriptionName(consumerName)
+                    .subscriptionInitialPosition(SubscriptionInitialPosition.Earliest)
+                    .subscribe();
+        } catch (PulsarClientException e) {
+            throw new RuntimeException(e);
+        }
+
+        return new PulsarStateProvider(consumer, cutoffTimeSec);
+    }
 }
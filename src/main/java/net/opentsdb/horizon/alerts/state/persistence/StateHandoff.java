@@ -0,0 +1,134 @@
+/*
+ * This file is part of OpenTSDB.
+ * Copyright (C) 2021 Yahoo.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package net.opentsdb.horizon.alerts.state.persistence;
+
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+import net.opentsdb.horizon.alerts.EnvironmentConfig;
+import net.opentsdb.horizon.alerts.config.AlertConfig;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Loads the persisted state of alerts taken over from another mirror, so
+ * their monitors start from the previous owner's last run instead of an
+ * empty state.
+ */
+public final class StateHandoff {
+
+    private static final Logger LOG = LoggerFactory.getLogger(StateHandoff.class);
+
+    /**
+     * Reads the state topic, one handoff at a time.
+     */
+    private static final ExecutorService EXECUTOR = Executors.newSingleThreadExecutor(r -> {
+        final Thread thread = new Thread(r, "state-handoff");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    /**
+     * Membership version of the last handoff. The daemons of the process
+     * all report the same change, only the first one reads the topic.
+     */
+    private static long lastMembership = Long.MIN_VALUE;
+
+    private static Future<?> lastHandoff;
+
+    private StateHandoff() {
+    }
+
+    /**
+     * Waits, at most {@link EnvironmentConfig#getStateHandoffTimeoutSecs()},
+     * until the state topic was read up to now. The states are then served
+     * by {@link StateProviders#getDefault()} to the first executor of each
+     * alert. A handoff still running after the wait is installed when done.
+     *
+     * @param configs alerts taken over by the mirror, on all its daemons.
+     * @param membership mirror membership version the alerts were taken
+     *                   over at. Later calls for the same version wait for
+     *                   the handoff already started.
+     */
+    public static void acquire(final Collection<AlertConfig> configs, final long membership) {
+        final EnvironmentConfig config = new EnvironmentConfig();
+        if (!config.isPulsarStatePersistenceEnabled() || !StateProviders.isInitialized()) {
+            return;
+        }
+
+        final List<AlertConfig> acquired = new ArrayList<>(configs);
+        final Future<?> handoff;
+        synchronized (StateHandoff.class) {
+            if (lastHandoff == null || lastMembership != membership) {
+                final long nowSec = Instant.now().getEpochSecond();
+                final String subscription = config.getPulsarConsumerName() + "-handoff-" + UUID.randomUUID();
+                lastMembership = membership;
+                lastHandoff = EXECUTOR.submit(() ->
+                        load(config, subscription, nowSec, acquired));
+            }
+            handoff = lastHandoff;
+        }
+        try {
+            handoff.get(config.getStateHandoffTimeoutSecs(), TimeUnit.SECONDS);
+        } catch (TimeoutException e) {
+            LOG.warn("Handoff: alerts={} not loaded after {}s, continuing without them",
+                    acquired.size(), config.getStateHandoffTimeoutSecs());
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } catch (ExecutionException e) {
+            throw new RuntimeException("Handoff failed", e.getCause());
+        }
+    }
+
+    private static void load(final EnvironmentConfig config,
+                             final String subscription,
+                             final long nowSec,
+                             final List<AlertConfig> configs) {
+        final PulsarStateProvider provider =
+                PulsarStateProvider.createFromEarliest(
+                        PulsarClientSingleton.get(),
+                        config.getPulsarTopicName(),
+                        subscription,
+                        nowSec
+                );
+
+        final long startTimeMs = System.currentTimeMillis();
+        try {
+            provider.bootstrap(configs);
+        } finally {
+            try {
+                provider.unsubscribe();
+                provider.close();
+            } catch (Exception e) {
+                LOG.warn("Failed to close handoff state provider.", e);
+            }
+        }
+        LOG.info("Handoff: alerts={}, delta_ms={}", configs.size(),
+                System.currentTimeMillis() - startTimeMs);
+
+        StateProviders.handoff(provider);
+    }
+}
@@ -17,6 +17,14 @@
 
 package net.opentsdb.horizon.alerts.state.persistence;
 
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Optional;
+
+import net.opentsdb.horizon.alerts.config.AlertConfig;
+import net.opentsdb.horizon.alerts.state.AlertStateStore;
+
 public class StateProviders {
 
     //
@@ -28,14 +36,76 @@ public class StateProviders {
 
     private static final StateProvider NOOP = new NoopStateProvider();
 
+    /**
+     * Handoff providers kept in front of the current one. Their states are
+     * read once, by the first run of an alert, older ones are dropped.
+     */
+    static final int MAX_HANDOFFS = 4;
+
     public static void initialize(final StateProvider stateProvider) {
         DEFAULT = stateProvider;
     }
 
+    /**
+     * Put a provider of states handed off by other mirrors in front of the
+     * current one. Previous handoff providers are asked next, up to
+     * {@link #MAX_HANDOFFS}, so states not read yet are kept.
+     */
+    public static synchronized void handoff(final StateProvider stateProvider) {
+        final StateProvider current = getDefault();
+        final List<StateProvider> handoffs = new ArrayList<>(MAX_HANDOFFS);
+        handoffs.add(stateProvider);
+        final StateProvider base;
+        if (current instanceof HandoffStateProvider) {
+            final HandoffStateProvider previous = (HandoffStateProvider) current;
+            for (StateProvider handoff : previous.handoffs) {
+                if (handoffs.size() == MAX_HANDOFFS) {
+                    break;
+                }
+                handoffs.add(handoff);
+            }
+            base = previous.base;
+        } else {
+            base = current;
+        }
+        DEFAULT = new HandoffStateProvider(Collections.unmodifiableList(handoffs), base);
+    }
+
+    public static boolean isInitialized() {
+        return DEFAULT != null;
+    }
+
     public static StateProvider getDefault() {
         if (DEFAULT == null) {
             return NOOP;
         }
         return DEFAULT;
     }
+
+    private static final class HandoffStateProvider implements StateProvider {
+
+        /**
+         * Newest first.
+         */
+        private final List<StateProvider> handoffs;
+
+        private final StateProvider base;
+
+        private HandoffStateProvider(final List<StateProvider> handoffs,
+                                     final StateProvider base) {
+            this.handoffs = handoffs;
+            this.base = base;
+        }
+
+        @Override
+        public Optional<AlertStateStore> get(final AlertConfig config) {
+            for (StateProvider handoff : handoffs) {
+                final Optional<AlertStateStore> store = handoff.get(config);
+                if (store.isPresent()) {
+                    return store;
+                }
+            }
+            return base.get(config);
+        }
+    }
 }
@@ -0,0 +1,148 @@
+/*
+ * This file is part of OpenTSDB.
+ * Copyright (C) 2021 Yahoo.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package net.opentsdb.horizon.alerts;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.node.ArrayNode;
+import net.opentsdb.horizon.alerts.config.AlertConfig;
+import net.opentsdb.horizon.alerts.config.impl.DefaultTransitionConfig;
+import net.opentsdb.horizon.alerts.enums.AlertState;
+import net.opentsdb.horizon.alerts.monitor.Monitor;
+import net.opentsdb.horizon.alerts.state.AlertStateStore;
+import net.opentsdb.horizon.alerts.state.AlertStateStores;
+import org.testng.annotations.Test;
+
+import java.util.TreeMap;
+
+import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertFalse;
+import static org.testng.Assert.assertNull;
+import static org.testng.Assert.assertSame;
+import static org.testng.Assert.assertTrue;
+
+public class MonitorHandoverTest {
+
+    private static final String NS = "namespace";
+
+    private static final long ALERT_ID = 1L;
+
+    private static TreeMap<String, String> host(String host) {
+        final TreeMap<String, String> tags = new TreeMap<>();
+        tags.put("host", host);
+        return tags;
+    }
+
+    @Test
+    public void testMovedAlertKeepsItsState() {
+        final ArrayNode transitions = new ObjectMapper().createArrayNode();
+        transitions.add("goodToBad");
+        final AlertStateStore store = AlertStateStores.withTransitions("id", 300,
+                new DefaultTransitionConfig(transitions.iterator(), false));
+        store.raiseAlert(NS, ALERT_ID, host("host1"), AlertState.BAD);
+        final StateMonitor monitor = new StateMonitor(store, 1200L);
+
+        final MonitorHandover handover = new MonitorHandover(60_000L);
+        assertTrue(handover.acquire(ALERT_ID, 0));
+        assertNull(handover.take(ALERT_ID));
+
+        // Placed on daemon 1, which waits until daemon 0 released it.
+        assertFalse(handover.acquire(ALERT_ID, 1));
+        handover.release(ALERT_ID, 0, monitor);
+        assertTrue(handover.acquire(ALERT_ID, 1));
+
+        final Monitor taken = handover.take(ALERT_ID);
+        assertSame(taken, monitor);
+        assertEquals(taken.getLastRuntimeInSecs(), 1200L);
+        assertEquals(((StateMonitor) taken).store.getCurrentState(
+                AlertUtils.getHashForNAMT(NS, ALERT_ID, host("host1"))), AlertState.BAD);
+        assertNull(handover.take(ALERT_ID));
+    }
+
+    @Test
+    public void testReleasedMonitorExpires() throws InterruptedException {
+        final MonitorHandover handover = new MonitorHandover(1L);
+        assertTrue(handover.acquire(ALERT_ID, 0));
+        handover.release(ALERT_ID, 0, new StateMonitor(null, 0L));
+
+        Thread.sleep(10L);
+        assertTrue(handover.acquire(ALERT_ID, 1));
+        assertNull(handover.take(ALERT_ID));
+    }
+
+    @Test
+    public void testDeletedAlertIsNotHandedOver() {
+        final MonitorHandover handover = new MonitorHandover(60_000L);
+        assertTrue(handover.acquire(ALERT_ID, 0));
+        handover.release(ALERT_ID, 0, null);
+
+        assertTrue(handover.acquire(ALERT_ID, 1));
+        assertNull(handover.take(ALERT_ID));
+        // Releasing an alert held by another daemon does nothing.
+        handover.release(ALERT_ID, 0, null);
+        assertFalse(handover.acquire(ALERT_ID, 0));
+    }
+
+    private static class StateMonitor implements Monitor {
+
+        private final AlertStateStore store;
+
+        private final long lastRunTimeSecs;
+
+        StateMonitor(final AlertStateStore store, final long lastRunTimeSecs) {
+            this.store = store;
+            this.lastRunTimeSecs = lastRunTimeSecs;
+        }
+
+        @Override
+        public boolean inProgress() {
+            return false;
+        }
+
+        @Override
+        public boolean isTimeToRun() {
+            return false;
+        }
+
+        @Override
+        public void prep() {
+        }
+
+        @Override
+        public void execute() {
+        }
+
+        @Override
+        public void finish(boolean needRetry) {
+        }
+
+        @Override
+        public AlertConfig getAlertConfig() {
+            return null;
+        }
+
+        @Override
+        public long getLastRuntimeInSecs() {
+            return lastRunTimeSecs;
+        }
+
+        @Override
+        public void updateAlertConfig(AlertConfig alertConfig) {
+        }
+    }
+}
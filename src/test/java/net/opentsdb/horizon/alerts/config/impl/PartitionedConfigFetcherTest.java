@@ -0,0 +1,207 @@
+/*
+ * This file is part of OpenTSDB.
+ * Copyright (C) 2021 Yahoo.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package net.opentsdb.horizon.alerts.config.impl;
+
+import net.opentsdb.horizon.alerts.config.AlertConfig;
+import net.opentsdb.horizon.alerts.config.AlertConfigFetcher;
+import net.opentsdb.horizon.alerts.config.ConfigSnapshot;
+import net.opentsdb.horizon.alerts.enums.AlertType;
+import net.opentsdb.horizon.alerts.enums.MetricAlertType;
+import org.testng.annotations.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertFalse;
+import static org.testng.Assert.assertNotEquals;
+import static org.testng.Assert.assertNotSame;
+import static org.testng.Assert.assertSame;
+import static org.testng.Assert.assertTrue;
+
+public class PartitionedConfigFetcherTest {
+
+    @Test
+    public void testPartitionReusedWhileVersionUnchanged() {
+        final Map<Long, AlertConfig> configs = new HashMap<>();
+        for (long id = 1; id <= 6; id++) {
+            configs.put(id, new MetricAlertConfig("NS", AlertType.SIMPLE,
+                    MetricAlertType.SINGLE_METRIC, id, 1000L));
+        }
+        final StubFetcher seed = new StubFetcher(new ConfigSnapshot<>(1, configs));
+
+        final PartitionedConfigFetcher fetcher = PartitionedConfigFetcher.builder()
+                .alertConfigFetcher(seed)
+                .daemonid(1)
+                .totalNumberOfDaemons(2)
+                .mirrorid(0)
+                .totalNumberOfMirrors(1)
+                .mirrorSetId(0)
+                .totalNumberMirrorSets(1)
+                .build();
+
+        final ConfigSnapshot<AlertConfig> first = fetcher.getAlertConfigSnapshot();
+        assertEquals(first.getVersion(), 1);
+        assertEquals(first.getConfigs().keySet().size(), 3);
+        assertTrue(first.getConfigs().containsKey(5L));
+        assertSame(fetcher.getAlertConfigSnapshot(), first);
+
+        seed.snapshot = new ConfigSnapshot<>(2, configs);
+        final ConfigSnapshot<AlertConfig> second = fetcher.getAlertConfigSnapshot();
+        assertNotSame(second, first);
+        assertEquals(second.getVersion(), 2);
+    }
+
+    @Test
+    public void testMembershipChangeMovesOnlyTheLostMirrorsAlerts() {
+        final Map<Long, AlertConfig> configs = new HashMap<>();
+        for (long id = 1; id <= 300; id++) {
+            configs.put(id, new MetricAlertConfig("NS", AlertType.SIMPLE,
+                    MetricAlertType.SINGLE_METRIC, id, 1000L));
+        }
+        final StubFetcher seed = new StubFetcher(new ConfigSnapshot<>(1, configs));
+        final List<String> live = new ArrayList<>(Arrays.asList("host0", "host1", "host2"));
+        final AtomicLong membership = new AtomicLong();
+        final List<AlertConfig> acquired = new ArrayList<>();
+
+        final PartitionedConfigFetcher fetcher = PartitionedConfigFetcher.builder()
+                .alertConfigFetcher(seed)
+                .daemonid(0)
+                .totalNumberOfDaemons(1)
+                .mirrorid(0)
+                .totalNumberOfMirrors(3)
+                .mirrorSetId(0)
+                .totalNumberMirrorSets(1)
+                .rendezvous(true)
+                .mirrorHost("host0")
+                .liveMirrors(() -> live)
+                .membershipVersion(membership::get)
+                .onAcquired((alerts, version) -> acquired.addAll(alerts))
+                .build();
+
+        final ConfigSnapshot<AlertConfig> first = fetcher.getAlertConfigSnapshot();
+        assertSame(fetcher.getAlertConfigSnapshot(), first);
+        assertTrue(acquired.isEmpty());
+
+        live.remove("host2");
+        membership.incrementAndGet();
+        final ConfigSnapshot<AlertConfig> second = fetcher.getAlertConfigSnapshot();
+
+        assertNotEquals(second.getVersion(), first.getVersion());
+        assertTrue(second.getConfigs().keySet().containsAll(first.getConfigs().keySet()));
+        assertEquals(acquired.size(), second.getConfigs().size() - first.getConfigs().size());
+        assertFalse(acquired.isEmpty());
+
+        // host2 is back: the alerts it owned are released again.
+        final long released = acquired.get(0).getAlertId();
+        live.add("host2");
+        membership.incrementAndGet();
+        assertEquals(fetcher.getAlertConfigSnapshot().getConfigs().keySet(),
+                first.getConfigs().keySet());
+        assertFalse(fetcher.owns(released));
+    }
+
+    @Test
+    public void testMembershipChangeHandsOffTheMirrorsAlertsOnEveryDaemon() {
+        final Map<Long, AlertConfig> configs = new HashMap<>();
+        for (long id = 1; id <= 300; id++) {
+            configs.put(id, new MetricAlertConfig("NS", AlertType.SIMPLE,
+                    MetricAlertType.SINGLE_METRIC, id, 1000L));
+        }
+        final StubFetcher seed = new StubFetcher(new ConfigSnapshot<>(1, configs));
+        final List<String> live = new ArrayList<>(Arrays.asList("host0", "host1", "host2"));
+        final AtomicLong membership = new AtomicLong();
+        final List<PartitionedConfigFetcher> fetchers = new ArrayList<>();
+        final List<List<Long>> acquired = new ArrayList<>();
+        final List<Long> versions = new ArrayList<>();
+
+        for (int daemon = 0; daemon < 2; daemon++) {
+            final List<Long> ids = new ArrayList<>();
+            acquired.add(ids);
+            fetchers.add(PartitionedConfigFetcher.builder()
+                    .alertConfigFetcher(seed)
+                    .daemonid(daemon)
+                    .totalNumberOfDaemons(2)
+                    .mirrorid(0)
+                    .totalNumberOfMirrors(3)
+                    .mirrorSetId(0)
+                    .totalNumberMirrorSets(1)
+                    .rendezvous(true)
+                    .mirrorHost("host0")
+                    .liveMirrors(() -> live)
+                    .membershipVersion(membership::get)
+                    .onAcquired((alerts, version) -> {
+                        alerts.forEach(config -> ids.add(config.getAlertId()));
+                        versions.add(version);
+                    })
+                    .build());
+        }
+        final int before = fetchers.get(0).getAlertConfigSnapshot().getConfigs().size()
+                + fetchers.get(1).getAlertConfigSnapshot().getConfigs().size();
+
+        live.remove("host2");
+        membership.incrementAndGet();
+        final int after = fetchers.get(0).getAlertConfigSnapshot().getConfigs().size()
+                + fetchers.get(1).getAlertConfigSnapshot().getConfigs().size();
+
+        // Both daemons report all alerts the mirror took over, with the
+        // same version, so the state is read once for the process.
+        assertEquals(acquired.get(0).size(), after - before);
+        assertEquals(new HashSet<>(acquired.get(0)), new HashSet<>(acquired.get(1)));
+        assertEquals(versions, Arrays.asList(1L, 1L));
+    }
+
+    @Test
+    public void testSameConfigs() {
+        final Map<Long, AlertConfig> configs = new HashMap<>();
+        final AlertConfig config = new MetricAlertConfig("NS", AlertType.SIMPLE,
+                MetricAlertType.SINGLE_METRIC, 1L, 1000L);
+        configs.put(1L, config);
+        final ConfigSnapshot<AlertConfig> snapshot = new ConfigSnapshot<>(1, new HashMap<>(configs));
+
+        assertTrue(snapshot.sameConfigs(configs));
+
+        configs.put(1L, new MetricAlertConfig("NS", AlertType.SIMPLE,
+                MetricAlertType.SINGLE_METRIC, 1L, 1000L));
+        assertEquals(snapshot.sameConfigs(configs), false);
+    }
+
+    private static class StubFetcher implements AlertConfigFetcher {
+
+        private volatile ConfigSnapshot<AlertConfig> snapshot;
+
+        StubFetcher(final ConfigSnapshot<AlertConfig> snapshot) {
+            this.snapshot = snapshot;
+        }
+
+        @Override
+        public Map<Long, AlertConfig> getAlertConfig() {
+            return snapshot.getConfigs();
+        }
+
+        @Override
+        public ConfigSnapshot<AlertConfig> getAlertConfigSnapshot() {
+            return snapshot;
+        }
+    }
+}
@@ -0,0 +1,79 @@
+/*
+ * This file is part of OpenTSDB.
+ * Copyright (C) 2021 Yahoo.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package net.opentsdb.horizon.alerts.config.impl;
+
+import org.testng.annotations.Test;
+
+import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertTrue;
+
+public class RendezvousPartitionerTest {
+
+    private static final int ALERTS = 10000;
+
+    private static int owner(long alertId, long[] keys, double[] weights) {
+        int owner = -1;
+        for (int node = 0; node < keys.length; node++) {
+            if (RendezvousPartitioner.owns(alertId, node, keys, weights)) {
+                assertEquals(owner, -1, "Two owners for " + alertId);
+                owner = node;
+            }
+        }
+        assertTrue(owner >= 0, "No owner for " + alertId);
+        return owner;
+    }
+
+    @Test
+    public void testRemovingANodeOnlyMovesItsAlerts() {
+        final long[] five = {
+                RendezvousPartitioner.nodeKey("host0"),
+                RendezvousPartitioner.nodeKey("host1"),
+                RendezvousPartitioner.nodeKey("host2"),
+                RendezvousPartitioner.nodeKey("host3"),
+                RendezvousPartitioner.nodeKey("host4")
+        };
+        // host2 went down.
+        final long[] four = {five[0], five[1], five[3], five[4]};
+        final int[] fourToFive = {0, 1, 3, 4};
+
+        final int[] counts = new int[five.length];
+        for (long alertId = 0; alertId < ALERTS; alertId++) {
+            final int before = owner(alertId, five, null);
+            final int after = fourToFive[owner(alertId, four, null)];
+            counts[before]++;
+            if (before != 2) {
+                assertEquals(after, before, "Alert moved: " + alertId);
+            }
+        }
+        for (int count : counts) {
+            assertTrue(Math.abs(count - ALERTS / 5) < ALERTS / 20, "Unbalanced: " + count);
+        }
+    }
+
+    @Test
+    public void testWeights() {
+        final long[] keys = RendezvousPartitioner.nodeKeys("mirror-", 2);
+        final double[] weights = {3.0, 1.0};
+        int first = 0;
+        for (long alertId = 0; alertId < ALERTS; alertId++) {
+            if (owner(alertId, keys, weights) == 0) {
+                first++;
+            }
+        }
+        assertTrue(Math.abs(first - ALERTS * 3 / 4) < ALERTS / 20, "Share: " + first);
+    }
+}
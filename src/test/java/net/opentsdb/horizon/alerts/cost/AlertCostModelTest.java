@@ -0,0 +1,77 @@
+/*
+ * This file is part of OpenTSDB.
+ * Copyright (C) 2021 Yahoo.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package net.opentsdb.horizon.alerts.cost;
+
+import org.testng.annotations.Test;
+
+import java.io.File;
+import java.nio.file.Files;
+import java.util.Collections;
+
+import static org.testng.Assert.assertEquals;
+
+public class AlertCostModelTest {
+
+    @Test
+    public void testSmoothsRunsAndFallsBack() {
+        final AlertCostModel model = new AlertCostModel(null);
+        assertEquals(model.estimate(1, 5), 5.0);
+        assertEquals(model.meanEstimate(), 1.0);
+
+        model.recordRun(1, 100);
+        model.recordRun(1, 200);
+
+        assertEquals(model.estimate(1, 5), 100 + AlertCostModel.ALPHA * 100, 1e-9);
+        model.recordTsdbQuery(2, 30);
+        assertEquals(model.estimate(2, 5), 5.0);
+    }
+
+    @Test
+    public void testRecordsNothingWhenDisabled() {
+        final AlertCostModel model = new AlertCostModel(null, false);
+        model.recordTsdbQuery(1, 30);
+        model.recordStateSize(1, 4);
+        model.recordRun(1, 100);
+
+        assertEquals(model.estimate(1, 5), 5.0);
+        assertEquals(model.toJson().path("alerts").size(), 0);
+    }
+
+    @Test
+    public void testSurvivesRestart() throws Exception {
+        final File file = new File(Files.createTempDirectory("cost").toFile(), "model.json");
+
+        final AlertCostModel model = new AlertCostModel(file);
+        model.recordTsdbQuery(7, 40);
+        model.recordResponseBytes(7, 1024);
+        model.recordSeriesEvaluated(7, 12);
+        model.recordStateSize(7, 12);
+        model.recordRun(7, 50);
+        model.recordTsdbQuery(8, 40);
+        model.save();
+
+        final AlertCostModel restarted = new AlertCostModel(file);
+        restarted.load();
+        assertEquals(restarted.estimate(7, 0), 50.0);
+        assertEquals(restarted.estimate(8, 0), 0.0);
+        assertEquals(restarted.toJson().path("alerts").path("7").path("responseBytes").asDouble(), 1024.0);
+
+        restarted.retain(Collections.emptyMap());
+        assertEquals(restarted.estimate(7, 0), 0.0);
+    }
+}
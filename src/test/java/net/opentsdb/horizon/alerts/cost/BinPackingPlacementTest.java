@@ -0,0 +1,95 @@
+/*
+ * This file is part of OpenTSDB.
+ * Copyright (C) 2021 Yahoo.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package net.opentsdb.horizon.alerts.cost;
+
+import org.testng.annotations.Test;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertNotEquals;
+import static org.testng.Assert.assertTrue;
+
+public class BinPackingPlacementTest {
+
+    @Test
+    public void testPacksLargestFirst() {
+        final Map<Long, Double> costs = new HashMap<>();
+        costs.put(1L, 100.0);
+        costs.put(2L, 60.0);
+        costs.put(3L, 40.0);
+        costs.put(4L, 1.0);
+
+        final BinPackingPlacement placement = new BinPackingPlacement(2, 0.2, 1000);
+        placement.place(1, costs.keySet(), costs::get, 0);
+
+        assertEquals(placement.binOf(1), 0);
+        assertEquals(placement.binOf(2), 1);
+        assertEquals(placement.binOf(3), 1);
+        assertEquals(placement.binOf(4), 0);
+        assertEquals(placement.binOf(5), -1);
+    }
+
+    @Test
+    public void testNewAlertsDoNotMoveOthers() {
+        final Map<Long, Double> costs = new HashMap<>();
+        costs.put(1L, 10.0);
+        costs.put(2L, 10.0);
+
+        final BinPackingPlacement placement = new BinPackingPlacement(2, 0.2, 1000);
+        placement.place(1, costs.keySet(), costs::get, 0);
+        final int first = placement.binOf(1);
+        final long epoch = placement.getEpoch();
+
+        costs.put(3L, 50.0);
+        costs.put(1L, 500.0);
+        placement.place(2, costs.keySet(), costs::get, 10);
+
+        assertEquals(placement.binOf(1), first);
+        assertNotEquals(placement.binOf(3), -1);
+        assertTrue(placement.getEpoch() > epoch);
+    }
+
+    @Test
+    public void testRebalancesWhenDue() {
+        final Map<Long, Double> costs = new HashMap<>();
+        final List<Long> ids = Arrays.asList(1L, 2L, 3L, 4L);
+        ids.forEach(id -> costs.put(id, 10.0));
+
+        final BinPackingPlacement placement = new BinPackingPlacement(2, 0.2, 1000);
+        placement.place(1, ids, costs::get, 0);
+        final int bin = placement.binOf(1);
+        ids.stream()
+                .filter(id -> placement.binOf(id) == bin)
+                .forEach(id -> costs.put(id, 100.0));
+
+        assertTrue(!placement.isStale(1, 999));
+        placement.place(1, ids, costs::get, 999);
+        assertEquals(placement.binOf(1), bin);
+
+        assertTrue(placement.isStale(1, 1000));
+        placement.place(1, ids, costs::get, 1000);
+        double[] loads = new double[2];
+        ids.forEach(id -> loads[placement.binOf(id)] += costs.get(id));
+        assertEquals(loads[0], 110.0);
+        assertEquals(loads[1], 110.0);
+    }
+}
@@ -0,0 +1,284 @@
+/*
+ * This file is part of OpenTSDB.
+ * Copyright (C) 2021 Yahoo.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package net.opentsdb.horizon.alerts.http;
+
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import net.opentsdb.horizon.alerts.model.tsdb.Datum;
+import net.opentsdb.horizon.alerts.model.tsdb.IMetric;
+import net.opentsdb.horizon.alerts.model.tsdb.Metric;
+import net.opentsdb.horizon.alerts.model.tsdb.Tags;
+import net.opentsdb.horizon.alerts.model.tsdb.YmsStatusEvent;
+import org.testng.annotations.Test;
+
+import java.io.BufferedReader;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.zip.GZIPInputStream;
+
+import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertFalse;
+import static org.testng.Assert.assertNull;
+
+public class BatchedCollectorWriterClientTest {
+
+    private static final ObjectMapper MAPPER = new ObjectMapper();
+
+    @Test
+    public void testWriteEventMatchesLegacyShape() throws Exception {
+
+        final Map<String, String> dimensions = new HashMap<>();
+        dimensions.put("host", "localhost");
+        final Map<String, IMetric> metrics = new HashMap<>();
+        metrics.put("status_code", new Metric(2));
+
+        final Datum datum = Datum.newBuilder()
+                .withCluster("NS")
+                .withApplication("app")
+                .withTimestamp(1000L)
+                .withTags(new Tags(dimensions))
+                .withMetrics(metrics)
+                .withStatus_msg("broken")
+                .build();
+        final YmsStatusEvent event = new YmsStatusEvent();
+        event.setData(datum);
+
+        final ByteArrayOutputStream out = new ByteArrayOutputStream();
+        try (JsonGenerator generator = new JsonFactory().createGenerator(out)) {
+            BatchedCollectorWriterClient.writeEvent(generator, event);
+        }
+
+        final String line = new String(out.toByteArray(), StandardCharsets.UTF_8);
+        assertFalse(line.contains("\n"));
+
+        final JsonNode node = new ObjectMapper().readTree(line);
+        assertEquals(node.get("application").asText(), "app");
+        assertEquals(node.get("timestamp").asLong(), 1000L);
+        assertEquals(node.get("dimensions").get("host").asText(), "localhost");
+        assertEquals(node.get("metrics").get("status_code").asText(), "2.0");
+        assertEquals(node.get("status_msg").asText(), "broken");
+    }
+
+    @Test
+    public void testDropPolicyFromString() {
+        assertEquals(BatchedCollectorWriterClient.DropPolicy.fromString("drop_oldest"),
+                BatchedCollectorWriterClient.DropPolicy.DROP_OLDEST);
+        assertEquals(BatchedCollectorWriterClient.DropPolicy.fromString("unknown"),
+                BatchedCollectorWriterClient.DropPolicy.DROP_NEWEST);
+    }
+
+    @Test
+    public void testDropNewestKeepsQueuedEvents() throws Exception {
+        final RecordingClient client = new RecordingClient(1, 1, false,
+                BatchedCollectorWriterClient.DropPolicy.DROP_NEWEST);
+
+        client.sendStatusEvent(event("NS", "a"));
+        client.sendStatusEvent(event("NS", "b"));
+        assertEquals(client.drops.poll(), "queue_full:1");
+
+        client.drain();
+        assertEquals(applications(client.nextPost(), false), Collections.singletonList("a"));
+        assertNull(client.posts.poll(100, TimeUnit.MILLISECONDS));
+    }
+
+    @Test
+    public void testDropOldestKeepsNewEvents() throws Exception {
+        final RecordingClient client = new RecordingClient(1, 1, false,
+                BatchedCollectorWriterClient.DropPolicy.DROP_OLDEST);
+
+        client.sendStatusEvent(event("NS", "a"));
+        client.sendStatusEvent(event("NS", "b"));
+        assertEquals(client.drops.poll(), "evicted:1");
+
+        client.drain();
+        assertEquals(applications(client.nextPost(), false), Collections.singletonList("b"));
+        assertNull(client.posts.poll(100, TimeUnit.MILLISECONDS));
+    }
+
+    @Test
+    public void testFlushesOnBatchSize() throws Exception {
+        final RecordingClient client = new RecordingClient(2, 10, false,
+                BatchedCollectorWriterClient.DropPolicy.DROP_NEWEST);
+
+        client.sendStatusEvent(event("NS", "a"));
+        client.sendStatusEvent(event("NS", "b"));
+        client.sendStatusEvent(event("NS", "c"));
+        client.drain();
+
+        assertEquals(applications(client.nextPost(), false), Arrays.asList("a", "b"));
+        assertNull(client.posts.poll(100, TimeUnit.MILLISECONDS));
+    }
+
+    @Test
+    public void testFlushesOnInterval() throws Exception {
+        final RecordingClient client = new RecordingClient(10, 10, false,
+                BatchedCollectorWriterClient.DropPolicy.DROP_NEWEST);
+
+        client.sendStatusEvent(event("NS", "a"));
+        client.sendStatusEvent(event("NS2", "b"));
+        client.drain();
+        assertNull(client.posts.poll(100, TimeUnit.MILLISECONDS));
+
+        client.now = 1001;
+        client.drain();
+        final List<String> posted = new ArrayList<>();
+        posted.addAll(applications(client.nextPost(), false));
+        posted.addAll(applications(client.nextPost(), false));
+        Collections.sort(posted);
+        assertEquals(posted, Arrays.asList("a", "b"));
+    }
+
+    @Test
+    public void testGzipBody() throws Exception {
+        final RecordingClient client = new RecordingClient(2, 10, true,
+                BatchedCollectorWriterClient.DropPolicy.DROP_NEWEST);
+
+        client.sendStatusEvent(event("NS", "a"));
+        client.sendStatusEvent(event("NS", "b"));
+        client.drain();
+
+        assertEquals(applications(client.nextPost(), true), Arrays.asList("a", "b"));
+    }
+
+    @Test
+    public void testEncodingFailureResetsBatch() throws Exception {
+        final RecordingClient client = new RecordingClient(10, 10, false,
+                BatchedCollectorWriterClient.DropPolicy.DROP_NEWEST);
+
+        final Datum broken = Datum.newBuilder()
+                .withCluster("NS")
+                .withApplication("broken")
+                .withMetrics(Collections.singletonMap("status_code", null))
+                .build();
+        final YmsStatusEvent brokenEvent = new YmsStatusEvent();
+        brokenEvent.setData(broken);
+
+        client.sendStatusEvent(event("NS", "a"));
+        client.sendStatusEvent(brokenEvent);
+        client.sendStatusEvent(event("NS", "c"));
+        client.drain();
+        assertEquals(client.drops.poll(), "encoding:2");
+
+        client.now = 1001;
+        client.drain();
+        assertEquals(applications(client.nextPost(), false), Collections.singletonList("c"));
+    }
+
+    @Test
+    public void testFailedPostsAreDropped() throws Exception {
+        final RecordingClient client = new RecordingClient(2, 10, false,
+                BatchedCollectorWriterClient.DropPolicy.DROP_NEWEST);
+        client.accept = false;
+
+        client.sendStatusEvent(event("NS", "a"));
+        client.sendStatusEvent(event("NS", "b"));
+        client.drain();
+
+        client.nextPost();
+        assertEquals(client.drops.poll(5, TimeUnit.SECONDS), "post_failed:2");
+    }
+
+    private static YmsStatusEvent event(final String namespace, final String application) {
+        final YmsStatusEvent event = new YmsStatusEvent();
+        event.setData(Datum.newBuilder()
+                .withCluster(namespace)
+                .withApplication(application)
+                .withTimestamp(1000L)
+                .build());
+        return event;
+    }
+
+    private static List<String> applications(final byte[] body, final boolean gzip)
+            throws IOException {
+        InputStream in = new ByteArrayInputStream(body);
+        if (gzip) {
+            in = new GZIPInputStream(in);
+        }
+        final List<String> applications = new ArrayList<>();
+        try (BufferedReader reader = new BufferedReader(
+                new InputStreamReader(in, StandardCharsets.UTF_8))) {
+            String line;
+            while ((line = reader.readLine()) != null) {
+                applications.add(MAPPER.readTree(line).get("application").asText());
+            }
+        }
+        return applications;
+    }
+
+    /**
+     * Records posts and drops instead of sending them, on a clock the test
+     * moves.
+     */
+    private static final class RecordingClient extends BatchedCollectorWriterClient {
+
+        private final BlockingQueue<byte[]> posts = new LinkedBlockingQueue<>();
+
+        private final BlockingQueue<String> drops = new LinkedBlockingQueue<>();
+
+        private volatile long now;
+
+        private volatile boolean accept = true;
+
+        RecordingClient(final int sizeToFlush,
+                        final int queueSize,
+                        final boolean gzip,
+                        final DropPolicy dropPolicy) {
+            super("localhost:4080", "test", sizeToFlush, 1, 60_000, queueSize, 1,
+                    gzip, dropPolicy, 0);
+        }
+
+        @Override
+        boolean post(final String namespace, final PooledBuffer buffer) {
+            posts.add(Arrays.copyOf(buffer.array(), buffer.size()));
+            return accept;
+        }
+
+        @Override
+        void reportDropped(final String namespace, final String reason, final int count) {
+            drops.add(reason + ":" + count);
+        }
+
+        @Override
+        long currentTimeMillis() {
+            return now;
+        }
+
+        byte[] nextPost() throws InterruptedException {
+            final byte[] body = posts.poll(5, TimeUnit.SECONDS);
+            if (body == null) {
+                throw new AssertionError("Nothing was posted");
+            }
+            return body;
+        }
+    }
+}
@@ -0,0 +1,77 @@
+/*
+ * This file is part of OpenTSDB.
+ * Copyright (C) 2021 Yahoo.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package net.opentsdb.horizon.alerts.kafka;
+
+import net.opentsdb.horizon.alerts.EnvironmentConfig;
+import org.apache.kafka.clients.producer.ProducerConfig;
+import org.apache.kafka.common.Cluster;
+import org.apache.kafka.common.Node;
+import org.apache.kafka.common.PartitionInfo;
+import org.testng.annotations.Test;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+import static org.testng.Assert.assertEquals;
+
+public class KafkaClientHashPartitionerTest {
+
+    private static final String TOPIC = "alerts";
+
+    private static Cluster cluster(int numOfPartitions) {
+        final Node node = new Node(0, "localhost", 9092);
+        final List<PartitionInfo> partitions = new ArrayList<>();
+        for (int i = 0; i < numOfPartitions; i++) {
+            partitions.add(new PartitionInfo(TOPIC, i, node,
+                    new Node[] {node}, new Node[] {node}));
+        }
+        return new Cluster("cluster", Collections.singletonList(node), partitions,
+                Collections.emptySet(), Collections.emptySet());
+    }
+
+    @Test
+    public void testSamePartitionAsLegacyPartitioner() {
+        final KafkaHashBasedPartitioner legacy = new KafkaHashBasedPartitioner(null);
+        final KafkaClientHashPartitioner client = new KafkaClientHashPartitioner();
+        for (int numOfPartitions : new int[] {1, 7, 32}) {
+            final Cluster cluster = cluster(numOfPartitions);
+            for (long hash : new long[] {0L, 17L, -17L, Long.MAX_VALUE, Long.MIN_VALUE, -5_831_002_212L}) {
+                final byte[] key = KafkaHashBasedPartitioner.toBinaryKey(hash);
+                final int expected = legacy.partition(String.valueOf(hash), numOfPartitions);
+                assertEquals(client.partition(TOPIC, key, key, null, null, cluster), expected);
+                assertEquals(legacy.partition(key, numOfPartitions), expected);
+            }
+        }
+    }
+
+    @Test
+    public void testKeysWhichAreNotHashesGoToTheFirstPartition() {
+        final KafkaClientHashPartitioner client = new KafkaClientHashPartitioner();
+        final Cluster cluster = cluster(8);
+        assertEquals(client.partition(TOPIC, null, null, null, null, cluster), 0);
+        assertEquals(client.partition(TOPIC, "k", new byte[] {1, 2, 3}, null, null, cluster), 0);
+    }
+
+    @Test
+    public void testClientProducerUsesThePartitioner() {
+        assertEquals(KafkaClientProducer.getKafkaProps(new EnvironmentConfig())
+                        .get(ProducerConfig.PARTITIONER_CLASS_CONFIG),
+                KafkaClientHashPartitioner.class.getName());
+    }
+}
@@ -0,0 +1,42 @@
+/*
+ * This file is part of OpenTSDB.
+ * Copyright (C) 2021 Yahoo.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package net.opentsdb.horizon.alerts.kafka;
+
+import org.testng.annotations.Test;
+
+import static org.testng.Assert.assertEquals;
+
+public class KafkaHashBasedPartitionerTest {
+
+    @Test
+    public void testBinaryKeyRoundTrip() {
+        for (long hash : new long[] {0L, 1L, -1L, 42L, Long.MAX_VALUE, Long.MIN_VALUE, -7262839423L}) {
+            assertEquals(KafkaHashBasedPartitioner.fromBinaryKey(
+                    KafkaHashBasedPartitioner.toBinaryKey(hash)), hash);
+        }
+    }
+
+    @Test
+    public void testBinaryAndStringKeysShareAPartition() {
+        final KafkaHashBasedPartitioner partitioner = new KafkaHashBasedPartitioner(null);
+        for (long hash : new long[] {0L, 17L, -17L, 9_223_372_036_854_775_807L, -5_831_002_212L}) {
+            assertEquals(partitioner.partition(KafkaHashBasedPartitioner.toBinaryKey(hash), 32),
+                    partitioner.partition(String.valueOf(hash), 32));
+        }
+    }
+}
@@ -0,0 +1,89 @@
+/*
+ * This file is part of OpenTSDB.
+ * Copyright (C) 2021 Yahoo.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package net.opentsdb.horizon.alerts.logging;
+
+import org.slf4j.LoggerFactory;
+import org.testng.annotations.Test;
+
+import java.util.Collections;
+import java.util.concurrent.TimeUnit;
+
+import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertFalse;
+import static org.testng.Assert.assertTrue;
+
+public class SampledLoggerTest {
+
+    private static SampledLogger logger(final double sampleRatio, final int linesPerWindow) {
+        return new SampledLogger(LoggerFactory.getLogger(SampledLoggerTest.class),
+                new SampledLogger.Settings(sampleRatio, linesPerWindow, 3600,
+                        Collections.singleton(7L), 8));
+    }
+
+    @Test
+    public void testRateLimitPerAlert() {
+        final SampledLogger logger = logger(1.0, 2);
+
+        assertEquals(logger.acquire(1), 0);
+        assertEquals(logger.acquire(1), 0);
+        assertEquals(logger.acquire(1), -1);
+        assertEquals(logger.acquire(1), -1);
+        assertEquals(logger.acquire(2), 0);
+    }
+
+    @Test
+    public void testIdleWindowsExpire() {
+        final SampledLogger logger = logger(1.0, 1);
+        final long window = TimeUnit.SECONDS.toNanos(3600);
+        final long start = System.nanoTime();
+
+        assertEquals(logger.acquire(1, start), 0);
+        assertEquals(logger.acquire(2, start), 0);
+        assertEquals(logger.acquire(2, start + window), 0);
+        assertEquals(logger.windowCount(), 2);
+
+        assertEquals(logger.acquire(2, start + 2 * window), 0);
+        assertEquals(logger.windowCount(), 1);
+        assertEquals(logger.acquire(2, start + 2 * window), -1);
+    }
+
+    @Test
+    public void testSampleIsStablePerAlert() {
+        final SampledLogger none = logger(0.0, 0);
+        final SampledLogger half = logger(0.5, 0);
+
+        int sampled = 0;
+        for (long id = 0; id < 1000; id++) {
+            assertEquals(none.acquire(id), -1);
+            if (half.acquire(id) == 0) {
+                sampled++;
+                assertEquals(half.acquire(id), 0);
+            }
+        }
+        assertTrue(sampled > 400 && sampled < 600, "sampled: " + sampled);
+    }
+
+    @Test
+    public void testPayloadOptIn() {
+        final SampledLogger logger = logger(1.0, 0);
+        assertFalse(logger.isPayloadEnabled(1));
+        assertEquals(SampledLogger.truncate("0123456789", 8), "01234567... (2 more chars)");
+        assertEquals(SampledLogger.truncate("0123", 8), "0123");
+        assertEquals(SampledLogger.truncate(null, 8), "null");
+    }
+}
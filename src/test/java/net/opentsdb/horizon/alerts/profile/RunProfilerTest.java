@@ -0,0 +1,112 @@
+/*
+ * This file is part of OpenTSDB.
+ * Copyright (C) 2021 Yahoo.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package net.opentsdb.horizon.alerts.profile;
+
+import org.testng.annotations.Test;
+
+import java.util.List;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertNull;
+import static org.testng.Assert.assertTrue;
+
+public class RunProfilerTest {
+
+    @Test
+    public void testAttributesTimeAndAllocationToInnermostPhase() throws Exception {
+        final AtomicLong allocated = new AtomicLong();
+        final RunProfiler profiler = new RunProfiler(5, 60_000, allocated::get);
+
+        profiler.begin(1, "NS");
+        allocated.addAndGet(100);
+        final Phase evaluate = RunProfiler.enter(Phase.QUERY);
+        Thread.sleep(20);
+        allocated.addAndGet(1000);
+        RunProfiler.addBytes(Phase.QUERY, 4096);
+        final Phase query = RunProfiler.enter(Phase.PARSE);
+        allocated.addAndGet(10);
+        RunProfiler.exit(query);
+        RunProfiler.exit(evaluate);
+        final RunProfile profile = profiler.end();
+
+        assertEquals(evaluate, Phase.EVALUATE);
+        assertEquals(query, Phase.QUERY);
+        assertTrue(profile.getNanos(Phase.QUERY) >= 20_000_000L);
+        assertEquals(profile.getAllocatedBytes(Phase.EVALUATE), 100);
+        assertEquals(profile.getAllocatedBytes(Phase.QUERY), 1000);
+        assertEquals(profile.getAllocatedBytes(Phase.PARSE), 10);
+        assertEquals(profile.getTotalAllocatedBytes(), 1110);
+        assertEquals(profile.getBytes(Phase.QUERY), 4096);
+
+        long sum = 0;
+        for (Phase phase : Phase.values()) {
+            sum += profile.getNanos(phase);
+        }
+        assertEquals(sum, profile.getTotalNanos());
+    }
+
+    @Test
+    public void testNoOpOutsideOfRun() {
+        final RunProfiler profiler = new RunProfiler(5, 60_000, () -> 0);
+
+        assertNull(RunProfiler.enter(Phase.QUERY));
+        RunProfiler.exit(null);
+        RunProfiler.addBytes(Phase.QUERY, 10);
+        assertNull(profiler.end());
+
+        final RunProfiler disabled = new RunProfiler(0, 60_000, () -> 0);
+        disabled.begin(1, "NS");
+        assertNull(RunProfiler.enter(Phase.QUERY));
+        assertNull(disabled.end());
+    }
+
+    @Test
+    public void testKeepsSlowestRunPerAlert() throws Exception {
+        final RunProfiler profiler = new RunProfiler(2, 60_000, () -> 0);
+        final long now = System.currentTimeMillis();
+
+        final RunProfile slow = run(profiler, 1, 30);
+        run(profiler, 1, 0);
+        final RunProfile medium = run(profiler, 2, 15);
+        run(profiler, 3, 0);
+
+        final List<RunProfile> slowest = profiler.slowest(now);
+        assertEquals(slowest.size(), 2);
+        assertTrue(slowest.get(0) == slow);
+        assertTrue(slowest.get(1) == medium);
+    }
+
+    @Test
+    public void testRollsWindows() throws Exception {
+        final RunProfiler profiler = new RunProfiler(2, 1000, () -> 0);
+        final long now = System.currentTimeMillis();
+        run(profiler, 1, 0);
+
+        assertEquals(profiler.slowest(now + 1500).size(), 1);
+        assertEquals(profiler.slowest(now + 2600).size(), 0);
+    }
+
+    private static RunProfile run(final RunProfiler profiler,
+                                  final long alertId,
+                                  final long sleepMs) throws InterruptedException {
+        profiler.begin(alertId, "NS");
+        Thread.sleep(sleepMs);
+        return profiler.end();
+    }
+}
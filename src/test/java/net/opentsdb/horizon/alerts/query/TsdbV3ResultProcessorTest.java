@@ -20,19 +20,30 @@ package net.opentsdb.horizon.alerts.query;
 import com.fasterxml.jackson.databind.JsonNode;
 import it.unimi.dsi.fastutil.longs.Long2BooleanMap;
 import net.opentsdb.horizon.alerts.AlertException;
+import net.opentsdb.horizon.alerts.AlertUtils;
 import net.opentsdb.horizon.alerts.config.AlertConfigFields;
 import net.opentsdb.horizon.alerts.config.SuppressMetricConfig;
 import net.opentsdb.horizon.alerts.config.impl.MetricAlertConfig;
 import net.opentsdb.horizon.alerts.core.TestUtil;
+import net.opentsdb.horizon.alerts.enums.AlertState;
+import net.opentsdb.horizon.alerts.enums.ComparatorType;
+import net.opentsdb.horizon.alerts.model.AlertEvent;
+import net.opentsdb.horizon.alerts.model.AlertEventBag;
+import net.opentsdb.horizon.alerts.model.SingleMetricAlertEvent;
 import net.opentsdb.horizon.alerts.query.tsdb.TsdbV3ResultProcessor;
 import org.testng.annotations.Test;
 
 import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.TreeMap;
 
 import static net.opentsdb.horizon.alerts.query.QueryConstants.HEARTBEAT_THRESHOLD_NODE;
 import static net.opentsdb.horizon.alerts.AlertUtils.parseJsonTree;
 import static org.testng.Assert.assertEquals;
 import static org.testng.Assert.assertFalse;
+import static org.testng.Assert.assertTrue;
 
 public class TsdbV3ResultProcessorTest {
 
@@ -109,4 +120,109 @@ public class TsdbV3ResultProcessorTest {
         assertEquals(count, 3);
     }
 
+    @Test
+    public void testUpdateWithValues_hashCollision() {
+        MetricAlertConfig alertConfig = TestUtil.getMetricAlertConfig("src/test/resources/data/heartbeat/heartbeat.json");
+        // Tags are hashed without separators, so both series share a hash.
+        SingleMetricAlertEvent first = event(alertConfig, tags("ab", "c"));
+        SingleMetricAlertEvent second = event(alertConfig, tags("a", "bc"));
+        assertEquals(first.getAlertHash(), second.getAlertHash());
+
+        String response = response("q1_m1_groupby:q1_m1",
+                series("[1,2,3,4]", "{\"ab\":\"c\"}"),
+                series("[5,6,7,8]", "{\"a\":\"bc\"}"));
+        TsdbV3ResultProcessor.updateWithValues(response, alertConfig,
+                "q1_m1_groupby", "q1_m1", bag(alertConfig, first, second));
+
+        assertEquals(first.getValuesInWindow(), new double[]{1, 2, 3, 4});
+        assertEquals(second.getValuesInWindow(), new double[]{5, 6, 7, 8});
+    }
+
+    @Test
+    public void testUpdateWithValues_tagMismatch() {
+        MetricAlertConfig alertConfig = TestUtil.getMetricAlertConfig("src/test/resources/data/heartbeat/heartbeat.json");
+        SingleMetricAlertEvent event = event(alertConfig, tags("host", "a"));
+        // Same hash as the series below, different tags.
+        event.setAlertHash(AlertUtils.getHashForNAMT(alertConfig.getNamespace(),
+                alertConfig.getAlertId(), tags("host", "b")));
+
+        String response = response("q1_m1_groupby:q1_m1",
+                series("[1,2,3,4]", "{\"host\":\"b\"}"));
+        TsdbV3ResultProcessor.updateWithValues(response, alertConfig,
+                "q1_m1_groupby", "q1_m1", bag(alertConfig, event));
+
+        assertEquals(event.getValuesInWindow().length, 0);
+    }
+
+    @Test
+    public void testUpdateWithValues_stopsAfterLastMatch() {
+        MetricAlertConfig alertConfig = TestUtil.getMetricAlertConfig("src/test/resources/data/heartbeat/heartbeat.json");
+        SingleMetricAlertEvent event = event(alertConfig, tags("host", "a"));
+
+        // The series without tags would fail to parse if it was read.
+        String response = response("q1_m1_groupby:q1_m1",
+                series("[1,2,3,4]", "{\"host\":\"a\"}"),
+                "{\"NumericType\":[5,6,7,8]}");
+        TsdbV3ResultProcessor.updateWithValues(response, alertConfig,
+                "q1_m1_groupby", "q1_m1", bag(alertConfig, event));
+
+        assertEquals(event.getValuesInWindow(), new double[]{1, 2, 3, 4});
+    }
+
+    @Test
+    public void testUpdateWithValues_combinedResponse() {
+        MetricAlertConfig alertConfig = TestUtil.getMetricAlertConfig("src/test/resources/data/heartbeat/heartbeat.json");
+        SingleMetricAlertEvent event = event(alertConfig, tags("host", "a"));
+
+        // The evaluation query returns the summaries and, with combined
+        // notification values, the raw values of the metric next to them.
+        String response = "{\"results\":["
+                + result("summarizedq1_m1_groupby:q1_m1", series("[10]", "{\"host\":\"a\"}"))
+                + "," + result("q1_m1_groupby:q1_m1", series("[1,2,3,4]", "{\"host\":\"a\"}"))
+                + "]}";
+        TsdbV3ResultProcessor.updateWithValues(response, alertConfig,
+                "q1_m1_groupby", "q1_m1", bag(alertConfig, event));
+
+        assertEquals(event.getValuesInWindow(), new double[]{1, 2, 3, 4});
+        assertEquals(event.getTimestamps().length, 4);
+        assertTrue(event.getAdditionalProperties().size() > 0);
+    }
+
+    private static TreeMap<String, String> tags(String key, String value) {
+        TreeMap<String, String> tags = new TreeMap<>();
+        tags.put(key, value);
+        return tags;
+    }
+
+    private static SingleMetricAlertEvent event(MetricAlertConfig alertConfig, TreeMap<String, String> tags) {
+        SingleMetricAlertEvent event = new SingleMetricAlertEvent();
+        event.setNamespace(alertConfig.getNamespace());
+        event.setAlertId(alertConfig.getAlertId());
+        event.setTags(tags);
+        event.setAlertHash(AlertUtils.getHashForNAMT(alertConfig.getNamespace(), alertConfig.getAlertId(), tags));
+        event.setCurrentSignal(AlertState.BAD);
+        event.setComparator(ComparatorType.GREATER_THAN);
+        event.setThreshold(0);
+        return event;
+    }
+
+    private static AlertEventBag bag(MetricAlertConfig alertConfig, AlertEvent... events) {
+        List<AlertEvent> list = new ArrayList<>(Arrays.asList(events));
+        return new AlertEventBag(list, alertConfig);
+    }
+
+    private static String series(String values, String tags) {
+        return "{\"NumericType\":" + values + ",\"tags\":" + tags + "}";
+    }
+
+    private static String result(String source, String... series) {
+        return "{\"source\":\"" + source + "\","
+                + "\"timeSpecification\":{\"start\":1620855120,\"end\":1620855360,\"interval\":\"1m\"},"
+                + "\"data\":[" + String.join(",", series) + "]}";
+    }
+
+    private static String response(String source, String... series) {
+        return "{\"results\":[" + result(source, series) + "]}";
+    }
+
 }
@@ -0,0 +1,94 @@
+/*
+ * This file is part of OpenTSDB.
+ * Copyright (C) 2021 Yahoo.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package net.opentsdb.horizon.alerts.query.auradb;
+
+import net.opentsdb.horizon.alerts.AlertUtils;
+import net.opentsdb.horizon.alerts.enums.AlertState;
+import org.testng.annotations.Test;
+
+import java.util.TreeMap;
+
+import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertFalse;
+import static org.testng.Assert.assertNotSame;
+import static org.testng.Assert.assertNull;
+import static org.testng.Assert.assertTrue;
+
+public class AuraDBStatusReaderTest {
+
+    private static final String RESPONSE = "{\"results\":[{\"source\":\"s\",\"data\":["
+            + "{\"statusType\":0,\"message\":\"down\",\"application\":\"app\","
+            + "\"tags\":{\"zone\":\"z1\",\"host\":\"h1\"},\"ignored\":{\"a\":[1,2]},"
+            + "\"statusCodeArray\":[0,1,1],\"timestampArray\":[10,20,30]},"
+            + "{\"statusType\":1,\"message\":null,\"tags\":{},"
+            + "\"statusCodeArray\":[2],\"timestampArray\":[1,2]}"
+            + "]},{\"data\":[{\"statusType\":0}]}]}";
+
+    @Test
+    public void testReadStatuses() throws Exception {
+        final AuraDBStatus status = new AuraDBStatus();
+        try (AuraDBStatusReader reader = new AuraDBStatusReader(RESPONSE)) {
+
+            assertTrue(reader.next(status));
+            assertEquals(status.statusType, 0);
+            assertEquals(status.message, "down");
+            assertEquals(status.application, "app");
+            assertEquals(status.tagCount(), 2);
+            assertEquals(status.historyLength(), 3);
+            assertEquals(status.states()[2], AlertState.BAD);
+            assertEquals(status.lastSeen(), 30L);
+
+            assertTrue(reader.next(status));
+            assertEquals(status.statusType, 1);
+            assertNull(status.message);
+            assertEquals(status.historyLength(), -1);
+
+            // Only the first result is read.
+            assertFalse(reader.next(status));
+            assertFalse(reader.next(status));
+        }
+    }
+
+    @Test
+    public void testEmptyResponse() throws Exception {
+        final AuraDBStatus status = new AuraDBStatus();
+        try (AuraDBStatusReader reader = new AuraDBStatusReader("{\"results\":[{}]}")) {
+            assertFalse(reader.next(status));
+        }
+    }
+
+    @Test
+    public void testHashMatchesTagMap() {
+        final AuraDBStatus status = new AuraDBStatus();
+        status.reset();
+        status.putTag("zone", "z1");
+        status.putTag("host", "h1");
+        status.putTag("host", "h2");
+        status.putTagIfAbsent("_namespace", "NS");
+        status.putTagIfAbsent("host", "ignored");
+
+        final TreeMap<String, String> tags = new TreeMap<>();
+        tags.put("zone", "z1");
+        tags.put("host", "h2");
+        tags.put("_namespace", "NS");
+
+        assertEquals(status.get(), tags);
+        assertNotSame(status.get(), status.get());
+        assertEquals(status.hash("ns", 42L), AlertUtils.getHashForNAMT("ns", 42L, tags));
+    }
+}
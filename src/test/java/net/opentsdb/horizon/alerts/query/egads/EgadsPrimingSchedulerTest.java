@@ -0,0 +1,115 @@
+/*
+ * This file is part of OpenTSDB.
+ * Copyright (C) 2021 Yahoo.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package net.opentsdb.horizon.alerts.query.egads;
+
+import java.util.concurrent.atomic.AtomicReference;
+
+import mockit.Expectations;
+import mockit.Injectable;
+import net.opentsdb.horizon.alerts.AlertException;
+import net.opentsdb.horizon.alerts.query.tsdb.TSDBClient;
+import org.testng.annotations.Test;
+
+import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertFalse;
+import static org.testng.Assert.assertTrue;
+
+public class EgadsPrimingSchedulerTest {
+
+    private static final long HOUR_SEC = 60L * 60L;
+
+    @Injectable
+    private TSDBClient tsdbClient;
+
+    @Test
+    void alignToPrimingSlot_SpreadsWithinInterval() {
+        final long now = 1_600_000_000L;
+        for (long alertId = 0; alertId < 100; alertId++) {
+            final long slot = PeriodOverPeriodProcessor.alignToPrimingSlot(now, alertId, 60L);
+            assertTrue(slot >= now && slot < now + HOUR_SEC);
+            // Stable within the interval, and already aligned slots stay.
+            assertEquals(PeriodOverPeriodProcessor.alignToPrimingSlot(slot, alertId, 60L), slot);
+            assertEquals(PeriodOverPeriodProcessor.alignToPrimingSlot(slot - HOUR_SEC + 1, alertId, 60L), slot);
+        }
+    }
+
+    @Test
+    void alignToPrimingSlot_AlignedToRunFrequency() {
+        final long[] frequencies = {30L, 60L, 300L};
+        for (long frequency : frequencies) {
+            // Evaluation end times are multiples of the run frequency.
+            final long now = 1_600_000_000L - 1_600_000_000L % frequency;
+            for (long alertId = 0; alertId < 100; alertId++) {
+                final long slot = PeriodOverPeriodProcessor.alignToPrimingSlot(now, alertId, frequency);
+                assertEquals(slot % frequency, 0L);
+                assertEquals(PeriodOverPeriodProcessor.alignToPrimingSlot(now + 7L, alertId, frequency) % frequency, 0L);
+            }
+        }
+    }
+
+    @Test
+    void schedule_Primed() throws AlertException {
+        new Expectations() {{
+            tsdbClient.getResponse("request", 1L);
+            result = "";
+        }};
+
+        final AtomicReference<Boolean> primed = new AtomicReference<>();
+        final EgadsPrimingScheduler scheduler = EgadsPrimingScheduler.direct();
+        assertTrue(scheduler.schedule(task((t, p) -> primed.set(p)), 10L));
+        assertTrue(primed.get());
+        assertEquals(scheduler.getPending(), 0);
+    }
+
+    @Test
+    void schedule_LockedCountsAsPrimed() throws AlertException {
+        new Expectations() {{
+            tsdbClient.getResponse("request", 1L);
+            result = new AlertException("Error running tsdb query: HTTP/1.1 423 Locked");
+        }};
+
+        final AtomicReference<Boolean> primed = new AtomicReference<>();
+        EgadsPrimingScheduler.direct().schedule(task((t, p) -> primed.set(p)), 0L);
+        assertTrue(primed.get());
+    }
+
+    @Test
+    void schedule_Failed() throws AlertException {
+        new Expectations() {{
+            tsdbClient.getResponse("request", 1L);
+            result = new AlertException("Error running tsdb query: HTTP/1.1 500");
+        }};
+
+        final AtomicReference<Boolean> primed = new AtomicReference<>();
+        EgadsPrimingScheduler.direct().schedule(task((t, p) -> primed.set(p)), 0L);
+        assertFalse(primed.get());
+    }
+
+    @Test
+    void schedule_RejectedWhenFull() {
+        final EgadsPrimingScheduler scheduler =
+                new EgadsPrimingScheduler(null, 0, 0L, 0);
+        assertFalse(scheduler.schedule(task((t, p) -> { }), 0L));
+        assertEquals(scheduler.getPending(), 0);
+    }
+
+    private EgadsPrimingScheduler.Task task(final EgadsPrimingScheduler.Callback callback) {
+        return new EgadsPrimingScheduler.Task(
+                "NS", 1L, "request", tsdbClient, 3600L, callback);
+    }
+}
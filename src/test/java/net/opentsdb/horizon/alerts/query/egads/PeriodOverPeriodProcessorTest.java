@@ -86,7 +86,8 @@ public class PeriodOverPeriodProcessorTest {
                         config,
                         tsdbClient,
                         statusWriter,
-                        collectorWriter
+                        collectorWriter,
+                        EgadsPrimingScheduler.direct()
                 );
         processor.prepAndValidate(config, stateStore);
 
@@ -130,7 +131,8 @@ public class PeriodOverPeriodProcessorTest {
                         config,
                         tsdbClient,
                         statusWriter,
-                        collectorWriter
+                        collectorWriter,
+                        EgadsPrimingScheduler.direct()
                 );
         processor.prepAndValidate(config, stateStore);
 
@@ -166,7 +168,8 @@ public class PeriodOverPeriodProcessorTest {
                         config,
                         tsdbClient,
                         statusWriter,
-                        collectorWriter
+                        collectorWriter,
+                        EgadsPrimingScheduler.direct()
                 );
         processor.prepAndValidate(config, stateStore);
         final long alertId = config.getAlertId();
@@ -21,6 +21,7 @@ import java.io.IOException;
 import java.util.Collections;
 import java.util.HashMap;
 import java.util.List;
+import java.util.Optional;
 import java.util.concurrent.TimeUnit;
 
 import net.opentsdb.horizon.alerts.config.AlertConfig;
@@ -33,9 +34,11 @@ import net.opentsdb.horizon.alerts.model.EventAlertEvent;
 import net.opentsdb.horizon.alerts.model.MonitorEvent;
 import net.opentsdb.horizon.alerts.query.tsdb.TSDBClient;
 import net.opentsdb.horizon.alerts.AlertException;
+import net.opentsdb.horizon.alerts.EnvironmentConfig;
 import net.opentsdb.horizon.alerts.AlertUtils;
 import net.opentsdb.horizon.alerts.snooze.SnoozeFilter;
 import net.opentsdb.horizon.alerts.state.AlertStateStore;
+import net.opentsdb.horizon.alerts.state.persistence.StateProviders;
 
 import it.unimi.dsi.fastutil.longs.LongIterator;
 import mockit.Expectations;
@@ -340,6 +343,54 @@ public class EventProcessorTest {
         }
     }
 
+    @Test
+    void executeKeepsStatesAcrossQueryChange() throws Exception {
+        class MockSnoozeFilter extends MockUp<SnoozeFilter> {
+            @Mock
+            public void $init() { }
+
+            @Mock
+            public boolean snooze(MonitorEvent e, AlertConfig alertConfig) {
+                return false;
+            }
+        }
+        new MockSnoozeFilter();
+
+        final EventAlertConfig config =
+                (EventAlertConfig) AlertUtils.loadConfig(resource("group-config"));
+        final EventAlertConfig changed =
+                (EventAlertConfig) AlertUtils.loadConfig(resource("group-config"));
+        changed.setMd5BaseQueryString(config.getMd5BaseQueryString() + "-changed");
+        final int migrationRuns = new EnvironmentConfig().getStateMigrationRuns();
+        final long endTimeSec = TimeUnit.DAYS.toSeconds(END_TIME_DAYS);
+
+        final AlertStateStore stateStore = config.createAlertStateStore();
+        StateProviders.initialize(alertConfig -> Optional.of(stateStore));
+        try {
+            final EventProcessor processor = new EventProcessor(config, tsdbClient);
+            processor.prepAndValidate(config);
+            new Expectations() {{
+                tsdbClient.getResponse(withAny(""), withAny(1L));
+                result = resource("group-response-2");
+            }};
+
+            AlertEventBag alertBag = processor.execute(endTimeSec, TimeUnit.SECONDS);
+            assertEquals(alertBag.getAlertEvents().size(), 2);
+            assertEquals(numberOfStates(stateStore), 2);
+
+            // The new query returns the same series: no new notifications,
+            // and their states outlive the migration runs.
+            processor.prepAndValidate(changed);
+            for (int run = 1; run <= migrationRuns + 1; run++) {
+                alertBag = processor.execute(endTimeSec + run * 60L, TimeUnit.SECONDS);
+                assertEquals(alertBag.getAlertEvents().size(), 0);
+                assertEquals(numberOfStates(stateStore), 2);
+            }
+        } finally {
+            StateProviders.initialize(null);
+        }
+    }
+
     private int numberOfStates(final AlertStateStore stateStore) {
         int count = 0;
         final LongIterator it = stateStore.getIteratorForStoredData();
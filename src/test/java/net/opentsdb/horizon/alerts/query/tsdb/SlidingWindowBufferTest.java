@@ -0,0 +1,104 @@
+/*
+ * This file is part of OpenTSDB.
+ * Copyright (C) 2021 Yahoo.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package net.opentsdb.horizon.alerts.query.tsdb;
+
+import net.opentsdb.horizon.alerts.enums.SummaryType;
+import org.testng.annotations.Test;
+
+import java.util.List;
+import java.util.TreeMap;
+
+import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertFalse;
+import static org.testng.Assert.assertTrue;
+
+public class SlidingWindowBufferTest {
+
+    private static final TreeMap<String, String> TAGS = new TreeMap<>();
+
+    static {
+        TAGS.put("host", "h1");
+    }
+
+    @Test
+    public void testSumAndAvg() {
+        final SlidingWindowBuffer buffer = new SlidingWindowBuffer(300, 60);
+        buffer.advance(600);
+        for (long t = 360; t <= 600; t += 60) {
+            buffer.put(1L, TAGS, t, 2d);
+        }
+        buffer.put(1L, TAGS, 300, 100d);
+        buffer.put(1L, TAGS, 660, 100d);
+
+        assertEquals(buffer.summary(1L, SummaryType.SUM), 10d);
+        assertEquals(buffer.summary(1L, SummaryType.AVG), 2d);
+
+        final List<TsdbV3ResultProcessor.SummaryValue> summaries = buffer.summaries(SummaryType.SUM);
+        assertEquals(summaries.size(), 1);
+        assertEquals(summaries.get(0).timestamp, 600L);
+        assertEquals(summaries.get(0).tsField, "300");
+        assertEquals(summaries.get(0).tagMap, TAGS);
+        assertEquals(summaries.get(0).values.get(0), 10d);
+    }
+
+    @Test
+    public void testLateDataReplacesValue() {
+        final SlidingWindowBuffer buffer = new SlidingWindowBuffer(300, 60);
+        buffer.advance(600);
+        buffer.put(1L, TAGS, 540, 1d);
+        buffer.put(1L, TAGS, 600, Double.NaN);
+        assertEquals(buffer.summary(1L, SummaryType.AVG), 1d);
+
+        buffer.put(1L, TAGS, 600, 3d);
+        assertEquals(buffer.summary(1L, SummaryType.SUM), 4d);
+        assertEquals(buffer.summary(1L, SummaryType.AVG), 2d);
+    }
+
+    @Test
+    public void testAdvanceEvicts() {
+        final SlidingWindowBuffer buffer = new SlidingWindowBuffer(300, 60);
+        buffer.advance(600);
+        for (long t = 360; t <= 600; t += 60) {
+            buffer.put(1L, TAGS, t, t);
+        }
+        buffer.put(2L, TAGS, 360, 1d);
+
+        buffer.advance(720);
+        buffer.put(1L, TAGS, 660, 660d);
+        buffer.put(1L, TAGS, 720, 720d);
+
+        assertEquals(buffer.size(), 1);
+        assertEquals(buffer.summary(1L, SummaryType.SUM), 480d + 540d + 600d + 660d + 720d);
+        assertTrue(Double.isNaN(buffer.summary(2L, SummaryType.SUM)));
+
+        buffer.advance(1200);
+        assertEquals(buffer.size(), 0);
+    }
+
+    @Test
+    public void testCanAdvanceTo() {
+        final SlidingWindowBuffer buffer = new SlidingWindowBuffer(300, 60);
+        assertFalse(buffer.canAdvanceTo(600, 600));
+
+        buffer.advance(600);
+        assertTrue(buffer.canAdvanceTo(660, 600));
+        assertFalse(buffer.canAdvanceTo(600, 600));
+        assertFalse(buffer.canAdvanceTo(720, 60));
+        assertFalse(buffer.canAdvanceTo(960, 600));
+    }
+}
@@ -0,0 +1,36 @@
+/*
+ * This file is part of OpenTSDB.
+ * Copyright (C) 2021 Yahoo.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package net.opentsdb.horizon.alerts.query.tsdb;
+
+import org.testng.annotations.Test;
+
+import static org.testng.Assert.assertNotSame;
+import static org.testng.Assert.assertSame;
+
+public class TSDBClientTest {
+
+    @Test
+    public void testClientsShareConnectionsPerHost() {
+        final TSDBClient first = new TSDBClient("https://tsdb-a", "none");
+        final TSDBClient second = new TSDBClient("https://tsdb-a", "none");
+        final TSDBClient otherHost = new TSDBClient("https://tsdb-b", "none");
+
+        assertSame(first.getAlertHttpsClient(), second.getAlertHttpsClient());
+        assertNotSame(first.getAlertHttpsClient(), otherHost.getAlertHttpsClient());
+    }
+}
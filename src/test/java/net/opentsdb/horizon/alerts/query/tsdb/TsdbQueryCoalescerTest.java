@@ -0,0 +1,197 @@
+/*
+ * This file is part of OpenTSDB.
+ * Copyright (C) 2021 Yahoo.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package net.opentsdb.horizon.alerts.query.tsdb;
+
+import net.opentsdb.horizon.alerts.AlertException;
+import org.testng.annotations.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertTrue;
+import static org.testng.Assert.fail;
+
+public class TsdbQueryCoalescerTest {
+
+    @Test
+    public void testIdenticalQueriesInFlightRunOnce() throws Exception {
+        final CountDownLatch release = new CountDownLatch(1);
+        final CountingClient client = new CountingClient(release);
+        final TsdbQueryCoalescer coalescer = new TsdbQueryCoalescer(true, 0, 10);
+
+        final ExecutorService executor = Executors.newFixedThreadPool(4);
+        try {
+            final List<Future<String>> futures = new ArrayList<>();
+            for (int i = 0; i < 4; i++) {
+                final long alertId = i;
+                futures.add(executor.submit(
+                        () -> coalescer.getResponse(client, "q1", alertId, "NS")));
+            }
+            while (coalescer.getExecuted() + coalescer.getCoalesced() < 4) {
+                Thread.sleep(5);
+            }
+            release.countDown();
+            for (Future<String> future : futures) {
+                assertEquals(future.get(5, TimeUnit.SECONDS), "response-q1");
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+
+        assertEquals(client.calls.get(), 1);
+        assertEquals(coalescer.getExecuted(), 1);
+        assertEquals(coalescer.getCoalesced(), 3);
+        assertEquals(coalescer.getInFlight(), 0);
+    }
+
+    @Test
+    public void testCompletedResponseIsCached() throws Exception {
+        final CountingClient client = new CountingClient(new CountDownLatch(0));
+        final TsdbQueryCoalescer coalescer = new TsdbQueryCoalescer(true, 60000, 10);
+
+        assertEquals(coalescer.getResponse(client, "q1", 1, "NS"), "response-q1");
+        assertEquals(coalescer.getResponse(client, "q1", 2, "NS"), "response-q1");
+        assertEquals(coalescer.getResponse(client, "q2", 3, "NS"), "response-q2");
+
+        assertEquals(client.calls.get(), 2);
+        assertEquals(coalescer.getHits(), 1);
+    }
+
+    @Test
+    public void testFailuresAreNotCached() throws Exception {
+        final CountingClient client = new CountingClient(new CountDownLatch(0));
+        client.fail = true;
+        final TsdbQueryCoalescer coalescer = new TsdbQueryCoalescer(true, 60000, 10);
+
+        for (int i = 0; i < 2; i++) {
+            try {
+                coalescer.getResponse(client, "q1", 1, "NS");
+                fail("Expected AlertException");
+            } catch (AlertException e) {
+                // expected
+            }
+        }
+        assertEquals(client.calls.get(), 2);
+    }
+
+    @Test
+    public void testErrorsAreSharedAsAlertExceptions() throws Exception {
+        final CountDownLatch release = new CountDownLatch(1);
+        final CountingClient client = new CountingClient(release);
+        client.error = true;
+        final TsdbQueryCoalescer coalescer = new TsdbQueryCoalescer(true, 60000, 1024);
+
+        final ExecutorService executor = Executors.newFixedThreadPool(2);
+        try {
+            final Future<String> first = executor.submit(
+                    () -> coalescer.getResponse(client, "q1", 1, "NS"));
+            while (coalescer.getExecuted() < 1) {
+                Thread.sleep(5);
+            }
+            final Future<String> second = executor.submit(
+                    () -> coalescer.getResponse(client, "q1", 2, "NS"));
+            while (coalescer.getCoalesced() < 1) {
+                Thread.sleep(5);
+            }
+            release.countDown();
+
+            try {
+                first.get(5, TimeUnit.SECONDS);
+                fail("Expected Error");
+            } catch (ExecutionException e) {
+                assertTrue(e.getCause() instanceof Error);
+            }
+            try {
+                second.get(5, TimeUnit.SECONDS);
+                fail("Expected AlertException");
+            } catch (ExecutionException e) {
+                assertTrue(e.getCause() instanceof AlertException);
+                assertTrue(e.getCause().getCause() instanceof Error);
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+        assertEquals(client.calls.get(), 1);
+        assertEquals(coalescer.getInFlight(), 0);
+    }
+
+    @Test
+    public void testCacheIsBoundedByBytes() throws Exception {
+        final CountingClient client = new CountingClient(new CountDownLatch(0));
+        // "sample\nq1" and "response-q1" weigh 2 * (9 + 11) = 40 bytes.
+        final TsdbQueryCoalescer coalescer = new TsdbQueryCoalescer(true, 60000, 16);
+
+        coalescer.getResponse(client, "q1", 1, "NS");
+        coalescer.getResponse(client, "q1", 2, "NS");
+
+        assertEquals(client.calls.get(), 2);
+        assertEquals(coalescer.getHits(), 0);
+    }
+
+    @Test
+    public void testDisabled() throws Exception {
+        final CountingClient client = new CountingClient(new CountDownLatch(0));
+        final TsdbQueryCoalescer coalescer = new TsdbQueryCoalescer(false, 60000, 10);
+
+        coalescer.getResponse(client, "q1", 1, "NS");
+        coalescer.getResponse(client, "q1", 2, "NS");
+
+        assertEquals(client.calls.get(), 2);
+    }
+
+    private static class CountingClient extends TSDBClient {
+
+        private final CountDownLatch release;
+
+        private final AtomicInteger calls = new AtomicInteger();
+
+        private volatile boolean fail = false;
+
+        private volatile boolean error = false;
+
+        CountingClient(final CountDownLatch release) {
+            super("sample", "none");
+            this.release = release;
+        }
+
+        @Override
+        public String getResponse(String query, String queryPath, long alertId) throws AlertException {
+            calls.incrementAndGet();
+            try {
+                release.await(5, TimeUnit.SECONDS);
+            } catch (InterruptedException e) {
+                throw new AlertException("interrupted", e);
+            }
+            if (fail) {
+                throw new AlertException("failed");
+            }
+            if (error) {
+                throw new Error("failed");
+            }
+            return "response-" + query;
+        }
+    }
+}
@@ -0,0 +1,86 @@
+/*
+ * This file is part of OpenTSDB.
+ * Copyright (C) 2021 Yahoo.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package net.opentsdb.horizon.alerts.snooze;
+
+import net.opentsdb.horizon.alerts.config.AlertConfig;
+import net.opentsdb.horizon.alerts.core.TestUtil;
+import net.opentsdb.horizon.alerts.model.MonitorEvent;
+import net.opentsdb.horizon.alerts.model.Snooze;
+import org.testng.annotations.Test;
+
+import java.io.IOException;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+
+import static org.testng.Assert.assertFalse;
+import static org.testng.Assert.assertSame;
+import static org.testng.Assert.assertTrue;
+
+public class SnoozeIndexTest {
+
+    private static final String TEST_DATA_ROOT = "src/test/resources/data/SnoozeFilterTest";
+
+    private static final MonitorEvent EVENT = new MonitorEvent() {
+        @Override
+        public String getNamespace() {
+            return "ns";
+        }
+
+        @Override
+        public Map<String, String> getTags() {
+            return Collections.singletonMap("host", "proc.den.opentsdb.net");
+        }
+    };
+
+    private static Snooze snooze(String file, long startTime, long endTime) throws IOException {
+        final Snooze snooze = TestUtil.getSnoozeCoonfigFromFile(TEST_DATA_ROOT + "/" + file);
+        snooze.overrideStartTime(startTime);
+        snooze.overrideEndTime(endTime);
+        return snooze;
+    }
+
+    @Test
+    public void testActiveSetFollowsStartAndEndTimes() throws IOException {
+        final Map<Long, Snooze> snoozes = new HashMap<>();
+        snoozes.put(1L, snooze("config-with-alertid.json", 1000L, 2000L));
+        snoozes.put(2L, snooze("config-with-label.json", 3000L, 4000L));
+        final SnoozeIndex index = SnoozeIndex.of(snoozes);
+
+        final AlertConfig alertConfig = TestUtil.getMetricAlertConfig(
+                TEST_DATA_ROOT + "/alertConfigs/alertid-179-label1.json");
+
+        assertFalse(index.isEmpty("NS"));
+        assertTrue(index.isEmpty("other"));
+
+        assertFalse(index.snooze(EVENT, alertConfig, 999L));
+        assertTrue(index.snooze(EVENT, alertConfig, 1000L));
+        assertTrue(index.snooze(EVENT, alertConfig, 1999L));
+        assertFalse(index.snooze(EVENT, alertConfig, 2000L));
+        assertTrue(index.snooze(EVENT, alertConfig, 3500L));
+        assertFalse(index.snooze(EVENT, alertConfig, 4000L));
+    }
+
+    @Test
+    public void testIndexIsSharedForTheSameSnoozes() throws IOException {
+        final Map<Long, Snooze> snoozes = Collections.singletonMap(1L,
+                TestUtil.makeActive(TestUtil.getSnoozeCoonfigFromFile(
+                        TEST_DATA_ROOT + "/config-with-alertid.json")));
+
+        assertSame(SnoozeIndex.of(snoozes), SnoozeIndex.of(snoozes));
+    }
+}
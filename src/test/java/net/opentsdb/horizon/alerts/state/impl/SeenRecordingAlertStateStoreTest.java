@@ -0,0 +1,75 @@
+/*
+ * This file is part of OpenTSDB.
+ * Copyright (C) 2021 Yahoo.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package net.opentsdb.horizon.alerts.state.impl;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.node.ArrayNode;
+import net.opentsdb.horizon.alerts.AlertUtils;
+import net.opentsdb.horizon.alerts.config.impl.DefaultTransitionConfig;
+import net.opentsdb.horizon.alerts.enums.AlertState;
+import net.opentsdb.horizon.alerts.state.AlertStateStore;
+import net.opentsdb.horizon.alerts.state.AlertStateStores;
+import org.testng.annotations.Test;
+
+import java.util.TreeMap;
+
+import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertNull;
+
+public class SeenRecordingAlertStateStoreTest {
+
+    private static final String NS = "namespace";
+
+    private static final long ALERT_ID = 1L;
+
+    private static TreeMap<String, String> host(String host) {
+        final TreeMap<String, String> tags = new TreeMap<>();
+        tags.put("host", host);
+        return tags;
+    }
+
+    @Test
+    public void testPurgeUnseenKeepsSeriesReturnedByNewQuery() {
+        final ArrayNode transitions = new ObjectMapper().createArrayNode();
+        transitions.add("goodToBad");
+        transitions.add("badToGood");
+        final AlertStateStore store = AlertStateStores.withTransitions("id", 300,
+                new DefaultTransitionConfig(transitions.iterator(), false));
+
+        store.raiseAlert(NS, ALERT_ID, host("host1"), AlertState.BAD);
+        store.updateDataPoint(NS, ALERT_ID, host("host1"), 1000L);
+        store.raiseAlert(NS, ALERT_ID, host("host2"), AlertState.BAD);
+        store.updateDataPoint(NS, ALERT_ID, host("host2"), 1000L);
+        store.updateDataPoint(NS, ALERT_ID, host("host3"), 1000L);
+
+        final SeenRecordingAlertStateStore recording = new SeenRecordingAlertStateStore(store);
+        recording.newRun();
+        // The new query only returns host1 and host3.
+        recording.raiseAlert(NS, ALERT_ID, host("host1"), AlertState.BAD);
+        final long host3 = AlertUtils.getHashForNAMT(NS, ALERT_ID, host("host3"));
+        recording.updateDataPoint(host3, () -> host("host3"), 1000L);
+
+        assertEquals(recording.purgeUnseen(), 1);
+        assertEquals(store.getCurrentState(
+                AlertUtils.getHashForNAMT(NS, ALERT_ID, host("host1"))), AlertState.BAD);
+        assertEquals(store.getLastSeenTime(host3), 1000L);
+        final long host2 = AlertUtils.getHashForNAMT(NS, ALERT_ID, host("host2"));
+        assertNull(store.getCurrentState(host2));
+        assertEquals(store.getLastSeenTime(host2), -1L);
+        assertEquals(store.size(), 2);
+    }
+}
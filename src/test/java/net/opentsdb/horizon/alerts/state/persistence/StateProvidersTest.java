@@ -0,0 +1,85 @@
+/*
+ * This file is part of OpenTSDB.
+ * Copyright (C) 2021 Yahoo.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package net.opentsdb.horizon.alerts.state.persistence;
+
+import net.opentsdb.horizon.alerts.config.AlertConfig;
+import net.opentsdb.horizon.alerts.config.impl.MetricAlertConfig;
+import net.opentsdb.horizon.alerts.enums.AlertType;
+import net.opentsdb.horizon.alerts.enums.MetricAlertType;
+import net.opentsdb.horizon.alerts.state.AlertStateStore;
+import org.testng.annotations.AfterMethod;
+import org.testng.annotations.Test;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Optional;
+
+import static org.mockito.Mockito.mock;
+import static org.testng.Assert.assertFalse;
+import static org.testng.Assert.assertSame;
+
+public class StateProvidersTest {
+
+    private static AlertConfig config(final long id) {
+        return new MetricAlertConfig("NS", AlertType.SIMPLE,
+                MetricAlertType.SINGLE_METRIC, id, 1000L);
+    }
+
+    /**
+     * Serves each state once, like the Pulsar provider.
+     */
+    private static StateProvider provider(final AlertConfig config, final AlertStateStore store) {
+        final Map<Long, AlertStateStore> stores = new HashMap<>();
+        stores.put(config.getAlertId(), store);
+        return alert -> Optional.ofNullable(stores.remove(alert.getAlertId()));
+    }
+
+    @AfterMethod
+    public void tearDown() {
+        StateProviders.initialize(null);
+    }
+
+    @Test
+    public void testHandoffKeepsStatesOfPreviousHandoffs() {
+        final AlertStateStore baseStore = mock(AlertStateStore.class);
+        final AlertStateStore firstStore = mock(AlertStateStore.class);
+        final AlertStateStore secondStore = mock(AlertStateStore.class);
+        StateProviders.initialize(provider(config(3), baseStore));
+
+        StateProviders.handoff(provider(config(1), firstStore));
+        StateProviders.handoff(provider(config(2), secondStore));
+
+        final StateProvider provider = StateProviders.getDefault();
+        assertSame(provider.get(config(1)).get(), firstStore);
+        assertSame(provider.get(config(2)).get(), secondStore);
+        assertSame(provider.get(config(3)).get(), baseStore);
+        assertFalse(provider.get(config(1)).isPresent());
+    }
+
+    @Test
+    public void testHandoffDropsTheOldestHandoffs() {
+        StateProviders.initialize(alert -> Optional.empty());
+
+        StateProviders.handoff(provider(config(1), mock(AlertStateStore.class)));
+        for (int i = 0; i < StateProviders.MAX_HANDOFFS; i++) {
+            StateProviders.handoff(alert -> Optional.empty());
+        }
+
+        assertFalse(StateProviders.getDefault().get(config(1)).isPresent());
+    }
+}